@@ -18,30 +18,34 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.PixmapIO;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.BufferUtils;
 import com.badlogic.gdx.utils.ScreenUtils;
 
 import net.hollowbit.archipelo.audio.MusicManager;
 import net.hollowbit.archipelo.audio.SoundManager;
-import net.hollowbit.archipelo.entity.EntityType;
 import net.hollowbit.archipelo.form.MobileCompatibleWindow;
 import net.hollowbit.archipelo.hollowbitserver.HollowBitServerConnectivity;
-import net.hollowbit.archipelo.items.ItemType;
 import net.hollowbit.archipelo.network.NetworkManager;
 import net.hollowbit.archipelo.screen.ScreenManager;
+import net.hollowbit.archipelo.screen.ScreenType;
 import net.hollowbit.archipelo.screen.screens.*;
+import net.hollowbit.archipelo.tools.AllocationMeter;
 import net.hollowbit.archipelo.tools.AssetManager;
+import net.hollowbit.archipelo.tools.AssetStreamer;
 import net.hollowbit.archipelo.tools.FontManager;
 import net.hollowbit.archipelo.tools.GameCamera;
 import net.hollowbit.archipelo.tools.LanguageSpecificMessageManager;
-import net.hollowbit.archipelo.tools.LanguageSpecificMessageManager.Cat;
 import net.hollowbit.archipelo.tools.PlayerInformationManager;
 import net.hollowbit.archipelo.tools.Prefs;
-import net.hollowbit.archipelo.tools.QuickUi;
 import net.hollowbit.archipelo.tools.ShaderManager;
 import net.hollowbit.archipelo.tools.ShaderManager.ShaderType;
+import net.hollowbit.archipelo.tools.StartupLoader;
+import net.hollowbit.archipelo.tools.TextureAtlasCache;
 import net.hollowbit.archipelo.tools.UiCamera;
+import net.hollowbit.archipelo.tools.rendering.CompositeSpriteCache;
+import net.hollowbit.archipelo.tools.rendering.TintBatch;
 import net.hollowbit.archipelo.world.MapElementManager;
 import net.hollowbit.archipelo.world.World;
 
@@ -49,7 +53,13 @@ public class ArchipeloClient extends ApplicationAdapter {
 	
 	public static final int PORT = 22122;
 	
-	public static final String VERSION = "0.1a";
+	/**
+	 * Sent when logging in, servers refuse clients of another version. Changes to the protocol need a new version.
+	 * 0.2a: Serializer negotiated with a SerializerPacket after logging in, instead of a field of the login packet.
+	 *       Controls are sent once per change with the step they start at, not on a timer, see ControlsPacket.
+	 *       ControlsPacket.c is a bitmask of the held controls instead of a string.
+	 */
+	public static final String VERSION = "0.2a";
 	public static final int TILE_SIZE = 16;
 	public static final int PLAYER_SIZE = 90;
 	public static final float UNITS_PER_PIXEL = 1 / 3f;//World pixels per screen pixel.
@@ -72,6 +82,9 @@ public class ArchipeloClient extends ApplicationAdapter {
 	ShaderManager shaderManager;
 	
 	AssetManager assetManager;
+	TextureAtlasCache textureAtlasCache;
+	AssetStreamer assetStreamer;
+	CompositeSpriteCache compositeSpriteCache;
 	NetworkManager networkManager;
 	ScreenManager screenManager;
 	MapElementManager elementManager;
@@ -91,53 +104,36 @@ public class ArchipeloClient extends ApplicationAdapter {
 	
 	LinkedList<MobileCompatibleWindow> windows;
 	
+	//Counted by the GL profiler in debug mode, for the last full frame
+	int drawCalls = 0;
+	int textureBindings = 0;
+	AllocationMeter allocationMeter;//Measures the world update and render, without the UI
+	
 	@Override
 	public void create () {
+		long startTime = System.nanoTime();
 		game = this;
 		Gdx.app.setLogLevel(Application.LOG_DEBUG);
 		
 		//Load prefs
 		prefs = new Prefs();
 		
-		batch = new SpriteBatch();
+		batch = new TintBatch();
 		shaderManager = new ShaderManager();
 		
-		skin = new Skin(Gdx.files.internal("ui/uiskin.json"));
-		
-		//Enable color markup on skin fonts
-		skin.getFont("default-font").getData().markupEnabled = true;
-		skin.getFont("medium-font").getData().markupEnabled = true;
-		skin.getFont("large-font").getData().markupEnabled = true;
-		skin.getFont("chat-font").getData().markupEnabled = true;
-		
-		//Temporary way to add assets
-		//Art
+		//Art is loaded by the startup loader
 		assetManager = new AssetManager();
-		//assetManager.putTextureMap("tiles", "tiles.png", TILE_SIZE, TILE_SIZE);
-		assetManager.putTextureMap("icons", "ui/icons.png", QuickUi.ICON_SIZE, QuickUi.ICON_SIZE, true);
-		assetManager.putTexture("blank", "blank.png");
-		assetManager.putTexture("blank-border", "blank_border.png");
-		//assetManager.putTexture("elements", "map_elements.png");
-		assetManager.putTexture("maptag", "maptag.png", true);
-		assetManager.putTexture("mainmenu-background", "mainmenu_background.png", true);
-		assetManager.putTexture("logo", "logo.png", true);
-		assetManager.putTexture("invalid", "invalid.png");//For some reason this image cannot be loaded by html. Fix later.
-		assetManager.putTexture("health-bar", "ui/statusbar/health.png");
-		assetManager.putTexture("mana-bar", "ui/statusbar/mana.png");
-		assetManager.putTexture("exp-bar", "ui/statusbar/exp.png");
-		assetManager.putTexture("status-bar-overlay", "ui/statusbar/overlay.png");
-		assetManager.putTexture("status-bar-background", "ui/statusbar/background.png");
-		assetManager.putTexture("garbage", "ui/garbage.png");
-		
-		//Audio
-		musicManager = new MusicManager();
-		soundManager = new SoundManager();
-
+		
+		//Map element, item and entity sheets are packed into a shared atlas as they load
+		textureAtlasCache = new TextureAtlasCache();
 		elementManager = new MapElementManager();
-		elementManager.loadMapElements();
 		
-		ItemType.loadAllAssets();
-		EntityType.loadAllImages();
+		//Entity and item animations are streamed in when first used
+		assetStreamer = new AssetStreamer();
+		
+		if (DEBUGMODE)
+			GLProfiler.enable();
+		allocationMeter = new AllocationMeter();
 		
 		//Cameras
 		cameraGame = new GameCamera();
@@ -151,21 +147,13 @@ public class ArchipeloClient extends ApplicationAdapter {
 		
 		//Managers
 		networkManager = new NetworkManager();
-		fontManager = new FontManager();
 		screenManager = new ScreenManager();
 		languageSpecificMessageManager = new LanguageSpecificMessageManager();
-		languageSpecificMessageManager.reloadWithNewLanguage();
 		hollowBitServerConnectivity = new HollowBitServerConnectivity();
 		playerInformationManager = new PlayerInformationManager();
 		
-		if (hollowBitServerConnectivity.connect()) {
-			if (DEBUGMODE) {
-				screenManager.setScreen(new DebugStartScreen());
-				//screenManager.setScreen(new FontTestScreen());
-			} else
-				screenManager.setScreen(new MainMenuScreen());
-		} else
-			screenManager.setScreen(new ErrorScreen(languageSpecificMessageManager.getMessage(Cat.UI, "couldNotConnectToHB")));
+		//Connects and loads everything else on worker threads, the loading screen opens the main menu once it is done
+		screenManager.setScreen(new LoadingScreen(new StartupLoader(startTime)));
 		
 		//For testing purposes
 		//IS_MOBILE = true;
@@ -197,8 +185,19 @@ public class ArchipeloClient extends ApplicationAdapter {
 			pixmap.dispose();
 		}
 		
-		if (Gdx.input.isKeyJustPressed(Keys.F3))
+		if (Gdx.input.isKeyJustPressed(Keys.F3)) {
 			DEBUGMODE = !DEBUGMODE;
+			if (DEBUGMODE)
+				GLProfiler.enable();
+			else
+				GLProfiler.disable();
+		}
+		
+		if (GLProfiler.isEnabled()) {
+			drawCalls = GLProfiler.drawCalls;
+			textureBindings = GLProfiler.textureBindings;
+			GLProfiler.reset();
+		}
 		
 		//Enable/disable placeholder art mode
 		if (Gdx.input.isKeyJustPressed(Keys.F4))
@@ -219,11 +218,16 @@ public class ArchipeloClient extends ApplicationAdapter {
 		if (batch.isDrawing())
 			batch.end();
 		
-		hollowBitServerConnectivity.update(DELTA_TIME);
+		if (screenManager.getScreen() != null && screenManager.getScreenType() != ScreenType.LOADING)//The loading screen handles failed connections
+			hollowBitServerConnectivity.update(DELTA_TIME);
+		
+		if (DEBUGMODE)
+			allocationMeter.start();
 		
 		networkManager.update();
 		screenManager.update(DELTA_TIME);
 		cameraGame.update(DELTA_TIME);
+		assetStreamer.update();
 		
 		batch.setProjectionMatrix(cameraGame.combined());
 		batch.begin();
@@ -236,6 +240,9 @@ public class ArchipeloClient extends ApplicationAdapter {
 		if (batch.isDrawing())
 			batch.end();
 		
+		if (DEBUGMODE)
+			allocationMeter.stop(DELTA_TIME);
+		
 		if (!CINEMATIC_MODE) {
 			batch.begin();
 			batch.setProjectionMatrix(cameraUi.combined());
@@ -260,6 +267,11 @@ public class ArchipeloClient extends ApplicationAdapter {
 	public void dispose() {
 		super.dispose();
 		batch.dispose();
+		textureAtlasCache.save();
+		assetStreamer.dispose();
+		textureAtlasCache.dispose();
+		if (compositeSpriteCache != null)//Not made if closed while loading
+			compositeSpriteCache.dispose();
 	}
 	
 	@Override
@@ -268,6 +280,48 @@ public class ArchipeloClient extends ApplicationAdapter {
 		super.pause();
 	}
 	
+	@Override
+	public void resume() {
+		super.resume();
+		if (compositeSpriteCache != null)
+			compositeSpriteCache.invalidateAll();//Frame buffer contents don't survive losing the GL context
+	}
+	
+	/**
+	 * Loads the UI skin. Called by the startup loader.
+	 */
+	public void loadSkin () {
+		skin = new Skin(Gdx.files.internal("ui/uiskin.json"));
+		
+		//Enable color markup on skin fonts
+		skin.getFont("default-font").getData().markupEnabled = true;
+		skin.getFont("medium-font").getData().markupEnabled = true;
+		skin.getFont("large-font").getData().markupEnabled = true;
+		skin.getFont("chat-font").getData().markupEnabled = true;
+	}
+	
+	/**
+	 * Loads all fonts. Called by the startup loader.
+	 */
+	public void loadFonts () {
+		fontManager = new FontManager();
+	}
+	
+	/**
+	 * Loads music and the sound list. Called by the startup loader.
+	 */
+	public void loadAudio () {
+		musicManager = new MusicManager();
+		soundManager = new SoundManager();
+	}
+	
+	/**
+	 * Creates the frame buffer for composited sprites. Called by the startup loader.
+	 */
+	public void loadCompositeSpriteCache () {
+		compositeSpriteCache = new CompositeSpriteCache(PLAYER_SIZE, PLAYER_SIZE);
+	}
+	
 	public SpriteBatch getBatch () {
 		return batch;
 	}
@@ -288,6 +342,38 @@ public class ArchipeloClient extends ApplicationAdapter {
 		return assetManager;
 	}
 	
+	public TextureAtlasCache getTextureAtlasCache () {
+		return textureAtlasCache;
+	}
+	
+	public AssetStreamer getAssetStreamer () {
+		return assetStreamer;
+	}
+	
+	public CompositeSpriteCache getCompositeSpriteCache () {
+		return compositeSpriteCache;
+	}
+	
+	/**
+	 * Number of GL draw calls in the last frame. Only counted in debug mode.
+	 * @return
+	 */
+	public int getDrawCalls () {
+		return drawCalls;
+	}
+	
+	/**
+	 * Number of texture binds in the last frame. Only counted in debug mode.
+	 * @return
+	 */
+	public int getTextureBindings () {
+		return textureBindings;
+	}
+	
+	public AllocationMeter getAllocationMeter () {
+		return allocationMeter;
+	}
+	
 	public NetworkManager getNetworkManager () {
 		return networkManager;
 	}
@@ -16,7 +16,7 @@ public class MapAudioManager {
 	
 	public void applyChangesSnapshot (MapSnapshot snapshot) {
 		for (SoundPlayData data : snapshot.sounds) {
-			if (ArchipeloClient.getGame().getSoundManager().hasSound(data.path)) {
+			if (SoundCalculator.isInHearingRange(data.x, data.y) && ArchipeloClient.getGame().getSoundManager().hasSound(data.path)) {
 				float volume = SoundCalculator.calculateVolume(data.x, data.y);
 				float pan = SoundCalculator.calculatePan(data.x, data.y);
 				ArchipeloClient.getGame().getSoundManager().play(data.path, volume, 1, pan);
@@ -3,17 +3,31 @@ package net.hollowbit.archipelo.audio;
 import com.badlogic.gdx.math.Vector2;
 
 import net.hollowbit.archipelo.ArchipeloClient;
-import net.hollowbit.archipelo.tools.StaticTools;
 
 public class SoundCalculator {
 	
 	public static final int HEARING_DISTANCE = 50;//tiles
+	public static final int HEARING_DISTANCE_SQUARED = HEARING_DISTANCE * HEARING_DISTANCE;
 	
 	public static float calculateDistanceBetweenEntity(int x, int y) {
+		return (float) Math.sqrt(calculateDistanceSquared(x, y));
+	}
+	
+	/**
+	 * Squared distance in tiles between the player and a tile. Enough to compare distances without a square root.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static int calculateDistanceSquared(int x, int y) {
 		Vector2 playerPos = ArchipeloClient.getGame().getWorld().getPlayer().getCenterPointTile();
 		int xDif = (int) (playerPos.x - x);
 		int yDif = (int) (playerPos.y - y);
-		return StaticTools.imperfectSqrt((xDif * xDif) + (yDif * yDif));
+		return (xDif * xDif) + (yDif * yDif);
+	}
+	
+	public static boolean isInHearingRange(int tileX, int tileY) {
+		return calculateDistanceSquared(tileX, tileY) <= HEARING_DISTANCE_SQUARED;
 	}
 	
 	/**
@@ -23,14 +37,22 @@ public class SoundCalculator {
 	 * @return
 	 */
 	public static float calculateVolume(int tileX, int tileY) {
-		float distance = calculateDistanceBetweenEntity(tileX, tileY);
-		if (distance > HEARING_DISTANCE)
+		return calculateVolumeAtDistanceSquared(calculateDistanceSquared(tileX, tileY));
+	}
+	
+	/**
+	 * Calculates the volume to play a sound at, from its squared distance to the player in tiles.
+	 * @param distanceSquared
+	 * @return
+	 */
+	public static float calculateVolumeAtDistanceSquared(int distanceSquared) {
+		if (distanceSquared > HEARING_DISTANCE_SQUARED)
 			return 0;
 		
-		if (distance < 2)
+		if (distanceSquared < 4)
 			return 1;
 		
-		return 1 / (distance / 2);
+		return 2 / (float) Math.sqrt(distanceSquared);
 	}
 	
 	/**
@@ -40,14 +62,21 @@ public class SoundCalculator {
 	 * @return
 	 */
 	public static float calculatePan(int tileX, int tileY) {
-		int xDif = (int) (tileX - ArchipeloClient.getGame().getWorld().getPlayer().getCenterPointTile().x);
-		
+		return calculatePanAtOffset((int) (tileX - ArchipeloClient.getGame().getWorld().getPlayer().getCenterPointTile().x));
+	}
+	
+	/**
+	 * Calculate the pan to play a sound at, from how many tiles it is to the right of the player.
+	 * @param xDif
+	 * @return
+	 */
+	public static float calculatePanAtOffset(int xDif) {
 		if (xDif < -HEARING_DISTANCE)
 			return -1;
 		if (xDif > HEARING_DISTANCE)
 			return 1;
 		
-		return xDif / HEARING_DISTANCE;
+		return xDif / (float) HEARING_DISTANCE;
 	}
 	
 	/**
@@ -1,6 +1,7 @@
 package net.hollowbit.archipelo.audio;
 
 import java.util.HashMap;
+import java.util.HashSet;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Sound;
@@ -10,88 +11,141 @@ import net.hollowbit.archipelo.tools.StaticTools;
 
 public class SoundManager {
 	
+	private HashSet<String> soundPaths;
+	private HashSet<String> missingSoundPaths;//Unlisted paths with no file, so each one is only checked on disk once
 	private HashMap<String, Sound> sounds;
+	private HashMap<String, Integer> references;
 	
 	public SoundManager () {
+		soundPaths = new HashSet<String>();
+		missingSoundPaths = new HashSet<String>();
 		sounds = new HashMap<String, Sound>();
+		references = new HashMap<String, Integer>();
 		
-		//Load all sounds form the sound list file
-		String[] soundPaths = StaticTools.getJson().fromJson(String[].class, Gdx.files.internal("shared/sounds.json"));
-		for (String path : soundPaths) {
-			Sound sound = Gdx.audio.newSound(Gdx.files.internal("sounds/" + path + ".ogg"));
-			sounds.put(path, sound);
-		}
+		//Sounds from the sound list file are loaded the first time they are played
+		for (String path : StaticTools.getJson().fromJson(String[].class, Gdx.files.internal("shared/sounds.json")))
+			soundPaths.add(path);
 	}
 	
-	public void loadSound(String path) {
+	/**
+	 * Adds a reference to a sound and loads it. Used by streamed entity and item types so their sounds can be unloaded with them.
+	 * @param path
+	 */
+	public void retainSound(String path) {
 		if (!hasSound(path))
-			sounds.put(path, Gdx.audio.newSound(Gdx.files.internal("sounds/" + path + ".ogg")));
+			return;
+		
+		Integer count = references.get(path);
+		references.put(path, count == null ? 1 : count + 1);
+		getSound(path);
+	}
+	
+	/**
+	 * Removes a reference to a sound, unloading it once there are none left. It will be loaded again if it is played.
+	 * @param path
+	 */
+	public void releaseSound(String path) {
+		Integer count = references.get(path);
+		if (count == null)
+			return;
+		
+		if (count > 1) {
+			references.put(path, count - 1);
+		} else {
+			references.remove(path);
+			Sound sound = sounds.remove(path);
+			if (sound != null)
+				sound.dispose();
+		}
 	}
 	
 	public boolean hasSound(String path) {
-		if (path != null && !path.equals(""))
-			return sounds.containsKey(path);
-		return false;
+		if (path == null || path.equals("") || missingSoundPaths.contains(path))
+			return false;
+		
+		//Sounds that aren't in the list can still be played if their file exists
+		if (!soundPaths.contains(path)) {
+			if (!Gdx.files.internal("sounds/" + path + ".ogg").exists()) {
+				missingSoundPaths.add(path);
+				return false;
+			}
+			soundPaths.add(path);
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns a sound, loading it if this is the first time it is used.
+	 * @param path
+	 * @return
+	 */
+	private Sound getSound(String path) {
+		Sound sound = sounds.get(path);
+		if (sound == null) {
+			sound = Gdx.audio.newSound(Gdx.files.internal("sounds/" + path + ".ogg"));
+			sounds.put(path, sound);
+		}
+		return sound;
 	}
 	
 	public long play(String path) {
 		if (hasSound(path))
-			return sounds.get(path).play(getVolume());
+			return getSound(path).play(getVolume());
 		return -1;
 	}
 	
 	public long play(String path, float volume) {
 		if (hasSound(path))
-			return sounds.get(path).play(volume * getVolume());
+			return getSound(path).play(volume * getVolume());
 		return -1;
 	}
 	
 	public long play(String path, float volume, float pitch, float pan) {
 		if (hasSound(path))
-			return sounds.get(path).play(volume * getVolume(), pitch, pan);
+			return getSound(path).play(volume * getVolume(), pitch, pan);
 		return -1;
 	}
 	
 	public long loop(String path) {
 		if (hasSound(path))
-			return sounds.get(path).loop(getVolume());
+			return getSound(path).loop(getVolume());
 		return -1;
 	}
 	
 	public long loop(String path, float volume) {
 		if (hasSound(path))
-			return sounds.get(path).loop(volume * getVolume());
+			return getSound(path).loop(volume * getVolume());
 		return -1;
 	}
 	
 	public long loop(String path, float volume, float pitch, float pan) {
 		if (hasSound(path))
-			return sounds.get(path).loop(volume * getVolume(), pitch, pan);
+			return getSound(path).loop(volume * getVolume(), pitch, pan);
 		return -1;
 	}
 	
 	public void setPan(String path, long id, float pan, float volume) {
-		if (hasSound(path))
+		if (sounds.containsKey(path))
 			sounds.get(path).setPan(id, pan, volume * getVolume());
 	}
 	
 	public void setPitch(String path, long id, float pitch) {
-		if (hasSound(path))
+		if (sounds.containsKey(path))
 			sounds.get(path).setPitch(id, pitch);
 	}
 	
 	public void stop(String path, long id) {
-		if (hasSound(path))
+		if (sounds.containsKey(path))
 			sounds.get(path).stop(id);
 	}
 	
 	public void resume(String path, long id) {
-		if (hasSound(path))
+		if (sounds.containsKey(path))
 			sounds.get(path).resume(id);
 	}
 	
 	public void pause(String path, long id) {
-		if (hasSound(path))
+		if (sounds.containsKey(path))
 			sounds.get(path).pause(id);
 	}
 	
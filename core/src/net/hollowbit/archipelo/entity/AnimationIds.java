@@ -0,0 +1,79 @@
+package net.hollowbit.archipelo.entity;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns animation names to small integer ids, so animations can be compared and looked up without string comparisons.
+ * Ids are given out when entity types load their animations and never change after that.
+ * @author vedi0boy
+ *
+ */
+public class AnimationIds {
+	
+	private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private static final ArrayList<String> names = new ArrayList<String>();
+	
+	//Animations with item frames, in the order they are registered in below
+	public static final int DEFAULT = 0;
+	public static final int WALK = 1;
+	public static final int SPRINT = 2;
+	public static final int ROLL = 3;
+	public static final int USE = 4;
+	public static final int USEWALK = 5;
+	public static final int THRUST = 6;
+	
+	static {
+		getId("default");
+		getId("walk");
+		getId("sprint");
+		getId("roll");
+		getId("use");
+		getId("usewalk");
+		getId("thrust");
+	}
+	
+	private AnimationIds () {}
+	
+	/**
+	 * Returns the id of an animation name, giving it a new one if it doesn't have one yet.
+	 * @param name
+	 * @return
+	 */
+	public static int getId (String name) {
+		Integer id = ids.get(name);
+		if (id != null)
+			return id;
+		
+		synchronized (names) {
+			id = ids.get(name);
+			if (id == null) {
+				id = names.size();
+				names.add(name);
+				ids.put(name, id);
+			}
+			return id;
+		}
+	}
+	
+	/**
+	 * Returns the id of an animation name, or -1 if no animation has that name. Doesn't give out new ids.
+	 * @param name
+	 * @return
+	 */
+	public static int findId (String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+	
+	public static String getName (int id) {
+		synchronized (names) {
+			return names.get(id);
+		}
+	}
+	
+	public static int getIdCount () {
+		return ids.size();
+	}
+	
+}
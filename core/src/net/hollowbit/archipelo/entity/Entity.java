@@ -35,6 +35,12 @@ public abstract class Entity implements RenderableGameWorldObject {
 	protected float flashTimer = 0;
 	protected boolean damageFlash;
 	
+	//Bounds owned by this entity, only placed again when it has moved since they were last used
+	private CollisionRect viewRect;
+	private CollisionRect[] collisionRects;
+	private CollisionRect[] potentialCollisionRects;//Placed at positions the entity checks before moving there
+	private float boundsX, boundsY;
+	
 	public Entity () {
 		components = new ArrayList<EntityComponent>();
 	}
@@ -50,6 +56,12 @@ public abstract class Entity implements RenderableGameWorldObject {
 		this.location = new Location(map, new Vector2(pos.x, pos.y), Direction.values()[fullSnapshot.getInt("direction", 0)]);
 		animationManager = new EntityAnimationManager(this, fullSnapshot);
 		audioManager = new EntityAudioManager(this, fullSnapshot.footSound);
+		
+		boundsX = location.getX();
+		boundsY = location.getY();
+		viewRect = entityType.getViewRect(boundsX, boundsY);
+		collisionRects = entityType.getCollisionRects(boundsX, boundsY);
+		potentialCollisionRects = entityType.getCollisionRects(boundsX, boundsY);
 	}
 	
 	/**
@@ -111,7 +123,7 @@ public abstract class Entity implements RenderableGameWorldObject {
 			if ((dX * dX) + (dY * dY) <= HEALTHBAR_RENDER_DISTANCE * HEALTHBAR_RENDER_DISTANCE) {
 				float fraction = StaticTools.singleDimentionLerpFraction(0, getMaxHealth(), health);
 				batch.setColor(1, 0, 0, 1);
-				batch.draw(ArchipeloClient.getGame().getAssetManager().getTexture("blank"), location.getX(), location.getY() + getViewRect().height + 2, getViewRect().width * fraction, 1);
+				batch.draw(ArchipeloClient.getGame().getAssetManager().getTexture("blank"), getDrawX(), getDrawY() + getViewRect().height + 2, getViewRect().width * fraction, 1);
 				batch.setColor(1, 1, 1, 1);
 			}
 		}
@@ -167,6 +179,7 @@ public abstract class Entity implements RenderableGameWorldObject {
 	 * Called when the entity is loaded
 	 */
 	public void load () {
+		ArchipeloClient.getGame().getAssetStreamer().retain(entityType);
 		for (EntityComponent component : components)
 			component.load();
 	}
@@ -178,6 +191,7 @@ public abstract class Entity implements RenderableGameWorldObject {
 		audioManager.dispose();
 		for (EntityComponent component : components)
 			component.unload();
+		ArchipeloClient.getGame().getAssetStreamer().release(entityType);
 	}
 	
 	/**
@@ -185,6 +199,8 @@ public abstract class Entity implements RenderableGameWorldObject {
 	 */
 	public void moved() {
 		audioManager.moved();
+		if (location.getMap() != null)
+			location.getWorld().entityMoved(this);
 	}
 	
 	public void teleport(float x, float y, Direction direction) {
@@ -253,17 +269,49 @@ public abstract class Entity implements RenderableGameWorldObject {
 		return animationManager;
 	}
 
+	/**
+	 * Collision rects of this entity where it is. The rects belong to the entity and must not be modified.
+	 * @return
+	 */
 	public CollisionRect[] getCollisionRects () {
-		return entityType.getCollisionRects(location.getX(), location.getY());
+		updateBounds();
+		return collisionRects;
 	}
 	
+	/**
+	 * Collision rects of this entity if it were at a position. The rects are reused by the next call, so don't keep them.
+	 * @param potentialPosition
+	 * @return
+	 */
 	public CollisionRect[] getCollisionRects (Vector2 potentialPosition) {
-		return entityType.getCollisionRects(potentialPosition.x, potentialPosition.y);
+		for (CollisionRect rect : potentialCollisionRects)
+			rect.move(potentialPosition.x, potentialPosition.y);
+		return potentialCollisionRects;
 	}
 	
+	/**
+	 * View rect of this entity. The rect belongs to the entity and must not be modified.
+	 */
 	@Override
 	public CollisionRect getViewRect () {
-		return entityType.getViewRect(location.getX(), location.getY());
+		updateBounds();
+		return viewRect;
+	}
+	
+	/**
+	 * Places the view and collision rects where the entity is, if it moved since they were last placed.
+	 */
+	private void updateBounds () {
+		float x = location.getX();
+		float y = location.getY();
+		if (x == boundsX && y == boundsY)
+			return;
+		
+		boundsX = x;
+		boundsY = y;
+		viewRect.move(x, y);
+		for (CollisionRect rect : collisionRects)
+			rect.move(x, y);
 	}
 	
 	public float getRenderY () {
@@ -315,12 +363,24 @@ public abstract class Entity implements RenderableGameWorldObject {
 		return ignoreHardness;
 	}
 	
+	/**
+	 * Where the entity is drawn. Can differ from its location while a prediction error is being smoothed out.
+	 * @return
+	 */
+	public float getDrawX () {
+		return location.getX();
+	}
+	
+	public float getDrawY () {
+		return location.getY();
+	}
+	
 	/**
 	 * Exact center point of the entities view rect.
 	 * @return
 	 */
 	public Vector2 getCenterPoint () {
-		CollisionRect viewRect = entityType.getViewRect(location.getX(), location.getY());
+		CollisionRect viewRect = getViewRect();
 		return new Vector2(location.getX() + viewRect.width / 2, location.getY() + viewRect.height / 2);
 	}
 	
@@ -8,7 +8,7 @@ import net.hollowbit.archipeloshared.EntitySnapshot;
 public class EntityAnimationManager {
 	
 	private Entity entity;
-	private String id;
+	private int id;//From AnimationIds
 	private EntityAnimationData data;
 	private float stateTime;
 	private String meta;
@@ -19,7 +19,7 @@ public class EntityAnimationManager {
 	
 	public EntityAnimationManager (Entity entity, EntitySnapshot fullSnapshot) {
 		this.entity = entity;
-		this.id = fullSnapshot.getString("anim", entity.getEntityType().getDefaultAnimationId());
+		this.id = AnimationIds.getId(fullSnapshot.getString("anim", entity.getEntityType().getDefaultAnimationId()));
 		this.stateTime = fullSnapshot.getFloat("animTime", 0);
 		this.meta = fullSnapshot.getString("animMeta", "");
 		this.data = entity.getEntityType().getEntityAnimation(id).getData();
@@ -31,7 +31,7 @@ public class EntityAnimationManager {
 	 * @param batch
 	 */
 	public void render (SpriteBatch batch) {
-		batch.draw(entity.getEntityType().getAnimationFrame(id, entity.getLocation().getDirection(), stateTime, entity.getStyle()), entity.getLocation().getX(), entity.getLocation().getY());
+		batch.draw(entity.getEntityType().getAnimationFrame(id, entity.getLocation().getDirection(), stateTime, entity.getStyle()), entity.getDrawX(), entity.getDrawY());
 	}
 	
 	/**
@@ -54,9 +54,13 @@ public class EntityAnimationManager {
 	 * @param animationId
 	 */
 	public void changeWithoutReset(String animationId) {
-		if (entity.getEntityType().hasAnimation(animationId)) {
-			this.id = animationId;
-			this.data = entity.getEntityType().getEntityAnimation(animationId).getData();
+		this.changeWithoutReset(AnimationIds.findId(animationId));
+	}
+	
+	public void changeWithoutReset(int animation) {
+		if (entity.getEntityType().hasAnimation(animation)) {
+			this.id = animation;
+			this.data = entity.getEntityType().getEntityAnimation(animation).getData();
 		}
 	}
 	
@@ -67,7 +71,7 @@ public class EntityAnimationManager {
 	 */
 	public void change (EntitySnapshot changes) {
 		if (changes.doesPropertyExist("anim")) {
-			this.id = changes.getString("anim", this.id);
+			this.id = AnimationIds.getId(changes.getString("anim", getAnimationId()));
 			this.meta = changes.getString("animMeta", meta);
 			this.animationLength = changes.getFloat("animLength", animationLength);
 			if (changes.getBoolean("resetAnim", false))
@@ -76,19 +80,40 @@ public class EntityAnimationManager {
 	}
 	
 	public void change (String animationId) {
-		this.change(animationId, "");
+		this.change(AnimationIds.findId(animationId));
 	}
 	
 	public void change (String animationId, String animationMeta) {
-		this.change(animationId, animationMeta, entity.getEntityType().getEntityAnimation(animationId).getTotalRuntime(), false, false);
+		this.change(AnimationIds.findId(animationId), animationMeta);
 	}
 	
 	public void change (String animationId, String animationMeta, float customAnimationLength, boolean stickOnLastFrame, boolean canEndEarly) {
-		if (entity.getEntityType().hasAnimation(animationId)) {
-			if (!animationId.equals(id))
+		this.change(AnimationIds.findId(animationId), animationMeta, customAnimationLength, stickOnLastFrame, canEndEarly);
+	}
+	
+	public void change (int animation) {
+		this.change(animation, "");
+	}
+	
+	public void change (int animation, String animationMeta) {
+		if (entity.getEntityType().hasAnimation(animation))
+			this.change(animation, animationMeta, entity.getEntityType().getEntityAnimation(animation).getTotalRuntime(), false, false);
+	}
+	
+	/**
+	 * Changes the animation, resetting the state time if it is a different one.
+	 * @param animation Id from {@link AnimationIds}
+	 * @param animationMeta
+	 * @param customAnimationLength
+	 * @param stickOnLastFrame
+	 * @param canEndEarly
+	 */
+	public void change (int animation, String animationMeta, float customAnimationLength, boolean stickOnLastFrame, boolean canEndEarly) {
+		if (entity.getEntityType().hasAnimation(animation)) {
+			if (animation != id)
 				this.stateTime = 0;
-			this.id = animationId;
-			this.data = entity.getEntityType().getEntityAnimation(animationId).getData();
+			this.id = animation;
+			this.data = entity.getEntityType().getEntityAnimation(animation).getData();
 			this.meta = animationMeta;
 			this.animationLength = customAnimationLength;
 			
@@ -107,13 +132,13 @@ public class EntityAnimationManager {
 		}
 		this.endWhenPossible = false;
 		
-		EntityAnimationObject newAnim = entity.animationCompleted(id);
+		EntityAnimationObject newAnim = entity.animationCompleted(getAnimationId());
 		
 		//Set new animation if not null
 		if (newAnim != null)
 			this.change(newAnim.animationId, newAnim.animationMeta);
 		else//If null, use the default animation for this entity
-			this.change(entity.getEntityType().getDefaultAnimationId());
+			this.change(entity.getEntityType().getDefaultAnimation());
 	}
 	
 	private boolean canEndAnimation() {
@@ -125,6 +150,14 @@ public class EntityAnimationManager {
 	}
 	
 	public String getAnimationId() {
+		return AnimationIds.getName(id);
+	}
+	
+	/**
+	 * Id of the current animation in {@link AnimationIds}.
+	 * @return
+	 */
+	public int getAnimation() {
 		return id;
 	}
 
@@ -137,7 +170,7 @@ public class EntityAnimationManager {
 	 * @return
 	 */
 	public boolean isUseAnimation () {
-		return id.equals("use") || id.equals("usewalk") || id.equals("thrust");
+		return id == AnimationIds.USE || id == AnimationIds.USEWALK || id == AnimationIds.THRUST;
 	}
 	
 	/**
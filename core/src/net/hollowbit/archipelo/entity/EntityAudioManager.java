@@ -1,38 +1,111 @@
 package net.hollowbit.archipelo.entity;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 
 import com.badlogic.gdx.math.Vector2;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.audio.SoundCalculator;
 import net.hollowbit.archipelo.audio.Soundlet;
+import net.hollowbit.archipelo.entity.living.CurrentPlayer;
 import net.hollowbit.archipeloshared.EntitySnapshot;
 
 public class EntityAudioManager {
 	
+	public static final float AUDIO_TICK = 0.05f;//Seconds between volume and pan updates of footstep loops
+	public static final int MAX_FOOTSTEP_LOOPS = 8;//Only the nearest footstep loops are played
+	
 	//Keep track of current audio manager
 	private static ArrayList<EntityAudioManager> audioManagers;
+	private static ArrayList<EntityAudioManager> audibleFootsteps;
+	private static float tickTimer = 0;
+	private static boolean changed = false;//Whether the player, an entity or a footstep loop changed since the last tick
+	
+	private static final Comparator<EntityAudioManager> NEAREST_FIRST = new Comparator<EntityAudioManager>() {
+		@Override
+		public int compare (EntityAudioManager manager1, EntityAudioManager manager2) {
+			return manager1.distanceSquared - manager2.distanceSquared;
+		}
+	};
 	
 	static {
 		audioManagers = new ArrayList<EntityAudioManager>();
+		audibleFootsteps = new ArrayList<EntityAudioManager>();
 	}
 	
+	/**
+	 * Call when the player moved. Footstep loops are updated on the next audio tick.
+	 */
 	public static void moveAll () {
-		for (EntityAudioManager manager : audioManagers)
-			manager.moved();
+		changed = true;
+	}
+	
+	/**
+	 * Updates the volume and pan of footstep loops at a fixed tick if anything moved.
+	 * Loops out of hearing range are stopped, and only the nearest {@link #MAX_FOOTSTEP_LOOPS} are played.
+	 * @param deltaTime
+	 */
+	public static void updateAll (float deltaTime) {
+		tickTimer += deltaTime;
+		if (tickTimer < AUDIO_TICK)
+			return;
+		tickTimer = 0;
+		
+		CurrentPlayer player = ArchipeloClient.getGame().getWorld().getPlayer();
+		if (!changed || player == null)
+			return;
+		changed = false;
+		
+		Vector2 playerPos = player.getCenterPointTile();
+		int playerX = (int) playerPos.x;
+		int playerY = (int) playerPos.y;
+		
+		//Cull loops out of hearing range
+		audibleFootsteps.clear();
+		for (EntityAudioManager manager : audioManagers) {
+			if (manager.footstepName.equals(""))
+				continue;
+			
+			manager.xDif = (int) (manager.entity.getFootX() / ArchipeloClient.TILE_SIZE) - playerX;
+			int yDif = (int) (manager.entity.getFootY() / ArchipeloClient.TILE_SIZE) - playerY;
+			manager.distanceSquared = manager.xDif * manager.xDif + yDif * yDif;
+			if (manager.distanceSquared <= SoundCalculator.HEARING_DISTANCE_SQUARED)
+				audibleFootsteps.add(manager);
+			else
+				manager.stopFootstepLoop();
+		}
+		
+		//Play the nearest loops, stop the rest
+		Collections.sort(audibleFootsteps, NEAREST_FIRST);
+		for (int i = 0; i < audibleFootsteps.size(); i++) {
+			EntityAudioManager manager = audibleFootsteps.get(i);
+			if (i < MAX_FOOTSTEP_LOOPS)
+				manager.updateFootstepLoop(SoundCalculator.calculateVolumeAtDistanceSquared(manager.distanceSquared), SoundCalculator.calculatePanAtOffset(manager.xDif));
+			else
+				manager.stopFootstepLoop();
+		}
 	}
 	/////////////////////
 	
 	private String footstepName;
 	private Soundlet footstepSound;
+	private float footstepPitch = 1;
+	private boolean footstepPlaying = false;
 	private Entity entity;
 	
+	//From the last audio tick
+	private int distanceSquared;
+	private int xDif;
+	
 	public EntityAudioManager (Entity entity, String sound) {
 		this.entity = entity;
-		this.footstepSound = new Soundlet(sound);
-		this.footstepName = sound;
+		this.footstepSound = new Soundlet(null);
+		this.footstepName = "";
 		audioManagers.add(this);
+		if (sound != null)
+			setFootstepSound(sound, 1);
 	}
 	
 	/**
@@ -51,6 +124,8 @@ public class EntityAudioManager {
 		if ((snapshot.sounds != null && !snapshot.sounds.isEmpty()) || (snapshot.usounds != null && !snapshot.usounds.isEmpty())) {
 			Vector2 entityPos = entity.getCenterPointTile();
 			float volume = SoundCalculator.calculateVolume((int) entityPos.x, (int) entityPos.y);
+			if (volume <= 0)//Out of hearing range
+				return;
 			float pan = SoundCalculator.calculatePan((int) entityPos.x, (int) entityPos.y);
 			
 			//Loop through sounds to play and play them all
@@ -73,6 +148,8 @@ public class EntityAudioManager {
 	public void playUnsafeSound (String sound) {
 		Vector2 entityPos = entity.getCenterPointTile();
 		float volume = SoundCalculator.calculateVolume((int) entityPos.x, (int) entityPos.y);
+		if (volume <= 0)//Out of hearing range
+			return;
 		float pan = SoundCalculator.calculatePan((int) entityPos.x, (int) entityPos.y);
 		ArchipeloClient.getGame().getSoundManager().play(sound, volume, 1, pan);
 	}
@@ -81,35 +158,55 @@ public class EntityAudioManager {
 		this.setFootstepSound("", 1);
 	}
 	
+	/**
+	 * Changes the footstep loop of this entity. It starts playing on the next audio tick if it is near enough to the player.
+	 * @param sound
+	 * @param pitch
+	 */
 	public void setFootstepSound (String sound, float pitch) {
 		if (!sound.equals(footstepName)) {//Sound changed
 			if (sound.equals("")) {
 				footstepSound.redefine(null);
 				footstepName = "";
+				footstepPlaying = false;
 			} else {
 				if (entity.getEntityType().hasFootstepSound()) {
 					footstepSound.redefine("footsteps/" + sound);
-					
-					Vector2 entityPos = entity.getFeetTile();
-					float volume = SoundCalculator.calculateVolume((int) entityPos.x, (int) entityPos.y);
-					float pan = SoundCalculator.calculatePan((int) entityPos.x, (int) entityPos.y);
-					footstepSound.loop(volume, pitch, pan);
 					footstepName = sound;
+					footstepPlaying = false;
+					changed = true;
 				}
 			}
 		}
-		footstepSound.setPitch(pitch);
+		
+		if (pitch != footstepPitch) {
+			footstepPitch = pitch;
+			if (footstepPlaying)
+				footstepSound.setPitch(pitch);
+		}
+	}
+	
+	private void updateFootstepLoop (float volume, float pan) {
+		if (footstepPlaying) {
+			footstepSound.setPan(pan, volume);
+		} else {
+			footstepSound.loop(volume, footstepPitch, pan);
+			footstepPlaying = true;
+		}
+	}
+	
+	private void stopFootstepLoop () {
+		if (footstepPlaying) {
+			footstepSound.stop();
+			footstepPlaying = false;
+		}
 	}
 	
 	/**
-	 * Call this method if either the player or this entity has moved.
-	 * Use this sparingly since its calculations are costly.
+	 * Call this method if either the player or this entity has moved. The footstep loop is updated on the next audio tick.
 	 */
 	public void moved () {
-		Vector2 entityPos = entity.getFeetTile();
-		float volume = SoundCalculator.calculateVolume((int) entityPos.x, (int) entityPos.y);
-		float pan = SoundCalculator.calculatePan((int) entityPos.x, (int) entityPos.y);
-		footstepSound.setPan(pan, volume);
+		changed = true;
 	}
 	
 	public void dispose () {
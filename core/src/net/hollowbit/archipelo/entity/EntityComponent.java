@@ -44,7 +44,16 @@ public abstract class EntityComponent {
 	 * @param stateTime
 	 */
 	protected void render (SpriteBatch batch, String animation, float stateTime) {
-		batch.draw(entity.getEntityType().getAnimationFrame(animation, entity.getLocation().getDirection(), stateTime, entity.getStyle()), entity.getLocation().getX(), entity.getLocation().getY());;
+		render(batch, AnimationIds.findId(animation), stateTime);
+	}
+	
+	/**
+	 * Allows to quickly render an entity using a different animation than the current.
+	 * @param animation Id from {@link AnimationIds}
+	 * @param stateTime
+	 */
+	protected void render (SpriteBatch batch, int animation, float stateTime) {
+		batch.draw(entity.getEntityType().getAnimationFrame(animation, entity.getLocation().getDirection(), stateTime, entity.getStyle()), entity.getDrawX(), entity.getDrawY());
 	}
 	
 	public void interpolate (long timeStamp, EntitySnapshot snapshot1, EntitySnapshot snapshot2, float fraction) {}
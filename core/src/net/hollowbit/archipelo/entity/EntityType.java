@@ -1,19 +1,20 @@
 package net.hollowbit.archipelo.entity;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 
+import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.entity.lifeless.*;
 import net.hollowbit.archipelo.entity.living.*;
 import net.hollowbit.archipelo.tools.AssetManager;
+import net.hollowbit.archipelo.tools.StreamedAsset;
+import net.hollowbit.archipelo.tools.rendering.FrameTable;
 import net.hollowbit.archipelo.world.Map;
 import net.hollowbit.archipeloshared.CollisionRect;
 import net.hollowbit.archipeloshared.Direction;
@@ -23,7 +24,7 @@ import net.hollowbit.archipeloshared.EntitySoundData;
 import net.hollowbit.archipeloshared.EntityTypeData;
 
 @SuppressWarnings("rawtypes")
-public enum EntityType {
+public enum EntityType implements StreamedAsset {
 	
 	PLAYER ("player", Player.class),
 	TELEPORTER ("teleporter", Teleporter.class),
@@ -39,6 +40,7 @@ public enum EntityType {
 	private String id;
 	private Class entityClass;
 	private HashMap<String, EntityAnimation> animations;
+	private EntityAnimation[] animationsById;//Indexed by animation id, null for animations this type doesn't have
 	private int numberOfStyles;
 	private boolean hittable;
 	
@@ -56,6 +58,7 @@ public enum EntityType {
 	private int imgHeight;
 	
 	private String defaultAnimationId;
+	private int defaultAnimation;
 	
 	private HashMap<String, String> sounds;
 	
@@ -94,15 +97,23 @@ public enum EntityType {
 		//Load animations
 		animations = new HashMap<String, EntityAnimation>();
 		boolean first = true;
+		int maxAnimation = -1;
 		for (EntityAnimationData animationData : data.animations) {
-			animations.put(animationData.id, new EntityAnimation(animationData));
+			EntityAnimation animation = new EntityAnimation(animationData);
+			animations.put(animationData.id, animation);
+			maxAnimation = Math.max(maxAnimation, animation.getIntId());
 			
 			if (first) {
 				defaultAnimationId = animationData.id;
+				defaultAnimation = animation.getIntId();
 				first = false;
 			}
 		}
 		
+		animationsById = new EntityAnimation[maxAnimation + 1];
+		for (EntityAnimation animation : animations.values())
+			animationsById[animation.getIntId()] = animation;
+		
 		//Load sounds
 		sounds = new HashMap<String, String>();
 		if (data.sounds != null) {
@@ -173,35 +184,70 @@ public enum EntityType {
 	}
 	
 	public TextureRegion getAnimationFrame (String id, Direction direction, float stateTime, int style) {
-		return animations.get(id).getAnimationFrame(direction, stateTime, style);
+		return getAnimationFrame(AnimationIds.findId(id), direction, stateTime, style);
+	}
+	
+	/**
+	 * Get frame of an animation by its id from {@link AnimationIds}.
+	 * @param animation
+	 * @param direction
+	 * @param stateTime
+	 * @param style
+	 * @return
+	 */
+	public TextureRegion getAnimationFrame (int animation, Direction direction, float stateTime, int style) {
+		if (!ArchipeloClient.getGame().getAssetStreamer().request(this))
+			return ArchipeloClient.getGame().getAssetStreamer().getPlaceholder();
+		return getEntityAnimation(animation).getAnimationFrame(direction, stateTime, style);
 	}
 	
 	public EntityAnimation getEntityAnimation (String id) {
 		return animations.get(id);
 	}
 	
+	public EntityAnimation getEntityAnimation (int animation) {
+		if (animation < 0 || animation >= animationsById.length)
+			return null;
+		return animationsById[animation];
+	}
+	
 	public String getDefaultAnimationId() {
 		return defaultAnimationId;
 	}
 	
-	public void loadImages () {
-		Iterator it = animations.entrySet().iterator();
-		while (it.hasNext()) {
-			((EntityAnimation) ((HashMap.Entry)it.next()).getValue()).loadImages(id, numberOfStyles, imgWidth, imgHeight);
-		}
+	public int getDefaultAnimation() {
+		return defaultAnimation;
 	}
 	
-	public void unloadImages () {
-		Iterator it = animations.entrySet().iterator();
-		while (it.hasNext()) {
-			((EntityAnimation) ((HashMap.Entry)it.next()).getValue()).unloadImages();
-		}
+	/**
+	 * Loads the images and sounds of this entity type. Called by the asset streamer once an entity of this type is loaded or drawn.
+	 */
+	@Override
+	public void loadAssets () {
+		for (EntityAnimation animation : animations.values())
+			animation.loadImages(id, numberOfStyles, imgWidth, imgHeight);
+		
+		for (String sound : sounds.values())
+			ArchipeloClient.getGame().getSoundManager().retainSound(sound);
+	}
+	
+	@Override
+	public void unloadAssets () {
+		for (EntityAnimation animation : animations.values())
+			animation.unloadImages();
+		
+		for (String sound : sounds.values())
+			ArchipeloClient.getGame().getSoundManager().releaseSound(sound);
 	}
 	
 	public boolean hasAnimation(String animationId) {
 		return animations.containsKey(animationId);
 	}
 	
+	public boolean hasAnimation(int animation) {
+		return getEntityAnimation(animation) != null;
+	}
+	
 	public boolean hasSound (String name) {
 		return sounds.containsKey(name);
 	}
@@ -244,27 +290,17 @@ public enum EntityType {
 		return entityTypeMap.get(fullSnapshot.type).getNewEntityOfType(fullSnapshot, map);
 	}
 	
-	public static void loadAllImages () {
-		for (EntityType entityType : EntityType.values()) {
-			entityType.loadImages();
-		}
-	}
-	
-	public static void unloadAllImages () {
-		for (EntityType entityType : EntityType.values()) {
-			entityType.unloadImages();
-		}
-	}
-	
 	public class EntityAnimation {
 		
-		Animation[][] animations;
+		FrameTable frames;//Has a row for every direction, even ones without their own frames
 		EntityAnimationData entityAnimationData;
-		Texture[] srcTextures;
+		int intId;
+		ArrayList<String> sheetPaths;
 		boolean loaded;
 		
 		public EntityAnimation (EntityAnimationData entityAnimationData) {
 			this.entityAnimationData = entityAnimationData;
+			this.intId = AnimationIds.getId(entityAnimationData.id);
 			loaded = false;
 		}
 		
@@ -278,28 +314,31 @@ public enum EntityType {
 		public void loadImages (String entityId, int numberOfStyles, int imgWidth, int imgHeight) {
 			if (!loaded) {
 				loaded = true;
-				animations = new Animation[numberOfStyles][entityAnimationData.numberOfDirections];
-				srcTextures = new Texture[numberOfStyles];
+				frames = new FrameTable(numberOfStyles, Direction.TOTAL);
+				sheetPaths = new ArrayList<String>();
 				for (int i = 0; i < numberOfStyles; i++) {
 					String fileName = entityAnimationData.fileName.equals("") ? entityAnimationData.id : entityAnimationData.fileName;
-					srcTextures[i] = new Texture("entities/" + entityId + "/" + fileName + "_" + i + ".png");
-					TextureRegion[][] animationRegion = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(srcTextures[i], imgWidth, imgHeight));
-					for (int u = 0; u < entityAnimationData.numberOfDirections; u++) {
-						animations[i][u] = new Animation(entityAnimationData.totalRuntime / animationRegion[u].length, animationRegion[u]);
+					String path = "entities/" + entityId + "/" + fileName + "_" + i + ".png";
+					sheetPaths.add(path);
+					TextureRegion sheet = ArchipeloClient.getGame().getTextureAtlasCache().getRegion(path);
+					TextureRegion[][] animationRegion = AssetManager.fixBleedingSpriteSheet(sheet.split(imgWidth, imgHeight));
+					for (int u = 0; u < Direction.TOTAL; u++) {
+						frames.set(i, u, animationRegion[getSheetRow(u)]);
 					}
 				}
 			}
 		}
 		
 		/**
-		 * Disposes of textures for this animation
+		 * Releases the frames of this animation and its sheets in the atlas.
 		 */
 		public void unloadImages () {
 			if (loaded) {
 				loaded = false;
-				for (Texture texture : srcTextures) {
-					texture.dispose();
-				}
+				frames = null;
+				for (String path : sheetPaths)
+					ArchipeloClient.getGame().getTextureAtlasCache().releaseRegion(path);
+				sheetPaths = null;
 			}
 		}
 		
@@ -311,23 +350,27 @@ public enum EntityType {
 		 * @return
 		 */
 		public TextureRegion getAnimationFrame (Direction direction, float stateTime, int style) {
-			if (entityAnimationData.totalRuntime <= 0)//Special rule to make animation with no runtime only render first frame
-				stateTime = 0;
-			
-			int animationIndex = 0;
-			if (direction.ordinal() >= entityAnimationData.numberOfDirections) {
-				switch (entityAnimationData.numberOfDirections) {
-				case 1:
-					animationIndex = 0;
-					break;
-				case 4:
-					animationIndex = direction.ordinal() % 4;
-					break;
-				}
-			} else {
-				animationIndex = direction.ordinal();
-			}
-			return animations[style][animationIndex].getKeyFrame(stateTime, entityAnimationData.looping);
+			//Animations with no runtime only render their first frame
+			return frames.getFrame(style, direction.ordinal(), stateTime, entityAnimationData.totalRuntime, entityAnimationData.looping);
+		}
+		
+		/**
+		 * Row of the sheet used for a direction. Animations with fewer directions reuse rows.
+		 * @param direction
+		 * @return
+		 */
+		private int getSheetRow (int direction) {
+			if (direction < entityAnimationData.numberOfDirections)
+				return direction;
+			return entityAnimationData.numberOfDirections == 4 ? direction % 4 : 0;
+		}
+		
+		/**
+		 * Id of this animation in {@link AnimationIds}.
+		 * @return
+		 */
+		public int getIntId () {
+			return intId;
 		}
 		
 		public float getTotalRuntime () {
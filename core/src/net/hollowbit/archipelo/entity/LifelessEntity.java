@@ -14,12 +14,16 @@ public abstract class LifelessEntity extends Entity {
 	public void render (SpriteBatch batch) {
 		super.render(batch);
 		if (texture != null)
-			batch.draw(texture, location.getX(), location.getY());
+			batch.draw(texture, getDrawX(), getDrawY());
 	}
 	
 	@Override
 	public void applyChangesSnapshot(EntitySnapshot snapshot) {
+		float oldX = location.getX();
+		float oldY = location.getY();
 		location.set(snapshot.getFloat("x", location.getX()), snapshot.getFloat("y", location.getY()), Direction.values()[snapshot.getInt("direction", location.direction.ordinal())]);
+		if (location.getX() != oldX || location.getY() != oldY)
+			moved();
 		super.applyChangesSnapshot(snapshot);
 	}
 	
@@ -1,9 +1,8 @@
 package net.hollowbit.archipelo.entity;
 
-import com.badlogic.gdx.math.Vector2;
-
 import net.hollowbit.archipelo.world.Map;
 import net.hollowbit.archipeloshared.EntitySnapshot;
+import net.hollowbit.archipeloshared.PropertyKeys;
 
 public abstract class LivingEntity extends Entity {
 	
@@ -22,14 +21,18 @@ public abstract class LivingEntity extends Entity {
 	@Override
 	public void interpolate(long timeStamp, EntitySnapshot snapshotFrom, EntitySnapshot snapshotTo, float fraction) {
 		super.interpolate(timeStamp, snapshotFrom, snapshotTo, fraction);
-		Vector2 oldPos = new Vector2(location.pos);
+		float oldX = location.pos.x;
+		float oldY = location.pos.y;
 		
-		Vector2 packet1Pos = new Vector2(snapshotFrom.getFloat("x", location.getX()), snapshotFrom.getFloat("y", location.getY()));
-		Vector2 packet2Pos = new Vector2(snapshotTo.getFloat("x", location.getX()), snapshotTo.getFloat("y", location.getY()));
+		//Typed slot lookups, snapshots are decoded when they arrive so nothing is parsed here
+		float x1 = snapshotFrom.getFloat(PropertyKeys.X, oldX);
+		float y1 = snapshotFrom.getFloat(PropertyKeys.Y, oldY);
+		float x2 = snapshotTo.getFloat(PropertyKeys.X, oldX);
+		float y2 = snapshotTo.getFloat(PropertyKeys.Y, oldY);
 		
-		location.pos.set(packet1Pos.lerp(packet2Pos, fraction));
+		location.pos.set(x1 + (x2 - x1) * fraction, y1 + (y2 - y1) * fraction);
 		
-		isMoving = !location.pos.epsilonEquals(oldPos, 1);
+		isMoving = Math.abs(location.pos.x - oldX) > 1 || Math.abs(location.pos.y - oldY) > 1;
 		if (isMoving)
 			moved();
 	}
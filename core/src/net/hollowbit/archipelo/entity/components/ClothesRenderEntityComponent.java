@@ -1,8 +1,13 @@
 package net.hollowbit.archipelo.entity.components;
 
+import java.util.Arrays;
+
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.entity.Entity;
 import net.hollowbit.archipelo.entity.EntityComponent;
 import net.hollowbit.archipelo.entity.living.CurrentPlayer;
@@ -10,17 +15,27 @@ import net.hollowbit.archipelo.entity.living.Player;
 import net.hollowbit.archipelo.items.Item;
 import net.hollowbit.archipelo.items.ItemType;
 import net.hollowbit.archipelo.tools.StaticTools;
+import net.hollowbit.archipelo.tools.rendering.CompositeSpriteCache.CompositeKey;
 import net.hollowbit.archipeloshared.Direction;
 import net.hollowbit.archipeloshared.EntitySnapshot;
 
 public class ClothesRenderEntityComponent extends EntityComponent {
 	
+	private static final int MAX_LAYERS = Player.EQUIP_SIZE + 3;//Body, each display item and two extra face layers
+	
 	private Item[] displayInventory;
+	private Outfit outfit;
 	private UseAnimationMeta useAnimationMeta;
+	private boolean loaded = false;
+	private CompositeKey compositeKey;
+	private Color color;
 	
 	public ClothesRenderEntityComponent (Entity entity, Item[] currentDisplayInventory) {
 		super(entity);
 		this.displayInventory = currentDisplayInventory;
+		this.outfit = new Outfit(currentDisplayInventory);
+		this.compositeKey = new CompositeKey(MAX_LAYERS);
+		this.color = new Color();
 	}
 	
 	@Override
@@ -33,32 +48,26 @@ public class ClothesRenderEntityComponent extends EntityComponent {
 		if (previouslyCancelled)
 			return false;
 		
-		float x = entity.getLocation().getX();
-		float y = entity.getLocation().getY();
+		float x = entity.getDrawX();
+		float y = entity.getDrawY();
 		
 		Direction direction = entity.getDirection();
-		String animationId = entity.getAnimationManager().getAnimationId();
+		int animation = entity.getAnimationManager().getAnimation();
 		float stateTime = entity.getAnimationManager().getStateTime();
-		float animationLength = entity.getEntityType().getEntityAnimation(animationId).getTotalRuntime();
+		float animationLength = entity.getEntityType().getEntityAnimation(animation).getTotalRuntime();
 		
-		if (animationId.equals("roll"))//Rolling animation use meta data for rolling direction
+		if (animation == AnimationIds.ROLL)//Rolling animation use meta data for rolling direction
 			direction = Direction.values()[Integer.parseInt(entity.getAnimationManager().getAnimationMeta())];
 		
-		batch.draw(entity.getEntityType().getAnimationFrame(animationId, direction, stateTime, entity.getStyle()), x, y);
-		
 		boolean isUseAnimation = entity.getAnimationManager().isUseAnimation();
 		if (isUseAnimation) {
 			if (entity.getAnimationManager().getAnimationMeta().equals("")) {//If there is no meta data
 				animationLength = CurrentPlayer.EMPTY_HAND_USE_ANIMATION_LENTH;
 			} else {//If there is, load it if it's not already loaded
-				if (useAnimationMeta == null) {
+				if (useAnimationMeta == null)
 					useAnimationMeta = new UseAnimationMeta(entity.getAnimationManager().getAnimationMeta());
-					if (useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE)
-						animationLength = useAnimationMeta.useItem.getUseAnimationLength(useAnimationMeta.useType);
-				} else {
-					if (useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE)
-						animationLength = useAnimationMeta.useItem.getUseAnimationLength(useAnimationMeta.useType);
-				}
+				if (useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE)
+					animationLength = useAnimationMeta.useItem.getUseAnimationLength(useAnimationMeta.useType);
 			}
 		} else {
 			useAnimationMeta = null;
@@ -68,18 +77,18 @@ public class ClothesRenderEntityComponent extends EntityComponent {
 		if (entity.getDirection() == Direction.UP || entity.getDirection() == Direction.UP_LEFT || entity.getDirection() == Direction.UP_RIGHT)
 			renderUsableFirst = true;
 		
-		//If facing up, render the usable item first
-		if (renderUsableFirst) {
-			if (isUseAnimation && useAnimationMeta != null) {
-				if (useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE) {//Only render use animation if item is usable
-					batch.setColor(new Color(useAnimationMeta.useColorR, useAnimationMeta.useColorG, useAnimationMeta.useColorB, useAnimationMeta.useColorA));
-					batch.draw(useAnimationMeta.useItem.getAnimationFrameForUsable(direction, stateTime, useAnimationMeta.style, useAnimationMeta.useType), x, y);
-					batch.setColor(1, 1, 1, 1);
-				}
-			}
-		}
+		//Collect the body and display item layers, bottom first
+		TextureRegion placeholder = ArchipeloClient.getGame().getAssetStreamer().getPlaceholder();
+		TextureRegion bodyFrame = entity.getEntityType().getAnimationFrame(animation, direction, stateTime, entity.getStyle());
+		compositeKey.begin(outfit);
+		
+		//If facing up, render the usable item between the body and display items, so the body can't be part of the composite
+		if (renderUsableFirst && isUsableVisible(isUseAnimation)) {
+			batch.draw(bodyFrame, x, y);
+			renderUsable(batch, x, y, direction, stateTime);
+		} else
+			compositeKey.add(bodyFrame, Item.DEFAULT_COLOR);
 		
-		//Render display items
 		for (int i = 0; i < displayInventory.length - 1; i++) {//Loop through each part of equipable
 			Item displayItem = displayInventory[i];
 			
@@ -92,43 +101,105 @@ public class ClothesRenderEntityComponent extends EntityComponent {
 			if (displayItem == null || displayItem.getType() == null)//Don't draw null clothes
 				continue;
 			
+			ItemType type = displayItem.getType();
 			if (i == Player.EQUIP_INDEX_FACE) {//Change color of different face elements such as for hair, iris, etc.
-				batch.setColor(1, 1, 1, 1);
-				batch.draw(ItemType.getItemTypeByItem(displayItem).getAnimationFrame(animationId, direction, stateTime, 0, animationLength), x, y);//Draw mouth
-				
-				batch.setColor(new Color(displayItem.color));
-				batch.draw(ItemType.getItemTypeByItem(displayItem).getAnimationFrame(animationId, direction, stateTime, 1, animationLength), x, y);//Draw eye's iris with color
-				
-				batch.setColor(new Color(displayInventory[Player.EQUIP_INDEX_HAIR].color));
-				batch.draw(ItemType.getItemTypeByItem(displayItem).getAnimationFrame(animationId, direction, stateTime, 2, animationLength), x, y);//Draw eyebrows with hair color
-			} else {
-				batch.setColor(new Color(displayItem.color));
-				batch.draw(ItemType.getItemTypeByItem(displayItem).getAnimationFrame(animationId, direction, stateTime, displayItem.style, animationLength), x, y);
+				compositeKey.add(type.getAnimationFrame(animation, direction, stateTime, 0, animationLength), Item.DEFAULT_COLOR);//Mouth
+				compositeKey.add(type.getAnimationFrame(animation, direction, stateTime, 1, animationLength), displayItem.color);//Eye's iris with color
+				compositeKey.add(type.getAnimationFrame(animation, direction, stateTime, 2, animationLength), displayInventory[Player.EQUIP_INDEX_HAIR].color);//Eyebrows with hair color
+			} else
+				compositeKey.add(type.getAnimationFrame(animation, direction, stateTime, displayItem.style, animationLength), displayItem.color);
+		}
+		
+		//Draw the layers as one cached sprite, unless some are still loading or the cache is busy this frame
+		boolean complete = true;
+		for (int i = 0; i < compositeKey.getLayerCount(); i++) {
+			if (compositeKey.getLayer(i) == null || compositeKey.getLayer(i) == placeholder)
+				complete = false;
+		}
+		
+		TextureRegion composite = complete ? ArchipeloClient.getGame().getCompositeSpriteCache().get(compositeKey, batch) : null;
+		if (composite != null) {
+			batch.draw(composite, x, y);
+		} else {
+			for (int i = 0; i < compositeKey.getLayerCount(); i++) {
+				if (compositeKey.getLayer(i) == null)
+					continue;
+				Color.rgba8888ToColor(color, compositeKey.getColor(i));
+				batch.setColor(color);
+				batch.draw(compositeKey.getLayer(i), x, y);
 			}
-			
 			batch.setColor(1, 1, 1, 1);
 		}
 		
 		//If not facing up, render the usable item last
-		if (!renderUsableFirst) {
-			if (isUseAnimation && useAnimationMeta != null) {
-				if (useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE) {//Only render use animation if item is usable
-					batch.setColor(new Color(useAnimationMeta.useColorR, useAnimationMeta.useColorG, useAnimationMeta.useColorB, useAnimationMeta.useColorA));
-					batch.draw(useAnimationMeta.useItem.getAnimationFrameForUsable(direction, stateTime, useAnimationMeta.style, useAnimationMeta.useType), x, y);
-					batch.setColor(1, 1, 1, 1);
-				}
-			}
-		}
+		if (!renderUsableFirst && isUsableVisible(isUseAnimation))
+			renderUsable(batch, x, y, direction, stateTime);
 		
 		return false;
 	}
 	
+	private boolean isUsableVisible(boolean isUseAnimation) {
+		return isUseAnimation && useAnimationMeta != null && useAnimationMeta.useItem.equipType == ItemType.EQUIP_INDEX_USABLE;//Only render use animation if item is usable
+	}
+	
+	private void renderUsable(SpriteBatch batch, float x, float y, Direction direction, float stateTime) {
+		batch.setColor(useAnimationMeta.useColor);
+		batch.draw(useAnimationMeta.useItem.getAnimationFrameForUsable(direction, stateTime, useAnimationMeta.style, useAnimationMeta.useType), x, y);
+		batch.setColor(1, 1, 1, 1);
+	}
+	
 	@Override
 	public void applyChangesSnapshot(EntitySnapshot snapshot) {
 		super.applyChangesSnapshot(snapshot);
 		
 		if (snapshot.doesPropertyExist("displayInventory")) {
+			Item[] oldDisplayInventory = displayInventory;
 			this.displayInventory = StaticTools.getJson().fromJson(Item[].class, snapshot.getString("displayInventory", ""));
+			
+			//Drop cached sprites of the old outfit
+			Outfit newOutfit = new Outfit(displayInventory);
+			if (!newOutfit.equals(outfit)) {
+				ArchipeloClient.getGame().getCompositeSpriteCache().invalidate(outfit);
+				outfit = newOutfit;
+			}
+			
+			//Retain new items before releasing old ones so items still worn aren't unloaded
+			if (loaded) {
+				retainItems(displayInventory);
+				releaseItems(oldDisplayInventory);
+			}
+		}
+	}
+	
+	@Override
+	public void load() {
+		loaded = true;
+		retainItems(displayInventory);
+	}
+	
+	@Override
+	public void unload() {
+		loaded = false;
+		releaseItems(displayInventory);
+	}
+	
+	private void retainItems(Item[] items) {
+		if (items == null)
+			return;
+		
+		for (Item item : items) {
+			if (item != null && item.getType() != null)
+				ArchipeloClient.getGame().getAssetStreamer().retain(item.getType());
+		}
+	}
+	
+	private void releaseItems(Item[] items) {
+		if (items == null)
+			return;
+		
+		for (Item item : items) {
+			if (item != null && item.getType() != null)
+				ArchipeloClient.getGame().getAssetStreamer().release(item.getType());
 		}
 	}
 
@@ -141,10 +212,7 @@ public class ClothesRenderEntityComponent extends EntityComponent {
 		public ItemType useItem;
 		public int useType;
 		public int style;
-		public float useColorR;
-		public float useColorG;
-		public float useColorB;
-		public float useColorA;
+		public Color useColor;
 		
 		public UseAnimationMeta (String meta) {
 			try {
@@ -152,14 +220,52 @@ public class ClothesRenderEntityComponent extends EntityComponent {
 				useItem = ItemType.getItemTypeById(split[0]);
 				useType = Integer.parseInt(split[1]);
 				style = Integer.parseInt(split[2]);
-				useColorR = Float.parseFloat(split[3]);
-				useColorG = Float.parseFloat(split[4]);
-				useColorB = Float.parseFloat(split[5]);
-				useColorA = Float.parseFloat(split[6]);
+				useColor = new Color(Float.parseFloat(split[3]), Float.parseFloat(split[4]), Float.parseFloat(split[5]), Float.parseFloat(split[6]));
 			} catch (Exception e) {
 				throw new IllegalArgumentException("Invalid aniamtion meta.");
 			}
 		}
 	}
 	
+	/**
+	 * The items, styles and colors of a display inventory. Players wearing the same outfit share cached sprites.
+	 */
+	private static class Outfit {
+		
+		private String[] ids;
+		private int[] styles;
+		private int[] colors;
+		private int hash;
+		
+		public Outfit (Item[] items) {
+			int length = items == null ? 0 : items.length;
+			ids = new String[length];
+			styles = new int[length];
+			colors = new int[length];
+			for (int i = 0; i < length; i++) {
+				if (items[i] != null) {
+					ids[i] = items[i].id;
+					styles[i] = items[i].style;
+					colors[i] = items[i].color;
+				}
+			}
+			hash = 31 * (31 * Arrays.hashCode(ids) + Arrays.hashCode(styles)) + Arrays.hashCode(colors);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Outfit))
+				return false;
+			
+			Outfit outfit = (Outfit) obj;
+			return hash == outfit.hash && Arrays.equals(ids, outfit.ids) && Arrays.equals(styles, outfit.styles) && Arrays.equals(colors, outfit.colors);
+		}
+		
+	}
+	
 }
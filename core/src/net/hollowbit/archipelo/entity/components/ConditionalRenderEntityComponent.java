@@ -3,13 +3,14 @@ package net.hollowbit.archipelo.entity.components;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.entity.Entity;
 import net.hollowbit.archipelo.entity.EntityComponent;
 import net.hollowbit.archipeloshared.EntitySnapshot;
 
 public class ConditionalRenderEntityComponent extends EntityComponent {
 
-	private String animation;
+	private int animation;
 	private String propertyKey;
 	private String currentValue;
 	private String compareValue;
@@ -17,7 +18,7 @@ public class ConditionalRenderEntityComponent extends EntityComponent {
 	
 	public ConditionalRenderEntityComponent (Entity entity, String animation, String propertyKey, String compareValue, boolean requiredCondition, boolean defaultValue) {
 		super(entity);
-		this.animation = animation;
+		this.animation = AnimationIds.getId(animation);
 		this.propertyKey = propertyKey;
 		if (defaultValue)
 			this.currentValue = compareValue;
@@ -3,6 +3,7 @@ package net.hollowbit.archipelo.entity.components;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.entity.Entity;
 import net.hollowbit.archipelo.entity.EntityComponent;
 
@@ -14,7 +15,7 @@ import net.hollowbit.archipelo.entity.EntityComponent;
 public class FlagRenderEntityComponent extends EntityComponent {
 	
 	private String flag;
-	private String animation;
+	private int animation;
 	private boolean requiredValue;
 	
 	public FlagRenderEntityComponent (Entity entity, String flag, String animation) {
@@ -31,7 +32,7 @@ public class FlagRenderEntityComponent extends EntityComponent {
 	public FlagRenderEntityComponent (Entity entity, String flag, String animation, boolean requiredValue) {
 		super(entity);
 		this.flag = flag;
-		this.animation = animation;
+		this.animation = AnimationIds.getId(animation);
 		this.requiredValue = requiredValue;
 	}
 	
@@ -8,6 +8,7 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Vector2;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.entity.Entity;
 import net.hollowbit.archipelo.entity.EntityAnimationManager.EntityAnimationObject;
 import net.hollowbit.archipelo.entity.EntityAudioManager;
@@ -39,28 +40,71 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	public static final float EMPTY_HAND_USE_ANIMATION_LENTH = 0.5f;
 	public static final float HIT_RANGE = 8;
 	
+	//Position corrections
+	public static float CORRECTION_TOLERANCE = 0.5f;//Pixels the server position may differ from the predicted one without correcting
+	public static float CORRECTION_SMOOTHING_TIME = 0.2f;//Seconds over which the drawn position catches up with a correction
+	public static float CORRECTION_SNAP_DISTANCE = ArchipeloClient.TILE_SIZE * 3;//Larger corrections are not smoothed
+	public static final float CORRECTION_SAMPLE_TIME = 1;//Seconds correction metrics are averaged over
+	
 	float rollDoubleClickTimer = 0;
 	
 	MovementLog movementLog;
+	MovementLog.Simulation replaySimulation = new MovementLog.Simulation() {
+		
+		@Override
+		public void moveTo (float x, float y) {
+			location.pos.set(x, y);
+		}
+		
+		@Override
+		public void step (int controls) {
+			applyCommand(controls);
+		}
+		
+		@Override
+		public float getX () {
+			return location.getX();
+		}
+		
+		@Override
+		public float getY () {
+			return location.getY();
+		}
+		
+	};
 	boolean[] controls;
+	int controlBits = 0;
+	Vector2 stepPos;//Reused by each movement step
 	float playerSpeed;
 	Vector2 serverPos;
 	Random random;
 	float timeSinceLastCorrection = 0;
 	float timeAttackHeld = 0;
 	
+	//Difference between where the player is drawn and where they are, shrinking to 0 over the smoothing time
+	float visualErrorX = 0, visualErrorY = 0;
+	float visualErrorTimer = 0;
+	
+	//Correction metrics
+	int sampleCorrections = 0;
+	float sampleCorrectionDistance = 0;
+	float sampleTimer = 0;
+	float correctionsPerSecond = 0;
+	float averageCorrectionDistance = 0;
+	
 	public void create (EntitySnapshot fullSnapshot, Map map, EntityType entityType) {
 		super.create(fullSnapshot, map, entityType);
 		movementLog = new MovementLog();
 		this.controls = new boolean[Controls.TOTAL];
-		animationManager.change("default");
+		this.stepPos = new Vector2();
+		animationManager.change(AnimationIds.DEFAULT);
 		this.playerSpeed = fullSnapshot.getFloat("playerSpeed", entityType.getSpeed());
 		random = new Random(fullSnapshot.getInt("seed", 0));
 		
 		this.serverPos = new Vector2(location.pos);
 		this.components.add(new FootstepPlayerComponent(this, true, TileSoundType.GRASS, TileSoundType.STONE));
 		
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.POSITION_CORRECTION);
 		overrideControls = true;
 	}
 	
@@ -77,6 +121,23 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		this.timeAttackHeld += deltaTime;
 		this.timeSinceLastCorrection += deltaTime;
 		
+		//Let the drawn position catch up
+		if (visualErrorTimer > 0) {
+			float remaining = Math.max(0, visualErrorTimer - deltaTime);
+			visualErrorX *= remaining / visualErrorTimer;
+			visualErrorY *= remaining / visualErrorTimer;
+			visualErrorTimer = remaining;
+		}
+		
+		sampleTimer += deltaTime;
+		if (sampleTimer >= CORRECTION_SAMPLE_TIME) {
+			correctionsPerSecond = sampleCorrections / sampleTimer;
+			averageCorrectionDistance = sampleCorrections > 0 ? sampleCorrectionDistance / sampleCorrections : 0;
+			sampleCorrections = 0;
+			sampleCorrectionDistance = 0;
+			sampleTimer = 0;
+		}
+		
 		//Refresh stats for this player every tick
 		this.health = ArchipeloClient.getGame().getPlayerInfoManager().getHealth();
 		
@@ -88,6 +149,16 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		}
 	}
 	
+	@Override
+	public float getDrawX () {
+		return location.getX() + visualErrorX;
+	}
+	
+	@Override
+	public float getDrawY () {
+		return location.getY() + visualErrorY;
+	}
+	
 	@Override
 	protected void render(SpriteBatch batch) {
 		super.render(batch);
@@ -95,21 +166,19 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 			//batch.draw(ArchipeloClient.getGame().getAssetManager().getTexture("invalid"), location.getX(), location.getY(), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE);
 	}
 	
-	public synchronized void addCommand (ControlsPacket packet) {
-		movementLog.add(packet);
-		
-		//duplicate controls since they will be replaced
-		boolean[] oldControls = new boolean[controls.length];
-		for (int i = 0; i < controls.length; i++)
-			oldControls[i] = controls[i];
-		boolean[] newControls = packet.parse();
-		applyControlExceptions(newControls);
-		this.controls = newControls;
+	/**
+	 * Predicts a simulation step with the given controls and logs it until the server confirms it.
+	 * @param id Id of the step
+	 * @param newControls Controls bitmask
+	 */
+	public void addCommand (int id, int newControls) {
+		int oldControls = controlBits;
+		setControls(applyControlExceptions(newControls));
 		
 		//Loops through all controls to handle them one by one.
 		for (int i = 0; i < Controls.TOTAL; i++) {
 			//Checks for control change and executes controlUp/Down if there is a one.
-			if (oldControls[i]) {
+			if (ControlsPacket.isDown(oldControls, i)) {
 				if (!controls[i])
 					controlUp(i);
 			} else {
@@ -118,27 +187,29 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 			}
 		}
 		
-		applyCommand(controls);
-		packet.x = location.getX();
-		packet.y = location.getY();
+		applyCommand(controlBits);
+		movementLog.add(id, newControls, location.getX(), location.getY());
 	}
 	
 	/**
 	 * Cleans up controls when there are certain conditions.
 	 * @param controls
+	 * @return
 	 */
-	private void applyControlExceptions (boolean[] controls) {
-		if (isThrusting()) {
-			controls[Controls.UP] = false;
-			controls[Controls.LEFT] = false;
-			controls[Controls.DOWN] = false;
-			controls[Controls.RIGHT] = false;
-		}
+	private int applyControlExceptions (int controls) {
+		if (isThrusting())
+			controls &= ~((1 << Controls.UP) | (1 << Controls.LEFT) | (1 << Controls.DOWN) | (1 << Controls.RIGHT));
+		return controls;
+	}
+	
+	private void setControls (int controls) {
+		this.controlBits = controls;
+		ControlsPacket.unpack(controls, this.controls);
 	}
 	
 	@SuppressWarnings("incomplete-switch")
-	protected void applyCommand (boolean[] controls) {
-		this.controls = controls;
+	protected void applyCommand (int controls) {
+		setControls(controls);
 		float deltaTime = ControlsManager.UPDATE_RATE;
 		if (!(ArchipeloClient.getGame().getScreenManager().getScreen() instanceof GameScreen))
 			return;
@@ -149,7 +220,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 			location.direction = direction;
 		
 		if (isMoving()) {
-			Vector2 pos = new Vector2(location.pos);
+			Vector2 pos = stepPos.set(location.pos);
 			double speedMoved = 0;
 			switch (direction) {
 			case UP:
@@ -187,7 +258,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 				this.moved();
 				gameScreen.playerMoved();
 			}
-			pos = new Vector2(location.pos);
+			pos.set(location.pos);
 			speedMoved = 0;
 			switch (direction) {
 			case LEFT:
@@ -228,10 +299,6 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		}
 	}
 	
-	protected void applyCommand (ControlsPacket packet) {
-		this.applyCommand(packet.parse());
-	}
-	
 	@Override
 	public void interpolate(long timeStamp, EntitySnapshot snapshotFrom, EntitySnapshot snapshotTo, float fraction) {
 		//Do not interpolate since we are predicting
@@ -252,9 +319,18 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		return false;
 	}
 	
+	@Override
+	public void teleport(float x, float y, Direction direction) {
+		super.teleport(x, y, direction);
+		visualErrorX = 0;
+		visualErrorY = 0;
+		visualErrorTimer = 0;
+	}
+	
 	@Override
 	public void moved() {
 		EntityAudioManager.moveAll();//If the player moved, then update all sound locations
+		location.getWorld().entityMoved(this);
 	}
 	
 	@Override
@@ -263,7 +339,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	}
 	
 	private boolean isMoving(boolean[] controls) {
-		return (controls[Controls.UP] || controls[Controls.LEFT] || controls[Controls.DOWN] || controls[Controls.RIGHT]) && !animationManager.getAnimationId().equals("thrust") && !controls[Controls.MOVEMENT_LOCK];
+		return (controls[Controls.UP] || controls[Controls.LEFT] || controls[Controls.DOWN] || controls[Controls.RIGHT]) && animationManager.getAnimation() != AnimationIds.THRUST && !controls[Controls.MOVEMENT_LOCK];
 	}
 	
 	public boolean isSprinting () {
@@ -280,7 +356,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	
 	@Override
 	public boolean isRolling() {
-		return animationManager.getAnimationId().equals("roll");
+		return animationManager.getAnimation() == AnimationIds.ROLL;
 	}
 
 	/**
@@ -288,7 +364,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	 * @return
 	 */
 	public boolean isThrusting() {
-		return animationManager.getAnimationId().equals("thrust");
+		return animationManager.getAnimation() == AnimationIds.THRUST;
 	}
 	
 	/**
@@ -296,7 +372,7 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	 * @return
 	 */
 	public boolean isUsing () {
-		return animationManager.getAnimationId().equals("use") || animationManager.getAnimationId().equals("usewalk");
+		return animationManager.getAnimation() == AnimationIds.USE || animationManager.getAnimation() == AnimationIds.USEWALK;
 	}
 	
 	/**
@@ -344,9 +420,9 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		case Controls.ROLL:
 			if (!isCurrentlyUsingAnItem() && !isRolling()) {
 				if (isMoving())
-					animationManager.change("walk");
+					animationManager.change(AnimationIds.WALK);
 				else
-					animationManager.change("default");
+					animationManager.change(AnimationIds.DEFAULT);
 			}
 			break;
 		case Controls.UP:
@@ -356,15 +432,15 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 			if (!isRolling() && !isThrusting()) {
 				if (isMoving()) {
 					if (isUsing())
-						animationManager.changeWithoutReset("usewalk");
+						animationManager.changeWithoutReset(AnimationIds.USEWALK);
 					else
-						animationManager.changeWithoutReset("walk");
+						animationManager.changeWithoutReset(AnimationIds.WALK);
 				} else {
 
 					if (isUsing())
-						animationManager.changeWithoutReset("use");
+						animationManager.changeWithoutReset(AnimationIds.USE);
 					else
-						animationManager.change("default");
+						animationManager.change(AnimationIds.DEFAULT);
 				}
 			}
 			break;
@@ -375,13 +451,13 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		switch (control) {
 		case Controls.ROLL:
 			if (!isCurrentlyUsingAnItem() && isMoving()) {
-				animationManager.change("sprint");
+				animationManager.change(AnimationIds.SPRINT);
 				if (rollDoubleClickTimer <= 0) {
 					rollDoubleClickTimer = ROLL_DOUBLE_CLICK_DURATION;
 				} else {
 					rollDoubleClickTimer = 0;
 					if (!isRolling())
-						animationManager.change("roll", "" + getMovementDirection().ordinal());
+						animationManager.change(AnimationIds.ROLL, "" + getMovementDirection().ordinal());
 				}
 			}
 			break;
@@ -392,15 +468,16 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 				if (item != null && item.getType() != null)
 					item.useDoubleTap(this, timeAttackHeld);
 			} else if (!isRolling()) {
-				ArrayList<Entity> entitiesOnMap = (ArrayList<Entity>) ArchipeloClient.getGame().getWorld().cloneEntitiesList();
+				Vector2 centerPoint = this.getCenterPoint();
+				ArrayList<Entity> entitiesInRange = ArchipeloClient.getGame().getWorld().getEntityIndex().getEntitiesNear(centerPoint.x, centerPoint.y, HIT_RANGE);
 				boolean useHitAnimation = true;
-				for (Entity entity : entitiesOnMap) {
+				for (Entity entity : entitiesInRange) {
 					if (entity == this)
 						continue;
 					
 					//Check if player hit any entities that aren't hittable
 					for (CollisionRect rect : entity.getCollisionRects()) {
-						if (!entity.getEntityType().isHittable() && HitCalculator.didEntityHitEntityCollRect(this.getCenterPoint().x, this.getCenterPoint().y, rect, HIT_RANGE, getDirection())) {
+						if (!entity.getEntityType().isHittable() && HitCalculator.didEntityHitEntityCollRect(centerPoint.x, centerPoint.y, rect, HIT_RANGE, getDirection())) {
 							useHitAnimation = false;
 							break;
 						}
@@ -430,9 +507,9 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		case Controls.RIGHT:
 			if (!isRolling()) {
 				if (isUsing())
-					animationManager.changeWithoutReset("usewalk");
+					animationManager.changeWithoutReset(AnimationIds.USEWALK);
 				else
-					animationManager.change("walk");
+					animationManager.change(AnimationIds.WALK);
 			}
 			break;
 		}
@@ -463,12 +540,12 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		if (useThrust) {
 			if (isMoving())
 				stopMovement();
-			animationManager.change("thrust", animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
+			animationManager.change(AnimationIds.THRUST, animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
 		} else {
 			if (isMoving())
-				animationManager.change("usewalk", animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
+				animationManager.change(AnimationIds.USEWALK, animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
 			else
-				animationManager.change("use", animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
+				animationManager.change(AnimationIds.USE, animationMeta, useAnimationLength, animationInfo.doesStick(), animationInfo.canEndEarly());
 		}
 	}
 	
@@ -476,6 +553,22 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 		rollDoubleClickTimer = 0;
 	}
 	
+	/**
+	 * Position corrections from the server per second, over the last sample.
+	 * @return
+	 */
+	public float getCorrectionsPerSecond () {
+		return correctionsPerSecond;
+	}
+	
+	/**
+	 * Average distance in pixels between the predicted and the server position of corrections, over the last sample.
+	 * @return
+	 */
+	public float getAverageCorrectionDistance () {
+		return averageCorrectionDistance;
+	}
+	
 	public Random getRandom() {
 		return random;
 	}
@@ -503,26 +596,34 @@ public class CurrentPlayer extends Player implements PacketHandler, RollableEnti
 	}
 
 	@Override
-	public synchronized boolean handlePacket(Packet packet) {
+	public boolean handlePacket(Packet packet) {
 		if (packet.packetType == PacketType.POSITION_CORRECTION) {
 			PositionCorrectionPacket posPacket = (PositionCorrectionPacket) packet;
-			
-			ControlsPacket posMatchingCommand = movementLog.getCommandById(posPacket.id);
-			serverPos = new Vector2(posPacket.x, posPacket.y);
-			movementLog.removeCommandsOlderThan(posPacket.id);
-			
+			serverPos.set(posPacket.x, posPacket.y);
 			this.timeSinceLastCorrection = 0;
 			
-			//If the player is close enough to the server pos, don't correct
-			if (serverPos == null || posMatchingCommand == null || (serverPos.x == posMatchingCommand.x && serverPos.y == posMatchingCommand.y)) {
+			//Redo player prediction movements from the server pos if it is too far off, keeping the current controls
+			float drawX = getDrawX();
+			float drawY = getDrawY();
+			int currentControls = controlBits;
+			float correctionDistance = movementLog.reconcile(posPacket.id, posPacket.x, posPacket.y, CORRECTION_TOLERANCE, replaySimulation);
+			if (correctionDistance == 0)
 				return true;
-			}
-
-			location.pos.set(serverPos);
 			
-			//Redo player prediction movements
-			for (ControlsPacket command : movementLog.getCurrentlyStoredCommands())
-				applyCommand(command);
+			setControls(currentControls);
+			this.moved();
+			
+			sampleCorrections++;
+			sampleCorrectionDistance += correctionDistance;
+			
+			//Keep drawing the player where they were and let it catch up, unless it is too far off
+			visualErrorX = drawX - location.getX();
+			visualErrorY = drawY - location.getY();
+			if (visualErrorX * visualErrorX + visualErrorY * visualErrorY > CORRECTION_SNAP_DISTANCE * CORRECTION_SNAP_DISTANCE) {
+				visualErrorX = 0;
+				visualErrorY = 0;
+			}
+			visualErrorTimer = CORRECTION_SMOOTHING_TIME;
 			return true;
 		}
 		return false;
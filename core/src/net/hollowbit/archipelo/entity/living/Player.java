@@ -3,6 +3,7 @@ package net.hollowbit.archipelo.entity.living;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.entity.EntityType;
 import net.hollowbit.archipelo.entity.LivingEntity;
 import net.hollowbit.archipelo.entity.components.ClothesRenderEntityComponent;
@@ -71,21 +72,21 @@ public class Player extends LivingEntity {
 		
 		if (isMoving) {
 			if (isRolling) {
-				batch.draw(EntityType.PLAYER.getAnimationFrame("roll", direction, rollingStateTime, 0), x, y, width, height);
+				batch.draw(EntityType.PLAYER.getAnimationFrame(AnimationIds.ROLL, direction, rollingStateTime, 0), x, y, width, height);
 			} else {
 				if (isSprinting) {
-					batch.draw(EntityType.PLAYER.getAnimationFrame("sprint", direction, movingStateTime, 0), x, y, width, height);
+					batch.draw(EntityType.PLAYER.getAnimationFrame(AnimationIds.SPRINT, direction, movingStateTime, 0), x, y, width, height);
 				} else {
-					batch.draw(EntityType.PLAYER.getAnimationFrame("walk", direction, movingStateTime, 0), x, y, width, height);
+					batch.draw(EntityType.PLAYER.getAnimationFrame(AnimationIds.WALK, direction, movingStateTime, 0), x, y, width, height);
 				}
 			}
 		} else {
-			batch.draw(EntityType.PLAYER.getAnimationFrame("default", direction, 0, 0), x, y);
+			batch.draw(EntityType.PLAYER.getAnimationFrame(AnimationIds.DEFAULT, direction, 0, 0), x, y);
 		}
 		
 		if (isMoving) {
 			if (isRolling) {
-				float animationRuntime = EntityType.PLAYER.getEntityAnimation("roll").getTotalRuntime();
+				float animationRuntime = EntityType.PLAYER.getEntityAnimation(AnimationIds.ROLL).getTotalRuntime();
 				for (int i = 0; i < EQUIP_SIZE - 1; i++) {//Loop through each part of equipable
 					if (equippedInventory[i] == null)
 						continue;
@@ -108,7 +109,7 @@ public class Player extends LivingEntity {
 				}
 			} else {
 				if (isSprinting) {
-					float animationRuntime = EntityType.PLAYER.getEntityAnimation("sprint").getTotalRuntime();
+					float animationRuntime = EntityType.PLAYER.getEntityAnimation(AnimationIds.SPRINT).getTotalRuntime();
 					for (int i = 0; i < EQUIP_SIZE - 1; i++) {//Loop through each part of equipable
 						if (equippedInventory[i] == null)
 							continue;
@@ -130,7 +131,7 @@ public class Player extends LivingEntity {
 						batch.setColor(1, 1, 1, 1);
 					}
 				 } else {
-					float animationRuntime = EntityType.PLAYER.getEntityAnimation("walk").getTotalRuntime();
+					float animationRuntime = EntityType.PLAYER.getEntityAnimation(AnimationIds.WALK).getTotalRuntime();
 					for (int i = 0; i < EQUIP_SIZE - 1; i++) {//Loop through each part of equipable
 						if (equippedInventory[i] == null)
 							continue;
@@ -154,7 +155,7 @@ public class Player extends LivingEntity {
 				 }
 			}
 		} else {
-			float animationRuntime = EntityType.PLAYER.getEntityAnimation("default").getTotalRuntime();
+			float animationRuntime = EntityType.PLAYER.getEntityAnimation(AnimationIds.DEFAULT).getTotalRuntime();
 			for (int i = 0; i < EQUIP_SIZE - 1; i++) {//Loop through each part of equipable
 				if (equippedInventory[i] == null)
 					continue;
@@ -1,43 +1,166 @@
 package net.hollowbit.archipelo.entity.living.player;
 
-import java.util.LinkedList;
-
-import net.hollowbit.archipelo.network.packets.ControlsPacket;
-
+/**
+ * Controls the player was predicted with, and where they ended up, for every simulation step the server hasn't confirmed yet.
+ * Steps are stored in a fixed-size ring indexed by their id, so adding, finding and dropping steps never allocates.
+ * If the server doesn't confirm steps for longer than the log can hold, the oldest ones are dropped.
+ * @author vedi0boy
+ *
+ */
 public class MovementLog {
 	
-	LinkedList<ControlsPacket> commandEntries;
+	public static final int CAPACITY = 128;//Steps, about 4 seconds at 30 steps per second. Must be a power of two.
+	private static final int MASK = CAPACITY - 1;
+	
+	private int[] controls;
+	private float[] x;
+	private float[] y;
+	private int firstId = 0;
+	private int size = 0;
 	
 	public MovementLog () {
-		commandEntries = new LinkedList<ControlsPacket>();
+		controls = new int[CAPACITY];
+		x = new float[CAPACITY];
+		y = new float[CAPACITY];
+	}
+	
+	/**
+	 * Logs a step. Ids must follow each other, otherwise the log is cleared first.
+	 * @param id
+	 * @param controls Controls bitmask
+	 * @param x Position after the step
+	 * @param y
+	 */
+	public void add (int id, int controls, float x, float y) {
+		if (size > 0 && id != firstId + size)
+			clear();
+		
+		if (size == 0)
+			firstId = id;
+		else if (size == CAPACITY) {//Drop the oldest
+			firstId++;
+			size--;
+		}
+		
+		int index = id & MASK;
+		this.controls[index] = controls;
+		this.x[index] = x;
+		this.y[index] = y;
+		size++;
 	}
 	
-	public synchronized void removeCommandsOlderThan (int id) {
-		LinkedList<ControlsPacket> commandEntriesToRemove = new LinkedList<ControlsPacket>();
-		for (ControlsPacket logEntry : commandEntries) {
-			if (logEntry.id <= id)
-				commandEntriesToRemove.add(logEntry);
+	/**
+	 * Removes a step and all steps before it.
+	 * @param id
+	 */
+	public void removeCommandsOlderThan (int id) {
+		int count = id - firstId + 1;
+		if (count <= 0)
+			return;
+		
+		if (count >= size) {
+			clear();
+			return;
 		}
-		commandEntries.removeAll(commandEntriesToRemove);
+		firstId += count;
+		size -= count;
+	}
+	
+	public boolean contains (int id) {
+		int offset = id - firstId;
+		return offset >= 0 && offset < size;
+	}
+	
+	/**
+	 * Controls bitmask of a logged step.
+	 * @param id
+	 * @return
+	 */
+	public int getControls (int id) {
+		return controls[id & MASK];
+	}
+	
+	public float getX (int id) {
+		return x[id & MASK];
+	}
+	
+	public float getY (int id) {
+		return y[id & MASK];
+	}
+	
+	/**
+	 * Changes where the player ended up after a step, like when it is replayed from a corrected position.
+	 * @param id
+	 * @param x
+	 * @param y
+	 */
+	public void setPosition (int id, float x, float y) {
+		this.x[id & MASK] = x;
+		this.y[id & MASK] = y;
+	}
+	
+	/**
+	 * Id of the oldest logged step. Logged steps go from this to {@link #getFirstId()} + {@link #size()} - 1.
+	 * @return
+	 */
+	public int getFirstId () {
+		return firstId;
 	}
 	
-	public synchronized void add (ControlsPacket logEntry) {
-		commandEntries.add(logEntry);
+	public int size () {
+		return size;
 	}
 	
-	public synchronized LinkedList<ControlsPacket> getCurrentlyStoredCommands () {
-		LinkedList<ControlsPacket> currentCommands = new LinkedList<ControlsPacket>();
-		currentCommands.addAll(commandEntries);
-		return currentCommands;
+	public void clear () {
+		size = 0;
 	}
 	
-	public synchronized ControlsPacket getCommandById (int id) {
-		for (ControlsPacket command : commandEntries) {
-			if (command.id == id)
-				return command;
+	/**
+	 * Confirms every step up to one the server applied. If the server ended up further than the tolerance from where the step was predicted to end,
+	 * the simulation is moved to the server position and every step after it is replayed from there.
+	 * @param id Step the server applied last
+	 * @param x Where the server ended up after it
+	 * @param y
+	 * @param tolerance Distance on each axis the server may be off without correcting
+	 * @param simulation
+	 * @return Distance the prediction was off if it was corrected, otherwise 0
+	 */
+	public float reconcile (int id, float x, float y, float tolerance, Simulation simulation) {
+		boolean logged = contains(id);
+		float errorX = logged ? x - getX(id) : 0;
+		float errorY = logged ? y - getY(id) : 0;
+		removeCommandsOlderThan(id);
+		if (!logged || (Math.abs(errorX) <= tolerance && Math.abs(errorY) <= tolerance))
+			return 0;
+		
+		simulation.moveTo(x, y);
+		int lastId = firstId + size;
+		for (int replayId = firstId; replayId != lastId; replayId++) {
+			simulation.step(getControls(replayId));
+			setPosition(replayId, simulation.getX(), simulation.getY());
 		}
+		return (float) Math.sqrt(errorX * errorX + errorY * errorY);
+	}
+	
+	/**
+	 * Moves a player the same way it was moved when steps were predicted, so they can be replayed.
+	 * @author vedi0boy
+	 *
+	 */
+	public interface Simulation {
+		
+		public void moveTo (float x, float y);
+		
+		/**
+		 * Moves for one step with the given controls.
+		 * @param controls Controls bitmask
+		 */
+		public void step (int controls);
+		
+		public float getX ();
+		
+		public float getY ();
 		
-		return null;
 	}
 	
 }
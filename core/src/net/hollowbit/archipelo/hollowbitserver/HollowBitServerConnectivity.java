@@ -3,6 +3,11 @@ package net.hollowbit.archipelo.hollowbitserver;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
@@ -54,8 +59,9 @@ public class HollowBitServerConnectivity {
 	private WebSocket socket;
 	
 	private volatile boolean isConnected = false;
+	private volatile boolean connecting = false;
+	private CountDownLatch openLatch;
 	
-	private long startTime;
 	private float timer = 0;
 	
 	public HollowBitServerConnectivity () {
@@ -63,31 +69,51 @@ public class HollowBitServerConnectivity {
 		queries = new ArrayList<String>();
 	}
 	
+	/**
+	 * Connects to the HollowBit server, blocking until connected or until it times out. Don't call on the render thread, use {@link #connectAsync(ExecutorService)}.
+	 * @return Whether it connected
+	 */
 	public boolean connect () {
 		try {
 			//Connect to HollowBit server and set listener
+			openLatch = new CountDownLatch(1);
 			socket = ExtendedNet.getNet().newSecureWebSocket(ADDRESS, PORT, Gdx.files, "keystore", (Gdx.app.getType() == ApplicationType.Android ? "BKS" : "JKS"), "changeit", "changeit");
 			socket.addListener(getWebSocketListener());
 			socket.connect();
 			
-			startTime = System.currentTimeMillis();
-			while (!isConnected) {//Wait until connected or until timeout
-				if (System.currentTimeMillis() - startTime > TIMEOUT_LENGTH)
-					return false;
-			}
-			return true;
+			//Wait until connected or until timeout
+			return openLatch.await(TIMEOUT_LENGTH, TimeUnit.MILLISECONDS) && isConnected;
 		} catch (Exception e) {
 			return false;
 		}
 	}
 	
+	/**
+	 * Connects to the HollowBit server on a worker thread. The connection isn't reported as lost while it is connecting.
+	 * @param executor
+	 * @return Whether it connected, once done
+	 */
+	public Future<Boolean> connectAsync (ExecutorService executor) {
+		connecting = true;
+		return executor.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call () {
+				try {
+					return connect();
+				} finally {
+					connecting = false;
+				}
+			}
+		});
+	}
+	
 	/**
 	 * Executes queries in order to avoid a too many queries ban
 	 * @param deltaTime
 	 */
 	public synchronized void update (float deltaTime) {
 		//If not connected by this point, open ErrorScreen
-		if (!isConnected)
+		if (!isConnected && !connecting)
 			ArchipeloClient.getGame().getScreenManager().setScreen(new ErrorScreen("Could not connect to login server. Try another time."));
 		
 		timer += deltaTime;
@@ -196,6 +222,7 @@ public class HollowBitServerConnectivity {
             public boolean onOpen(final WebSocket webSocket) {
                 Gdx.app.log("WS", "Connected to HB!");
                 isConnected = true;
+                openLatch.countDown();
                 return FULLY_HANDLED;
             }
 
@@ -235,7 +262,10 @@ public class HollowBitServerConnectivity {
             @Override
             public boolean onError(WebSocket webSocket, Throwable error) {
             	Gdx.app.log("WS", "Error from HB: " + error.getMessage());
-				ArchipeloClient.getGame().getScreenManager().setScreen(new ErrorScreen("Could not connect to login server. Try another time."));
+            	if (connecting)//Reported by whoever is waiting for the connection
+            		openLatch.countDown();
+            	else
+            		ArchipeloClient.getGame().getScreenManager().setScreen(new ErrorScreen("Could not connect to login server. Try another time."));
             	return FULLY_HANDLED;
             }
             
@@ -246,4 +276,8 @@ public class HollowBitServerConnectivity {
 		return isConnected;
 	}
 	
+	public boolean isConnecting () {
+		return connecting;
+	}
+	
 }
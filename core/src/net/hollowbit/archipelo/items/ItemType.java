@@ -1,26 +1,28 @@
 package net.hollowbit.archipelo.items;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.AnimationIds;
 import net.hollowbit.archipelo.items.ItemUseAnimation.IllegalItemUseAnimationDataException;
 import net.hollowbit.archipelo.items.usetypes.BasicWeaponUseType;
 import net.hollowbit.archipelo.tools.AssetManager;
 import net.hollowbit.archipelo.tools.LM;
+import net.hollowbit.archipelo.tools.StreamedAsset;
+import net.hollowbit.archipelo.tools.rendering.FrameTable;
 import net.hollowbit.archipeloshared.Direction;
 import net.hollowbit.archipeloshared.ItemTypeData;
 import net.hollowbit.archipeloshared.ItemUseAnimationData;
 
-public enum ItemType {
+public enum ItemType implements StreamedAsset {
 	
 	GOLDEN_BAND,
 	SILVER_BAND,
@@ -151,14 +153,16 @@ public enum ItemType {
 	public int critChance;
 	
 	private TextureRegion[] icon;
-	private Animation[][] walkAnimation = null;//Not null if wearable
-	private Animation[][] sprintAnimation = null;//Not null if wearable
-	private Animation[][] rollAnimation = null;//Not null if wearable
-	private Animation[][] useAnimation = null;//Not null if usable or wearable
-	private Animation[][] thrustAnimation = null;//Not null if usable or wearable
+	private FrameTable walkFrames = null;//Not null if wearable, also used for sprinting
+	private FrameTable rollFrames = null;//Not null if wearable
+	private FrameTable useFrames = null;//Not null if wearable
+	private FrameTable thrustFrames = null;//Not null if wearable
 	
 	private ItemUseAnimation[] usableItemAnimations = null;//Not null if usable
 	
+	private ArrayList<String> loadedSheets = new ArrayList<String>();//Atlas regions used by the loaded animations
+	private boolean assetsLoaded = false;
+	
 	private UseType useType;
 	
 	private ItemType () {
@@ -200,70 +204,124 @@ public enum ItemType {
 			this.useType = useType;
 		else
 			useType = null;
+		
+		//Use animation data is needed before the item's images are, their frames are loaded with the rest of the assets
+		if (equipType == EQUIP_INDEX_USABLE) {
+			usableItemAnimations = new ItemUseAnimation[useableAnimationData.length];
+			for (int i = 0; i < usableItemAnimations.length; i++) {
+				try {
+					usableItemAnimations[i] = new ItemUseAnimation(this, useableAnimationData[i]);
+				} catch (IllegalItemUseAnimationDataException e) {
+					System.out.println(e.getMessage());
+				}
+			}
+		}
 	}
 	
 	public String getSoundById(int style, int id) {
 		return sounds[style % numOfStyles][id % sounds[0].length];
 	}
 	
-	private void loadSounds() {
-		for (int i = 0; i < numOfStyles; i++) {
-			for (int u = 0; u < sounds[0].length; u++)
-				ArchipeloClient.getGame().getSoundManager().loadSound(sounds[i][u]);
-		}
+	private FileHandle getIconFile () {
+		return Gdx.files.internal("items/" + id + "/icon.png");
 	}
 	
-	private void loadImages () {
-		FileHandle iconFile = Gdx.files.internal("items/" + id + "/icon.png");
+	private void loadIcon () {
+		FileHandle iconFile = getIconFile();
 		if (iconFile.exists()) {
-			Texture texture = new Texture(iconFile);
-			this.icon = TextureRegion.split(texture, iconSize, iconSize)[0]; 
+			this.icon = ArchipeloClient.getGame().getTextureAtlasCache().getRegion(iconFile.path()).split(iconSize, iconSize)[0];
 		}
 		
 		if (invalidIconTexture == null)
 			invalidIconTexture = new TextureRegion(ArchipeloClient.getGame().getAssetManager().getTexture("invalid"));
+	}
+	
+	/**
+	 * Gets a sheet from the atlas and remembers it so it can be released when the item is unloaded.
+	 * @param path
+	 * @return
+	 */
+	TextureRegion loadSheet (String path) {
+		loadedSheets.add(path);
+		return ArchipeloClient.getGame().getTextureAtlasCache().getRegion(path);
+	}
+	
+	/**
+	 * Loads the animations and sounds of this item. Called by the asset streamer the first time the item is drawn or worn by an entity.
+	 */
+	@Override
+	public void loadAssets () {
+		if (assetsLoaded)
+			return;
+		assetsLoaded = true;
+		
+		for (int i = 0; i < numOfStyles; i++) {
+			for (int u = 0; u < sounds[0].length; u++)
+				ArchipeloClient.getGame().getSoundManager().retainSound(sounds[i][u]);
+		}
 		
 		//Load images depending on conditions
 		if (equipType != NO_EQUIP_TYPE && equipType != EQUIP_INDEX_USABLE) {
-			walkAnimation = new Animation[Direction.TOTAL][numOfStyles];
-			sprintAnimation = new Animation[Direction.TOTAL][numOfStyles];
-			rollAnimation = new Animation[Direction.TOTAL][numOfStyles];
-			for (int style = 0; style < numOfStyles; style++) {
-				TextureRegion[][] walkSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + id + "/walk_" + style + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
-				for (int direction = 0; direction < Direction.TOTAL; direction++) {
-					walkAnimation[direction][style] = new Animation(WALK_ANIMATION_LENGTH, walkSheet[direction]);
-					sprintAnimation[direction][style] = new Animation(SPRINT_ANIMATION_LENGTH, walkSheet[direction]);//Load sprint now since it is the same image as walk, just faster
-				}
-				
-				TextureRegion[][] rollSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + id + "/roll_" + style + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
-				for (int direction = 0; direction < Direction.TOTAL; direction++) {
-					rollAnimation[direction][style] = new Animation(ROLL_ANIMATION_LENGTH, rollSheet[direction]);
-				}
-			}
-			
-			useAnimation = new Animation[Direction.TOTAL][numOfStyles];
-			thrustAnimation = new Animation[Direction.TOTAL][numOfStyles];
-			for (int style = 0; style < numOfStyles; style++) {
-				TextureRegion[][] useSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + id + "/use_" + style + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
-				for (int direction = 0; direction < Direction.TOTAL; direction++) {
-					useAnimation[direction][style] = new Animation(0.1f, useSheet[direction]);
-				}
-				
-				TextureRegion[][] thrustSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + id + "/thrust_" + style + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
-				for (int direction = 0; direction < Direction.TOTAL; direction++) {
-					thrustAnimation[direction][style] = new Animation(0.1f, thrustSheet[direction]);
-				}
-			}
+			walkFrames = loadFrameTable("walk");
+			rollFrames = loadFrameTable("roll");
+			useFrames = loadFrameTable("use");
+			thrustFrames = loadFrameTable("thrust");
 		} else if (equipType != NO_EQUIP_TYPE) {//Usable item
-			usableItemAnimations = new ItemUseAnimation[useableAnimationData.length];
 			for (int i = 0; i < usableItemAnimations.length; i++) {
-				try {
-					usableItemAnimations[i] = new ItemUseAnimation(this, i, useableAnimationData[i]);
-				} catch (IllegalItemUseAnimationDataException e) {
-					System.out.println(e.getMessage());
-				}
+				if (usableItemAnimations[i] != null)
+					usableItemAnimations[i].loadFrames(this, i);
+			}
+		}
+	}
+	
+	/**
+	 * Splits the sheets of a wearable animation into a frame table with every style and direction.
+	 * @param name
+	 * @return
+	 */
+	private FrameTable loadFrameTable (String name) {
+		FrameTable frames = new FrameTable(numOfStyles, Direction.TOTAL);
+		for (int style = 0; style < numOfStyles; style++) {
+			TextureRegion[][] sheet = AssetManager.fixBleedingSpriteSheet(loadSheet("items/" + id + "/" + name + "_" + style + ".png").split(ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
+			for (int direction = 0; direction < Direction.TOTAL; direction++)
+				frames.set(style, direction, sheet[direction]);
+		}
+		return frames;
+	}
+	
+	@Override
+	public void unloadAssets () {
+		if (!assetsLoaded)
+			return;
+		assetsLoaded = false;
+		
+		for (int i = 0; i < numOfStyles; i++) {
+			for (int u = 0; u < sounds[0].length; u++)
+				ArchipeloClient.getGame().getSoundManager().releaseSound(sounds[i][u]);
+		}
+		
+		walkFrames = null;
+		rollFrames = null;
+		useFrames = null;
+		thrustFrames = null;
+		if (usableItemAnimations != null) {
+			for (ItemUseAnimation animation : usableItemAnimations) {
+				if (animation != null)
+					animation.unloadFrames();
 			}
 		}
+		
+		for (String path : loadedSheets)
+			ArchipeloClient.getGame().getTextureAtlasCache().releaseRegion(path);
+		loadedSheets.clear();
+	}
+	
+	/**
+	 * Whether the animations of this item are ready to draw. Queues them to load if they aren't.
+	 * @return
+	 */
+	private boolean requestAssets () {
+		return ArchipeloClient.getGame().getAssetStreamer().request(this);
 	}
 	
 	/**
@@ -276,6 +334,8 @@ public enum ItemType {
 	 * @return
 	 */
 	public TextureRegion getAnimationFrameForUsable (Direction direction, float statetime, int style, int useStyle) {
+		if (!requestAssets())
+			return ArchipeloClient.getGame().getAssetStreamer().getPlaceholder();
 		return usableItemAnimations[useStyle % getNumOfUseAnimations()].getFrame(statetime, direction, style);
 	}
 	
@@ -288,52 +348,72 @@ public enum ItemType {
 	 * @return
 	 */
 	public TextureRegion getAnimationFrame (String animationId, Direction direction, float statetime, int style, float totalRuntime) {
-		if (animationId.equals("default"))
+		return getAnimationFrame(AnimationIds.findId(animationId), direction, statetime, style, totalRuntime);
+	}
+	
+	/**
+	 * Get animation frames for items by animation id from {@link AnimationIds}.
+	 * @param animation
+	 * @param direction
+	 * @param statetime
+	 * @param style
+	 * @param totalRuntime
+	 * @return Null if items have no frames for the animation
+	 */
+	public TextureRegion getAnimationFrame (int animation, Direction direction, float statetime, int style, float totalRuntime) {
+		switch (animation) {
+		case AnimationIds.DEFAULT:
 			return getWalkFrame(direction, 0, style, totalRuntime);//Uses 0 statetime to get first frame
-		else if (animationId.equals("walk"))
+		case AnimationIds.WALK:
 			return getWalkFrame(direction, statetime, style, totalRuntime);
-		else if (animationId.equals("sprint"))
+		case AnimationIds.SPRINT:
 			return getSprintFrame(direction, statetime, style, totalRuntime);
-		else if (animationId.equals("roll"))
+		case AnimationIds.ROLL:
 			return getRollFrame(direction, statetime, style, totalRuntime);
-		else if (animationId.equals("use"))
+		case AnimationIds.USE:
 			return getUseFrame(direction, 0, style, totalRuntime);
-		else if (animationId.equals("usewalk"))
+		case AnimationIds.USEWALK:
 			return getUseFrame(direction, statetime, style, totalRuntime);
-		else if (animationId.equals("thrust"))
+		case AnimationIds.THRUST:
 			return getThrustFrame(direction, statetime, style, totalRuntime);
-		else
+		default:
 			return null;
+		}
 	}
 	
 	public TextureRegion getWalkFrame (Direction direction, float statetime, int style, float totalRuntime) {
-		Animation animation = walkAnimation[direction.ordinal()][style % numOfStyles];
-		animation.setFrameDuration(totalRuntime / animation.getKeyFrames().length);
-		return animation.getKeyFrame(statetime, true);
+		return getFrame(walkFrames, direction, statetime, style, totalRuntime);
 	}
 	
 	public TextureRegion getSprintFrame (Direction direction, float statetime, int style, float totalRuntime) {
-		Animation animation = sprintAnimation[direction.ordinal()][style % numOfStyles];
-		animation.setFrameDuration(totalRuntime / animation.getKeyFrames().length);
-		return animation.getKeyFrame(statetime, true);
+		return getFrame(walkFrames, direction, statetime, style, totalRuntime);//Sprinting uses the walk frames, just faster
 	}
 	
 	public TextureRegion getRollFrame (Direction direction, float statetime, int style, float totalRuntime) {
-		Animation animation = rollAnimation[direction.ordinal()][style % numOfStyles];
-		animation.setFrameDuration(totalRuntime / animation.getKeyFrames().length);
-		return animation.getKeyFrame(statetime, true);
+		return getFrame(rollFrames, direction, statetime, style, totalRuntime);
 	}
 	
 	public TextureRegion getUseFrame (Direction direction, float statetime, int style, float totalRuntime) {
-		Animation animation = useAnimation[direction.ordinal()][style % numOfStyles];
-		animation.setFrameDuration(totalRuntime / animation.getKeyFrames().length);
-		return animation.getKeyFrame(statetime, true);
+		return getFrame(useFrames, direction, statetime, style, totalRuntime);
 	}
 	
 	public TextureRegion getThrustFrame (Direction direction, float statetime, int style, float totalRuntime) {
-		Animation animation = thrustAnimation[direction.ordinal()][style % numOfStyles];
-		animation.setFrameDuration(totalRuntime / animation.getKeyFrames().length);
-		return animation.getKeyFrame(statetime, true);
+		return getFrame(thrustFrames, direction, statetime, style, totalRuntime);
+	}
+	
+	/**
+	 * Gets a looping frame from one of the item's tables. Frame length depends on the runtime of the wearer's animation.
+	 * @param frames
+	 * @param direction
+	 * @param statetime
+	 * @param style
+	 * @param totalRuntime
+	 * @return
+	 */
+	private TextureRegion getFrame (FrameTable frames, Direction direction, float statetime, int style, float totalRuntime) {
+		if (!requestAssets())
+			return ArchipeloClient.getGame().getAssetStreamer().getPlaceholder();
+		return frames.getFrame(style % numOfStyles, direction.ordinal(), statetime, totalRuntime, true);
 	}
 	
 	public TextureRegion getIcon (int style) {
@@ -385,12 +465,21 @@ public enum ItemType {
 	}
 	
 	/**
-	 * Loads all icon images and sounds
+	 * Loads all icon images. Everything else is streamed in by the asset streamer when an item is used.
+	 */
+	public static void loadAllIcons () {
+		for (ItemType type : ItemType.values())
+			type.loadIcon();
+	}
+	
+	/**
+	 * Reads and decodes all icon images ahead of {@link #loadAllIcons()}, so it only has to upload them. Can be called from any thread.
 	 */
-	public static void loadAllAssets () {
+	public static void prefetchAllIcons () {
 		for (ItemType type : ItemType.values()) {
-			type.loadImages();
-			type.loadSounds();
+			FileHandle iconFile = type.getIconFile();
+			if (iconFile.exists())
+				ArchipeloClient.getGame().getTextureAtlasCache().prefetch(iconFile.path());
 		}
 	}
 	
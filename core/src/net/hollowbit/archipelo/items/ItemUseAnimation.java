@@ -2,15 +2,14 @@ package net.hollowbit.archipelo.items;
 
 import java.io.IOException;
 
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.tools.AssetManager;
+import net.hollowbit.archipelo.tools.rendering.FrameTable;
 import net.hollowbit.archipeloshared.Direction;
 import net.hollowbit.archipeloshared.ItemUseAnimationData;
-import net.hollowbit.archipeloshared.rangeindexer.RangeMap;
+import net.hollowbit.archipeloshared.rangeindexer.FloatRangeMap;
 
 public class ItemUseAnimation {
 	
@@ -19,9 +18,11 @@ public class ItemUseAnimation {
 	private boolean canEndEarly;
 	private boolean thrust;
 	private boolean stick;
-	private Animation[][] runtimeAnimation = null;
+	private boolean runtime;
+	private ItemUseAnimationData data;
+	private FrameTable runtimeFrames = null;
 	private float totalRuntime;
-	private RangeMap<Float, TextureRegion>[][] frames = null;
+	private FloatRangeMap<TextureRegion>[][] frames = null;
 	private TextureRegion[][] lastFrames = null;
 	
 	private ItemUseAnimation() {
@@ -29,42 +30,66 @@ public class ItemUseAnimation {
 		this.stick = true;
 	}
 	
-	public ItemUseAnimation(ItemType item, int useAnim, ItemUseAnimationData data) throws IllegalItemUseAnimationDataException {
+	/**
+	 * Reads the animation's data. Its frames are only loaded with {@link #loadFrames(ItemType, int)}.
+	 * @param item
+	 * @param data
+	 * @throws IllegalItemUseAnimationDataException
+	 */
+	public ItemUseAnimation(ItemType item, ItemUseAnimationData data) throws IllegalItemUseAnimationDataException {
 		this.stick = data.stick;
 		this.thrust = data.thrust;
 		this.canEndEarly = data.canEndEarly;
+		this.data = data;
+		if (data.timings == null && data.runtime > 0) {
+			this.runtime = true;
+			this.totalRuntime = data.runtime;
+		} else if (data.runtime <= 0 && data.timings != null) {
+			this.runtime = false;
+			this.totalRuntime = 0;
+			for (float timing : data.timings)
+				totalRuntime += timing;
+		} else
+			throw new IllegalItemUseAnimationDataException(item.id);
+	}
+	
+	/**
+	 * Loads the frames of this animation from the item's sheets.
+	 * @param item
+	 * @param useAnim
+	 */
+	public void loadFrames(ItemType item, int useAnim) {
 		this.lastFrames = new TextureRegion[Direction.TOTAL][item.numOfStyles];
-		if (data.timings == null && data.runtime > 0)
-			createRuntimeAnimation(item, useAnim, data);
-		else if (data.runtime <= 0 && data.timings != null)
-			createFrameByFrameAnimation(item, useAnim, data);
+		if (runtime)
+			createRuntimeAnimation(item, useAnim);
 		else
-			throw new IllegalItemUseAnimationDataException(item.id);
+			createFrameByFrameAnimation(item, useAnim);
 	}
 	
-	private void createRuntimeAnimation(ItemType item, int useAnim, ItemUseAnimationData data) {
-		this.totalRuntime = data.runtime;
-		runtimeAnimation = new Animation[Direction.TOTAL][item.numOfStyles];
+	public void unloadFrames() {
+		runtimeFrames = null;
+		frames = null;
+		lastFrames = null;
+	}
+	
+	private void createRuntimeAnimation(ItemType item, int useAnim) {
+		runtimeFrames = new FrameTable(item.numOfStyles, Direction.TOTAL);
 		for (int style = 0; style < item.numOfStyles; style++) {
-			TextureRegion[][] useSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + item.id + "/use_" + style + "_" + useAnim + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
+			TextureRegion[][] useSheet = AssetManager.fixBleedingSpriteSheet(item.loadSheet("items/" + item.id + "/use_" + style + "_" + useAnim + ".png").split(ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
 			for (int direction = 0; direction < Direction.TOTAL; direction++) {
-				runtimeAnimation[direction][style] = new Animation(data.runtime / useSheet[direction].length, useSheet[direction]);
+				runtimeFrames.set(style, direction, useSheet[direction]);
 				lastFrames[direction][style] = useSheet[direction][useSheet[direction].length - 1];
 			}
 		}
 	}
 	
 	@SuppressWarnings("unchecked")
-	private void createFrameByFrameAnimation(ItemType item, int useAnim, ItemUseAnimationData data) {
-		frames = new RangeMap[Direction.TOTAL][item.numOfStyles];
-		this.totalRuntime = 0;
-		for (float timing : data.timings)
-			totalRuntime += timing;
-		
+	private void createFrameByFrameAnimation(ItemType item, int useAnim) {
+		frames = (FloatRangeMap<TextureRegion>[][]) new FloatRangeMap<?>[Direction.TOTAL][item.numOfStyles];
 		for (int style = 0; style < item.numOfStyles; style++) {
-			TextureRegion[][] useSheet = AssetManager.fixBleedingSpriteSheet(TextureRegion.split(new Texture("items/" + item.id + "/use_" + style + "_" + useAnim + ".png"), ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
+			TextureRegion[][] useSheet = AssetManager.fixBleedingSpriteSheet(item.loadSheet("items/" + item.id + "/use_" + style + "_" + useAnim + ".png").split(ArchipeloClient.PLAYER_SIZE, ArchipeloClient.PLAYER_SIZE));
 			for (int direction = 0; direction < Direction.TOTAL; direction++) {
-				frames[direction][style] = new RangeMap<Float, TextureRegion>(0f);
+				frames[direction][style] = new FloatRangeMap<TextureRegion>(0f, data.timings.length);
 				lastFrames[direction][style] = useSheet[direction][useSheet[direction].length - 1];
 				
 				//Define timing ranges for this animation
@@ -82,7 +107,7 @@ public class ItemUseAnimation {
 			return lastFrames[direction.ordinal()][style];
 		
 		if (isRuntime()) {
-			return runtimeAnimation[direction.ordinal()][style].getKeyFrame(statetime);
+			return runtimeFrames.getFrame(style, direction.ordinal(), statetime, totalRuntime, false);
 		} else {
 			return frames[direction.ordinal()][style].getValue(statetime);
 		}
@@ -105,11 +130,11 @@ public class ItemUseAnimation {
 	}
 	
 	public boolean isRuntime() {
-		return runtimeAnimation != null;
+		return runtime;
 	}
 	
 	public boolean isFrameByFrame() {
-		return frames != null;
+		return data != null && !runtime;
 	}
 	
 	public float getTotalRuntime() {
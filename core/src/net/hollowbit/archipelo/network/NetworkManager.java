@@ -5,7 +5,9 @@
  */
 package net.hollowbit.archipelo.network;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
@@ -15,8 +17,12 @@ import com.github.czyzby.websocket.data.WebSocketCloseCode;
 import com.github.czyzby.websocket.net.ExtendedNet;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.network.packets.LoginPacket;
+import net.hollowbit.archipelo.network.packets.SerializerPacket;
+import net.hollowbit.archipelo.network.serialization.BinarySerializer;
 import net.hollowbit.archipelo.network.serialization.JsonSerializer;
 import net.hollowbit.archipelo.network.serialization.Serializer;
+import net.hollowbit.archipelo.network.serialization.SerializerType;
 import net.hollowbit.archipelo.screen.ScreenType;
 import net.hollowbit.archipelo.screen.screens.ErrorScreen;
 import net.hollowbit.archipelo.screen.screens.MainMenuScreen;
@@ -25,62 +31,112 @@ import net.hollowbit.archipelo.tools.LM;
 public class NetworkManager {
 	
 	private static final int PACKET_LIFESPAN = 5000;//ms
+	public static final SerializerType DEFAULT_SERIALIZER = SerializerType.BINARY;
 	
-	private ArrayList<PacketHandler> packetHandlers;
-	private ArrayList<PacketWrapper> packets;
+	private static final PacketHandler[] NO_HANDLERS = new PacketHandler[0];
 	
-	private Serializer serializer;
+	//Handlers are stored in arrays that are replaced when changed, so dispatching never has to copy or lock them
+	private volatile PacketHandler[][] packetHandlersByType;
+	private volatile PacketHandler[] globalPacketHandlers;//Handlers that want every packet type
+	
+	private ConcurrentLinkedQueue<PacketWrapper> inboundPackets;//Lock-free, filled by the websocket thread
+	private LinkedList<PacketWrapper> pendingPackets;//Unhandled packets in order of arrival, only used by the render thread
+	
+	private Serializer jsonSerializer;
+	private Serializer binarySerializer;
+	private volatile Serializer serializer;//Used for outgoing packets. Always json until the server accepts another one.
+	private SerializerType preferredSerializer = DEFAULT_SERIALIZER;
+	
+	private int inputStep = 0;//Id of the next input step, counted for the whole connection
 	
 	private WebSocket socket;
 	
 	private volatile boolean isConnected = false;
 	
 	public NetworkManager () {
-		packetHandlers = new ArrayList<PacketHandler>();
-		packets = new ArrayList<PacketWrapper>();
+		int packetTypes = 0;
+		for (int packetType : PacketType.getRegisteredPackets().keySet())
+			packetTypes = Math.max(packetTypes, packetType + 1);
+		packetHandlersByType = new PacketHandler[packetTypes][];
+		clearPacketHandlers();
 		
-		//Initialize json serializer
-		serializer = new JsonSerializer();
+		inboundPackets = new ConcurrentLinkedQueue<PacketWrapper>();
+		pendingPackets = new LinkedList<PacketWrapper>();
+		
+		//Initialize serializers
+		jsonSerializer = new JsonSerializer();
+		binarySerializer = new BinarySerializer();
+		serializer = jsonSerializer;
 	}
 	
 	public void update () {
-		ArrayList<PacketWrapper> currentPackets = new ArrayList<PacketWrapper>();
-		currentPackets.addAll(packets);
+		//Move newly received packets behind the ones still waiting for a handler
+		PacketWrapper received;
+		while ((received = inboundPackets.poll()) != null)
+			pendingPackets.add(received);
 		
-		ArrayList<PacketWrapper> packetsToRemove = new ArrayList<PacketWrapper>();
-		for (PacketWrapper packetWrapper : currentPackets) {
-			Packet packet = packetWrapper.packet;
-			ArrayList<PacketHandler> currentPacketHandlers = new ArrayList<PacketHandler>();
-			currentPacketHandlers.addAll(packetHandlers);
-			
-			boolean handled = false;
-			for (PacketHandler packetHandler : currentPacketHandlers) {
+		Iterator<PacketWrapper> iterator = pendingPackets.iterator();
+		while (iterator.hasNext()) {
+			if (dispatch(iterator.next().packet))
+				iterator.remove();
+		}
+		
+		//Packets are in order of arrival, so expired ones are all at the front
+		long now = System.currentTimeMillis();
+		while (!pendingPackets.isEmpty() && now - pendingPackets.getFirst().time > PACKET_LIFESPAN)
+			pendingPackets.removeFirst();
+	}
+	
+	/**
+	 * Gives a packet to all handlers registered for its type and to global handlers.
+	 * @param packet
+	 * @return Whether any handler handled it
+	 */
+	private boolean dispatch (Packet packet) {
+		boolean handled = false;
+		PacketHandler[][] handlersByType = packetHandlersByType;
+		if (packet.packetType >= 0 && packet.packetType < handlersByType.length) {
+			for (PacketHandler packetHandler : handlersByType[packet.packetType]) {
 				if (packetHandler.handlePacket(packet))
 					handled = true;
 			}
-			
-			if (handled || System.currentTimeMillis() - packetWrapper.time > PACKET_LIFESPAN)
-				packetsToRemove.add(packetWrapper);
 		}
-
-		removeAllPackets(packetsToRemove);
+		
+		for (PacketHandler packetHandler : globalPacketHandlers) {
+			if (packetHandler.handlePacket(packet))
+				handled = true;
+		}
+		return handled;
 	}
 	
-	private synchronized void removeAllPackets (ArrayList<PacketWrapper> packetsToRemove) {
-		this.packets.removeAll(packetsToRemove);
+	private synchronized void clearPacketHandlers () {
+		PacketHandler[][] handlersByType = new PacketHandler[packetHandlersByType.length][];
+		for (int i = 0; i < handlersByType.length; i++)
+			handlersByType[i] = NO_HANDLERS;
+		packetHandlersByType = handlersByType;
+		globalPacketHandlers = NO_HANDLERS;
 	}
 	
-	private synchronized void removeAllPacketHandlers () {
-		packetHandlers.clear();
+	private void addPacket (PacketWrapper packet) {
+		inboundPackets.add(packet);
 	}
 	
-	private synchronized void addPacket (PacketWrapper packet) {
-		packets.add(packet);
+	public void connect (String address, int port) {
+		connect(address, port, DEFAULT_SERIALIZER);
 	}
 	
-	public void connect (String address, int port) {
+	/**
+	 * Connect to a server. The preferred serializer will be requested once logged in and used once the server accepts it.
+	 * @param address
+	 * @param port
+	 * @param preferredSerializer
+	 */
+	public void connect (String address, int port, SerializerType preferredSerializer) {
 		try {
 			isConnected = false;
+			this.preferredSerializer = preferredSerializer;
+			this.serializer = jsonSerializer;//Handshake is always done using json
+			this.inputStep = 0;
 			socket = ExtendedNet.getNet().newSecureWebSocket(address, port, Gdx.files, "keystore", (Gdx.app.getType() == ApplicationType.Android ? "BKS" : "JKS"), "changeit", "changeit");
 			//socket = ExtendedNet.getNet().newWebSocket(address, port);
 			socket.addListener(getWebSocketListener());
@@ -111,12 +167,99 @@ public class NetworkManager {
 		return serializer.serialize(packet);
 	}
 	
-	public synchronized void addPacketHandler (PacketHandler packetHandler) {
-		packetHandlers.add(packetHandler);
+	/**
+	 * Registers a handler for the given packet types. If no types are given, the handler receives every packet.
+	 * @param packetHandler
+	 * @param packetTypes
+	 */
+	public synchronized void addPacketHandler (PacketHandler packetHandler, int... packetTypes) {
+		if (packetTypes.length == 0) {
+			globalPacketHandlers = addHandler(globalPacketHandlers, packetHandler);
+			return;
+		}
+		
+		PacketHandler[][] handlersByType = packetHandlersByType.clone();
+		for (int packetType : packetTypes)
+			handlersByType[packetType] = addHandler(handlersByType[packetType], packetHandler);
+		packetHandlersByType = handlersByType;
 	}
 	
+	/**
+	 * Unregisters a handler from all packet types it was added for.
+	 * @param packetHandler
+	 */
 	public synchronized void removePacketHandler (PacketHandler packetHandler) {
-		packetHandlers.remove(packetHandler);
+		PacketHandler[][] handlersByType = packetHandlersByType.clone();
+		for (int i = 0; i < handlersByType.length; i++)
+			handlersByType[i] = removeHandler(handlersByType[i], packetHandler);
+		packetHandlersByType = handlersByType;
+		globalPacketHandlers = removeHandler(globalPacketHandlers, packetHandler);
+	}
+	
+	private static PacketHandler[] addHandler (PacketHandler[] handlers, PacketHandler packetHandler) {
+		PacketHandler[] newHandlers = new PacketHandler[handlers.length + 1];
+		System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+		newHandlers[handlers.length] = packetHandler;
+		return newHandlers;
+	}
+	
+	private static PacketHandler[] removeHandler (PacketHandler[] handlers, PacketHandler packetHandler) {
+		for (int i = 0; i < handlers.length; i++) {
+			if (handlers[i] == packetHandler) {
+				PacketHandler[] newHandlers = new PacketHandler[handlers.length - 1];
+				System.arraycopy(handlers, 0, newHandlers, 0, i);
+				System.arraycopy(handlers, i + 1, newHandlers, i, handlers.length - i - 1);
+				return newHandlers;
+			}
+		}
+		return handlers;
+	}
+	
+	/**
+	 * Id of the next input simulation step. Ids keep counting up for the whole connection, across maps and game screens,
+	 * so they never repeat ones the server or the movement log still remember.
+	 * @return
+	 */
+	public int getInputStep () {
+		return inputStep;
+	}
+	
+	public void nextInputStep () {
+		inputStep++;
+	}
+	
+	public SerializerType getPreferredSerializer () {
+		return preferredSerializer;
+	}
+	
+	/**
+	 * Called when the server answers a login packet. Requests the preferred serializer if the login was successful.
+	 * @param loginPacket
+	 */
+	private void loggedIn (LoginPacket loginPacket) {
+		if (loginPacket.result == LoginPacket.RESULT_LOGIN_SUCCESSFUL && preferredSerializer != SerializerType.JSON)
+			sendPacket(new SerializerPacket(preferredSerializer.getId()));
+	}
+	
+	/**
+	 * Called when the server answers a serializer packet. Switches outgoing packets to the serializer the server accepted, if any.
+	 * @param serializerPacket
+	 */
+	private void serializerNegotiated (SerializerPacket serializerPacket) {
+		SerializerType acceptedSerializer = SerializerType.getById(serializerPacket.serializer);
+		if (acceptedSerializer == SerializerType.BINARY)
+			serializer = binarySerializer;
+		else
+			serializer = jsonSerializer;
+	}
+	
+	/**
+	 * Finds the serializer that can read the given packet data.
+	 * @param packetData
+	 * @return
+	 */
+	private Serializer getDeserializerFor (byte[] packetData) {
+		return BinarySerializer.isBinary(packetData) ? binarySerializer : jsonSerializer;
 	}
 	
 	public boolean isConnected () {
@@ -138,7 +281,7 @@ public class NetworkManager {
             public boolean onClose(final WebSocket webSocket, final WebSocketCloseCode code, final String reason) {
             	isConnected = false;
                 Gdx.app.log("WS", "Disconnected - status: " + code + ", reason: " + reason);
-                removeAllPacketHandlers();
+                clearPacketHandlers();
                 if (ArchipeloClient.getGame().getScreenManager().getScreenType() == ScreenType.GAME)
                 	ArchipeloClient.getGame().getScreenManager().setScreen(new MainMenuScreen(LM.ui("lostConnection")));
                 return FULLY_HANDLED;
@@ -147,7 +290,14 @@ public class NetworkManager {
             @Override
             public boolean onMessage(WebSocket webSocket, byte[] packetData) {
             	try {
-        			Packet packet = serializer.deserialize(packetData);
+        			Packet packet = getDeserializerFor(packetData).deserialize(packetData);
+        			if (packet.packetType == PacketType.SERIALIZER) {//Only used by the network manager
+        				serializerNegotiated((SerializerPacket) packet);
+        				return FULLY_HANDLED;
+        			}
+        			
+        			if (packet.packetType == PacketType.LOGIN)
+        				loggedIn((LoginPacket) packet);
         			addPacket(new PacketWrapper(packet));
         		} catch (Exception e) {
         			return NOT_HANDLED;
@@ -15,7 +15,7 @@ public class PacketType {
 	public static final int ENTITY_ADD = 4;
 	public static final int ENTITY_REMOVE = 5;
 	public static final int CONTROLS = 6;
-	////////Empty spot for 7
+	public static final int SNAPSHOT_ACK = 7;
 	public static final int POPUP_TEXT = 8;
 	public static final int CHAT_MESSAGE = 9;
 	public static final int TELEPORT = 10;
@@ -30,6 +30,7 @@ public class PacketType {
 	public static final int FORM_DATA = 19;
 	public static final int POSITION_CORRECTION = 20;
 	public static final int PLAYER_STATS = 21;
+	public static final int SERIALIZER = 22;
 	
 	private static HashMap<Integer, Class<Packet>> registeredPackets;
 	
@@ -43,6 +44,7 @@ public class PacketType {
 			registeredPackets.put(ENTITY_ADD, ClassReflection.forName("net.hollowbit.archipelo.network.packets.EntityAddPacket"));
 			registeredPackets.put(ENTITY_REMOVE, ClassReflection.forName("net.hollowbit.archipelo.network.packets.EntityRemovePacket"));
 			registeredPackets.put(CONTROLS, ClassReflection.forName("net.hollowbit.archipelo.network.packets.ControlsPacket"));
+			registeredPackets.put(SNAPSHOT_ACK, ClassReflection.forName("net.hollowbit.archipelo.network.packets.SnapshotAckPacket"));
 			registeredPackets.put(POPUP_TEXT, ClassReflection.forName("net.hollowbit.archipelo.network.packets.PopupTextPacket"));
 			registeredPackets.put(CHAT_MESSAGE, ClassReflection.forName("net.hollowbit.archipelo.network.packets.ChatMessagePacket"));
 			registeredPackets.put(TELEPORT, ClassReflection.forName("net.hollowbit.archipelo.network.packets.TeleportPacket"));
@@ -57,6 +59,7 @@ public class PacketType {
 			registeredPackets.put(FORM_DATA, ClassReflection.forName("net.hollowbit.archipelo.network.packets.FormDataPacket"));
 			registeredPackets.put(POSITION_CORRECTION, ClassReflection.forName("net.hollowbit.archipelo.network.packets.PositionCorrectionPacket"));
 			registeredPackets.put(PLAYER_STATS, ClassReflection.forName("net.hollowbit.archipelo.network.packets.PlayerStatsPacket"));
+			registeredPackets.put(SERIALIZER, ClassReflection.forName("net.hollowbit.archipelo.network.packets.SerializerPacket"));
 		} catch (Exception e) {
 			System.out.println("Was unable to register all packet.");
 			Gdx.app.exit();
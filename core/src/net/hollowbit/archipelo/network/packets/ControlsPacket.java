@@ -3,33 +3,58 @@ package net.hollowbit.archipelo.network.packets;
 import net.hollowbit.archipelo.network.Packet;
 import net.hollowbit.archipelo.network.PacketType;
 
+/**
+ * Controls the player holds from a simulation step on. Steps are {@link net.hollowbit.archipelo.tools.ControlsManager#UPDATE_RATE} long
+ * and their ids count up from 0 for the whole connection.
+ * Controls are only sent when they change, or when the game is paused, so the server has to keep applying the last controls
+ * it received every step until newer ones arrive. A packet for a step the server already received replaces it if it wasn't applied yet.
+ * The server answers with {@link PositionCorrectionPacket}s giving the last step it applied.
+ */
 public class ControlsPacket extends Packet {
 	
-	private static int idNext = 0;
+	public int c;//Bitmask of the controls held, bit i is control i
+	public int id;//Id of the simulation step these controls start at
 	
-	public String c;
-	public int id;
+	//Last few inputs sent before these, oldest first, so the server can recover from a lost packet
+	public int[] rc;
+	public int[] rid;
 	
-	//Only used in client
-	public float x = 0, y = 0;
-	public long time = 0;
-
-	public ControlsPacket (boolean[] controls) {
+	public ControlsPacket () {
 		super(PacketType.CONTROLS);
-		this.c = "";
-		for (int i = 0; i < controls.length; i++) {
-			this.c += (controls[i] ? 1:0);
-		}
-		this.id = idNext++;
-		time = System.currentTimeMillis();
 	}
 	
-	public boolean[] parse() {
-		boolean[] controls = new boolean[c.length()];
+	public ControlsPacket (int id, int controls) {
+		this();
+		this.id = id;
+		this.c = controls;
+	}
+	
+	/**
+	 * Packs controls into a bitmask.
+	 * @param controls
+	 * @return
+	 */
+	public static int pack (boolean[] controls) {
+		int bits = 0;
 		for (int i = 0; i < controls.length; i++) {
-			controls[i] = (c.charAt(i) == '0' ? false : true);
+			if (controls[i])
+				bits |= 1 << i;
 		}
-		return controls;
+		return bits;
+	}
+	
+	/**
+	 * Unpacks a controls bitmask into an existing array.
+	 * @param bits
+	 * @param controls
+	 */
+	public static void unpack (int bits, boolean[] controls) {
+		for (int i = 0; i < controls.length; i++)
+			controls[i] = (bits & (1 << i)) != 0;
+	}
+	
+	public static boolean isDown (int bits, int control) {
+		return (bits & (1 << control)) != 0;
 	}
 	
 }
@@ -7,7 +7,7 @@ public class PositionCorrectionPacket extends Packet {
 	
 	public float x;
 	public float y;
-	public int id;
+	public int id;//Last input step the server applied before ending up at this position
 	
 	public PositionCorrectionPacket() {
 		super(PacketType.POSITION_CORRECTION);
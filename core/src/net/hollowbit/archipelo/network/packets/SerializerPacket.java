@@ -0,0 +1,23 @@
+package net.hollowbit.archipelo.network.packets;
+
+import net.hollowbit.archipelo.network.Packet;
+import net.hollowbit.archipelo.network.PacketType;
+
+/**
+ * Sent by the client once logged in to request a serializer. The server answers with the one it accepted.
+ * Only sent after a successful login, so servers of older versions, which reject the login, never receive it.
+ */
+public class SerializerPacket extends Packet {
+	
+	public String serializer;//Id of the requested serializer, answered with the accepted one or null to keep json
+	
+	public SerializerPacket () {
+		super(PacketType.SERIALIZER);
+	}
+	
+	public SerializerPacket (String serializer) {
+		this();
+		this.serializer = serializer;
+	}
+	
+}
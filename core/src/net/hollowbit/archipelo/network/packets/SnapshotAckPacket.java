@@ -0,0 +1,19 @@
+package net.hollowbit.archipelo.network.packets;
+
+import net.hollowbit.archipelo.network.Packet;
+import net.hollowbit.archipelo.network.PacketType;
+
+public class SnapshotAckPacket extends Packet {
+	
+	public int sequence;//Sequence number of the latest world snapshot received, the server may use it as a delta baseline
+	
+	public SnapshotAckPacket () {
+		super(PacketType.SNAPSHOT_ACK);
+	}
+	
+	public SnapshotAckPacket (int sequence) {
+		this();
+		this.sequence = sequence;
+	}
+	
+}
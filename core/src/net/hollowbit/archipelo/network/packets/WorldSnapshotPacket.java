@@ -14,7 +14,11 @@ public class WorldSnapshotPacket extends Packet {
 	public int type = 0;
 	public String mapSnapshot;
 	public String[] chunks;
+	public byte[][] binaryChunks;//Chunks encoded with ChunkDataCodec, used instead of chunks when not null
 	public String[] entities;
+	public int sequence = -1;//Acknowledged by the client so it can be used as a baseline, -1 if not sequenced
+	public int baseline = -1;//Sequence of the snapshot entityDelta is relative to, -1 if it isn't relative to one
+	public byte[] entityDelta;//Entities encoded with EntitySnapshotDeltaCodec, used instead of entities when not null
 	
 	public WorldSnapshotPacket () {
 		super(PacketType.WORLD_SNAPSHOT);
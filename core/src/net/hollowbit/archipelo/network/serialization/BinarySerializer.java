@@ -0,0 +1,453 @@
+package net.hollowbit.archipelo.network.serialization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.badlogic.gdx.utils.reflect.ArrayReflection;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+import net.hollowbit.archipelo.network.Packet;
+import net.hollowbit.archipelo.network.PacketType;
+import net.hollowbit.archipeloshared.network.ByteReader;
+import net.hollowbit.archipeloshared.network.ByteWriter;
+
+/**
+ * Compact, schema-driven packet serializer.
+ *
+ * Format: [FORMAT_MARKER][varint packet type][fields...]
+ *
+ * The field layout of each class is derived once from its non-static, non-transient fields sorted by name,
+ * so the client and server only need matching field names to agree on a layout. Primitives are written with a fixed size,
+ * strings/arrays/collections are prefixed with a varint length + 1 (0 meaning null) and nested objects and boxed primitives with a presence byte.
+ * @author vedi0boy
+ *
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class BinarySerializer implements Serializer {
+	
+	/**
+	 * First byte of every binary packet. Json packets always start with an ascii digit, so the two can never be confused.
+	 */
+	public static final byte FORMAT_MARKER = (byte) 0xB1;
+	
+	private static final int INITIAL_BUFFER_SIZE = 256;
+	
+	private static final int KIND_INT = 0;
+	private static final int KIND_LONG = 1;
+	private static final int KIND_FLOAT = 2;
+	private static final int KIND_DOUBLE = 3;
+	private static final int KIND_BOOLEAN = 4;
+	private static final int KIND_SHORT = 5;
+	private static final int KIND_BYTE = 6;
+	private static final int KIND_CHAR = 7;
+	private static final int KIND_STRING = 8;
+	private static final int KIND_ARRAY = 9;
+	private static final int KIND_LIST = 10;
+	private static final int KIND_MAP = 11;
+	private static final int KIND_OBJECT = 12;
+	
+	private HashMap<Class, ClassSchema> schemas;
+	
+	public BinarySerializer () {
+		schemas = new HashMap<Class, ClassSchema>();
+		
+		//Build packet schemas up front so they are ready before the first packet arrives
+		for (Class<Packet> packetClass : PacketType.getRegisteredPackets().values())
+			getSchema(packetClass);
+	}
+	
+	/**
+	 * Tells whether the given packet data was written by this serializer.
+	 * @param data
+	 * @return
+	 */
+	public static boolean isBinary (byte[] data) {
+		return data.length > 0 && data[0] == FORMAT_MARKER;
+	}
+	
+	@Override
+	public byte[] serialize (Packet packet) {
+		ByteWriter output = new ByteWriter(INITIAL_BUFFER_SIZE);
+		output.writeByte(FORMAT_MARKER);
+		output.writeVarInt(packet.packetType);
+		try {
+			writeFields(output, getSchema(packet.getClass()), packet);
+		} catch (ReflectionException e) {
+			throw new IllegalArgumentException("Unable to serialize packet of type: " + packet.packetType, e);
+		}
+		return output.toByteArray();
+	}
+	
+	@Override
+	public Packet deserialize (byte[] data) {
+		ByteReader input = new ByteReader(data);
+		if (input.readByte() != FORMAT_MARKER)
+			throw new IllegalArgumentException("Packet data is not in the binary format.");
+			
+		int type = input.readVarInt();
+		Class<Packet> packetClass = PacketType.getPacketClassByType(type);
+		if (packetClass == null)
+			throw new IllegalArgumentException("Unknown packet type: " + type);
+			
+		try {
+			Packet packet = ClassReflection.newInstance(packetClass);
+			readFields(input, getSchema(packetClass), packet);
+			return packet;
+		} catch (ReflectionException e) {
+			throw new IllegalArgumentException("Unable to deserialize packet of type: " + type, e);
+		}
+	}
+	
+	private synchronized ClassSchema getSchema (Class type) {
+		ClassSchema schema = schemas.get(type);
+		if (schema == null) {
+			schema = new ClassSchema(type);
+			schemas.put(type, schema);
+			schema.build();
+		}
+		return schema;
+	}
+	
+	/////////Writing/////////
+	
+	private void writeFields (ByteWriter output, ClassSchema schema, Object object) throws ReflectionException {
+		for (FieldSchema fieldSchema : schema.fields)
+			writeValue(output, fieldSchema.kind, fieldSchema.field.getType(), fieldSchema.elementType, fieldSchema.valueType, fieldSchema.field.get(object));
+	}
+	
+	private void writeValue (ByteWriter output, int kind, Class type, Class elementType, Class valueType, Object value) throws ReflectionException {
+		if (isBoxed(kind, type)) {
+			output.writeBoolean(value != null);
+			if (value == null)
+				return;
+		}
+		
+		switch (kind) {
+		case KIND_INT:
+			output.writeInt((Integer) value);
+			break;
+		case KIND_LONG:
+			output.writeLong((Long) value);
+			break;
+		case KIND_FLOAT:
+			output.writeFloat((Float) value);
+			break;
+		case KIND_DOUBLE:
+			output.writeDouble((Double) value);
+			break;
+		case KIND_BOOLEAN:
+			output.writeBoolean((Boolean) value);
+			break;
+		case KIND_SHORT:
+			output.writeShort((Short) value);
+			break;
+		case KIND_BYTE:
+			output.writeByte((Byte) value);
+			break;
+		case KIND_CHAR:
+			output.writeShort((Character) value);
+			break;
+		case KIND_STRING:
+			output.writeString((String) value);
+			break;
+		case KIND_ARRAY:
+			writeArray(output, type.getComponentType(), value);
+			break;
+		case KIND_LIST:
+			if (value == null) {
+				output.writeVarInt(0);
+				break;
+			}
+			Collection collection = (Collection) value;
+			output.writeVarInt(collection.size() + 1);
+			int listElementKind = getKind(elementType);
+			for (Object element : collection)
+				writeValue(output, listElementKind, elementType, null, null, element);
+			break;
+		case KIND_MAP:
+			if (value == null) {
+				output.writeVarInt(0);
+				break;
+			}
+			Map<Object, Object> map = (Map<Object, Object>) value;
+			output.writeVarInt(map.size() + 1);
+			int keyKind = getKind(elementType);
+			int valueKind = getKind(valueType);
+			for (Map.Entry<Object, Object> entry : map.entrySet()) {
+				writeValue(output, keyKind, elementType, null, null, entry.getKey());
+				writeValue(output, valueKind, valueType, null, null, entry.getValue());
+			}
+			break;
+		case KIND_OBJECT:
+			if (value == null) {
+				output.writeBoolean(false);
+				break;
+			}
+			output.writeBoolean(true);
+			writeFields(output, getSchema(type), value);
+			break;
+		}
+	}
+	
+	private void writeArray (ByteWriter output, Class componentType, Object array) throws ReflectionException {
+		if (array == null) {
+			output.writeVarInt(0);
+			return;
+		}
+		
+		int length = ArrayReflection.getLength(array);
+		output.writeVarInt(length + 1);
+		
+		//Avoid boxing for the common primitive arrays
+		if (componentType == int.class) {
+			int[] ints = (int[]) array;
+			for (int i = 0; i < length; i++)
+				output.writeInt(ints[i]);
+		} else if (componentType == float.class) {
+			float[] floats = (float[]) array;
+			for (int i = 0; i < length; i++)
+				output.writeFloat(floats[i]);
+		} else if (componentType == boolean.class) {
+			boolean[] booleans = (boolean[]) array;
+			for (int i = 0; i < length; i++)
+				output.writeBoolean(booleans[i]);
+		} else if (componentType == byte.class) {
+			output.writeBytes((byte[]) array, 0, length);
+		} else {
+			int componentKind = getKind(componentType);
+			for (int i = 0; i < length; i++)
+				writeValue(output, componentKind, componentType, null, null, ArrayReflection.get(array, i));
+		}
+	}
+	
+	/////////Reading/////////
+	
+	private void readFields (ByteReader input, ClassSchema schema, Object object) throws ReflectionException {
+		for (FieldSchema fieldSchema : schema.fields)
+			fieldSchema.field.set(object, readValue(input, fieldSchema.kind, fieldSchema.field.getType(), fieldSchema.elementType, fieldSchema.valueType));
+	}
+	
+	private Object readValue (ByteReader input, int kind, Class type, Class elementType, Class valueType) throws ReflectionException {
+		if (isBoxed(kind, type) && !input.readBoolean())
+			return null;
+		
+		switch (kind) {
+		case KIND_INT:
+			return input.readInt();
+		case KIND_LONG:
+			return input.readLong();
+		case KIND_FLOAT:
+			return input.readFloat();
+		case KIND_DOUBLE:
+			return input.readDouble();
+		case KIND_BOOLEAN:
+			return input.readBoolean();
+		case KIND_SHORT:
+			return input.readShort();
+		case KIND_BYTE:
+			return (byte) input.readByte();
+		case KIND_CHAR:
+			return (char) input.readShort();
+		case KIND_STRING:
+			return input.readString();
+		case KIND_ARRAY:
+			return readArray(input, type.getComponentType());
+		case KIND_LIST: {
+			int size = input.readVarInt() - 1;
+			if (size < 0)
+				return null;
+				
+			Collection collection;
+			if (ClassReflection.isAssignableFrom(LinkedList.class, type))
+				collection = new LinkedList();
+			else
+				collection = new ArrayList(size);
+				
+			int listElementKind = getKind(elementType);
+			for (int i = 0; i < size; i++)
+				collection.add(readValue(input, listElementKind, elementType, null, null));
+			return collection;
+		}
+		case KIND_MAP: {
+			int size = input.readVarInt() - 1;
+			if (size < 0)
+				return null;
+				
+			HashMap map = new HashMap(size * 2);
+			int keyKind = getKind(elementType);
+			int valueKind = getKind(valueType);
+			for (int i = 0; i < size; i++) {
+				Object key = readValue(input, keyKind, elementType, null, null);
+				map.put(key, readValue(input, valueKind, valueType, null, null));
+			}
+			return map;
+		}
+		case KIND_OBJECT:
+			if (!input.readBoolean())
+				return null;
+			Object object = ClassReflection.newInstance(type);
+			readFields(input, getSchema(type), object);
+			return object;
+		}
+		return null;
+	}
+	
+	private Object readArray (ByteReader input, Class componentType) throws ReflectionException {
+		int length = input.readVarInt() - 1;
+		if (length < 0)
+			return null;
+			
+		if (componentType == int.class) {
+			int[] ints = new int[length];
+			for (int i = 0; i < length; i++)
+				ints[i] = input.readInt();
+			return ints;
+		} else if (componentType == float.class) {
+			float[] floats = new float[length];
+			for (int i = 0; i < length; i++)
+				floats[i] = input.readFloat();
+			return floats;
+		} else if (componentType == boolean.class) {
+			boolean[] booleans = new boolean[length];
+			for (int i = 0; i < length; i++)
+				booleans[i] = input.readBoolean();
+			return booleans;
+		} else if (componentType == byte.class) {
+			byte[] bytes = new byte[length];
+			input.readBytes(bytes, 0, length);
+			return bytes;
+		}
+		
+		Object array = ArrayReflection.newInstance(componentType, length);
+		int componentKind = getKind(componentType);
+		for (int i = 0; i < length; i++)
+			ArrayReflection.set(array, i, readValue(input, componentKind, componentType, null, null));
+		return array;
+	}
+	
+	/////////Schemas/////////
+	
+	private static int getKind (Class type) {
+		if (type == int.class || type == Integer.class)
+			return KIND_INT;
+		if (type == long.class || type == Long.class)
+			return KIND_LONG;
+		if (type == float.class || type == Float.class)
+			return KIND_FLOAT;
+		if (type == double.class || type == Double.class)
+			return KIND_DOUBLE;
+		if (type == boolean.class || type == Boolean.class)
+			return KIND_BOOLEAN;
+		if (type == short.class || type == Short.class)
+			return KIND_SHORT;
+		if (type == byte.class || type == Byte.class)
+			return KIND_BYTE;
+		if (type == char.class || type == Character.class)
+			return KIND_CHAR;
+		if (type == String.class)
+			return KIND_STRING;
+		if (type.isArray())
+			return KIND_ARRAY;
+		if (ClassReflection.isAssignableFrom(Collection.class, type))
+			return KIND_LIST;
+		if (ClassReflection.isAssignableFrom(Map.class, type))
+			return KIND_MAP;
+		return KIND_OBJECT;
+	}
+	
+	/**
+	 * Whether a value is a boxed primitive, which can be null unlike a primitive.
+	 * @param kind
+	 * @param type
+	 * @return
+	 */
+	private static boolean isBoxed (int kind, Class type) {
+		return kind <= KIND_CHAR && !type.isPrimitive();
+	}
+	
+	private class ClassSchema {
+		
+		Class type;
+		FieldSchema[] fields;
+		
+		ClassSchema (Class type) {
+			this.type = type;
+		}
+		
+		void build () {
+			ArrayList<Field> serializedFields = new ArrayList<Field>();
+			Class currentClass = type;
+			while (currentClass != null && currentClass != Object.class && currentClass != Packet.class) {//Packet type is written in the header
+				for (Field field : ClassReflection.getDeclaredFields(currentClass)) {
+					if (field.isStatic() || field.isTransient() || field.isSynthetic())
+						continue;
+						
+					if (!field.isAccessible())
+						field.setAccessible(true);
+					serializedFields.add(field);
+				}
+				currentClass = currentClass.getSuperclass();
+			}
+			
+			Collections.sort(serializedFields, new Comparator<Field>() {
+				@Override
+				public int compare (Field field1, Field field2) {
+					return field1.getName().compareTo(field2.getName());
+				}
+			});
+			
+			fields = new FieldSchema[serializedFields.size()];
+			for (int i = 0; i < fields.length; i++)
+				fields[i] = new FieldSchema(serializedFields.get(i));
+				
+			//Prepare schemas of nested types
+			for (FieldSchema fieldSchema : fields) {
+				Class nestedType = fieldSchema.field.getType();
+				while (nestedType.isArray())
+					nestedType = nestedType.getComponentType();
+					
+				if (fieldSchema.kind == KIND_LIST)
+					nestedType = fieldSchema.elementType;
+				else if (fieldSchema.kind == KIND_MAP)
+					nestedType = fieldSchema.valueType;
+					
+				if (nestedType != null && getKind(nestedType) == KIND_OBJECT)
+					getSchema(nestedType);
+			}
+		}
+		
+	}
+	
+	private static class FieldSchema {
+		
+		Field field;
+		int kind;
+		Class elementType;//List element or map key type
+		Class valueType;//Map value type
+		
+		FieldSchema (Field field) {
+			this.field = field;
+			this.kind = getKind(field.getType());
+			
+			if (kind == KIND_LIST) {
+				elementType = field.getElementType(0);
+				if (elementType == null)
+					throw new IllegalArgumentException("Collection field " + field.getName() + " needs a generic element type to be serialized.");
+			} else if (kind == KIND_MAP) {
+				elementType = field.getElementType(0);
+				valueType = field.getElementType(1);
+				if (elementType == null || valueType == null)
+					throw new IllegalArgumentException("Map field " + field.getName() + " needs generic key and value types to be serialized.");
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,37 @@
+package net.hollowbit.archipelo.network.serialization;
+
+/**
+ * Serializers the client can use. The one to use is negotiated with the server once logged in.
+ */
+public enum SerializerType {
+	
+	JSON ("json"),
+	BINARY ("binary");
+	
+	private String id;
+	
+	private SerializerType (String id) {
+		this.id = id;
+	}
+	
+	public String getId () {
+		return id;
+	}
+	
+	/**
+	 * Returns the serializer type with the given id or null if there are none.
+	 * @param id
+	 * @return
+	 */
+	public static SerializerType getById (String id) {
+		if (id == null)
+			return null;
+			
+		for (SerializerType type : SerializerType.values()) {
+			if (type.id.equals(id))
+				return type;
+		}
+		return null;
+	}
+	
+}
@@ -1,26 +1,51 @@
 package net.hollowbit.archipelo.particles;
 
+import com.badlogic.gdx.utils.Pool.Poolable;
+
 import net.hollowbit.archipelo.tools.rendering.RenderableGameWorldObject;
 import net.hollowbit.archipeloshared.CollisionRect;
 
-public abstract class Particle implements RenderableGameWorldObject {
-
+public abstract class Particle implements RenderableGameWorldObject, Poolable {
+	
 	protected ParticleType type;
 	protected float x, y;
+	protected CollisionRect viewRect = new CollisionRect(0, 0, 0, 0);//Reused so culling doesn't allocate
 	
+	/**
+	 * Sets up this particle. Particles are pooled, so this must set every field that changes while it is alive.
+	 * @param type
+	 * @param x
+	 * @param y
+	 * @param wildcard
+	 * @param meta
+	 */
 	public void create(ParticleType type, float x, float y, int wildcard, String meta) {
 		this.type = type;
 		this.x = x;
 		this.y = y;
 	}
 	
+	public ParticleType getType() {
+		return type;
+	}
+	
 	public float getRenderY() {
 		return y;
 	}
 	
 	@Override
 	public CollisionRect getViewRect() {
-		return new CollisionRect(x, y, type.getImageWidth(), type.getImageHeight());
+		viewRect.width = type.getImageWidth();
+		viewRect.height = type.getImageHeight();
+		return viewRect.move(x, y);
+	}
+	
+	/**
+	 * Called when this particle is returned to its pool.
+	 */
+	@Override
+	public void reset() {
+		type = null;
 	}
 	
 	public abstract void update(float deltaTime);
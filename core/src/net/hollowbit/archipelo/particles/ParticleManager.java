@@ -1,55 +1,190 @@
 package net.hollowbit.archipelo.particles;
 
-import java.util.LinkedList;
-
+import net.hollowbit.archipeloshared.CollisionRect;
 import net.hollowbit.archipeloshared.MapSnapshot;
 import net.hollowbit.archipeloshared.ParticlesData;
 
+/**
+ * Keeps the live particles of a map in fixed size arrays. Particles come from the pools of their types and go back to them when they expire.
+ * The bounds and age of each particle are kept in parallel arrays so culling and row sorting don't need to touch the particles themselves.
+ * Only use from the render thread.
+ * @author vedi0boy
+ *
+ */
 public class ParticleManager {
 	
-	private LinkedList<Particle> particles;
+	public static final int MAX_PARTICLES = 512;
+	
+	public enum DropPolicy {
+		DROP_NEW,//New particles are dropped while the manager is full
+		DROP_OLDEST//The oldest particle is replaced by the new one
+	}
+	
+	private Particle[] particles;
+	private int count = 0;
+	private DropPolicy dropPolicy;
+	
+	//Parallel to particles, updated every time a particle moves
+	private float[] viewX;
+	private float[] viewY;
+	private float[] viewWidth;
+	private float[] viewHeight;
+	private float[] renderY;
+	private float[] age;
 	
 	public ParticleManager() {
-		particles = new LinkedList<Particle>();
+		this(MAX_PARTICLES, DropPolicy.DROP_OLDEST);
+	}
+	
+	public ParticleManager(int capacity, DropPolicy dropPolicy) {
+		this.dropPolicy = dropPolicy;
+		particles = new Particle[capacity];
+		viewX = new float[capacity];
+		viewY = new float[capacity];
+		viewWidth = new float[capacity];
+		viewHeight = new float[capacity];
+		renderY = new float[capacity];
+		age = new float[capacity];
 	}
 	
 	public void update(float deltaTime) {
-		LinkedList<Particle> particlesToRemove = new LinkedList<Particle>();
-		for (Particle particle : getParticles()) {
+		int i = 0;
+		while (i < count) {
+			Particle particle = particles[i];
 			particle.update(deltaTime);
 			
-			if (particle.isExpired())
-				particlesToRemove.add(particle);
+			if (particle.isExpired()) {
+				remove(i);//Last particle is moved into this slot, so don't advance
+				continue;
+			}
+			
+			age[i] += deltaTime;
+			store(i);
+			i++;
 		}
-		removeAll(particlesToRemove);
 	}
 	
-	private synchronized void removeAll(LinkedList<Particle> particlesToRemove) {
-		particles.removeAll(particlesToRemove);
+	/**
+	 * Adds a particle, dropping a particle if the manager is full according to the drop policy.
+	 * @param particle
+	 */
+	public void add(Particle particle) {
+		if (particle == null)
+			return;
+		
+		int index = count;
+		if (count == particles.length) {//Full
+			if (dropPolicy == DropPolicy.DROP_NEW) {
+				particle.getType().free(particle);
+				return;
+			}
+			
+			index = getOldestIndex();
+			particles[index].getType().free(particles[index]);
+		} else
+			count++;
+		
+		particles[index] = particle;
+		age[index] = 0;
+		store(index);
+	}
+	
+	/**
+	 * Removes the particle at an index by moving the last particle into its slot, and returns it to its pool.
+	 * @param index
+	 */
+	private void remove(int index) {
+		Particle particle = particles[index];
+		int last = count - 1;
+		particles[index] = particles[last];
+		viewX[index] = viewX[last];
+		viewY[index] = viewY[last];
+		viewWidth[index] = viewWidth[last];
+		viewHeight[index] = viewHeight[last];
+		renderY[index] = renderY[last];
+		age[index] = age[last];
+		particles[last] = null;
+		count--;
+		particle.getType().free(particle);
 	}
 	
-	private synchronized void addAll(LinkedList<Particle> particlesToAdd) {
-		particles.addAll(particlesToAdd);
+	/**
+	 * Copies the bounds of the particle at an index into the arrays.
+	 * @param index
+	 */
+	private void store(int index) {
+		Particle particle = particles[index];
+		CollisionRect rect = particle.getViewRect();
+		viewX[index] = rect.xWithOffset();
+		viewY[index] = rect.yWithOffset();
+		viewWidth[index] = rect.width;
+		viewHeight[index] = rect.height;
+		renderY[index] = particle.getRenderY();
 	}
 	
-	public synchronized LinkedList<Particle> getParticles() {
-		LinkedList<Particle> particleList = new LinkedList<Particle>();
-		particleList.addAll(particles);
-		return particleList;
+	private int getOldestIndex() {
+		int oldest = 0;
+		for (int i = 1; i < count; i++) {
+			if (age[i] > age[oldest])
+				oldest = i;
+		}
+		return oldest;
 	}
-
+	
+	/**
+	 * Returns all particles to their pools.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			particles[i].getType().free(particles[i]);
+			particles[i] = null;
+		}
+		count = 0;
+	}
+	
+	public int getParticleCount() {
+		return count;
+	}
+	
+	/**
+	 * Particle at an index, from 0 to {@link #getParticleCount()}. Indexes change when particles expire, so don't keep them across updates.
+	 * @param index
+	 * @return
+	 */
+	public Particle getParticle(int index) {
+		return particles[index];
+	}
+	
+	public float getRenderY(int index) {
+		return renderY[index];
+	}
+	
+	/**
+	 * Checks if the particle at an index is in a rect, without getting its view rect.
+	 * @param index
+	 * @param rect
+	 * @return
+	 */
+	public boolean isInRect(int index, CollisionRect rect) {
+		return rect.collidesWith(viewX[index], viewY[index], viewWidth[index], viewHeight[index]);
+	}
+	
+	public DropPolicy getDropPolicy() {
+		return dropPolicy;
+	}
+	
+	public void setDropPolicy(DropPolicy dropPolicy) {
+		this.dropPolicy = dropPolicy;
+	}
+	
 	/**
 	 * Add new particles to the manager that have arrived in the MapSnapshot
 	 * @param particleDatas
 	 */
 	public void applyChangesSnapshot(MapSnapshot changes) {
-		if (!changes.particles.isEmpty()) {
-			LinkedList<Particle> newParticles = new LinkedList<Particle>();
-			for (ParticlesData particleData : changes.particles) {
-				for (int i = 0; i < particleData.x.length; i++)
-					newParticles.add(ParticleType.createUsingData(particleData.type, particleData.x[i], particleData.y[i], particleData.w[i], particleData.meta));
-			}
-			addAll(newParticles);
+		for (ParticlesData particleData : changes.particles) {
+			for (int i = 0; i < particleData.x.length; i++)
+				add(ParticleType.createUsingData(particleData.type, particleData.x[i], particleData.y[i], particleData.w[i], particleData.meta));
 		}
 	}
 	
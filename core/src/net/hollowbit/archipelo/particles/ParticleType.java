@@ -1,6 +1,10 @@
 package net.hollowbit.archipelo.particles;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
 
 import net.hollowbit.archipelo.particles.types.EntityChunkParticle;
 import net.hollowbit.archipelo.particles.types.HealthParticle;
@@ -10,12 +14,21 @@ public enum ParticleType {
 	HEALTH(HealthParticle.class),
 	ENTITY_CHUNK(EntityChunkParticle.class);
 	
+	private static final ParticleType[] TYPES = values();
+	
 	private Class<? extends Particle> blueprint;
 	private Texture image;
 	private int imgWidth, imgHeight;
+	private Pool<Particle> pool;
 	
 	private ParticleType(Class<? extends Particle> blueprint) {
 		this.blueprint = blueprint;
+		this.pool = new Pool<Particle>(16, ParticleManager.MAX_PARTICLES) {
+			@Override
+			protected Particle newObject() {
+				return newParticle();
+			}
+		};
 	}
 	
 	private ParticleType(Class<? extends Particle> blueprint, String imgName, int imgSize) {
@@ -45,16 +58,51 @@ public enum ParticleType {
 		return blueprint;
 	}
 	
+	private Particle newParticle() {
+		try {
+			return ClassReflection.newInstance(blueprint);
+		} catch (ReflectionException e) {
+			Gdx.app.log("ParticleType", "Could not instantiate particle of type: " + this.name());
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns a particle to the pool of this type. Only call once it is no longer used.
+	 * @param particle
+	 */
+	public void free(Particle particle) {
+		pool.free(particle);
+	}
+	
+	/**
+	 * Takes a particle from the pool of its type and sets it up. Returns null if it could not be created.
+	 * @param typeId
+	 * @param x
+	 * @param y
+	 * @param wildcard
+	 * @param meta
+	 * @return
+	 */
 	public static Particle createUsingData(int typeId, int x, int y, int wildcard, String meta) {
+		if (typeId < 0 || typeId >= TYPES.length) {
+			Gdx.app.error("ParticleType", "Could not instantiate particle of type: " + typeId);
+			return null;
+		}
+		
+		ParticleType type = TYPES[typeId];
+		Particle particle = type.pool.obtain();
+		if (particle == null)
+			return null;
+		
 		try {
-			ParticleType type = ParticleType.values()[typeId];
-			Particle particle = type.getBlueprint().newInstance();
 			particle.create(type, x, y, wildcard, meta);
-			return particle;
 		} catch (Exception e) {
-			System.out.println("Could not instantiate particle of type: " + typeId);
+			Gdx.app.error("ParticleType", "Could not create particle of type: " + typeId, e);
+			type.pool.free(particle);
+			return null;
 		}
-		return null;
+		return particle;
 	}
 	
 }
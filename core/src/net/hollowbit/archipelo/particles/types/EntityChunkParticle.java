@@ -5,6 +5,7 @@ import java.util.Random;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
+import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.entity.EntityType;
 import net.hollowbit.archipelo.particles.Particle;
 import net.hollowbit.archipelo.particles.ParticleType;
@@ -36,9 +37,11 @@ public class EntityChunkParticle extends Particle {
 	@Override
 	public void create(ParticleType type, float x, float y, int wildcard, String meta) {
 		super.create(type, x, y, wildcard, meta);
+		this.timer = 0;
 		String[] metaSplit = meta.split(";");
 		EntityType entityType = EntityType.getById(metaSplit[0]);
-		image = entityType.getAnimationFrame(entityType.getDefaultAnimationId(), Direction.DOWN, 0, Integer.parseInt(metaSplit[1]));
+		ArchipeloClient.getGame().getAssetStreamer().loadNow(entityType);//The frame is only taken once, so it can't be a placeholder
+		image = entityType.getAnimationFrame(entityType.getDefaultAnimation(), Direction.DOWN, 0, Integer.parseInt(metaSplit[1]));
 		Direction direction = Direction.values()[Integer.parseInt(metaSplit[2])];
 		
 		Random random = new Random(wildcard);
@@ -112,7 +115,9 @@ public class EntityChunkParticle extends Particle {
 	
 	@Override
 	public CollisionRect getViewRect() {
-		return new CollisionRect(x, y, size, size);
+		viewRect.width = size;
+		viewRect.height = size;
+		return viewRect.move(x, y);
 	}
 	
 	@Override
@@ -129,5 +134,11 @@ public class EntityChunkParticle extends Particle {
 	public boolean isExpired() {
 		return timer >= LIFE_TIME;
 	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		image = null;
+	}
 
 }
@@ -20,8 +20,9 @@ public class HealthParticle extends Particle {
 	private static final int DISTANCE_TO_TRAVEL = 8;
 	
 	private static BitmapFont font;
+	private static GlyphLayout layout = new GlyphLayout();//Only used to measure text while creating
 	String text;
-	Color color;
+	Color color = new Color();
 	float distanceTraveled;
 	
 	public void create(ParticleType type, float x, float y, int wildcard, String meta) {
@@ -56,9 +57,9 @@ public class HealthParticle extends Particle {
 			if (r < 0.2f)
 				r = 0.2f;
 		}
-		color = new Color(r, g, b, 1);
+		color.set(r, g, b, 1);
 		text = "" + Math.abs(damage);
-		GlyphLayout layout = new GlyphLayout(font, text, color, 0, Align.center, false);
+		layout.setText(font, text, color, 0, Align.center, false);
 		this.x -= layout.width / 2;
 	}
 
@@ -75,6 +76,12 @@ public class HealthParticle extends Particle {
 	public boolean isExpired() {
 		return distanceTraveled >= DISTANCE_TO_TRAVEL;
 	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		text = null;
+	}
 
 	@Override
 	public void renderObject(SpriteBatch batch) {
@@ -8,5 +8,6 @@ public class ScreenType {
 	public static final int CHARACTER_CREATOR = 3;
 	public static final int CHARACTER_PICKER = 4;
 	public static final int DEBUG_START_SCREEN = 5;
+	public static final int LOADING = 6;
 	
 }
@@ -102,7 +102,7 @@ public class CharacterCreatorScreen extends Screen implements PacketHandler {
 		stage = new Stage(ArchipeloClient.getGame().getCameraUi().getScreenViewport(), ArchipeloClient.getGame().getBatch());
 		stageWindow = new Stage(ArchipeloClient.getGame().getCameraUi().getScreenViewport(), ArchipeloClient.getGame().getBatch());
 		scrollingBackground = new ScrollingBackground();
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.PLAYER_PICK);
 		
 		Gdx.input.setInputProcessor(new InputMultiplexer(stageWindow, stage));//Put stageWindow first so it has priority
 		
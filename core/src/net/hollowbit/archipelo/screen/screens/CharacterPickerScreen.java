@@ -33,7 +33,7 @@ public class CharacterPickerScreen extends Screen implements PacketHandler {
 		super(ScreenType.CHARACTER_PICKER);
 		stage = new Stage(ArchipeloClient.getGame().getCameraUi().getScreenViewport(), ArchipeloClient.getGame().getBatch());
 		Gdx.input.setInputProcessor(stage);
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.PLAYER_LIST, PacketType.PLAYER_PICK);
 		scrollingBackground = new ScrollingBackground();
 		
 		//Send character list packet
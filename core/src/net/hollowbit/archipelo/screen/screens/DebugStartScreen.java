@@ -62,7 +62,7 @@ public class DebugStartScreen extends Screen {
 					}
 					return false;
 				}
-			});
+			}, PacketType.LOGIN);
 			ArchipeloClient.getGame().getNetworkManager().sendPacket(new LoginPacket(DEBUG_EMAIL, DEBUG_PASS));
 			
 		} else if (System.currentTimeMillis() - startTime >= 5000) {
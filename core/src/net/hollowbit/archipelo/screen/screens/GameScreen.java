@@ -36,12 +36,14 @@ import net.hollowbit.archipelo.screen.screens.gamescreen.windows.ChatMessage;
 import net.hollowbit.archipelo.screen.screens.gamescreen.windows.ChatWindow;
 import net.hollowbit.archipelo.screen.screens.gamescreen.windows.MainMenuWindow;
 import net.hollowbit.archipelo.screen.screens.gamescreen.windows.NpcDialogBox;
+import net.hollowbit.archipelo.tools.AllocationMeter;
 import net.hollowbit.archipelo.tools.ControlsManager;
 import net.hollowbit.archipelo.tools.FontManager.Fonts;
 import net.hollowbit.archipelo.tools.FontManager.Sizes;
 import net.hollowbit.archipelo.tools.QuickUi;
 import net.hollowbit.archipelo.tools.QuickUi.IconType;
 import net.hollowbit.archipelo.tools.QuickUi.TextFieldMessageListener;
+import net.hollowbit.archipelo.tools.StaticTools;
 import net.hollowbit.archipelo.tools.WorldSnapshotManager;
 import net.hollowbit.archipelo.world.World;
 
@@ -70,6 +72,15 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 	
 	HashMap<String, Form> forms;
 	
+	//Debug text, reused every frame
+	StringBuilder debugText = new StringBuilder();
+	GlyphLayout layoutFPS = new GlyphLayout();
+	GlyphLayout layoutPing = new GlyphLayout();
+	GlyphLayout layoutCoords = new GlyphLayout();
+	GlyphLayout layoutChunk = new GlyphLayout();
+	GlyphLayout layoutCorrections = new GlyphLayout();
+	GlyphLayout layoutAlloc = new GlyphLayout();
+	
 	public GameScreen (String playerName) {
 		super(ScreenType.GAME);
 		ArchipeloClient.getGame().getPlayerInfoManager().setName(playerName);
@@ -89,7 +100,7 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 		popupTextManager = new PopupTextManager();
 		chatManager = new ChatManager();
 		forms = new HashMap<String, Form>();
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.POPUP_TEXT, PacketType.CHAT_MESSAGE, PacketType.LOGOUT, PacketType.NPC_DIALOG, PacketType.FORM_DATA);
 		ArchipeloClient.getGame().getCamera().zoom(1);
 		
 		healthBar = new HealthBar(world);
@@ -165,6 +176,7 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 		}
 		
 		controlsManager.update(isNpcDialogBoxOpen(), deltaTime, canPlayerMove());
+		controlsManager.simulate(deltaTime);
 		
 		worldSnapshotManager.update(deltaTime);
 		popupTextManager.update(deltaTime);
@@ -193,7 +205,6 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 
 	@Override
 	public void dispose () {
-		controlsManager.dispose();
 		worldSnapshotManager.dispose();
 		world.dispose();
 		ArchipeloClient.getGame().getNetworkManager().removePacketHandler(this);
@@ -202,10 +213,21 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 	@Override
 	public void pause() {
 		controlsManager.stopMovement();
-		controlsManager.forceUpdate();
+		controlsManager.flush();
 		super.pause();
 	}
 	
+	/**
+	 * Lays out debug text and clears the builder for the next line.
+	 * @param layout
+	 * @param font
+	 * @param text
+	 */
+	private void setDebugText (GlyphLayout layout, BitmapFont font, StringBuilder text) {
+		layout.setText(font, text);
+		text.setLength(0);
+	}
+	
 	public World getWorld () {
 		return world;
 	}
@@ -215,18 +237,34 @@ public class GameScreen extends Screen implements PacketHandler, InputProcessor
 		if (ArchipeloClient.DEBUGMODE) {
 			//Fps counter
 			BitmapFont font = ArchipeloClient.getGame().getFontManager().getFont(Fonts.PIXELATED, Sizes.VERY_SMALL);
-			GlyphLayout layoutFPS = new GlyphLayout(font, "FPS: " + Gdx.graphics.getFramesPerSecond());
+			setDebugText(layoutFPS, font, debugText.append("FPS: ").append(Gdx.graphics.getFramesPerSecond()));
 			font.draw(batch, layoutFPS, width / 2 - layoutFPS.width / 2, height - layoutFPS.height);
 			
-			GlyphLayout layoutPing = new GlyphLayout(font, "Ping: " + worldSnapshotManager.getPing());
+			debugText.append("Ping: ").append(worldSnapshotManager.getPing()).append(" Decode: ");
+			StaticTools.appendDecimal(debugText, worldSnapshotManager.getDecodeTime(), 2).append("ms Draw calls: ").append(ArchipeloClient.getGame().getDrawCalls()).append(" Binds: ").append(ArchipeloClient.getGame().getTextureBindings());
+			setDebugText(layoutPing, font, debugText);
 			font.draw(batch, layoutPing, width / 2 - layoutPing.width / 2, height - layoutPing.height - layoutFPS.height - 3);
 			
 			if (world.getPlayer() != null) {
-				GlyphLayout layoutCoords = new GlyphLayout(font, "X: " + (int) world.getPlayer().getLocation().getX() + " Y: " + (int) world.getPlayer().getLocation().getY());
+				setDebugText(layoutCoords, font, debugText.append("X: ").append((int) world.getPlayer().getLocation().getX()).append(" Y: ").append((int) world.getPlayer().getLocation().getY()));
 				font.draw(batch, layoutCoords, width / 2 - layoutCoords.width / 2, height - layoutFPS.height - 3 - layoutPing.height - 3 - layoutCoords.height);
 				
-				GlyphLayout layoutChunk = new GlyphLayout(font, "cX: " + (int) world.getPlayer().getLocation().getChunkX() + " cY: " + (int) world.getPlayer().getLocation().getChunkY());
+				setDebugText(layoutChunk, font, debugText.append("cX: ").append((int) world.getPlayer().getLocation().getChunkX()).append(" cY: ").append((int) world.getPlayer().getLocation().getChunkY()));
 				font.draw(batch, layoutChunk, width / 2 - layoutChunk.width / 2, height - layoutFPS.height - 3 - layoutPing.height - 3 - layoutCoords.height - 3 - layoutChunk.height);
+				
+				debugText.append("Corrections: ");
+				StaticTools.appendDecimal(debugText, world.getPlayer().getCorrectionsPerSecond(), 1).append("/s Avg: ");
+				StaticTools.appendDecimal(debugText, world.getPlayer().getAverageCorrectionDistance(), 1).append("px");
+				setDebugText(layoutCorrections, font, debugText);
+				font.draw(batch, layoutCorrections, width / 2 - layoutCorrections.width / 2, height - layoutFPS.height - 3 - layoutPing.height - 3 - layoutCoords.height - 3 - layoutChunk.height - 3 - layoutCorrections.height);
+			}
+			
+			//Garbage made by the world update and render, to check that normal play doesn't allocate
+			AllocationMeter allocationMeter = ArchipeloClient.getGame().getAllocationMeter();
+			if (allocationMeter.isSupported() && allocationMeter.getBytesPerFrame() >= 0) {
+				StaticTools.appendDecimal(debugText.append("Alloc: "), allocationMeter.getBytesPerFrame() / 1024, 1).append("KB/frame");
+				setDebugText(layoutAlloc, font, debugText);
+				font.draw(batch, layoutAlloc, 10, layoutAlloc.height + 10);
 			}
 		}
 		
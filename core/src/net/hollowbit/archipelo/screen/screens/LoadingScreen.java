@@ -0,0 +1,87 @@
+package net.hollowbit.archipelo.screen.screens;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.screen.Screen;
+import net.hollowbit.archipelo.screen.ScreenType;
+import net.hollowbit.archipelo.tools.LM;
+import net.hollowbit.archipelo.tools.LanguageSpecificMessageManager.Cat;
+import net.hollowbit.archipelo.tools.StartupLoader;
+
+/**
+ * Shows a progress bar while the startup loader runs, then opens the main menu, or an error if the login server couldn't be reached.
+ * Nothing else is loaded yet, so it draws with its own texture.
+ * @author vedi0boy
+ *
+ */
+public class LoadingScreen extends Screen {
+	
+	private static final int BAR_WIDTH = 300;
+	private static final int BAR_HEIGHT = 8;
+	private static final Color BAR_BACKGROUND_COLOR = new Color(0.2f, 0.2f, 0.2f, 1);
+	
+	StartupLoader loader;
+	Texture white;
+	float progress = 0;
+	
+	public LoadingScreen(StartupLoader loader) {
+		super(ScreenType.LOADING);
+		this.loader = loader;
+	}
+	
+	@Override
+	public void create() {
+		Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+		pixmap.setColor(Color.WHITE);
+		pixmap.fill();
+		white = new Texture(pixmap);
+		pixmap.dispose();
+	}
+	
+	@Override
+	public void update(float deltaTime) {
+		if (!loader.update()) {
+			progress = loader.getProgress();
+			return;
+		}
+		progress = 1;
+		
+		if (loader.isConnected()) {
+			if (ArchipeloClient.DEBUGMODE) {
+				ArchipeloClient.getGame().getScreenManager().setScreen(new DebugStartScreen());
+				//ArchipeloClient.getGame().getScreenManager().setScreen(new FontTestScreen());
+			} else
+				ArchipeloClient.getGame().getScreenManager().setScreen(new MainMenuScreen());
+		} else
+			ArchipeloClient.getGame().getScreenManager().setScreen(new ErrorScreen(LM.getMsg(Cat.UI, "couldNotConnectToHB")));
+	}
+	
+	@Override
+	public void render(SpriteBatch batch, float width, float height) {
+	}
+	
+	@Override
+	public void renderUi(SpriteBatch batch, float width, float height) {
+		float x = width / 2 - BAR_WIDTH / 2;
+		float y = height / 2 - BAR_HEIGHT / 2;
+		batch.setColor(BAR_BACKGROUND_COLOR);
+		batch.draw(white, x, y, BAR_WIDTH, BAR_HEIGHT);
+		batch.setColor(Color.WHITE);
+		batch.draw(white, x, y, BAR_WIDTH * progress, BAR_HEIGHT);
+	}
+	
+	@Override
+	public void resize(int width, int height) {
+	}
+	
+	@Override
+	public void dispose() {
+		white.dispose();
+		loader.dispose();
+	}
+	
+}
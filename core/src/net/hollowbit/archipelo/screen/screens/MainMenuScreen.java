@@ -310,7 +310,7 @@ public class MainMenuScreen extends Screen {
 						}
 						return false;
 					}
-				});
+				}, PacketType.LOGIN);
 				
 				//Send login packet
 				Prefs prefs = ArchipeloClient.getGame().getPrefs();
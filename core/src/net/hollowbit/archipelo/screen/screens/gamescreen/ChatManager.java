@@ -2,51 +2,135 @@ package net.hollowbit.archipelo.screen.screens.gamescreen;
 
 import java.util.ArrayList;
 
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.network.packets.ChatMessagePacket;
 import net.hollowbit.archipelo.screen.screens.gamescreen.windows.ChatMessage;
+import net.hollowbit.archipelo.tools.FontManager.Fonts;
+import net.hollowbit.archipelo.tools.FontManager.Sizes;
 
+/**
+ * Keeps the last {@link #CAPACITY} chat messages in a ring, oldest first.
+ * Messages are stacked from the bottom up. Each one remembers the stacked height up to itself, so where a message
+ * is drawn is found without looking at the others.
+ * @author vedi0boy
+ *
+ */
 public class ChatManager {
 	
+	public static final int CAPACITY = 100;//Messages kept, older ones are dropped
+	private static final float MAX_STACK_HEIGHT = 100000;//Stack heights are restarted past this so they stay precise
 	
-	ArrayList<ChatMessage> messages;
+	ChatMessage[] messages;
+	int start = 0;
+	int count = 0;
+	float stackHeight = 0;//Height of all messages added, stacked
+	BitmapFont font;
 	ArrayList<ChatListener> chatListeners;
 	
 	public ChatManager () {
-		this.messages = new ArrayList<ChatMessage>();
+		this.messages = new ChatMessage[CAPACITY];
 		this.chatListeners = new ArrayList<ChatListener>();
 	}
 	
 	public synchronized void update (float deltatime) {
-		ArrayList<ChatMessage> messagesToRemove = new ArrayList<ChatMessage>();
-		for (ChatMessage message : messages) {
-			if (message.isShowing())
-				message.update(deltatime);
-			if (message.removeFromList())
-				messagesToRemove.add(message);
+		//Messages stop showing in the order they came in, so only the newest ones need updating
+		for (int i = count - 1; i >= 0; i--) {
+			ChatMessage message = getMessage(i);
+			if (!message.isShowing())
+				break;
+			message.update(deltatime);
 		}
-		messages.removeAll(messagesToRemove);
 	}
 	
 	public synchronized void render (SpriteBatch batch, boolean showAll) {
-		for (ChatMessage message : messages) {
-			if (message.isShowing() || showAll)
-				message.render(batch, showAll);
+		BitmapFont currentFont = getFont();
+		if (currentFont != font)
+			relayout(currentFont);
+		
+		//Newest first, until one doesn't fit
+		for (int i = count - 1; i >= 0; i--) {
+			ChatMessage message = getMessage(i);
+			float offset = getOffset(message);
+			if (message.isAboveTop(offset) || !(message.isShowing() || showAll))
+				break;
+			message.render(batch, showAll, offset);
 		}
 	}
 	
 	public synchronized void addChatMessage (ChatMessagePacket packet) {
-		ChatMessage message = new ChatMessage(packet.prefix, packet.message, packet.sender, this);
-		messages.add(message);
+		if (font == null)
+			font = getFont();
+		ChatMessage message = new ChatMessage(packet.prefix, packet.message, packet.sender, font);
+		push(message);
 		
 		for (ChatListener listener : chatListeners)
 			listener.newChatMessageReceived(message);
 	}
 	
-	public synchronized ArrayList<ChatMessage> getChatMessages () {
-		return messages;
+	private void push (ChatMessage message) {
+		if (count == CAPACITY) {//Drop the oldest
+			messages[start] = null;
+			start = (start + 1) % CAPACITY;
+			count--;
+		}
+		
+		messages[(start + count) % CAPACITY] = message;
+		count++;
+		if (stackHeight > MAX_STACK_HEIGHT)
+			restack();
+		else {
+			stackHeight += message.getHeightInChat();
+			message.setStackHeight(stackHeight);
+		}
+	}
+	
+	/**
+	 * Lays out all messages again with a new font, which changes their heights.
+	 * @param font
+	 */
+	private void relayout (BitmapFont font) {
+		this.font = font;
+		for (int i = 0; i < count; i++)
+			getMessage(i).layout(font);
+		restack();
+	}
+	
+	private void restack () {
+		stackHeight = 0;
+		for (int i = 0; i < count; i++) {
+			ChatMessage message = getMessage(i);
+			stackHeight += message.getHeightInChat();
+			message.setStackHeight(stackHeight);
+		}
+	}
+	
+	/**
+	 * Height of the messages newer than a message, which are drawn below it.
+	 * @param message
+	 * @return
+	 */
+	private float getOffset (ChatMessage message) {
+		return stackHeight - message.getStackHeight();
+	}
+	
+	private BitmapFont getFont () {
+		return ArchipeloClient.getGame().getFontManager().getFont(Fonts.PIXELATED, Sizes.VERY_SMALL);
+	}
+	
+	public synchronized int getMessageCount () {
+		return count;
+	}
+	
+	/**
+	 * Gets a message, 0 being the oldest one kept.
+	 * @param index
+	 * @return
+	 */
+	public synchronized ChatMessage getMessage (int index) {
+		return messages[(start + index) % CAPACITY];
 	}
 	
 	public synchronized void addChatListener (ChatListener listener) {
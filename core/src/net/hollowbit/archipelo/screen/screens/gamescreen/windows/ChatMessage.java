@@ -1,6 +1,5 @@
 package net.hollowbit.archipelo.screen.screens.gamescreen.windows;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
@@ -9,9 +8,6 @@ import com.badlogic.gdx.utils.Align;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.entity.living.Player;
-import net.hollowbit.archipelo.screen.screens.gamescreen.ChatManager;
-import net.hollowbit.archipelo.tools.FontManager.Fonts;
-import net.hollowbit.archipelo.tools.FontManager.Sizes;
 import net.hollowbit.archipelo.tools.QuickUi;
 
 public class ChatMessage {
@@ -31,12 +27,15 @@ public class ChatMessage {
 	String message;
 	Player sender;
 	float timer;
-	float y;
 	float height;
+	float stackHeight;//Height of this and all messages before it, stacked
 	boolean show = true;
-	boolean remove = false;
 	
-	public ChatMessage (String prefix, String message, String sender, ChatManager manager) {
+	//Laid out once, only moved when drawn
+	BitmapFontCache cache;
+	float cacheAlpha = 1;
+	
+	public ChatMessage (String prefix, String message, String sender, BitmapFont font) {
 		this.message = message;
 		if (sender.equals("server"))//Only process message if sent by server
 			this.message = QuickUi.processMessageString(this.message);
@@ -48,13 +47,18 @@ public class ChatMessage {
 		
 		if (sender.startsWith("@"))
 			this.sender = ArchipeloClient.getGame().getWorld().getPlayer(sender.substring(1, sender.length() - 1));
-		y = START_Y + (ArchipeloClient.IS_MOBILE ? MOBILE_BUMP : 0);
-		GlyphLayout layout = new GlyphLayout(ArchipeloClient.getGame().getFontManager().getFont(Fonts.PIXELATED, Sizes.VERY_SMALL), this.message, Color.WHITE, WIDTH, Align.bottomLeft, true);
+		layout(font);
+	}
+	
+	/**
+	 * Lays out the text with a font. Only needs to be called again if the font changed.
+	 * @param font
+	 */
+	public void layout (BitmapFont font) {
+		cache = font.newFontCache();
+		GlyphLayout layout = cache.setText(message, X_POSITION, 0, WIDTH, Align.bottomLeft, true);
 		this.height = layout.height;
-		
-		for (ChatMessage chatMessage : manager.getChatMessages()) {
-			chatMessage.addToY(height + SPACING + PADDING * 2);
-		}
+		this.cacheAlpha = 1;
 	}
 	
 	public void update (float deltatime) {
@@ -64,49 +68,72 @@ public class ChatMessage {
 			show = false;
 	}
 	
-	public void render (SpriteBatch batch, boolean noTransparency) {
+	/**
+	 * Draws the message.
+	 * @param batch
+	 * @param noTransparency
+	 * @param offset Height of the messages drawn below this one
+	 */
+	public void render (SpriteBatch batch, boolean noTransparency, float offset) {
+		float y = getY(offset);
+		
 		//Draw box
 		if (timer >= LIFE_TIME - FADE_TIME && !noTransparency)
 			batch.setColor(0, 0, 0, BOX_TRANSPARENCY - (BOX_TRANSPARENCY / FADE_TIME) * (timer - (LIFE_TIME - FADE_TIME)));
-		else 
+		else
 			batch.setColor(0, 0, 0, BOX_TRANSPARENCY);
 		batch.draw(ArchipeloClient.getGame().getAssetManager().getTexture("blank"), X_POSITION - PADDING, y - PADDING, WIDTH + PADDING * 2, height + PADDING * 2);
 		
 		//Draw message
-		BitmapFont font = ArchipeloClient.getGame().getFontManager().getFont(Fonts.PIXELATED, Sizes.VERY_SMALL);
-		if (timer >= LIFE_TIME - FADE_TIME && !noTransparency)
-			font.setColor(1, 1, 1, 1 - (1 / FADE_TIME) * (timer - (LIFE_TIME - FADE_TIME)));
-		else
-			font.setColor(1, 1, 1, 1);
-		
-		BitmapFontCache cache = font.getCache();
-		cache.clear();
-		cache.addText(message, X_POSITION, y + height, WIDTH, Align.bottomLeft, true);
+		float alpha = 1;
 		if (timer >= LIFE_TIME - FADE_TIME && !noTransparency)
-			cache.setAlphas(1 - (1 / FADE_TIME) * (timer - (LIFE_TIME - FADE_TIME)));
+			alpha = 1 - (1 / FADE_TIME) * (timer - (LIFE_TIME - FADE_TIME));
+		if (alpha != cacheAlpha) {
+			cache.setAlphas(alpha);
+			cacheAlpha = alpha;
+		}
+		cache.setPosition(0, y + height);
 		cache.draw(batch);
 		
-		font.setColor(1, 1, 1, 1);
 		batch.setColor(1, 1, 1, 1);
 	}
 	
-	public void addToY (float amount) {
-		y += amount;
-		if (y + height > MAX_HEIGHT)
-			remove = true;
+	private float getY (float offset) {
+		return START_Y + (ArchipeloClient.IS_MOBILE ? MOBILE_BUMP : 0) + offset;
 	}
 	
-	public boolean isShowing () {
-		return show;
+	/**
+	 * Whether the message would be drawn past the top of the chat.
+	 * @param offset Height of the messages drawn below this one
+	 * @return
+	 */
+	public boolean isAboveTop (float offset) {
+		return getY(offset) + height > MAX_HEIGHT;
+	}
+	
+	/**
+	 * Height this message takes up in the chat, including spacing.
+	 * @return
+	 */
+	public float getHeightInChat () {
+		return height + SPACING + PADDING * 2;
 	}
 	
-	public boolean removeFromList () {
-		return remove;
+	public float getStackHeight () {
+		return stackHeight;
+	}
+	
+	public void setStackHeight (float stackHeight) {
+		this.stackHeight = stackHeight;
+	}
+	
+	public boolean isShowing () {
+		return show;
 	}
 	
 	@Override
 	public String toString() {
 		return message;
 	}
-
+	
 }
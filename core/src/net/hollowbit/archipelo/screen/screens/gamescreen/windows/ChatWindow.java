@@ -86,8 +86,8 @@ public class ChatWindow extends MobileCompatibleWindow implements ChatListener {
 		chatManager.addChatListener(this);
 		
 		//Add messages already in chat manager
-		for (ChatMessage message : chatManager.getChatMessages())
-			newChatMessageReceived(message);
+		for (int i = 0; i < chatManager.getMessageCount(); i++)
+			newChatMessageReceived(chatManager.getMessage(i));
 		
 		this.pack();
 	}
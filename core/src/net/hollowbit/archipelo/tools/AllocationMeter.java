@@ -0,0 +1,93 @@
+package net.hollowbit.archipelo.tools;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures how many bytes the render thread allocates in a section of the frame, averaged over a second.
+ * Uses the allocation counter of HotSpot JVMs through reflection, since it isn't part of the standard API.
+ * On other platforms it reports nothing.
+ * @author vedi0boy
+ *
+ */
+public class AllocationMeter {
+	
+	public static final float SAMPLE_TIME = 1;//Seconds averaged over
+	
+	private Object threadBean;
+	private Method allocatedBytesMethod;
+	private Object[] args;//Reused so reading the counter allocates as little as possible
+	private long overhead = 0;//Bytes allocated by reading the counter itself
+	
+	private long startBytes;
+	private long sampleBytes = 0;
+	private int sampleFrames = 0;
+	private float sampleTimer = 0;
+	private float bytesPerFrame = -1;
+	
+	/**
+	 * Creates a meter for the current thread.
+	 */
+	public AllocationMeter () {
+		try {
+			threadBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+			allocatedBytesMethod = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+			args = new Object[] {Thread.currentThread().getId()};
+			
+			//Calibrate
+			long first = readAllocatedBytes();
+			long second = readAllocatedBytes();
+			overhead = Math.max(0, second - first);
+		} catch (Throwable e) {
+			threadBean = null;
+		}
+	}
+	
+	/**
+	 * Starts measuring a section of the frame.
+	 */
+	public void start () {
+		if (threadBean != null)
+			startBytes = readAllocatedBytes();
+	}
+	
+	/**
+	 * Stops measuring a section of the frame. Call once per frame after {@link #start()}.
+	 * @param deltaTime
+	 */
+	public void stop (float deltaTime) {
+		if (threadBean == null)
+			return;
+		
+		sampleBytes += Math.max(0, readAllocatedBytes() - startBytes - overhead);
+		sampleFrames++;
+		sampleTimer += deltaTime;
+		if (sampleTimer >= SAMPLE_TIME) {
+			bytesPerFrame = (float) sampleBytes / sampleFrames;
+			sampleBytes = 0;
+			sampleFrames = 0;
+			sampleTimer = 0;
+		}
+	}
+	
+	private long readAllocatedBytes () {
+		try {
+			return (Long) allocatedBytesMethod.invoke(threadBean, args);
+		} catch (Exception e) {
+			threadBean = null;
+			return 0;
+		}
+	}
+	
+	public boolean isSupported () {
+		return threadBean != null;
+	}
+	
+	/**
+	 * Average bytes allocated per frame in the measured section over the last sample, or -1 if nothing was measured yet.
+	 * @return
+	 */
+	public float getBytesPerFrame () {
+		return bytesPerFrame;
+	}
+	
+}
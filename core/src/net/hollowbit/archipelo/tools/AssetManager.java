@@ -2,10 +2,13 @@ package net.hollowbit.archipelo.tools;
 
 import java.util.HashMap;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
 
 public class AssetManager {
 	
@@ -37,7 +40,18 @@ public class AssetManager {
 	 * @param applyFilter
 	 */
 	public void putTexture (String key, String fileLocation, boolean applyFilter) {
-		Texture texture = new Texture(fileLocation);
+		putTexture(key, fileLocation, null, applyFilter);
+	}
+	
+	/**
+	 * Adds a texture from an image that was already decoded, possibly on another thread. Only the upload is done here.
+	 * @param key
+	 * @param fileLocation
+	 * @param pixmap Decoded image, or null to decode it now. It is disposed once uploaded.
+	 * @param applyFilter
+	 */
+	public void putTexture (String key, String fileLocation, Pixmap pixmap, boolean applyFilter) {
+		Texture texture = loadTexture(fileLocation, pixmap);
 		if (applyFilter)
 			applyFilter(texture);
 		textureMap.put(key, texture);
@@ -67,7 +81,20 @@ public class AssetManager {
 	 * @param applyFilter
 	 */
 	public void putTextureMap (String key, String fileLocation, int tileWidth, int tileHeight, boolean applyFilter) {
-		TextureRegion[][] textureMap = TextureRegion.split(new Texture(fileLocation), tileWidth, tileHeight);
+		putTextureMap(key, fileLocation, null, tileWidth, tileHeight, applyFilter);
+	}
+	
+	/**
+	 * Adds a texture map from an image that was already decoded, possibly on another thread. Only the upload is done here.
+	 * @param key
+	 * @param fileLocation
+	 * @param pixmap Decoded image, or null to decode it now. It is disposed once uploaded.
+	 * @param tileWidth
+	 * @param tileHeight
+	 * @param applyFilter
+	 */
+	public void putTextureMap (String key, String fileLocation, Pixmap pixmap, int tileWidth, int tileHeight, boolean applyFilter) {
+		TextureRegion[][] textureMap = TextureRegion.split(loadTexture(fileLocation, pixmap), tileWidth, tileHeight);
 		for (TextureRegion[] trArray : textureMap) {
 			for (TextureRegion tr : trArray) {
 				if (applyFilter)
@@ -132,6 +159,16 @@ public class AssetManager {
 		return animationMap.get(key).getKeyFrame(stateTime, looping);
 	}
 	
+	/**
+	 * Creates a texture that is reloaded from its file if the GL context is lost, using the decoded image if there is one.
+	 * @param fileLocation
+	 * @param pixmap
+	 * @return
+	 */
+	private Texture loadTexture (String fileLocation, Pixmap pixmap) {
+		return new Texture(new FileTextureData(Gdx.files.internal(fileLocation), pixmap, null, false));
+	}
+	
 	/**
 	 * Applies a linear filter to this texture region
 	 * @param tr
@@ -0,0 +1,177 @@
+package net.hollowbit.archipelo.tools;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
+
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.tools.rendering.CompositeSpriteCache;
+
+/**
+ * Loads the assets of entity and item types when they are first referenced instead of all of them at startup.
+ * Entities retain their type when loaded from a world snapshot and release it when unloaded. Loads are queued and done at the start of a frame,
+ * a few at a time, and a transparent placeholder frame is drawn until they are ready.
+ * Types with no references stay loaded until more than UNUSED_BUDGET of them pile up, then the least recently used ones are unloaded.
+ * @author vedi0boy
+ *
+ */
+public class AssetStreamer implements Disposable {
+	
+	public static final float LOAD_BUDGET = 0.004f;//Seconds per frame spent loading queued assets
+	public static final int UNUSED_BUDGET = 16;//Loaded assets with no references kept around in case they are needed again
+	
+	private HashMap<StreamedAsset, Integer> references;
+	private HashSet<StreamedAsset> loaded;
+	private LinkedHashSet<StreamedAsset> loadQueue;
+	private LinkedHashMap<StreamedAsset, Boolean> unused;//In order of last use
+	
+	private Texture placeholderTexture;
+	private TextureRegion placeholder;
+	
+	public AssetStreamer () {
+		references = new HashMap<StreamedAsset, Integer>();
+		loaded = new HashSet<StreamedAsset>();
+		loadQueue = new LinkedHashSet<StreamedAsset>();
+		unused = new LinkedHashMap<StreamedAsset, Boolean>(UNUSED_BUDGET * 2, 0.75f, true);
+		
+		Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);//Starts transparent
+		placeholderTexture = new Texture(pixmap);
+		pixmap.dispose();
+		placeholder = new TextureRegion(placeholderTexture);
+	}
+	
+	/**
+	 * Loads queued assets until the frame budget is used up. Call at the start of a frame, before anything is drawn.
+	 */
+	public void update () {
+		long startTime = System.nanoTime();
+		Iterator<StreamedAsset> it = loadQueue.iterator();
+		while (it.hasNext() && (System.nanoTime() - startTime) / 1000000000f < LOAD_BUDGET) {
+			StreamedAsset asset = it.next();
+			it.remove();
+			asset.loadAssets();
+			loaded.add(asset);
+			if (!references.containsKey(asset))
+				unused.put(asset, true);
+		}
+		evict();
+	}
+	
+	/**
+	 * Adds a reference to an asset, loading it if needed. It won't be unloaded until every reference is released.
+	 * @param asset
+	 */
+	public void retain (StreamedAsset asset) {
+		Integer count = references.get(asset);
+		references.put(asset, count == null ? 1 : count + 1);
+		unused.remove(asset);
+		if (!loaded.contains(asset))
+			loadQueue.add(asset);
+	}
+	
+	/**
+	 * Removes a reference to an asset. Once it has none left it may be unloaded.
+	 * @param asset
+	 */
+	public void release (StreamedAsset asset) {
+		Integer count = references.get(asset);
+		if (count == null)
+			return;
+		
+		if (count > 1) {
+			references.put(asset, count - 1);
+			return;
+		}
+		
+		references.remove(asset);
+		if (loaded.contains(asset)) {
+			unused.put(asset, true);
+			evict();
+		} else
+			loadQueue.remove(asset);
+	}
+	
+	/**
+	 * Marks an asset as used without referencing it, queuing it if it isn't loaded. For things drawn outside of the world like menus.
+	 * @param asset
+	 * @return Whether the asset is loaded
+	 */
+	public boolean request (StreamedAsset asset) {
+		if (loaded.contains(asset)) {
+			unused.get(asset);//Moves it to the back of the eviction order
+			return true;
+		}
+		loadQueue.add(asset);
+		return false;
+	}
+	
+	/**
+	 * Loads an asset right away, for the few things that can't wait a frame.
+	 * @param asset
+	 */
+	public void loadNow (StreamedAsset asset) {
+		if (request(asset))
+			return;
+		
+		loadQueue.remove(asset);
+		asset.loadAssets();
+		loaded.add(asset);
+		if (!references.containsKey(asset))
+			unused.put(asset, true);
+		evict();
+	}
+	
+	private void evict () {
+		boolean unloaded = false;
+		Iterator<StreamedAsset> it = unused.keySet().iterator();
+		while (unused.size() > UNUSED_BUDGET && it.hasNext()) {
+			StreamedAsset asset = it.next();
+			it.remove();
+			loaded.remove(asset);
+			asset.unloadAssets();
+			unloaded = true;
+		}
+		
+		//Composites are keyed on the frames they were drawn from, which are replaced if the asset is loaded again
+		if (unloaded) {
+			CompositeSpriteCache compositeSpriteCache = ArchipeloClient.getGame().getCompositeSpriteCache();
+			if (compositeSpriteCache != null)
+				compositeSpriteCache.invalidateAll();
+		}
+	}
+	
+	/**
+	 * Transparent frame to draw while an asset is loading.
+	 * @return
+	 */
+	public TextureRegion getPlaceholder () {
+		return placeholder;
+	}
+	
+	public int getLoadedCount () {
+		return loaded.size();
+	}
+	
+	public int getQueuedCount () {
+		return loadQueue.size();
+	}
+	
+	@Override
+	public void dispose () {
+		for (StreamedAsset asset : loaded)
+			asset.unloadAssets();
+		loaded.clear();
+		unused.clear();
+		loadQueue.clear();
+		references.clear();
+		placeholderTexture.dispose();
+	}
+	
+}
@@ -10,10 +10,9 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
 
 import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.network.NetworkManager;
 import net.hollowbit.archipelo.network.packets.ControlsPacket;
 import net.hollowbit.archipelo.screen.screens.GameScreen;
 import net.hollowbit.archipeloshared.Controls;
@@ -27,7 +26,9 @@ public class ControlsManager {
 	public static int[] KEY_BINDINGS = new int[] {Keys.UP, Keys.LEFT, Keys.DOWN, Keys.RIGHT, Keys.X, Keys.Z, Keys.CONTROL_LEFT, Keys.TAB};
 	private static final int POINTERS_TO_CHECK = 5;
 	
-	public static final float UPDATE_RATE = 1 / 30f;
+	public static final float UPDATE_RATE = 1 / 30f;//Length of a simulation step in seconds
+	public static final int MAX_STEPS_PER_FRAME = 5;//Steps beyond this are dropped so a slow frame can't snowball
+	public static final int REDUNDANT_INPUTS = 3;//Previously sent inputs repeated in every controls packet in case one was lost
 	
 	GameScreen game;
 	boolean[] controls;
@@ -62,13 +63,21 @@ public class ControlsManager {
 	
 	private ArrayList<Integer> keysDown;
 	private ArrayList<Integer> pointersDown;
-	private Task task;
+	
+	private float stepAccumulator = 0;
+	private int lastSentControls = -1;//Never a valid bitmask, so the first step is always sent
+	private int[] recentControls;//Ring of the last sent inputs, for redundancy
+	private int[] recentIds;
+	private int recentStart = 0;
+	private int recentCount = 0;
 	
 	public ControlsManager (GameScreen game) {
 		this.game = game;
 		this.keysDown = new ArrayList<Integer>();
 		this.pointersDown = new ArrayList<Integer>();
 		controls = new boolean[Controls.TOTAL];
+		recentControls = new int[REDUNDANT_INPUTS];
+		recentIds = new int[REDUNDANT_INPUTS];
 		
 		if (ArchipeloClient.IS_MOBILE) {
 			//Dpad images
@@ -126,41 +135,86 @@ public class ControlsManager {
 			zCircle = new Circle(Gdx.graphics.getWidth() - zX + buttonSize / 2, zY + buttonSize / 2, buttonSize / 2);
 			xCircle = new Circle(Gdx.graphics.getWidth() - xX + buttonSize / 2, xY + buttonSize / 2, buttonSize / 2);
 		}
+	}
+	
+	/**
+	 * Runs the fixed simulation steps that are due, sampling the controls and predicting the player's movement once per step.
+	 * Call once per frame, after {@link #update(boolean, float, boolean)}, on the render thread.
+	 * @param deltaTime
+	 */
+	public void simulate (float deltaTime) {
+		stepAccumulator += deltaTime;
+		int steps = 0;
+		while (stepAccumulator >= UPDATE_RATE && steps < MAX_STEPS_PER_FRAME) {
+			step();
+			stepAccumulator -= UPDATE_RATE;
+			steps++;
+		}
 		
-		task = new Task() {
-			
-			@Override
-			public void run() {
-				forceUpdate();
-			}
-			
-		};
-		Timer.schedule(task, 0, UPDATE_RATE);
+		if (stepAccumulator >= UPDATE_RATE)//Fell too far behind, drop the missed steps
+			stepAccumulator = 0;
+	}
+	
+	/**
+	 * Sends the current controls right away without running a simulation step, like when the game is paused.
+	 * They apply from the next step on, so the server and the prediction stay on the same steps.
+	 */
+	public void flush () {
+		send(ArchipeloClient.getGame().getNetworkManager().getInputStep(), ControlsPacket.pack(controls));
 	}
 	
-	public void forceUpdate() {
-		ControlsPacket packet = new ControlsPacket(getControlsClone());
+	/**
+	 * Samples the controls and applies them to the player. They are only sent to the server if they changed.
+	 */
+	private void step () {
+		if (ArchipeloClient.getGame().getWorld().getPlayer() == null)
+			return;
 		
-		//Get controls sample and apply it
-		if (ArchipeloClient.getGame().getWorld().getPlayer() != null) {
-			ArchipeloClient.getGame().getWorld().getPlayer().addCommand(packet);
-			ArchipeloClient.getGame().getNetworkManager().sendPacket(packet);
-		}
+		NetworkManager networkManager = ArchipeloClient.getGame().getNetworkManager();
+		int stepId = networkManager.getInputStep();
+		int controlBits = ControlsPacket.pack(controls);
+		ArchipeloClient.getGame().getWorld().getPlayer().addCommand(stepId, controlBits);
+		
+		if (controlBits != lastSentControls)
+			send(stepId, controlBits);
+		networkManager.nextInputStep();
 	}
 	
-	public void dispose() {
-		task.cancel();
+	/**
+	 * Sends controls along with the last few sent inputs.
+	 * @param id Step the controls apply from
+	 * @param controlBits
+	 */
+	private void send (int id, int controlBits) {
+		ControlsPacket packet = new ControlsPacket(id, controlBits);
+		packet.rc = new int[recentCount];
+		packet.rid = new int[recentCount];
+		for (int i = 0; i < recentCount; i++) {
+			packet.rc[i] = recentControls[(recentStart + i) % REDUNDANT_INPUTS];
+			packet.rid[i] = recentIds[(recentStart + i) % REDUNDANT_INPUTS];
+		}
+		ArchipeloClient.getGame().getNetworkManager().sendPacket(packet);
+		lastSentControls = packet.c;
+		
+		//Remember it for the next packets, replacing the oldest
+		int index = (recentStart + recentCount) % REDUNDANT_INPUTS;
+		recentControls[index] = packet.c;
+		recentIds[index] = packet.id;
+		if (recentCount < REDUNDANT_INPUTS)
+			recentCount++;
+		else
+			recentStart = (recentStart + 1) % REDUNDANT_INPUTS;
 	}
 	
-	public synchronized void updateControls(int index, boolean value) {
+	public void updateControls(int index, boolean value) {
 		controls[index] = value;
 	}
 	
-	public synchronized boolean getControl(int index) {
+	public boolean getControl(int index) {
 		return controls[index];
 	}
 	
-	public synchronized boolean[] getBlankControls () {
+	public boolean[] getBlankControls () {
 		boolean[] controlsClone = new boolean[controls.length];
 		for (int i = 0; i < controls.length; i++) {
 			controlsClone[i] = false;
@@ -168,7 +222,7 @@ public class ControlsManager {
 		return controlsClone;
 	}
 	
-	public synchronized boolean[] getControlsClone () {
+	public boolean[] getControlsClone () {
 		boolean[] controlsClone = new boolean[controls.length];
 		for (int i = 0; i < controls.length; i++) {
 			controlsClone[i] = controls[i];
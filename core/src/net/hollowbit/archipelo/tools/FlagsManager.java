@@ -15,7 +15,7 @@ public class FlagsManager implements PacketHandler {
 	
 	public FlagsManager () {
 		flags = new HashSet<String>();
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.FLAGS_ADD);
 	}
 	
 	/**
@@ -19,6 +19,8 @@ public class GameCamera {
 	private ScreenViewport viewport;
 	private Vector2 goal;
 	private Entity entityToFocusOn;
+	private CollisionRect viewRect;//Updated whenever the camera moves, zooms or resizes
+	private Vector3 tempGoal = new Vector3();
 	
 	public GameCamera () {
 		cam = new OrthographicCamera();
@@ -29,10 +31,13 @@ public class GameCamera {
 		cam.position.set(cam.viewportWidth / 2, cam.viewportHeight / 2, 0);
 		cam.update();
 		goal = null;
+		viewRect = new CollisionRect(0, 0, 0, 0);
+		updateViewRect();
 	}
 	
 	public void resize (int width, int height) {
 		viewport.update(width, height);
+		updateViewRect();
 	}
 	
 	public Matrix4 combined () {
@@ -42,17 +47,18 @@ public class GameCamera {
 	public void update (float deltatime) {
 		if (goal == null) {
 			if (entityToFocusOn != null) {
-				System.out.println("GameCamera   " + (entityToFocusOn.getLocation().getX() + entityToFocusOn.getViewRect().width / 2) + ", " + (entityToFocusOn.getLocation().getY() + entityToFocusOn.getViewRect().height / 2));
-				cam.position.set(new Vector3(entityToFocusOn.getLocation().getX() + entityToFocusOn.getViewRect().width / 2, entityToFocusOn.getLocation().getY() + entityToFocusOn.getViewRect().height / 2, 0f));
+				CollisionRect focusViewRect = entityToFocusOn.getViewRect();
+				cam.position.set(entityToFocusOn.getDrawX() + focusViewRect.width / 2, entityToFocusOn.getDrawY() + focusViewRect.height / 2, 0f);
 			}
 		} else {
-			cam.position.lerp(new Vector3(goal.x, goal.y, 0), 0.2f);
+			cam.position.lerp(tempGoal.set(goal.x, goal.y, 0), 0.2f);
 			if (cam.position.epsilonEquals(goal.x, goal.y, 0, 1f)) {
 				goal = null;
 			}
 		}
 		
 		cam.update();
+		updateViewRect();
 	}
 	
 	public void setGoal (Vector2 goal) {
@@ -62,11 +68,13 @@ public class GameCamera {
 	public void move (float x, float y, float z) {
 		cam.position.set(x + cam.viewportWidth * cam.zoom / 2, y + cam.viewportHeight * cam.zoom / 2, z);
 		cam.update();
+		updateViewRect();
 	}
 	
 	public void zoom (float zoom) {
 		cam.zoom = zoom;
 		cam.update();
+		updateViewRect();
 	}
 	
 	public void focusOnEntity (Entity entityToFocusOn) {
@@ -107,8 +115,16 @@ public class GameCamera {
 		return cam.position.y;
 	}
 	
+	/**
+	 * Area of the world in view. The rect belongs to the camera and must not be modified.
+	 * @return
+	 */
 	public CollisionRect getViewRect () {
-		return new CollisionRect(cam.position.x - cam.viewportWidth * cam.zoom / 2, cam.position.y - cam.viewportHeight * cam.zoom / 2, cam.viewportWidth * cam.zoom, cam.viewportHeight * cam.zoom);
+		return viewRect;
+	}
+	
+	private void updateViewRect () {
+		viewRect.set(cam.position.x - cam.viewportWidth * cam.zoom / 2, cam.position.y - cam.viewportHeight * cam.zoom / 2, cam.viewportWidth * cam.zoom, cam.viewportHeight * cam.zoom);
 	}
 	
 }
@@ -12,7 +12,7 @@ public class PlayerInformationManager implements PacketHandler {
 	private float health;
 	
 	public PlayerInformationManager() {
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.PLAYER_STATS);
 	}
 	
 	public String getName() {
@@ -4,28 +4,34 @@ import java.util.HashMap;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 
+import net.hollowbit.archipelo.tools.rendering.TintBatch;
+
 /**
  * Simple shader manager with save and restore functionality.
+ * Flash shaders are drawn as vertex colors instead on a {@link TintBatch} using its default shader, so they don't flush the batch.
  * @author vedi0boy
  *
  */
 public class ShaderManager {
 	
 	public enum ShaderType {
-		WHITE("shaders/passthrough.vsh", "shaders/white.fsh"),
-		RED("shaders/passthrough.vsh", "shaders/red.fsh"),
-		GREEN("shaders/passthrough.vsh", "shaders/green.fsh"),
-		BLUE("shaders/passthrough.vsh", "shaders/blue.fsh"),
-		EXPERIMENTAL("shaders/test.vsh", "shaders/test.fsh");
+		WHITE("shaders/passthrough.vsh", "shaders/white.fsh", Color.WHITE),
+		RED("shaders/passthrough.vsh", "shaders/red.fsh", Color.RED),
+		GREEN("shaders/passthrough.vsh", "shaders/green.fsh", Color.GREEN),
+		BLUE("shaders/passthrough.vsh", "shaders/blue.fsh", Color.BLUE),
+		EXPERIMENTAL("shaders/test.vsh", "shaders/test.fsh", null);
 		
 		private String vshPath, fshPath;
+		private Color flashColor;
 		
-		private ShaderType(String vshPath, String fshPath) {
+		private ShaderType(String vshPath, String fshPath, Color flashColor) {
 			this.vshPath = vshPath;
 			this.fshPath = fshPath;
+			this.flashColor = flashColor;
 		}
 
 		public String getVshPath() {
@@ -36,12 +42,21 @@ public class ShaderManager {
 			return fshPath;
 		}
 		
+		/**
+		 * Solid color this shader draws, or null if it isn't a flash shader.
+		 * @return
+		 */
+		public Color getFlashColor() {
+			return flashColor;
+		}
+		
 	}
 	
 	private HashMap<ShaderType, ShaderProgram> shaders;
 	
 	private ShaderType saved;
 	private ShaderType current;
+	private boolean vertexFlash = false;//Whether current is drawn as a flash color by a tint batch instead of a shader
 	
 	public ShaderManager() {
 		this.shaders = new HashMap<ShaderType, ShaderProgram>();
@@ -62,13 +77,25 @@ public class ShaderManager {
 	 * @param type
 	 */
 	public void applyShader(Batch batch, ShaderType type) {
+		if (type == current)//Changing shaders flushes the batch, so don't if it's the same one
+			return;
+		
 		if (type == null) {//Simply reset shader if type is null
 			resetShader(batch);
 			return;
 		}
 		
+		//Flash over the default shader with vertex colors
+		if (type.getFlashColor() != null && batch instanceof TintBatch && (current == null || vertexFlash)) {
+			((TintBatch) batch).setFlash(type.getFlashColor());
+			current = type;
+			vertexFlash = true;
+			return;
+		}
+		
 		ShaderProgram shader = shaders.get(type);
 		if (shader.isCompiled()) {
+			clearVertexFlash(batch);
 			batch.setShader(shader);
 			current = type;
 		} else
@@ -80,10 +107,31 @@ public class ShaderManager {
 	 * @param batch
 	 */
 	public void resetShader(Batch batch) {
-		batch.setShader(null);
+		if (vertexFlash)
+			clearVertexFlash(batch);
+		else if (current != null)
+			batch.setShader(null);
 		current = null;
 	}
 	
+	private void clearVertexFlash(Batch batch) {
+		if (vertexFlash) {
+			((TintBatch) batch).setFlash(null);
+			vertexFlash = false;
+		}
+	}
+	
+	/**
+	 * Shader program currently applied, or null if the default shader is used or the current one is drawn as a flash color.
+	 * Lets things that don't draw through the batch, like sprite caches, use the same shader.
+	 * @return
+	 */
+	public ShaderProgram getShader() {
+		if (current == null || vertexFlash)
+			return null;
+		return shaders.get(current);
+	}
+	
 	/**
 	 * Saves the current shader to be restored later.
 	 */
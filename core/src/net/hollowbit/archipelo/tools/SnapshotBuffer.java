@@ -0,0 +1,127 @@
+package net.hollowbit.archipelo.tools;
+
+import net.hollowbit.archipelo.world.WorldSnapshot;
+
+/**
+ * Fixed size ring buffer of world snapshots ordered by creation time. Snapshots are added at the end and removed from the front,
+ * so nothing is allocated after it is created. Once full, the oldest snapshot is dropped to make room.
+ * @author vedi0boy
+ *
+ */
+public class SnapshotBuffer {
+	
+	private WorldSnapshot[] snapshots;
+	private int head;
+	private int size;
+	
+	public SnapshotBuffer (int capacity) {
+		snapshots = new WorldSnapshot[capacity];
+		head = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Adds a snapshot, keeping the buffer ordered by creation time. Snapshots normally arrive in order, so this is just an append.
+	 * If the buffer is full, the oldest snapshot is dropped, which is the given one if it is older than all others.
+	 * @param snapshot
+	 * @return The dropped snapshot, or null if there was room
+	 */
+	public WorldSnapshot add (WorldSnapshot snapshot) {
+		WorldSnapshot dropped = null;
+		if (size == snapshots.length) {
+			if (snapshot.timeCreatedMillis < first().timeCreatedMillis)
+				return snapshot;
+			dropped = removeFirst();
+		}
+		
+		//Shift newer snapshots up if this one arrived late
+		int i = size;
+		while (i > 0 && get(i - 1).timeCreatedMillis > snapshot.timeCreatedMillis) {
+			set(i, get(i - 1));
+			i--;
+		}
+		set(i, snapshot);
+		size++;
+		return dropped;
+	}
+	
+	/**
+	 * Returns the snapshot at the given position, 0 being the oldest.
+	 * @param index
+	 * @return
+	 */
+	public WorldSnapshot get (int index) {
+		return snapshots[(head + index) % snapshots.length];
+	}
+	
+	public WorldSnapshot first () {
+		return size == 0 ? null : snapshots[head];
+	}
+	
+	/**
+	 * Removes the oldest snapshot.
+	 * @return
+	 */
+	public WorldSnapshot removeFirst () {
+		if (size == 0)
+			return null;
+		
+		WorldSnapshot snapshot = snapshots[head];
+		snapshots[head] = null;
+		head = (head + 1) % snapshots.length;
+		size--;
+		return snapshot;
+	}
+	
+	/**
+	 * Removes the given amount of snapshots from the front.
+	 * @param count
+	 */
+	public void removeFirst (int count) {
+		for (int i = 0; i < count && size > 0; i++)
+			removeFirst();
+	}
+	
+	/**
+	 * Binary search for the newest snapshot created at or before the given time.
+	 * @param millis
+	 * @return Its index, or -1 if all snapshots are newer
+	 */
+	public int floorIndex (double millis) {
+		int low = 0;
+		int high = size - 1;
+		int result = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (get(middle).timeCreatedMillis <= millis) {
+				result = middle;
+				low = middle + 1;
+			} else
+				high = middle - 1;
+		}
+		return result;
+	}
+	
+	public int size () {
+		return size;
+	}
+	
+	public int capacity () {
+		return snapshots.length;
+	}
+	
+	public boolean isEmpty () {
+		return size == 0;
+	}
+	
+	public void clear () {
+		while (size > 0)
+			removeFirst();
+		head = 0;
+	}
+	
+	private void set (int index, WorldSnapshot snapshot) {
+		snapshots[(head + index) % snapshots.length] = snapshot;
+	}
+	
+}
@@ -0,0 +1,318 @@
+package net.hollowbit.archipelo.tools;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.EntityType;
+import net.hollowbit.archipelo.items.ItemType;
+
+/**
+ * Loads everything needed to reach the main menu without blocking the render thread.
+ * The login server connection, parsing of entity, item and language files, and image decoding run on worker threads.
+ * Only the steps that create GL objects run on the render thread, a few per frame, once the work they depend on is done.
+ * Timings are logged once loading is done.
+ * @author vedi0boy
+ *
+ */
+public class StartupLoader implements Disposable {
+	
+	public static final float STEP_BUDGET = 0.008f;//Seconds per frame spent on render thread steps
+	private static final int WORKER_THREADS = 3;
+	
+	private ExecutorService workers;
+	private ArrayList<Future<?>> jobs;//Everything run on workers
+	private Future<Boolean> connection;
+	private LinkedList<StartupStep> steps;
+	private int totalSteps;
+	
+	private long startTime;
+	private long stepTime = 0;//Nanoseconds spent on render thread steps
+	private int frames = 0;
+	private long workerTime = 0;//Nanoseconds until the last file was parsed or decoded
+	private boolean done = false;
+	
+	/**
+	 * Starts loading.
+	 * @param startTime Value of System.nanoTime() when the game started
+	 */
+	public StartupLoader (long startTime) {
+		this.startTime = startTime;
+		this.jobs = new ArrayList<Future<?>>();
+		this.steps = new LinkedList<StartupStep>();
+		this.workers = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "Startup Loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		final ArchipeloClient game = ArchipeloClient.getGame();
+		
+		//Slowest first, it mostly waits
+		connection = game.getHollowBitServerConnectivity().connectAsync(workers);
+		jobs.add(connection);
+		
+		//Entity and item types parse their data files when their classes load
+		final Future<?> entityTypes = submit(new Runnable() {
+			@Override
+			public void run () {
+				EntityType.values();
+			}
+		});
+		final Future<?> itemIcons = submit(new Runnable() {
+			@Override
+			public void run () {
+				ItemType.prefetchAllIcons();
+			}
+		});
+		submit(new Runnable() {
+			@Override
+			public void run () {
+				game.getLanguageSpecificMessageManager().reloadWithNewLanguage();
+			}
+		});
+		
+		//Images are decoded on workers and uploaded on the render thread
+		addTexture("blank", "blank.png", false);
+		addTexture("blank-border", "blank_border.png", false);
+		addTexture("maptag", "maptag.png", true);
+		addTexture("mainmenu-background", "mainmenu_background.png", true);
+		addTexture("logo", "logo.png", true);
+		addTexture("invalid", "invalid.png", false);//For some reason this image cannot be loaded by html. Fix later.
+		addTexture("health-bar", "ui/statusbar/health.png", false);
+		addTexture("mana-bar", "ui/statusbar/mana.png", false);
+		addTexture("exp-bar", "ui/statusbar/exp.png", false);
+		addTexture("status-bar-overlay", "ui/statusbar/overlay.png", false);
+		addTexture("status-bar-background", "ui/statusbar/background.png", false);
+		addTexture("garbage", "ui/garbage.png", false);
+		
+		final Future<Pixmap> icons = decode("ui/icons.png");
+		steps.add(new StartupStep() {
+			@Override
+			public boolean isReady () {
+				return icons.isDone();
+			}
+			
+			@Override
+			public void run () {
+				game.getAssetManager().putTextureMap("icons", "ui/icons.png", getResult(icons), QuickUi.ICON_SIZE, QuickUi.ICON_SIZE, true);
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public void run () {
+				game.loadSkin();
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public void run () {
+				game.loadFonts();
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public void run () {
+				game.loadAudio();
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public void run () {
+				game.getMapElementManager().loadMapElements();
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public boolean isReady () {
+				return itemIcons.isDone();
+			}
+			
+			@Override
+			public void run () {
+				getResult(itemIcons);
+				ItemType.loadAllIcons();
+			}
+		});
+		
+		steps.add(new StartupStep() {
+			@Override
+			public void run () {
+				game.loadCompositeSpriteCache();
+			}
+		});
+		
+		//Nothing to upload, but entity types have to be ready before the menus use them
+		steps.add(new StartupStep() {
+			@Override
+			public boolean isReady () {
+				return entityTypes.isDone();
+			}
+			
+			@Override
+			public void run () {
+				getResult(entityTypes);
+			}
+		});
+		
+		totalSteps = steps.size();
+	}
+	
+	/**
+	 * Runs render thread steps until the frame budget is used up or the next step is waiting on a worker.
+	 * @return Whether everything is loaded
+	 */
+	public boolean update () {
+		if (done)
+			return true;
+		
+		frames++;
+		long frameStart = System.nanoTime();
+		while (!steps.isEmpty() && steps.getFirst().isReady() && (System.nanoTime() - frameStart) / 1000000000f < STEP_BUDGET)
+			steps.removeFirst().run();
+		stepTime += System.nanoTime() - frameStart;
+		
+		if (!steps.isEmpty())
+			return false;
+		
+		for (Future<?> job : jobs) {
+			if (!job.isDone())
+				return false;
+		}
+		
+		done = true;
+		Gdx.app.log("Startup", String.format("Cold start to main menu took %.1fms. Files parsed and decoded after %.1fms, %.1fms of render thread work over %d frames.", getElapsedTime(), getWorkerTime() / 1000000f, stepTime / 1000000f, frames));
+		return true;
+	}
+	
+	/**
+	 * Fraction of loading done, from 0 to 1.
+	 * @return
+	 */
+	public float getProgress () {
+		int doneJobs = 0;
+		for (Future<?> job : jobs) {
+			if (job.isDone())
+				doneJobs++;
+		}
+		return (float) (doneJobs + totalSteps - steps.size()) / (jobs.size() + totalSteps);
+	}
+	
+	/**
+	 * Whether the login server connection was made. Only valid once loading is done.
+	 * @return
+	 */
+	public boolean isConnected () {
+		return getResult(connection);
+	}
+	
+	/**
+	 * Time since the game started, in milliseconds.
+	 * @return
+	 */
+	public float getElapsedTime () {
+		return (System.nanoTime() - startTime) / 1000000f;
+	}
+	
+	private Future<?> submit (final Runnable job) {
+		Future<?> future = workers.submit(new Runnable() {
+			@Override
+			public void run () {
+				job.run();
+				workerFinished();
+			}
+		});
+		jobs.add(future);
+		return future;
+	}
+	
+	private Future<Pixmap> decode (final String fileLocation) {
+		Future<Pixmap> future = workers.submit(new Callable<Pixmap>() {
+			@Override
+			public Pixmap call () {
+				Pixmap pixmap = new Pixmap(Gdx.files.internal(fileLocation));
+				workerFinished();
+				return pixmap;
+			}
+		});
+		jobs.add(future);
+		return future;
+	}
+	
+	private synchronized void workerFinished () {
+		workerTime = Math.max(workerTime, System.nanoTime() - startTime);
+	}
+	
+	private synchronized long getWorkerTime () {
+		return workerTime;
+	}
+	
+	private void addTexture (final String key, final String fileLocation, final boolean applyFilter) {
+		final Future<Pixmap> pixmap = decode(fileLocation);
+		steps.add(new StartupStep() {
+			@Override
+			public boolean isReady () {
+				return pixmap.isDone();
+			}
+			
+			@Override
+			public void run () {
+				ArchipeloClient.getGame().getAssetManager().putTexture(key, fileLocation, getResult(pixmap), applyFilter);
+			}
+		});
+	}
+	
+	/**
+	 * Gets the result of a finished job, rethrowing anything it threw on the render thread.
+	 * @param future
+	 * @return
+	 */
+	private static <T> T getResult (Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new GdxRuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new GdxRuntimeException("Could not load startup assets.", e.getCause());
+		}
+	}
+	
+	@Override
+	public void dispose () {
+		workers.shutdown();
+	}
+	
+	private static abstract class StartupStep {
+		
+		/**
+		 * Whether the worker jobs this step needs are done.
+		 * @return
+		 */
+		public boolean isReady () {
+			return true;
+		}
+		
+		public abstract void run ();
+		
+	}
+	
+}
@@ -41,19 +41,31 @@ public class StaticTools {
 	}
 	
 	/**
-	 * Math square root function with less accuracy but much faster compute time for values under 1000.
+	 * Appends a number with a fixed amount of decimals, like String.format("%.2f", value) does, but without allocating.
+	 * @param builder
 	 * @param value
-	 * @return
+	 * @param decimals
+	 * @return The builder
 	 */
-	public static float imperfectSqrt(int value) {
-        float lastValue = 1;
-        for (float i = 1; i < value / 2f; i += 0.1f) {
-            if (i * i > value) {
-                return lastValue;
-            }
-            lastValue = i;
-        }
-        return 0;
-    }
+	public static StringBuilder appendDecimal (StringBuilder builder, float value, int decimals) {
+		if (value < 0) {
+			builder.append('-');
+			value = -value;
+		}
+		
+		long scale = 1;
+		for (int i = 0; i < decimals; i++)
+			scale *= 10;
+		long scaled = Math.round((double) value * scale);
+		builder.append(scaled / scale);
+		if (decimals > 0) {
+			builder.append('.');
+			long fraction = scaled % scale;
+			for (long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10)//Leading zeros
+				builder.append('0');
+			builder.append(fraction);
+		}
+		return builder;
+	}
 	
 }
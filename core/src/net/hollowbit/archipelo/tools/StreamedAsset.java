@@ -0,0 +1,20 @@
+package net.hollowbit.archipelo.tools;
+
+/**
+ * Something with textures and sounds that the {@link AssetStreamer} loads when it is first needed and unloads when it isn't.
+ * @author vedi0boy
+ *
+ */
+public interface StreamedAsset {
+	
+	/**
+	 * Loads textures and sounds. Always called on the render thread.
+	 */
+	public void loadAssets ();
+	
+	/**
+	 * Releases what was loaded by {@link #loadAssets()}.
+	 */
+	public void unloadAssets ();
+	
+}
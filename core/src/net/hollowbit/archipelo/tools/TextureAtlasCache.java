@@ -0,0 +1,407 @@
+package net.hollowbit.archipelo.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Packs the sprite sheets of entities, items and map elements into a few large texture pages, so sprites from
+ * different sheets can be drawn without the sprite batch flushing on every texture switch.
+ * Packed pages are saved to local storage along with the CRC of every source image and reused on the next start
+ * as long as none of the images changed. Images packed at runtime because they changed or weren't cached are added on exit,
+ * and the cache is only rebuilt from source once most of it is unused space.
+ * Cached pages are only loaded while one of their regions is in use.
+ * @author vedi0boy
+ *
+ */
+public class TextureAtlasCache implements Disposable {
+	
+	public static final int PAGE_SIZE = 2048;
+	private static final int PADDING = 2;
+	private static final String CACHE_FOLDER = "atlas-cache/";
+	private static final String INDEX_FILE = CACHE_FOLDER + "index.txt";
+	
+	private PixmapPacker packer;//Images that weren't in the cache
+	private Array<Texture> separateTextures;//Images too big for a page
+	private Texture[] cachedPages;
+	private int[] cachedPageUsers;//Regions in use on each cached page
+	private HashMap<String, CachedRegion> cachedRegions;
+	private HashMap<String, TextureRegion> regions;
+	private HashMap<String, Integer> regionUsers;
+	private HashMap<String, Long> packedCrcs;//CRCs of the images packed at runtime this session
+	private ConcurrentHashMap<String, PrefetchedImage> prefetched;//Read on other threads, waiting for getRegion
+	private ConcurrentHashMap<Integer, Pixmap> prefetchedPages;//Decoded cached pages, waiting to be uploaded. Also locks cachedPages being set, so prefetches can see pages that are loaded
+	private boolean stale = false;
+	
+	public TextureAtlasCache () {
+		packer = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, PADDING, false);
+		packer.setPackToTexture(true);//Upload images to page textures as they are packed
+		separateTextures = new Array<Texture>();
+		cachedRegions = new HashMap<String, CachedRegion>();
+		regions = new HashMap<String, TextureRegion>();
+		regionUsers = new HashMap<String, Integer>();
+		packedCrcs = new HashMap<String, Long>();
+		prefetched = new ConcurrentHashMap<String, PrefetchedImage>();
+		prefetchedPages = new ConcurrentHashMap<Integer, Pixmap>();
+		loadIndex();
+	}
+	
+	/**
+	 * Returns the region of an image in the atlas, packing it if it isn't already.
+	 * Each call should be matched by a call to {@link #releaseRegion(String)} once the region isn't needed.
+	 * @param path Internal path of the image
+	 * @return
+	 */
+	public TextureRegion getRegion (String path) {
+		Integer users = regionUsers.get(path);
+		regionUsers.put(path, users == null ? 1 : users + 1);
+		
+		TextureRegion region = regions.get(path);
+		if (region != null)
+			return region;
+		
+		PrefetchedImage image = prefetched.remove(path);
+		if (image == null)
+			image = readImage(path);
+		
+		CachedRegion cached = cachedRegions.get(path);
+		if (image.pixmap == null) {//Only left out when the cached region is up to date
+			region = new TextureRegion(getCachedPage(cached.page), cached.x, cached.y, cached.width, cached.height);
+			cachedPageUsers[cached.page]++;
+		} else {
+			region = pack(path, image.pixmap);
+			image.pixmap.dispose();
+			packedCrcs.put(path, image.crc);
+			stale = true;
+		}
+		
+		regions.put(path, region);
+		return region;
+	}
+	
+	/**
+	 * Reads and decodes an image ahead of time, so {@link #getRegion(String)} only has to upload it. Can be called from any thread.
+	 * Images that are up to date in the cache have their page decoded instead.
+	 * @param path Internal path of the image
+	 */
+	public void prefetch (String path) {
+		if (prefetched.containsKey(path))
+			return;
+		
+		PrefetchedImage image = readImage(path);
+		prefetched.put(path, image);
+		if (image.pixmap == null) {
+			int page = cachedRegions.get(path).page;
+			if (!prefetchedPages.containsKey(page) && cachedPages[page] == null) {
+				Pixmap pixmap = new Pixmap(Gdx.files.local(CACHE_FOLDER + "page" + page + ".png"));
+				synchronized (prefetchedPages) {
+					//Not needed if another thread decoded it first, or the page was loaded from its file while this one was decoding
+					if (cachedPages[page] != null || prefetchedPages.putIfAbsent(page, pixmap) != null)
+						pixmap.dispose();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reads an image and decodes it unless its cached region is up to date. Only reads the cache index, so it is safe on any thread once loaded.
+	 * @param path
+	 * @return
+	 */
+	private PrefetchedImage readImage (String path) {
+		byte[] bytes = Gdx.files.internal(path).readBytes();
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		
+		PrefetchedImage image = new PrefetchedImage();
+		image.crc = crc.getValue();
+		CachedRegion cached = cachedRegions.get(path);
+		if (cached == null || cached.crc != image.crc)
+			image.pixmap = new Pixmap(bytes, 0, bytes.length);
+		return image;
+	}
+	
+	/**
+	 * Tells the atlas a region isn't used anymore. Cached pages are unloaded once none of their regions are used.
+	 * Images packed at runtime share pages with everything else packed this session, so those stay loaded.
+	 * @param path
+	 */
+	public void releaseRegion (String path) {
+		Integer users = regionUsers.get(path);
+		if (users == null)
+			return;
+		
+		if (users > 1) {
+			regionUsers.put(path, users - 1);
+			return;
+		}
+		regionUsers.remove(path);
+		
+		TextureRegion region = regions.get(path);
+		CachedRegion cached = cachedRegions.get(path);
+		if (region == null || cached == null || region.getTexture() != cachedPages[cached.page])
+			return;
+		
+		regions.remove(path);
+		cachedPageUsers[cached.page]--;
+		if (cachedPageUsers[cached.page] <= 0) {
+			cachedPages[cached.page].dispose();
+			synchronized (prefetchedPages) {
+				cachedPages[cached.page] = null;
+			}
+			cachedPageUsers[cached.page] = 0;
+		}
+	}
+	
+	private TextureRegion pack (String path, Pixmap pixmap) {
+		if (pixmap.getWidth() > PAGE_SIZE - PADDING * 2 || pixmap.getHeight() > PAGE_SIZE - PADDING * 2) {
+			Texture texture = new Texture(pixmap);
+			separateTextures.add(texture);
+			return new TextureRegion(texture);
+		}
+		
+		Rectangle rect = packer.pack(path, pixmap);
+		PixmapPacker.Page page = packer.getPage(path);
+		if (page.getTexture() == null)
+			page.updateTexture(TextureFilter.Nearest, TextureFilter.Nearest, false);
+		return new TextureRegion(page.getTexture(), (int) rect.x, (int) rect.y, (int) rect.width, (int) rect.height);
+	}
+	
+	/**
+	 * Saves images packed at runtime this session to the cache, if there were any. Pages they were packed on are written after
+	 * the cached ones, and changed images point to their new spot. Once less than half of the pages is in use, the cache is
+	 * rebuilt from source instead. Only call when the game is closing, since the cached pages may be replaced.
+	 */
+	public void save () {
+		if (!stale)
+			return;
+		
+		try {
+			int firstPage = cachedPages == null ? 0 : cachedPages.length;
+			Array<PixmapPacker.Page> pages = packer.getPages();
+			for (int i = 0; i < pages.size; i++)
+				addToIndex(pages.get(i), firstPage + i, packedCrcs);
+			
+			int pageCount = firstPage + pages.size;
+			long usedArea = 0;
+			for (CachedRegion cached : cachedRegions.values())
+				usedArea += (long) (cached.width + PADDING) * (cached.height + PADDING);
+			
+			if (usedArea < (long) (pageCount - 1) * PAGE_SIZE * PAGE_SIZE / 2)//Last page is allowed to be mostly empty
+				rebuild();
+			else {
+				Gdx.files.local(CACHE_FOLDER).mkdirs();
+				for (int i = 0; i < pages.size; i++)
+					PixmapIO.writePNG(Gdx.files.local(CACHE_FOLDER + "page" + (firstPage + i) + ".png"), pages.get(i).getPixmap());
+				saveIndex(pageCount);
+			}
+			stale = false;
+		} catch (Exception e) {
+			Gdx.app.error("TextureAtlasCache", "Could not save texture atlas cache.", e);
+		}
+	}
+	
+	/**
+	 * Packs every image in the cache index again from source, dropping space left unused by changed images.
+	 * @throws IOException
+	 */
+	private void rebuild () throws IOException {
+		PixmapPacker rebuildPacker = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, PADDING, false);
+		HashMap<String, Long> crcs = new HashMap<String, Long>();
+		try {
+			for (String path : cachedRegions.keySet()) {
+				FileHandle file = Gdx.files.internal(path);
+				if (!file.exists())
+					continue;
+				
+				byte[] bytes = file.readBytes();
+				CRC32 crc = new CRC32();
+				crc.update(bytes);
+				Pixmap pixmap = new Pixmap(bytes, 0, bytes.length);
+				if (pixmap.getWidth() <= PAGE_SIZE - PADDING * 2 && pixmap.getHeight() <= PAGE_SIZE - PADDING * 2) {
+					rebuildPacker.pack(path, pixmap);
+					crcs.put(path, crc.getValue());
+				}
+				pixmap.dispose();
+			}
+			
+			FileHandle folder = Gdx.files.local(CACHE_FOLDER);
+			folder.deleteDirectory();
+			folder.mkdirs();
+			
+			cachedRegions.clear();
+			Array<PixmapPacker.Page> pages = rebuildPacker.getPages();
+			for (int i = 0; i < pages.size; i++) {
+				PixmapIO.writePNG(Gdx.files.local(CACHE_FOLDER + "page" + i + ".png"), pages.get(i).getPixmap());
+				addToIndex(pages.get(i), i, crcs);
+			}
+			saveIndex(pages.size);
+		} finally {
+			rebuildPacker.dispose();
+		}
+	}
+	
+	/**
+	 * Points the cache index at the images packed on a page.
+	 * @param page
+	 * @param pageIndex Index the page is saved as
+	 * @param crcs CRCs of the images on the page
+	 */
+	private void addToIndex (PixmapPacker.Page page, int pageIndex, HashMap<String, Long> crcs) {
+		for (String path : page.getRects().keys()) {
+			Rectangle rect = page.getRects().get(path);
+			CachedRegion cached = new CachedRegion();
+			cached.crc = crcs.get(path);
+			cached.page = pageIndex;
+			cached.x = (int) rect.x;
+			cached.y = (int) rect.y;
+			cached.width = (int) rect.width;
+			cached.height = (int) rect.height;
+			cachedRegions.put(path, cached);
+		}
+	}
+	
+	private void saveIndex (int pageCount) throws IOException {
+		Writer writer = Gdx.files.local(INDEX_FILE).writer(false, "UTF-8");
+		try {
+			writer.write(pageCount + "\n");
+			for (Map.Entry<String, CachedRegion> entry : cachedRegions.entrySet()) {
+				CachedRegion cached = entry.getValue();
+				writer.write(cached.crc + "\t" + cached.page + "\t" + cached.x + "\t" + cached.y + "\t" + cached.width + "\t" + cached.height + "\t" + entry.getKey() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private void loadIndex () {
+		FileHandle indexFile = Gdx.files.local(INDEX_FILE);
+		if (!indexFile.exists())
+			return;
+		
+		BufferedReader reader = null;
+		try {
+			reader = indexFile.reader(1024, "UTF-8");
+			cachedPages = new Texture[Integer.parseInt(reader.readLine().trim())];
+			cachedPageUsers = new int[cachedPages.length];
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split("\t", 7);
+				if (parts.length < 7)
+					continue;
+				
+				CachedRegion cached = new CachedRegion();
+				cached.crc = Long.parseLong(parts[0]);
+				cached.page = Integer.parseInt(parts[1]);
+				cached.x = Integer.parseInt(parts[2]);
+				cached.y = Integer.parseInt(parts[3]);
+				cached.width = Integer.parseInt(parts[4]);
+				cached.height = Integer.parseInt(parts[5]);
+				cachedRegions.put(parts[6], cached);
+			}
+		} catch (Exception e) {
+			Gdx.app.error("TextureAtlasCache", "Could not read texture atlas cache, it will be rebuilt.", e);
+			cachedRegions.clear();
+			cachedPages = null;
+			cachedPageUsers = null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {}
+			}
+		}
+	}
+	
+	private Texture getCachedPage (int page) {
+		if (cachedPages[page] == null) {
+			FileHandle file = Gdx.files.local(CACHE_FOLDER + "page" + page + ".png");
+			Pixmap pixmap = prefetchedPages.remove(page);
+			Texture texture;
+			if (pixmap != null)
+				texture = new Texture(new FileTextureData(file, pixmap, null, false));//Still reloads from the file if the context is lost
+			else
+				texture = new Texture(file);
+			
+			synchronized (prefetchedPages) {
+				cachedPages[page] = texture;
+				
+				//A prefetch may have finished decoding the page while it was loaded from its file
+				Pixmap duplicate = prefetchedPages.remove(page);
+				if (duplicate != null)
+					duplicate.dispose();
+			}
+		}
+		return cachedPages[page];
+	}
+	
+	/**
+	 * Number of textures images are packed in.
+	 * @return
+	 */
+	public int getPageCount () {
+		int count = packer.getPages().size + separateTextures.size;
+		if (cachedPages != null) {
+			for (Texture page : cachedPages) {
+				if (page != null)
+					count++;
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	public void dispose () {
+		//Page textures dispose their pixmaps too, the packer only disposes pages that never got a texture
+		for (PixmapPacker.Page page : packer.getPages()) {
+			if (page.getTexture() != null)
+				page.getTexture().dispose();
+		}
+		packer.dispose();
+		for (Texture texture : separateTextures)
+			texture.dispose();
+		if (cachedPages != null) {
+			for (Texture page : cachedPages) {
+				if (page != null)
+					page.dispose();
+			}
+		}
+		for (PrefetchedImage image : prefetched.values()) {
+			if (image.pixmap != null)
+				image.pixmap.dispose();
+		}
+		prefetched.clear();
+		for (Pixmap pixmap : prefetchedPages.values())
+			pixmap.dispose();
+		prefetchedPages.clear();
+	}
+	
+	private static class CachedRegion {
+		long crc;
+		int page;
+		int x, y, width, height;
+	}
+	
+	private static class PrefetchedImage {
+		long crc;
+		Pixmap pixmap;//Null if the cached region can be used
+	}
+	
+}
@@ -1,40 +1,79 @@
 package net.hollowbit.archipelo.tools;
 
-import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Json;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.network.Packet;
 import net.hollowbit.archipelo.network.PacketHandler;
 import net.hollowbit.archipelo.network.PacketType;
+import net.hollowbit.archipelo.network.packets.SnapshotAckPacket;
 import net.hollowbit.archipelo.network.packets.WorldSnapshotPacket;
 import net.hollowbit.archipelo.world.World;
 import net.hollowbit.archipelo.world.WorldSnapshot;
+import net.hollowbit.archipelo.world.map.Chunk;
 import net.hollowbit.archipeloshared.ChunkData;
+import net.hollowbit.archipeloshared.ChunkDataCodec;
 import net.hollowbit.archipeloshared.EntityData;
+import net.hollowbit.archipeloshared.EntitySnapshotDeltaCodec;
 import net.hollowbit.archipeloshared.MapSnapshot;
 
 public class WorldSnapshotManager implements PacketHandler {
 	
 	public static final int DELAY = 100;//milliseconds  This delay is a set delay between server and client to keep it consistent.
+	public static final int DECODER_THREADS = 2;
+	private static final int BUFFER_CAPACITY = 64;//Snapshots kept per kind, older ones are dropped once full
+	private static final int BASELINE_WINDOW = 32;//How many sequenced snapshots back the server may use as a delta baseline
+	private static final float DECODE_TIME_SMOOTHING = 0.1f;
 	
-	//Stored in packets, rather than the snapshots themselves.
-	//The reason for this is to prevent decoding of packets that won't be used.
-	private ArrayList<WorldSnapshot> worldInterpSnapshotPackets;
-	private ArrayList<WorldSnapshot> worldChangesSnapshotPackets;
-	private ArrayList<WorldSnapshot> worldFullSnapshotPackets;
+	private SnapshotBuffer interpSnapshots;
+	private SnapshotBuffer changesSnapshots;
+	private SnapshotBuffer fullSnapshots;
 	private World world;
-	private Json json;
 	private int ping;
 	
+	//Snapshots are decoded by a worker pool. Futures are kept in order of arrival and only taken once done, so snapshots are added in the order they were received.
+	private ExecutorService decoder;
+	private LinkedList<Future<WorldSnapshot>> decodingSnapshots;
+	private volatile float decodeTime;//Moving average in milliseconds
+	
+	//Last BASELINE_WINDOW acknowledged snapshots, indexed by sequence % BASELINE_WINDOW so older ones are overwritten.
+	//Only added to once decoded, so any delta the server sends against one arrives after it is here.
+	private AtomicReferenceArray<WorldSnapshot> baselines;
+	
+	//Json instances aren't thread safe
+	private static final ThreadLocal<Json> JSON = new ThreadLocal<Json>() {
+		@Override
+		protected Json initialValue () {
+			return new Json();
+		}
+	};
+	
 	public WorldSnapshotManager (World world) {
 		this.world = world;
-		this.worldInterpSnapshotPackets = new ArrayList<WorldSnapshot>();
-		this.worldChangesSnapshotPackets = new ArrayList<WorldSnapshot>();
-		this.worldFullSnapshotPackets = new ArrayList<WorldSnapshot>();
-		this.json = new Json();
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		this.interpSnapshots = new SnapshotBuffer(BUFFER_CAPACITY);
+		this.changesSnapshots = new SnapshotBuffer(BUFFER_CAPACITY);
+		this.fullSnapshots = new SnapshotBuffer(BUFFER_CAPACITY);
+		this.decodingSnapshots = new LinkedList<Future<WorldSnapshot>>();
+		this.baselines = new AtomicReferenceArray<WorldSnapshot>(BASELINE_WINDOW);
+		this.decoder = Executors.newFixedThreadPool(DECODER_THREADS, new ThreadFactory() {
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "Snapshot Decoder");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.WORLD_SNAPSHOT);
 	}
 	
 	/**
@@ -42,22 +81,23 @@ public class WorldSnapshotManager implements PacketHandler {
 	 * @param delta
 	 */
 	public void update (float delta) {
+		collectDecodedSnapshots();
 		double timeOfPacket = System.currentTimeMillis() - DELAY - ping;
 		updateChange(timeOfPacket);
 		updateInterp(timeOfPacket);
 	}
 	
-	private synchronized void updateInterp (double timeOfPacket) {
-		if (worldInterpSnapshotPackets.isEmpty())
-			return;
-		ArrayList<WorldSnapshot> oldPackets = getInterpPacketsAtMillis(timeOfPacket, worldInterpSnapshotPackets);
-		worldInterpSnapshotPackets.removeAll(oldPackets);
+	private void updateInterp (double timeOfPacket) {
+		//Drop snapshots older than the newest one at or before the render time, it becomes the first of the pair
+		int index = interpSnapshots.floorIndex(timeOfPacket);
+		if (index > 0)
+			interpSnapshots.removeFirst(index);
 		
-		if (worldInterpSnapshotPackets.size() < 2)
+		if (interpSnapshots.size() < 2)
 			return;
 
-		WorldSnapshot packet1 = worldInterpSnapshotPackets.get(0);
-		WorldSnapshot packet2 = worldInterpSnapshotPackets.get(1);
+		WorldSnapshot packet1 = interpSnapshots.get(0);
+		WorldSnapshot packet2 = interpSnapshots.get(1);
 		
 		double delta = packet2.timeCreatedMillis - packet1.timeCreatedMillis;
 		double deltaF = timeOfPacket - packet1.timeCreatedMillis;
@@ -72,64 +112,76 @@ public class WorldSnapshotManager implements PacketHandler {
 	
 	private void updateChange (double timeOfPacket) {
 		//Apply all changes packets to world that are at proper time
-		ArrayList<WorldSnapshot> packetsToApply = getPacketsFromBeforeMillis(timeOfPacket, worldChangesSnapshotPackets);
-		for (WorldSnapshot packet : packetsToApply) {
-			world.applyChangesWorldSnapshot(packet);
-		}
-		this.removeFromCollection(worldChangesSnapshotPackets, packetsToApply);
+		while (!changesSnapshots.isEmpty() && changesSnapshots.first().timeCreatedMillis <= timeOfPacket)
+			world.applyChangesWorldSnapshot(changesSnapshots.removeFirst());
 		
-		ArrayList<WorldSnapshot> packetsToApplyFull = getPacketsFromBeforeMillis(timeOfPacket, worldFullSnapshotPackets);
-		for (WorldSnapshot packet : packetsToApplyFull)
-			world.applyFullWorldSnapshot(packet);
-		this.removeFromCollection(worldFullSnapshotPackets, packetsToApplyFull);
-	}
-	
-	private synchronized void removeFromCollection(ArrayList<WorldSnapshot> collection, ArrayList<WorldSnapshot> itemsToRemove) {
-		collection.removeAll(itemsToRemove);
+		while (!fullSnapshots.isEmpty() && fullSnapshots.first().timeCreatedMillis <= timeOfPacket)
+			world.applyFullWorldSnapshot(fullSnapshots.removeFirst());
 	}
 	
-	private synchronized ArrayList<WorldSnapshot> getPacketsFromBeforeMillis(double millis, ArrayList<WorldSnapshot> packetList) {
-		if (packetList.isEmpty())
-			return new ArrayList<WorldSnapshot>();
-		
-		ArrayList<WorldSnapshot> snapshotsBeforeMillis = new ArrayList<WorldSnapshot>();
-		for (WorldSnapshot snapshot : packetList) {
-			if (snapshot.timeCreatedMillis <= millis)
-				snapshotsBeforeMillis.add(snapshot);
+	/**
+	 * Moves snapshots that finished decoding into their lists, stopping at the first one still being decoded.
+	 */
+	private void collectDecodedSnapshots () {
+		while (!decodingSnapshots.isEmpty() && decodingSnapshots.getFirst().isDone()) {
+			WorldSnapshot snapshot;
+			try {
+				snapshot = decodingSnapshots.removeFirst().get();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ExecutionException e) {
+				Gdx.app.error("WorldSnapshotManager", "Could not decode world snapshot.", e.getCause());
+				continue;
+			}
+			
+			if (snapshot.sequence >= 0)
+				acknowledge(snapshot);
+			
+			switch (snapshot.type) {
+			case WorldSnapshot.TYPE_INTERP:
+				addInterpSnapshot(snapshot);
+				break;
+			case WorldSnapshot.TYPE_CHANGES:
+				addChangesSnapshot(snapshot);
+				break;
+			case WorldSnapshot.TYPE_FULL:
+				addFullSnapshot(snapshot);
+				break;
+			}
 		}
-		
-		return snapshotsBeforeMillis;
 	}
 	
-	private synchronized ArrayList<WorldSnapshot> getInterpPacketsAtMillis (double millis, ArrayList<WorldSnapshot> packetList) {
-		if (packetList.isEmpty())
-			return new ArrayList<WorldSnapshot>();
-		
-		WorldSnapshot max = null;
-		for (WorldSnapshot packet : packetList) {
-			if (packet.timeCreatedMillis <= millis) {
-				if (max == null || packet.timeCreatedMillis > max.timeCreatedMillis)
-					max = packet;
-			}
-		}
-		
-		if (max == null)
-			return new ArrayList<WorldSnapshot>();
-		
-		ArrayList<WorldSnapshot> packets = new ArrayList<WorldSnapshot>();
-		for (WorldSnapshot packet : packetList) {
-			if (packet.timeCreatedMillis < max.timeCreatedMillis)
-				packets.add(packet);
-		}
-		return packets;
+	/**
+	 * Keeps a snapshot as a possible baseline and tells the server it was received.
+	 * @param snapshot
+	 */
+	private void acknowledge (WorldSnapshot snapshot) {
+		baselines.set(snapshot.sequence % BASELINE_WINDOW, snapshot);
+		ArchipeloClient.getGame().getNetworkManager().sendPacket(new SnapshotAckPacket(snapshot.sequence));
 	}
 	
+	/**
+	 * Decodes a snapshot packet and builds its chunks. Runs on a decoder thread.
+	 * @param packet
+	 * @return
+	 */
 	private WorldSnapshot decode (WorldSnapshotPacket packet) {
-		ChunkData[] chunks = new ChunkData[WorldSnapshotPacket.NUM_OF_CHUNKS];
+		long startTime = System.nanoTime();
+		Json json = JSON.get();
+		Chunk[] chunks = new Chunk[WorldSnapshotPacket.NUM_OF_CHUNKS];
 		for (int i = 0; i < chunks.length; i++) {
-			try {
-				chunks[i] = json.fromJson(ChunkData.class, packet.chunks[i]);
-			} catch(NullPointerException e){}//Ignore null pointer exceptions on empty chunk data
+			ChunkData data = null;
+			if (packet.binaryChunks != null) {
+				//Binary chunks are decoded straight to palette form without building per tile strings
+				data = ChunkDataCodec.decode(packet.binaryChunks[i]);
+			} else {
+				try {
+					data = json.fromJson(ChunkData.class, packet.chunks[i]);
+				} catch(NullPointerException e){}//Ignore null pointer exceptions on empty chunk data
+			}
+			
+			if (data != null)
+				chunks[i] = new Chunk(data);
 		}
 		
 		MapSnapshot mapSnapshot = null;
@@ -137,54 +189,93 @@ public class WorldSnapshotManager implements PacketHandler {
 			mapSnapshot = json.fromJson(MapSnapshot.class, packet.mapSnapshot);
 		} catch(NullPointerException e){}//Ignore null pointer exceptions on empty map data
 		
-		EntityData[] entities = new EntityData[WorldSnapshotPacket.NUM_OF_CHUNKS];
-		for (int i = 0; i < WorldSnapshotPacket.NUM_OF_CHUNKS; i++) {
-			if (packet.entities[i] != null) {
-				entities[i] = json.fromJson(EntityData.class, packet.entities[i]);
+		EntityData[] entities;
+		if (packet.entityDelta != null) {
+			//Rebuild full entity state from the delta and the baseline it was made against
+			WorldSnapshot baseline = null;
+			if (packet.baseline >= 0) {
+				baseline = baselines.get(packet.baseline % BASELINE_WINDOW);
+				if (baseline == null || baseline.sequence != packet.baseline)
+					throw new IllegalStateException("Missing baseline world snapshot " + packet.baseline + ".");
+			}
+			entities = EntitySnapshotDeltaCodec.decode(packet.entityDelta, baseline == null ? null : baseline.getEntitySnapshots());
+		} else {
+			entities = new EntityData[WorldSnapshotPacket.NUM_OF_CHUNKS];
+			for (int i = 0; i < WorldSnapshotPacket.NUM_OF_CHUNKS; i++) {
+				if (packet.entities[i] != null) {
+					entities[i] = json.fromJson(EntityData.class, packet.entities[i]);
+				}
 			}
 		}
 		
-		return new WorldSnapshot(packet.timeCreatedMillis, packet.newMap, packet.time, packet.type, chunks, mapSnapshot, entities);
+		WorldSnapshot snapshot = new WorldSnapshot(packet.timeCreatedMillis, packet.newMap, packet.time, packet.type, chunks, mapSnapshot, entities);
+		snapshot.sequence = packet.sequence;
+		
+		float millis = (System.nanoTime() - startTime) / 1000000f;
+		synchronized (this) {
+			decodeTime = decodeTime == 0 ? millis : decodeTime + (millis - decodeTime) * DECODE_TIME_SMOOTHING;
+		}
+		return snapshot;
 	}
 
 	@Override
 	public boolean handlePacket (Packet packet) {
 		if (packet.packetType == PacketType.WORLD_SNAPSHOT) {
-			WorldSnapshotPacket worldSnapshotPacket = (WorldSnapshotPacket) packet;
-			switch (worldSnapshotPacket.type) {
-			case WorldSnapshot.TYPE_INTERP:
+			final WorldSnapshotPacket worldSnapshotPacket = (WorldSnapshotPacket) packet;
+			int type = worldSnapshotPacket.type;
+			if (type != WorldSnapshot.TYPE_INTERP && type != WorldSnapshot.TYPE_CHANGES && type != WorldSnapshot.TYPE_FULL)
+				return false;
+			
+			if (type == WorldSnapshot.TYPE_INTERP)
 				ping = (int) (System.currentTimeMillis() - worldSnapshotPacket.timeCreatedMillis);
-				addInterpSnapshot(decode(worldSnapshotPacket));
-				return true;
-			case WorldSnapshot.TYPE_CHANGES:
-				addChangesSnapshot(decode(worldSnapshotPacket));
+			
+			if (decoder.isShutdown())//Disposed, there is nothing left to apply it to
 				return true;
-			case WorldSnapshot.TYPE_FULL:
-				addFullSnapshot(decode(worldSnapshotPacket));
-				return true;
-			}
+			
+			//All types are decoded the same way
+			decodingSnapshots.add(decoder.submit(new Callable<WorldSnapshot>() {
+				@Override
+				public WorldSnapshot call () {
+					return decode(worldSnapshotPacket);
+				}
+			}));
+			return true;
 		}
 		return false;
 	}
 	
-	private synchronized void addInterpSnapshot (WorldSnapshot packet) {
-		worldInterpSnapshotPackets.add(packet);
+	private void addInterpSnapshot (WorldSnapshot packet) {
+		interpSnapshots.add(packet);
 	}
 	
-	private synchronized void addChangesSnapshot (WorldSnapshot packet) {
-		worldChangesSnapshotPackets.add(packet);
+	private void addChangesSnapshot (WorldSnapshot packet) {
+		WorldSnapshot dropped = changesSnapshots.add(packet);
+		if (dropped != null)//Apply it early rather than lose its changes
+			world.applyChangesWorldSnapshot(dropped);
 	}
 	
-	private synchronized void addFullSnapshot (WorldSnapshot packet) {
-		worldFullSnapshotPackets.add(packet);
+	private void addFullSnapshot (WorldSnapshot packet) {
+		fullSnapshots.add(packet);
 	}
 	
 	public void dispose () {
-		
+		ArchipeloClient.getGame().getNetworkManager().removePacketHandler(this);
+		decoder.shutdownNow();
+		decodingSnapshots.clear();
+		for (int i = 0; i < BASELINE_WINDOW; i++)
+			baselines.set(i, null);
 	}
 	
 	public int getPing() {
 		return ping;
 	}
 	
+	/**
+	 * Average time it takes to decode a snapshot, in milliseconds.
+	 * @return
+	 */
+	public float getDecodeTime() {
+		return decodeTime;
+	}
+	
 }
@@ -0,0 +1,274 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Caches sprites made of many tinted layers, like a player and their clothes, by drawing them once into a slot of a frame buffer.
+ * After that the whole stack is drawn as a single quad. Slots are reused in least recently used order.
+ * Layers are blended normally when composited, so partially transparent pixels of stacked layers come out slightly more transparent than drawing them directly.
+ * @author vedi0boy
+ *
+ */
+public class CompositeSpriteCache implements Disposable {
+	
+	public static final int SIZE = 2048;
+	public static final int MAX_RENDERS_PER_FRAME = 8;//Composites drawn into the buffer per frame, anything past this is drawn directly
+	private static final int PADDING = 1;
+	
+	private FrameBuffer frameBuffer;
+	private int slotWidth;
+	private int slotHeight;
+	private LinkedHashMap<CompositeKey, TextureRegion> slots;//In order of last use
+	private ArrayList<TextureRegion> freeSlots;
+	
+	private Matrix4 projection;
+	private Matrix4 savedProjection;
+	private Color color;
+	private long frameId = -1;
+	private int rendersThisFrame = 0;
+	
+	public CompositeSpriteCache (int slotWidth, int slotHeight) {
+		this.slotWidth = slotWidth;
+		this.slotHeight = slotHeight;
+		this.frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, SIZE, SIZE, false);
+		this.frameBuffer.getColorBufferTexture().setFilter(TextureFilter.Nearest, TextureFilter.Nearest);
+		this.slots = new LinkedHashMap<CompositeKey, TextureRegion>(64, 0.75f, true);
+		this.freeSlots = new ArrayList<TextureRegion>();
+		this.projection = new Matrix4().setToOrtho2D(0, 0, SIZE, SIZE);
+		this.savedProjection = new Matrix4();
+		this.color = new Color();
+		
+		for (int y = 0; y + slotHeight + PADDING * 2 <= SIZE; y += slotHeight + PADDING * 2) {
+			for (int x = 0; x + slotWidth + PADDING * 2 <= SIZE; x += slotWidth + PADDING * 2) {
+				//Frame buffer textures are upside down
+				TextureRegion slot = new TextureRegion(frameBuffer.getColorBufferTexture(), x + PADDING, y + PADDING, slotWidth, slotHeight);
+				slot.flip(false, true);
+				freeSlots.add(slot);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the cached composite for a key, drawing it into a slot first if it isn't cached.
+	 * Has to be called while the batch is drawing. It is flushed if the composite has to be drawn.
+	 * @param key Identifies the composite, it is copied if stored so it can be reused by the caller
+	 * @param batch
+	 * @return The composite, or null if it isn't cached and can't be drawn this frame
+	 */
+	public TextureRegion get (CompositeKey key, Batch batch) {
+		TextureRegion slot = slots.get(key);
+		if (slot != null)
+			return slot;
+		
+		if (Gdx.graphics.getFrameId() != frameId) {
+			frameId = Gdx.graphics.getFrameId();
+			rendersThisFrame = 0;
+		}
+		
+		if (rendersThisFrame >= MAX_RENDERS_PER_FRAME)
+			return null;
+		
+		for (int i = 0; i < key.getLayerCount(); i++) {
+			if (key.getLayer(i).getRegionWidth() > slotWidth || key.getLayer(i).getRegionHeight() > slotHeight)
+				return null;
+		}
+		
+		rendersThisFrame++;
+		slot = takeSlot();
+		render(key, slot, batch);
+		slots.put(new CompositeKey(key), slot);
+		return slot;
+	}
+	
+	private TextureRegion takeSlot () {
+		if (!freeSlots.isEmpty())
+			return freeSlots.remove(freeSlots.size() - 1);
+		
+		//Reuse the least recently used slot
+		Iterator<TextureRegion> it = slots.values().iterator();
+		TextureRegion slot = it.next();
+		it.remove();
+		return slot;
+	}
+	
+	private void render (CompositeKey key, TextureRegion slot, Batch batch) {
+		float savedColor = batch.getPackedColor();
+		ShaderProgram savedShader = batch.getShader();
+		savedProjection.set(batch.getProjectionMatrix());
+		batch.end();
+		
+		//Composites are cached without the flash of the entity being drawn
+		Color savedFlash = null;
+		if (batch instanceof TintBatch) {
+			savedFlash = ((TintBatch) batch).getFlash();
+			((TintBatch) batch).setFlash(null);
+		}
+		
+		frameBuffer.begin();
+		int x = slot.getRegionX();
+		int y = slot.getRegionY() - slotHeight;//Undo the flip
+		Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+		Gdx.gl.glScissor(x, y, slotWidth, slotHeight);
+		Gdx.gl.glClearColor(0, 0, 0, 0);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+		
+		batch.setShader(null);
+		batch.setProjectionMatrix(projection);
+		batch.begin();
+		for (int i = 0; i < key.getLayerCount(); i++) {
+			Color.rgba8888ToColor(color, key.getColor(i));
+			batch.setColor(color);
+			batch.draw(key.getLayer(i), x, y);
+		}
+		batch.end();
+		frameBuffer.end();
+		
+		if (batch instanceof TintBatch)
+			((TintBatch) batch).setFlash(savedFlash);
+		batch.setShader(savedShader);
+		batch.setProjectionMatrix(savedProjection);
+		batch.setColor(savedColor);
+		batch.begin();
+	}
+	
+	/**
+	 * Removes all composites of a group, for example when a player changes clothes.
+	 * @param group
+	 */
+	public void invalidate (Object group) {
+		Iterator<Map.Entry<CompositeKey, TextureRegion>> it = slots.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<CompositeKey, TextureRegion> entry = it.next();
+			if (entry.getKey().getGroup().equals(group)) {
+				freeSlots.add(entry.getValue());
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Removes all composites. Call if the contents of the frame buffer were lost, or frames they were drawn from were unloaded.
+	 */
+	public void invalidateAll () {
+		freeSlots.addAll(slots.values());
+		slots.clear();
+	}
+	
+	public int getCachedCount () {
+		return slots.size();
+	}
+	
+	@Override
+	public void dispose () {
+		frameBuffer.dispose();
+	}
+	
+	/**
+	 * Key of a composite sprite: a group it belongs to plus the layers it is made of, bottom first, each with a tint.
+	 * Layers are compared by identity, so the {@link net.hollowbit.archipelo.tools.AssetStreamer} flushes the cache whenever it unloads assets,
+	 * otherwise composites of unloaded frames would take up slots and keep the old frames around.
+	 * Meant to be reused by setting it up again for every lookup.
+	 * @author vedi0boy
+	 *
+	 */
+	public static class CompositeKey {
+		
+		private Object group;
+		private TextureRegion[] layers;
+		private int[] colors;
+		private int layerCount;
+		private int hash;
+		
+		public CompositeKey (int maxLayers) {
+			layers = new TextureRegion[maxLayers];
+			colors = new int[maxLayers];
+		}
+		
+		private CompositeKey (CompositeKey key) {
+			this.group = key.group;
+			this.layerCount = key.layerCount;
+			this.layers = new TextureRegion[layerCount];
+			this.colors = new int[layerCount];
+			System.arraycopy(key.layers, 0, layers, 0, layerCount);
+			System.arraycopy(key.colors, 0, colors, 0, layerCount);
+			this.hash = key.hash;
+		}
+		
+		/**
+		 * Starts setting up the key for a new composite.
+		 * @param group
+		 */
+		public void begin (Object group) {
+			this.group = group;
+			this.layerCount = 0;
+			this.hash = group.hashCode();
+		}
+		
+		/**
+		 * Adds a layer on top of the previous ones.
+		 * @param layer
+		 * @param color RGBA8888 tint
+		 */
+		public void add (TextureRegion layer, int color) {
+			layers[layerCount] = layer;
+			colors[layerCount] = color;
+			layerCount++;
+			hash = 31 * (31 * hash + System.identityHashCode(layer)) + color;
+		}
+		
+		public Object getGroup () {
+			return group;
+		}
+		
+		public int getLayerCount () {
+			return layerCount;
+		}
+		
+		public TextureRegion getLayer (int index) {
+			return layers[index];
+		}
+		
+		public int getColor (int index) {
+			return colors[index];
+		}
+		
+		@Override
+		public int hashCode () {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals (Object obj) {
+			if (!(obj instanceof CompositeKey))
+				return false;
+			
+			CompositeKey key = (CompositeKey) obj;
+			if (hash != key.hash || layerCount != key.layerCount || !group.equals(key.group))
+				return false;
+			
+			for (int i = 0; i < layerCount; i++) {
+				if (layers[i] != key.layers[i] || colors[i] != key.colors[i])
+					return false;
+			}
+			return true;
+		}
+		
+	}
+	
+}
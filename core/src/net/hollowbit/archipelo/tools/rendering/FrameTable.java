@@ -0,0 +1,61 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * Frames of an animation for every style and direction, built once when the animation loads.
+ * Frames are picked with plain arithmetic on the state time and the table is never changed after it is filled,
+ * so lookups don't allocate and can be shared by any number of entities or threads.
+ * @author vedi0boy
+ *
+ */
+public class FrameTable {
+	
+	private TextureRegion[][][] frames;//By style, direction, then frame
+	
+	public FrameTable (int styles, int directions) {
+		frames = new TextureRegion[styles][directions][];
+	}
+	
+	/**
+	 * Sets the frames of a style and direction. Only call while loading.
+	 * @param style
+	 * @param direction
+	 * @param frames
+	 */
+	public void set (int style, int direction, TextureRegion[] frames) {
+		this.frames[style][direction] = frames;
+	}
+	
+	/**
+	 * Returns the frame to show at a state time, when all frames last as long as each other.
+	 * @param style
+	 * @param direction
+	 * @param stateTime
+	 * @param totalRuntime Time it takes to show all frames once
+	 * @param looping If false, stops on the last frame
+	 * @return
+	 */
+	public TextureRegion getFrame (int style, int direction, float stateTime, float totalRuntime, boolean looping) {
+		TextureRegion[] directionFrames = frames[style][direction];
+		return directionFrames[getFrameIndex(stateTime, totalRuntime, directionFrames.length, looping)];
+	}
+	
+	/**
+	 * Index of the frame to show at a state time, for an animation where all frames last as long as each other.
+	 * Animations with no runtime always show their first frame.
+	 * @param stateTime
+	 * @param totalRuntime
+	 * @param frameCount
+	 * @param looping
+	 * @return
+	 */
+	public static int getFrameIndex (float stateTime, float totalRuntime, int frameCount, boolean looping) {
+		if (frameCount <= 1 || totalRuntime <= 0 || stateTime <= 0)
+			return 0;
+		
+		int index = (int) (stateTime / (totalRuntime / frameCount));
+		return looping ? index % frameCount : Math.min(index, frameCount - 1);
+	}
+	
+}
@@ -0,0 +1,114 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+import net.hollowbit.archipelo.world.MapElement;
+
+/**
+ * Reusable queue of everything drawn on top of the ground in a frame. Map elements and world objects are added
+ * in draw order, world objects of each tile row are sorted by render y, then everything is drawn in one sweep.
+ * Entries are pooled so filling the queue every frame doesn't allocate.
+ * @author vedi0boy
+ *
+ */
+public class RenderQueue {
+	
+	private static final int INITIAL_CAPACITY = 256;
+	
+	private Entry[] entries;
+	private int size;
+	private int rowStart;
+	private Comparator<Entry> comparator;
+	
+	public RenderQueue () {
+		entries = new Entry[INITIAL_CAPACITY];
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = new Entry();
+		size = 0;
+		rowStart = 0;
+		
+		//Same ordering as RenderableGameWorldObjectComparator
+		comparator = new Comparator<Entry>() {
+			@Override
+			public int compare (Entry o1, Entry o2) {
+				return (int) (o2.object.getRenderY() - o1.object.getRenderY());
+			}
+		};
+	}
+	
+	public void addElement (MapElement element, float x, float y) {
+		Entry entry = nextEntry();
+		entry.element = element;
+		entry.x = x;
+		entry.y = y;
+	}
+	
+	/**
+	 * Marks the start of the world objects of a tile row. Objects added until the next call to {@link #endRow()} are sorted together.
+	 */
+	public void startRow () {
+		rowStart = size;
+	}
+	
+	public void addObject (RenderableGameWorldObject object) {
+		nextEntry().object = object;
+	}
+	
+	/**
+	 * Sorts the world objects of the current tile row by render y.
+	 * Rows are small, so Arrays.sort does a stable binary insertion sort that doesn't allocate, giving the same order as Collections.sort did.
+	 */
+	public void endRow () {
+		if (size - rowStart > 1)
+			Arrays.sort(entries, rowStart, size, comparator);
+	}
+	
+	/**
+	 * Draws everything in the queue in order and clears it.
+	 * @param batch
+	 */
+	public void render (SpriteBatch batch) {
+		for (int i = 0; i < size; i++) {
+			Entry entry = entries[i];
+			if (entry.element != null)
+				entry.element.draw(batch, entry.x, entry.y);
+			else
+				entry.object.renderObject(batch);
+		}
+		clear();
+	}
+	
+	public void clear () {
+		for (int i = 0; i < size; i++) {
+			entries[i].element = null;
+			entries[i].object = null;
+		}
+		size = 0;
+		rowStart = 0;
+	}
+	
+	public int size () {
+		return size;
+	}
+	
+	private Entry nextEntry () {
+		if (size == entries.length) {
+			Entry[] newEntries = new Entry[entries.length * 2];
+			System.arraycopy(entries, 0, newEntries, 0, entries.length);
+			for (int i = entries.length; i < newEntries.length; i++)
+				newEntries[i] = new Entry();
+			entries = newEntries;
+		}
+		return entries[size++];
+	}
+	
+	private static class Entry {
+		MapElement element;
+		float x, y;
+		RenderableGameWorldObject object;
+	}
+	
+}
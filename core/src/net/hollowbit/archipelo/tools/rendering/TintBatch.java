@@ -0,0 +1,108 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * Sprite batch that can draw sprites as a solid flash color, like entities that were hit, without switching shaders.
+ * The flash is part of the vertex color: packed colors always have an even alpha byte, so an odd one tells the tint shader
+ * to replace the texture's color with the vertex color instead of multiplying them. Flashing sprites are drawn in the same
+ * batch as everything else.
+ * @author vedi0boy
+ *
+ */
+public class TintBatch extends SpriteBatch {
+	
+	private float rawColor = Color.WHITE.toFloatBits();//Color as set, without the flash
+	private Color flash = null;
+	private Color tempColor = new Color();
+	private ShaderProgram tintShader;
+	
+	public TintBatch () {
+		this(createTintShader());
+	}
+	
+	private TintBatch (ShaderProgram tintShader) {
+		super(1000, tintShader);
+		this.tintShader = tintShader;
+	}
+	
+	public static ShaderProgram createTintShader () {
+		ShaderProgram.pedantic = false;
+		ShaderProgram shader = new ShaderProgram(Gdx.files.internal("shaders/passthrough.vsh"), Gdx.files.internal("shaders/tint.fsh"));
+		if (!shader.isCompiled())
+			throw new IllegalArgumentException("Error compiling tint shader: " + shader.getLog());
+		return shader;
+	}
+	
+	/**
+	 * Draws everything after this in a solid color, keeping the alpha of the textures and the batch color.
+	 * Only works while the tint shader is used, which is the default shader of this batch.
+	 * @param flash Color to flash, or null to stop flashing
+	 */
+	public void setFlash (Color flash) {
+		this.flash = flash;
+		super.setColor(encode(rawColor));
+	}
+	
+	public Color getFlash () {
+		return flash;
+	}
+	
+	@Override
+	public void setColor (Color tint) {
+		setColor(tint.toFloatBits());
+	}
+	
+	@Override
+	public void setColor (float r, float g, float b, float a) {
+		setColor(Color.toFloatBits(r, g, b, a));
+	}
+	
+	@Override
+	public void setColor (float color) {
+		rawColor = color;
+		super.setColor(encode(color));
+	}
+	
+	@Override
+	public Color getColor () {
+		int intBits = NumberUtils.floatToIntColor(rawColor);
+		tempColor.r = (intBits & 0xff) / 255f;
+		tempColor.g = ((intBits >>> 8) & 0xff) / 255f;
+		tempColor.b = ((intBits >>> 16) & 0xff) / 255f;
+		tempColor.a = ((intBits >>> 24) & 0xff) / 255f;
+		return tempColor;
+	}
+	
+	@Override
+	public float getPackedColor () {
+		return rawColor;
+	}
+	
+	/**
+	 * Packs the flash color with the alpha of a color, marking it as a flash with an odd alpha byte.
+	 * @param color
+	 * @return
+	 */
+	private float encode (float color) {
+		if (flash == null)
+			return color;
+		
+		int alpha = (NumberUtils.floatToIntColor(color) >>> 24) | 1;
+		if ((alpha & 0x7f) == 0x7f)//Would make the packed float a NaN
+			alpha -= 2;
+		int bits = (alpha << 24) | ((int) (255 * flash.b) << 16) | ((int) (255 * flash.g) << 8) | (int) (255 * flash.r);
+		return Float.intBitsToFloat(bits);
+	}
+	
+	@Override
+	public void dispose () {
+		super.dispose();
+		tintShader.dispose();
+	}
+	
+}
@@ -0,0 +1,241 @@
+package net.hollowbit.archipelo.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongMap;
+
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.entity.Entity;
+import net.hollowbit.archipeloshared.CollisionRect;
+
+/**
+ * Uniform grid of the entities in a world. Each entity is put in every cell its view and collision rects overlap,
+ * and in a bucket for the tile row it is drawn in, so rendering and collision only have to look at nearby entities.
+ * @author vedi0boy
+ *
+ */
+public class EntitySpatialIndex {
+	
+	public static final int CELL_SIZE = ArchipeloClient.TILE_SIZE * 4;
+	
+	private static final ArrayList<Entity> EMPTY = new ArrayList<Entity>();
+	
+	private LongMap<ArrayList<Entity>> cells;
+	private IntMap<ArrayList<Entity>> rows;
+	private HashMap<Entity, Entry> entries;
+	private Entry movedEntry;//Swapped with the entry of an entity that changed cells, so moves don't allocate
+	private float maxEntitySize = 0;
+	
+	public EntitySpatialIndex () {
+		cells = new LongMap<ArrayList<Entity>>();
+		rows = new IntMap<ArrayList<Entity>>();
+		entries = new HashMap<Entity, Entry>();
+		movedEntry = new Entry();
+	}
+	
+	public synchronized void add (Entity entity) {
+		if (entries.containsKey(entity))
+			return;
+		
+		Entry entry = new Entry();
+		calculateEntry(entity, entry);
+		insert(entity, entry);
+		entries.put(entity, entry);
+	}
+	
+	/**
+	 * Moves an entity to the cells and tile row of its current position. Entities that aren't in the index are ignored.
+	 * @param entity
+	 */
+	public synchronized void update (Entity entity) {
+		Entry entry = entries.get(entity);
+		if (entry == null)
+			return;
+		
+		//Most moves stay within the same cells and row, so nothing needs to change
+		Entry newEntry = movedEntry;
+		calculateEntry(entity, newEntry);
+		if (newEntry.sameAs(entry))
+			return;
+		
+		removeFromCells(entity, entry);
+		insert(entity, newEntry);
+		entries.put(entity, newEntry);
+		movedEntry = entry;
+	}
+	
+	public synchronized void remove (Entity entity) {
+		Entry entry = entries.remove(entity);
+		if (entry != null)
+			removeFromCells(entity, entry);
+	}
+	
+	public synchronized void clear () {
+		cells.clear();
+		rows.clear();
+		entries.clear();
+	}
+	
+	/**
+	 * Returns all entities with a view or collision rect that may overlap the given rect.
+	 * @param rect
+	 * @return
+	 */
+	public ArrayList<Entity> getEntitiesInRect (CollisionRect rect) {
+		return getEntitiesInRect(rect.xWithOffset(), rect.yWithOffset(), rect.width, rect.height);
+	}
+	
+	public ArrayList<Entity> getEntitiesInRect (float x, float y, float width, float height) {
+		return getEntitiesInRect(x, y, width, height, new ArrayList<Entity>());
+	}
+	
+	/**
+	 * Same as {@link #getEntitiesInRect(CollisionRect)}, but fills a list instead of creating one. The list is cleared first.
+	 * @param rect
+	 * @param entitiesInRect
+	 * @return The filled list
+	 */
+	public ArrayList<Entity> getEntitiesInRect (CollisionRect rect, ArrayList<Entity> entitiesInRect) {
+		return getEntitiesInRect(rect.xWithOffset(), rect.yWithOffset(), rect.width, rect.height, entitiesInRect);
+	}
+	
+	public synchronized ArrayList<Entity> getEntitiesInRect (float x, float y, float width, float height, ArrayList<Entity> entitiesInRect) {
+		entitiesInRect.clear();
+		int cellX1 = toCell(x);
+		int cellY1 = toCell(y);
+		int cellX2 = toCell(x + width);
+		int cellY2 = toCell(y + height);
+		
+		boolean singleCell = cellX1 == cellX2 && cellY1 == cellY2;//Entities can only be found twice if more than one cell is searched
+		for (int cellY = cellY1; cellY <= cellY2; cellY++) {
+			for (int cellX = cellX1; cellX <= cellX2; cellX++) {
+				ArrayList<Entity> cell = cells.get(getKey(cellX, cellY));
+				if (cell == null)
+					continue;
+				
+				for (int i = 0; i < cell.size(); i++) {
+					Entity entity = cell.get(i);
+					if (singleCell || !entitiesInRect.contains(entity))
+						entitiesInRect.add(entity);
+				}
+			}
+		}
+		return entitiesInRect;
+	}
+	
+	/**
+	 * Returns all entities with a rect that could be within range of a point.
+	 * The search area is padded by the largest entity indexed so far so rects hanging into the range are not missed.
+	 * @param x
+	 * @param y
+	 * @param range
+	 * @return
+	 */
+	public synchronized ArrayList<Entity> getEntitiesNear (float x, float y, float range) {
+		float padding = range + maxEntitySize;
+		return getEntitiesInRect(x - padding, y - padding, padding * 2, padding * 2);
+	}
+	
+	/**
+	 * Returns the entities drawn in a tile row, meaning their render y is in ((row - 1) * TILE_SIZE, row * TILE_SIZE].
+	 * The returned list belongs to the index and must not be modified.
+	 * @param row
+	 * @return
+	 */
+	public synchronized ArrayList<Entity> getEntitiesInTileRow (int row) {
+		ArrayList<Entity> entitiesInRow = rows.get(row);
+		return entitiesInRow == null ? EMPTY : entitiesInRow;
+	}
+	
+	private void calculateEntry (Entity entity, Entry entry) {
+		CollisionRect viewRect = entity.getViewRect();
+		float x1 = viewRect.xWithOffset();
+		float y1 = viewRect.yWithOffset();
+		float x2 = x1 + viewRect.width;
+		float y2 = y1 + viewRect.height;
+		for (CollisionRect rect : entity.getCollisionRects()) {
+			x1 = Math.min(x1, rect.xWithOffset());
+			y1 = Math.min(y1, rect.yWithOffset());
+			x2 = Math.max(x2, rect.xWithOffset() + rect.width);
+			y2 = Math.max(y2, rect.yWithOffset() + rect.height);
+		}
+		maxEntitySize = Math.max(maxEntitySize, Math.max(x2 - x1, y2 - y1));
+		
+		entry.cellX1 = toCell(x1);
+		entry.cellY1 = toCell(y1);
+		entry.cellX2 = toCell(x2);
+		entry.cellY2 = toCell(y2);
+		entry.row = getTileRow(entity.getRenderY());
+	}
+	
+	private void insert (Entity entity, Entry entry) {
+		for (int cellY = entry.cellY1; cellY <= entry.cellY2; cellY++) {
+			for (int cellX = entry.cellX1; cellX <= entry.cellX2; cellX++) {
+				long key = getKey(cellX, cellY);
+				ArrayList<Entity> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Entity>();
+					cells.put(key, cell);
+				}
+				cell.add(entity);
+			}
+		}
+		
+		ArrayList<Entity> row = rows.get(entry.row);
+		if (row == null) {
+			row = new ArrayList<Entity>();
+			rows.put(entry.row, row);
+		}
+		row.add(entity);
+	}
+	
+	private void removeFromCells (Entity entity, Entry entry) {
+		for (int cellY = entry.cellY1; cellY <= entry.cellY2; cellY++) {
+			for (int cellX = entry.cellX1; cellX <= entry.cellX2; cellX++) {
+				long key = getKey(cellX, cellY);
+				ArrayList<Entity> cell = cells.get(key);
+				if (cell != null) {
+					cell.remove(entity);
+					if (cell.isEmpty())
+						cells.remove(key);
+				}
+			}
+		}
+		
+		ArrayList<Entity> row = rows.get(entry.row);
+		if (row != null) {
+			row.remove(entity);
+			if (row.isEmpty())
+				rows.remove(entry.row);
+		}
+	}
+	
+	/**
+	 * Tile row an object with the given render y is drawn in.
+	 * @param renderY
+	 * @return
+	 */
+	public static int getTileRow (float renderY) {
+		return (int) Math.ceil(renderY / ArchipeloClient.TILE_SIZE);
+	}
+	
+	private static int toCell (float position) {
+		return (int) Math.floor(position / CELL_SIZE);
+	}
+	
+	private static long getKey (int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+	
+	private static class Entry {
+		int cellX1, cellY1, cellX2, cellY2;
+		int row;
+		
+		boolean sameAs (Entry entry) {
+			return cellX1 == entry.cellX1 && cellY1 == entry.cellY1 && cellX2 == entry.cellX2 && cellY2 == entry.cellY2 && row == entry.row;
+		}
+	}
+	
+}
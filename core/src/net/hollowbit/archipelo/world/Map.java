@@ -1,20 +1,20 @@
 package net.hollowbit.archipelo.world;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.TreeMap;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.IntArray;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.audio.MapAudioManager;
 import net.hollowbit.archipelo.entity.Entity;
 import net.hollowbit.archipelo.network.packets.WorldSnapshotPacket;
-import net.hollowbit.archipelo.particles.Particle;
 import net.hollowbit.archipelo.particles.ParticleManager;
-import net.hollowbit.archipelo.tools.rendering.RenderableGameWorldObject;
-import net.hollowbit.archipelo.tools.rendering.RenderableGameWorldObjectComparator;
+import net.hollowbit.archipelo.tools.rendering.RenderQueue;
 import net.hollowbit.archipelo.world.map.Chunk;
+import net.hollowbit.archipelo.world.map.ChunkRenderCache;
 import net.hollowbit.archipelo.world.map.ChunkRow;
 import net.hollowbit.archipeloshared.ChunkData;
 import net.hollowbit.archipeloshared.CollisionRect;
@@ -24,6 +24,8 @@ import net.hollowbit.archipeloshared.TileData;
 
 public class Map {
 	
+	private static final int MAX_RENDER_CACHE_BUILDS_PER_FRAME = 1;//Building a chunk cache uploads all of its tiles, so chunks streamed in are spread over frames
+	
 	private String name;
 	private String displayName;
 	private String islandName;
@@ -31,10 +33,14 @@ public class Map {
 	private MapAudioManager audioManager;
 	private ParticleManager particleManager;
 	private TreeMap<Integer, ChunkRow> chunkRows;
+	private RenderQueue renderQueue;
+	private IntArray particlesInView;//Indexes in the particle manager, reused every frame
+	private ArrayList<Chunk> groundChunks;//Chunks with ground in view, reused every frame
+	private IntArray groundLimits;//Tile limits to draw of each ground chunk, 4 per chunk
 	
 	World world;
 	
-	public Map (MapSnapshot fullSnapshot, ChunkData[] chunks, World world) {
+	public Map (MapSnapshot fullSnapshot, Chunk[] chunks, World world) {
 		this.name = fullSnapshot.name;
 		this.world = world;
 		this.displayName = fullSnapshot.getString("display-name", name);
@@ -42,19 +48,27 @@ public class Map {
 		audioManager = new MapAudioManager(this);
 		particleManager = new ParticleManager();
 		chunkRows = new TreeMap<Integer, ChunkRow>();
+		renderQueue = new RenderQueue();
+		particlesInView = new IntArray();
+		groundChunks = new ArrayList<Chunk>();
+		groundLimits = new IntArray();
 		
 		//Add all chunks to map
-		for (ChunkData chunk : chunks) {
+		for (Chunk chunk : chunks) {
 			if (chunk == null)
 				continue;
 			
-			ChunkRow row = chunkRows.get(chunk.y);
+			ChunkRow row = chunkRows.get(chunk.getY());
 			if (row == null) {
-				row = new ChunkRow(chunk.y);
-				chunkRows.put(chunk.y, row);
+				row = new ChunkRow(chunk.getY());
+				chunkRows.put(chunk.getY(), row);
 			}
 			
-			row.getChunks().put(chunk.x, new Chunk(chunk, this));
+			chunk.setMap(this);
+			row.getChunks().put(chunk.getX(), chunk);
+			
+			//Maps are loaded while the screen is faded out, so build the caches now instead of on the first frame
+			chunk.buildRenderCache();
 		}
 	}
 	
@@ -99,7 +113,7 @@ public class Map {
 		
 		Chunk chunk = getChunk(chunkX, chunkY);
 		if (chunk != null)
-			return chunk.getCollisionMap()[yWithinChunk][xWithinChunk];
+			return chunk.getCollision(yWithinChunk, xWithinChunk);
 		return true;
 	}
 	
@@ -113,6 +127,15 @@ public class Map {
 	
 	public void render (SpriteBatch batch, ArrayList<Entity> entities) {
 		CollisionRect cameraViewRect = ArchipeloClient.getGame().getCamera().getViewRect();
+		MapElementManager mapElementManager = ArchipeloClient.getGame().getMapElementManager();
+		EntitySpatialIndex entityIndex = world.getEntityIndex();
+		
+		//Only particles in view need to be checked for each tile row
+		particlesInView.clear();
+		for (int i = 0; i < particleManager.getParticleCount(); i++) {
+			if (particleManager.isInRect(i, cameraViewRect))
+				particlesInView.add(i);
+		}
 		
 		//Render tiles
 		//Find minimum amount of tiles to draw to save processing power
@@ -131,6 +154,7 @@ public class Map {
 		int chunkY2 = (int) Math.floor((float) tileY2 / ChunkData.SIZE) - 1;
 		int chunkX2 = (int) Math.floor((float) tileX2 / ChunkData.SIZE) + 1;
 		
+		int renderCacheBuilds = MAX_RENDER_CACHE_BUILDS_PER_FRAME;
 		for (int chunkY = chunkY1; chunkY >= chunkY2; chunkY--) {
 			for (int chunkX = chunkX1; chunkX <= chunkX2; chunkX++) {
 				ChunkRow row = chunkRows.get(chunkY);
@@ -139,6 +163,13 @@ public class Map {
 				
 				Chunk chunk = row.getChunks().get(chunkX);
 				if (chunk != null) {
+					if (chunk.getRenderCache() == null) {
+						if (renderCacheBuilds == 0)//Out of builds this frame, the chunk is drawn once its cache is built
+							continue;
+						chunk.buildRenderCache();
+						renderCacheBuilds--;
+					}
+					
 					//Define inter-tile rendering limits
 					int tileRenderY1 = ChunkData.SIZE;
 					if (chunkY == chunkY1) {
@@ -172,19 +203,32 @@ public class Map {
 							tileRenderX2 = ChunkData.SIZE - (Math.abs(tileX2) % (ChunkData.SIZE + 1));
 					}
 					
-					for (int r = tileRenderY1 - 1; r >= tileRenderY2; r--) {
-						int y = r * ArchipeloClient.TILE_SIZE + chunk.getPixelY();
-						for (int c = tileRenderX1; c < tileRenderX2; c++) {
-							Tile tile = ArchipeloClient.getGame().getMapElementManager().getTile(chunk.getTiles()[r][c]);
-							if (tile != null)
-								tile.draw(batch, c * ArchipeloClient.TILE_SIZE + chunk.getPixelX(), y);
-						}
-					}
+					groundChunks.add(chunk);
+					groundLimits.add(tileRenderY2);
+					groundLimits.add(tileRenderY1);
+					groundLimits.add(tileRenderX1);
+					groundLimits.add(tileRenderX2);
 				}
 				
 			}
 		}
 		
+		//Static ground of every chunk in view is drawn in a single break from the batch
+		ShaderProgram shader = ArchipeloClient.getGame().getShaderManager().getShader();
+		ChunkRenderCache.beginStatic(batch);
+		for (int i = 0; i < groundChunks.size(); i++)
+			groundChunks.get(i).getRenderCache().renderStatic(batch, shader, groundLimits.get(i * 4), groundLimits.get(i * 4 + 1), groundLimits.get(i * 4 + 2), groundLimits.get(i * 4 + 3));
+		ChunkRenderCache.endStatic(batch);
+		
+		for (int i = 0; i < groundChunks.size(); i++)
+			groundChunks.get(i).getRenderCache().renderAnimated(batch, groundLimits.get(i * 4), groundLimits.get(i * 4 + 1), groundLimits.get(i * 4 + 2), groundLimits.get(i * 4 + 3));
+		groundChunks.clear();
+		groundLimits.clear();
+		
+		//Spend builds left this frame on chunks out of view, so they are ready before they are seen
+		if (renderCacheBuilds > 0)
+			buildRenderCaches(renderCacheBuilds);
+		
 
 		
 		for (int chunkY = chunkY1; chunkY >= chunkY2; chunkY--) {
@@ -231,53 +275,44 @@ public class Map {
 					for (int r = tileRenderY1 - 1; r >= tileRenderY2; r--) {
 						int y = r * ArchipeloClient.TILE_SIZE + chunk.getPixelY();
 						for (int c = tileRenderX1; c < tileRenderX2; c++) {
-							MapElement element = ArchipeloClient.getGame().getMapElementManager().getElement(chunk.getElements()[r][c]);
+							MapElement element = mapElementManager.getElement(chunk.getElementId(r, c));
 							
 							if (element != null) {
 								float x = c * ArchipeloClient.TILE_SIZE + chunk.getPixelX();
-								if (cameraViewRect.collidesWith(element.getViewRect(c * ArchipeloClient.TILE_SIZE + chunk.getPixelX(), y)))
-									element.draw(batch, x, y);
+								if (element.isInRect(cameraViewRect, x, y))
+									renderQueue.addElement(element, x, y);
 							}
 						}
 						
-						//Render objects for row
-						ArrayList<RenderableGameWorldObject> objectsInThisTileRow = new ArrayList<RenderableGameWorldObject>();
+						//Queue objects for row
+						renderQueue.startRow();
 						
-						//Add entities
-						for (Entity entity : entities) {
+						//Add entities drawn in this tile row
+						for (Entity entity : entityIndex.getEntitiesInTileRow(r + chunkY * ChunkData.SIZE)) {
 							if (!cameraViewRect.collidesWith(entity.getViewRect()))
 								continue;
 							
-							if (entity.getLocation().getChunkX() == chunkX && entity.getLocation().getChunkY() == chunkY) {
-								float y2 = entity.getRenderY();
-								if (y2 > (r - 1) * ArchipeloClient.TILE_SIZE + chunk.getPixelY() && y2 <= r * ArchipeloClient.TILE_SIZE + chunk.getPixelY()) {
-									objectsInThisTileRow.add(entity);
-								}
-							}
+							if (entity.getLocation().getChunkX() == chunkX && entity.getLocation().getChunkY() == chunkY)
+								renderQueue.addObject(entity);
 						}
 						
 						//Add particles
-						for (Particle particle : particleManager.getParticles()) {
-							if (!cameraViewRect.collidesWith(particle.getViewRect()))
-								continue;
-							
-							float y2 = particle.getRenderY();
+						for (int i = 0; i < particlesInView.size; i++) {
+							int index = particlesInView.get(i);
+							float y2 = particleManager.getRenderY(index);
 							if (y2 > (r - 1) * ArchipeloClient.TILE_SIZE + chunk.getPixelY() && y2 <= r * ArchipeloClient.TILE_SIZE + chunk.getPixelY()) {
-								objectsInThisTileRow.add(particle);
+								renderQueue.addObject(particleManager.getParticle(index));
 							}
 						}
-						
-						Collections.sort(objectsInThisTileRow, new RenderableGameWorldObjectComparator());
-						
-						//Render entities in tile row
-						for (RenderableGameWorldObject object : objectsInThisTileRow) {
-							object.renderObject(batch);
-						}
+						renderQueue.endRow();
 					}
 				}
 			}
 		}
 		
+		//Draw elements, entities and particles in one sweep
+		renderQueue.render(batch);
+		
 		if (ArchipeloClient.SHOW_COLLISION_RECTS) {
 			for (int chunkY = chunkY1; chunkY >= chunkY2; chunkY--) {
 				for (int chunkX = chunkX1; chunkX <= chunkX2; chunkX++) {
@@ -321,7 +356,7 @@ public class Map {
 						
 						for (int r = (tileRenderY1 - 1) * TileData.COLLISION_MAP_SCALE; r >= tileRenderY2 * TileData.COLLISION_MAP_SCALE; r--) {
 							for (int c = tileRenderX1 * TileData.COLLISION_MAP_SCALE; c < tileRenderX2 * TileData.COLLISION_MAP_SCALE; c++) {
-								if (chunk.getCollisionMap()[r][c]) {
+								if (chunk.getCollision(r, c)) {
 									batch.draw(ArchipeloClient.getGame().getAssetManager().getTexture("invalid"), c * ArchipeloClient.TILE_SIZE / TileData.COLLISION_MAP_SCALE + chunk.getPixelX(), r * ArchipeloClient.TILE_SIZE / TileData.COLLISION_MAP_SCALE + chunk.getPixelY(), ArchipeloClient.TILE_SIZE / TileData.COLLISION_MAP_SCALE, ArchipeloClient.TILE_SIZE / TileData.COLLISION_MAP_SCALE);
 								}
 							}
@@ -346,24 +381,25 @@ public class Map {
 		particleManager.applyChangesSnapshot(snapshot);
 	}
 	
-	public void applyFullSnapshot (ChunkData[] chunkDatas, EntityData[] entityDatas) {
-		for (int i = 0; i < chunkDatas.length; i++) {
-			ChunkData data = chunkDatas[i];
-			if (data == null)
+	public void applyFullSnapshot (Chunk[] newChunks, EntityData[] entityDatas) {
+		for (int i = 0; i < newChunks.length; i++) {
+			Chunk newChunk = newChunks[i];
+			if (newChunk == null)
 				continue;
 			
-			Chunk chunk = getChunk(data.x, data.y);
+			Chunk chunk = getChunk(newChunk.getX(), newChunk.getY());
 			if (chunk == null) {//Chunk not already loaded, so load it in using data
 				EntityData entityData = entityDatas[i];
 				
-				ChunkRow row = chunkRows.get(data.y);
+				ChunkRow row = chunkRows.get(newChunk.getY());
 				if (row == null) {//Add chunk row if it doesn't exist
-					row = new ChunkRow(data.y);
-					chunkRows.put(data.y, row);
+					row = new ChunkRow(newChunk.getY());
+					chunkRows.put(newChunk.getY(), row);
 				}
 				
-				//Load chunk and add it to row along with entities
-				row.getChunks().put(data.x, new Chunk(data, this));
+				//Add prebuilt chunk to row along with entities
+				newChunk.setMap(this);
+				row.getChunks().put(newChunk.getX(), newChunk);
 				world.addEntitiesFromChunk(entityData);
 			}
 		}
@@ -395,6 +431,7 @@ public class Map {
 			System.out.println("Map.java removing: " + chunk.getX() + "," + chunk.getY());
 			ChunkRow row = chunkRows.get(chunk.getY());
 			row.getChunks().remove(chunk.getX());
+			chunk.dispose();
 			world.unloadEntitiesInChunk(chunk);
 			
 			if (row.getChunks().isEmpty())//Remove empty rows
@@ -515,6 +552,36 @@ public class Map {
 		}*/
 	}
 	
+	/**
+	 * Builds the render caches of up to the given amount of loaded chunks that don't have one yet.
+	 * @param max
+	 */
+	private void buildRenderCaches (int max) {
+		for (ChunkRow row : chunkRows.values()) {
+			for (Chunk chunk : row.getChunks().values()) {
+				if (max == 0)
+					return;
+				
+				if (chunk.getRenderCache() == null) {
+					chunk.buildRenderCache();
+					max--;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Frees the render caches of all loaded chunks and returns particles to their pools.
+	 */
+	public void dispose () {
+		particleManager.clear();
+		for (ChunkRow row : chunkRows.values()) {
+			for (Chunk chunk : row.getChunks().values())
+				chunk.dispose();
+		}
+		chunkRows.clear();
+	}
+	
 	public Chunk getChunk(int x, int y) {
 		ChunkRow row = chunkRows.get(y);
 		if (row == null)
@@ -568,7 +635,7 @@ public class Map {
 		if (row != null) {
 			Chunk chunk = row.getChunks().get(chunkX);
 			if (chunk != null)
-				return ArchipeloClient.getGame().getMapElementManager().getTile(chunk.getTiles()[yWithinChunk][xWithinChunk]);
+				return ArchipeloClient.getGame().getMapElementManager().getTile(chunk.getTileId(yWithinChunk, xWithinChunk));
 		}
 		
 		//Chunk at location not found, return null
@@ -88,4 +88,15 @@ public abstract class MapElement {
 		return new CollisionRect(getDrawX(x), getDrawY(y), 0, 0, getDrawWidth(), getDrawHeight());
 	}
 	
+	/**
+	 * Checks if this element drawn at a position would be in a rect, without making a view rect.
+	 * @param rect
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isInRect (CollisionRect rect, float x, float y) {
+		return rect.collidesWith(getDrawX(x), getDrawY(y), getDrawWidth(), getDrawHeight());
+	}
+	
 }
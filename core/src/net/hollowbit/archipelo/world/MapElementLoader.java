@@ -3,7 +3,6 @@ package net.hollowbit.archipelo.world;
 import java.util.HashMap;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
@@ -38,7 +37,7 @@ public class MapElementLoader {
 		for (TileData data : tileList) {
 			TextureRegion[][] categoryImage = categoryImages.get(data.category);
 			if (categoryImage == null) {
-				categoryImage = TextureRegion.split(new Texture("map-elements/tiles/" + data.category + ".png"), ArchipeloClient.TILE_SIZE, ArchipeloClient.TILE_SIZE);
+				categoryImage = ArchipeloClient.getGame().getTextureAtlasCache().getRegion("map-elements/tiles/" + data.category + ".png").split(ArchipeloClient.TILE_SIZE, ArchipeloClient.TILE_SIZE);
 				categoryImages.put(data.category, categoryImage);
 			}
 			
@@ -68,7 +67,7 @@ public class MapElementLoader {
 		for (ElementData data : elementList) {
 			TextureRegion categoryImage = categoryImages.get(data.category);
 			if (categoryImage == null) {
-				categoryImage = new TextureRegion(new Texture("map-elements/elements/" + data.category + ".png"));
+				categoryImage = ArchipeloClient.getGame().getTextureAtlasCache().getRegion("map-elements/elements/" + data.category + ".png");
 				categoryImages.put(data.category, categoryImage);
 			}
 			
@@ -4,18 +4,48 @@ import java.util.HashMap;
 
 public class MapElementManager {
 	
+	public static final int NONE = -1;//Id returned for unknown or empty tiles and elements
+	
 	private HashMap<String, Tile> tileMap;
 	private HashMap<String, MapElement> elementMap;
 	
+	//Dense ids so chunks can look tiles and elements up by index rather than by string
+	private HashMap<String, Integer> tileIds;
+	private HashMap<String, Integer> elementIds;
+	private Tile[] tiles;
+	private MapElement[] elements;
+	
 	public MapElementManager () {
 		tileMap = new HashMap<String, Tile>();
 		elementMap = new HashMap<String, MapElement>();
+		tileIds = new HashMap<String, Integer>();
+		elementIds = new HashMap<String, Integer>();
+		tiles = new Tile[0];
+		elements = new MapElement[0];
 	}
 	
 	public void loadMapElements () {
 		MapElementLoader loader = new MapElementLoader();
 		tileMap = loader.loadTiles();
 		elementMap = loader.loadElements();
+		
+		tiles = new Tile[tileMap.size()];
+		tileIds = new HashMap<String, Integer>();
+		int i = 0;
+		for (java.util.Map.Entry<String, Tile> entry : tileMap.entrySet()) {
+			tiles[i] = entry.getValue();
+			tileIds.put(entry.getKey(), i);
+			i++;
+		}
+		
+		elements = new MapElement[elementMap.size()];
+		elementIds = new HashMap<String, Integer>();
+		i = 0;
+		for (java.util.Map.Entry<String, MapElement> entry : elementMap.entrySet()) {
+			elements[i] = entry.getValue();
+			elementIds.put(entry.getKey(), i);
+			i++;
+		}
 	}
 	
 	public Tile getTile (String id) {
@@ -26,4 +56,32 @@ public class MapElementManager {
 		return elementMap.get(id);
 	}
 	
+	/**
+	 * Returns the dense id of a tile, or NONE if there is no tile with this id.
+	 * @param id
+	 * @return
+	 */
+	public int getTileId (String id) {
+		Integer tileId = tileIds.get(id);
+		return tileId == null ? NONE : tileId;
+	}
+	
+	/**
+	 * Returns the dense id of an element, or NONE if there is no element with this id.
+	 * @param id
+	 * @return
+	 */
+	public int getElementId (String id) {
+		Integer elementId = elementIds.get(id);
+		return elementId == null ? NONE : elementId;
+	}
+	
+	public Tile getTile (int id) {
+		return id == NONE ? null : tiles[id];
+	}
+	
+	public MapElement getElement (int id) {
+		return id == NONE ? null : elements[id];
+	}
+	
 }
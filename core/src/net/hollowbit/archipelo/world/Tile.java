@@ -1,6 +1,7 @@
 package net.hollowbit.archipelo.world;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 
@@ -28,6 +29,22 @@ public abstract class Tile {
 	}
 	
 	public abstract void draw (SpriteBatch batch, float x, float y);
+	
+	/**
+	 * Adds this tile to a static sprite cache. Only used for tiles that aren't animated.
+	 * @param cache
+	 * @param x
+	 * @param y
+	 */
+	public abstract void addToCache (SpriteCache cache, float x, float y);
+	
+	/**
+	 * Animated tiles change every frame so they can't be put in a chunk render cache.
+	 * @return
+	 */
+	public boolean isAnimated () {
+		return false;
+	}
 
 	public String getId () {
 		return id;
@@ -10,6 +10,7 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.entity.Entity;
+import net.hollowbit.archipelo.entity.EntityAudioManager;
 import net.hollowbit.archipelo.entity.EntityType;
 import net.hollowbit.archipelo.entity.living.CurrentPlayer;
 import net.hollowbit.archipelo.entity.living.Player;
@@ -25,7 +26,6 @@ import net.hollowbit.archipelo.screen.screens.gamescreen.popup.MapTagPopupText;
 import net.hollowbit.archipelo.tools.FlagsManager;
 import net.hollowbit.archipelo.tools.StaticTools;
 import net.hollowbit.archipelo.world.map.Chunk;
-import net.hollowbit.archipeloshared.ChunkData;
 import net.hollowbit.archipeloshared.CollisionRect;
 import net.hollowbit.archipeloshared.Direction;
 import net.hollowbit.archipeloshared.EntityData;
@@ -43,9 +43,11 @@ public class World implements PacketHandler {
 	
 	private float time;
 	private HashMap<String, Entity> entities;
+	private EntitySpatialIndex entityIndex;
+	private ArrayList<Entity> collisionQuery;//Reused by collision checks
 	private Map map;
 	private MapSnapshot nextMapSnapshot;
-	private ChunkData[] nextChunkData;
+	private Chunk[] nextChunks;
 	private EntityData[] nextEntityData;
 	private TeleportPacket teleportPacket;
 	private CurrentPlayer player;
@@ -58,13 +60,15 @@ public class World implements PacketHandler {
 	public World (GameScreen gameScreen) {
 		this.gameScreen = gameScreen;
 		entities = new HashMap<String, Entity>();
+		entityIndex = new EntitySpatialIndex();
+		collisionQuery = new ArrayList<Entity>();
 		nextMapSnapshot = null;
 		time = 0;
 		fadeTimer = 0;
 		firstTimeLoading = true;
 		fadeColor = getFadeColor(FADE_COLOR_BLACK);
 		flagsManager = new FlagsManager();
-		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this);
+		ArchipeloClient.getGame().getNetworkManager().addPacketHandler(this, PacketType.ENTITY_ADD, PacketType.ENTITY_REMOVE, PacketType.TELEPORT);
 	}
 	
 	public void update (float deltaTime) {
@@ -74,6 +78,7 @@ public class World implements PacketHandler {
 		for (Entity entity : cloneEntitiesList()) {
 			entity.update(deltaTime);
 		}
+		EntityAudioManager.updateAll(deltaTime);
 		
 		//Fade map in
 		if (fadeTimer < 0) {
@@ -114,6 +119,8 @@ public class World implements PacketHandler {
 	 * Properly dispose of game world
 	 */
 	public void dispose () {
+		if (map != null)
+			map.dispose();
 		for (Entity entity : entities.values())
 			entity.unload();
 		this.flagsManager.dispose();
@@ -145,29 +152,15 @@ public class World implements PacketHandler {
 		if (teleportPacket != null)//Don't bother apply interp if client is teleporting
 			return;
 		
-		HashMap<String, EntitySnapshot> snapshots1 = new HashMap<String, EntitySnapshot>();
-		HashMap<String, EntitySnapshot> snapshots2 = new HashMap<String, EntitySnapshot>();
-		
-		for (EntityData data : snapshot1.entities) {
-			if (data != null) {
-				for (EntitySnapshot es : data.entities)
-					snapshots1.put(es.name, es);
-			}
-		}
-		
-		for (EntityData data : snapshot2.entities) {
-			if (data != null) {
-				for (EntitySnapshot es : data.entities)
-					snapshots2.put(es.name, es);
-			}
-		}
-		
-		for (Entity entity : cloneEntitiesList()) {
-			EntitySnapshot entitySnapshot1 = snapshots1.get(entity.getName());
-			EntitySnapshot entitySnapshot2 = snapshots2.get(entity.getName());
+		//Snapshots index their entities when they arrive, and interpolating doesn't add or remove entities so no copy is needed
+		for (Entity entity : entities.values()) {
+			EntitySnapshot entitySnapshot1 = snapshot1.getEntitySnapshot(entity.getName());
+			EntitySnapshot entitySnapshot2 = snapshot2.getEntitySnapshot(entity.getName());
 			
-			if (entitySnapshot1 != null && entitySnapshot2 != null)
+			if (entitySnapshot1 != null && entitySnapshot2 != null) {
 				entity.interpolate(timeStamp, entitySnapshot1, entitySnapshot2, fraction);
+				entityIndex.update(entity);//Interpolation doesn't call moved() for movements under a pixel
+			}
 		}
 	}
 	
@@ -213,7 +206,7 @@ public class World implements PacketHandler {
 		if (useFadeAnimation) {
 			this.fadeColor = getFadeColor(snapshot.mapSnapshot.getInt("fade-color", FADE_COLOR_BLACK));
 			this.nextMapSnapshot = snapshot.mapSnapshot;
-			this.nextChunkData = snapshot.chunks;
+			this.nextChunks = snapshot.chunks;
 			this.nextEntityData = snapshot.entities;
 			
 			if (firstTimeLoading)
@@ -226,17 +219,20 @@ public class World implements PacketHandler {
 	}
 	
 	private synchronized void loadMap () {
-		map = new Map(nextMapSnapshot, nextChunkData, this);
+		if (map != null)
+			map.dispose();
+		map = new Map(nextMapSnapshot, nextChunks, this);
 		for (Entity entity : entities.values())
 			entity.unload();
 		entities.clear();
+		entityIndex.clear();
 		
 		for (EntityData data : nextEntityData) {
 			if (data != null)
 				addEntitiesFromChunk(data);
 		}
 		nextMapSnapshot = null;
-		nextChunkData = null;
+		nextChunks = null;
 		nextEntityData = null;
 	}
 	
@@ -268,12 +264,13 @@ public class World implements PacketHandler {
 			} else
 				entity = EntityType.createEntityBySnapshot(entitySnapshot, map);
 			entity.load();
-			entities.put(entity.getName(), entity);
+			addEntity(entity);
 		}
 	}
 	
 	public synchronized void removeAllEntities(ArrayList<Entity> entitiesToRemove) {
-		entities.remove(entitiesToRemove);
+		for (Entity entity : entitiesToRemove)
+			removeEntity(entity);
 	}
 	
 	public CurrentPlayer getPlayer () {
@@ -302,6 +299,18 @@ public class World implements PacketHandler {
 		return flagsManager;
 	}
 	
+	public EntitySpatialIndex getEntityIndex () {
+		return entityIndex;
+	}
+	
+	/**
+	 * Called by entities whenever they move so they stay in the right place in the spatial index.
+	 * @param entity
+	 */
+	public void entityMoved (Entity entity) {
+		entityIndex.update(entity);
+	}
+	
 	/**
 	 * Checks if rect collides with entities
 	 * @param rect
@@ -309,8 +318,10 @@ public class World implements PacketHandler {
 	 */
 	public boolean collidesWithWorld (CollisionRect rect, Entity testEntity) {
 		boolean isPlayer = testEntity instanceof Player;
-		//Check collisions with entities
-		for (Entity entity : entities.values()) {
+		//Check collisions with entities near the rect
+		entityIndex.getEntitiesInRect(rect, collisionQuery);
+		for (int i = 0; i < collisionQuery.size(); i++) {
+			Entity entity = collisionQuery.get(i);
 			if (entity == testEntity)
 				continue;
 			
@@ -337,10 +348,12 @@ public class World implements PacketHandler {
 	
 	private synchronized void addEntity(Entity entity) {
 		entities.put(entity.getName(), entity);
+		entityIndex.add(entity);
 	}
 	
 	private synchronized void removeEntity(Entity entity) {
 		entities.remove(entity.getName());
+		entityIndex.remove(entity);
 	}
 
 	@Override
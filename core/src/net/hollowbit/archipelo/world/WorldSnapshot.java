@@ -1,7 +1,11 @@
 package net.hollowbit.archipelo.world;
 
-import net.hollowbit.archipeloshared.ChunkData;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.hollowbit.archipelo.world.map.Chunk;
 import net.hollowbit.archipeloshared.EntityData;
+import net.hollowbit.archipeloshared.EntitySnapshot;
 import net.hollowbit.archipeloshared.MapSnapshot;
 
 public class WorldSnapshot {
@@ -11,14 +15,16 @@ public class WorldSnapshot {
 	public static final int TYPE_FULL = 2;
 	
 	public double timeCreatedMillis;
+	public int sequence = -1;
 	public boolean newMap;
 	public int time;
-	int type;
-	public ChunkData[] chunks;
+	public int type;
+	public Chunk[] chunks;
 	public MapSnapshot mapSnapshot;
 	public EntityData[] entities;
+	private HashMap<String, EntitySnapshot> entitySnapshots;//Entity snapshots of all chunks by entity name
 	
-	public WorldSnapshot (double timeCreatedMillis, boolean newMap, int time, int type, ChunkData[] chunks, MapSnapshot mapSnapshot, EntityData[] entities) {
+	public WorldSnapshot (double timeCreatedMillis, boolean newMap, int time, int type, Chunk[] chunks, MapSnapshot mapSnapshot, EntityData[] entities) {
 		this.timeCreatedMillis = timeCreatedMillis;
 		this.newMap = newMap;
 		this.time = time;
@@ -26,6 +32,30 @@ public class WorldSnapshot {
 		this.chunks = chunks;
 		this.mapSnapshot = mapSnapshot;
 		this.entities = entities;
+		
+		//Index and decode entities once on arrival so interpolation can look them up by name every frame without parsing
+		this.entitySnapshots = new HashMap<String, EntitySnapshot>();
+		for (EntityData data : entities) {
+			if (data != null) {
+				for (EntitySnapshot entitySnapshot : data.entities) {
+					entitySnapshot.decodeProperties();
+					entitySnapshots.put(entitySnapshot.name, entitySnapshot);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the snapshot of the entity with the given name or null if it isn't in this world snapshot.
+	 * @param name
+	 * @return
+	 */
+	public EntitySnapshot getEntitySnapshot (String name) {
+		return entitySnapshots.get(name);
+	}
+	
+	public Map<String, EntitySnapshot> getEntitySnapshots () {
+		return entitySnapshots;
 	}
 	
 }
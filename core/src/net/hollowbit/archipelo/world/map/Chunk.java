@@ -2,34 +2,51 @@ package net.hollowbit.archipelo.world.map;
 
 import net.hollowbit.archipelo.ArchipeloClient;
 import net.hollowbit.archipelo.world.Map;
+import net.hollowbit.archipelo.world.MapElementManager;
 import net.hollowbit.archipeloshared.ChunkData;
-import net.hollowbit.archipeloshared.TileData;
+import net.hollowbit.archipeloshared.ChunkDataCodec;
 
 public class Chunk {
 	
 	private int x, y;
-	private String[][] tiles;
-	private String[][] elements;
-	private boolean[][] collisionMap;
+	
+	//Tiles and elements are stored as row-major indices into a per chunk palette of dense MapElementManager ids
+	private int[] tilePalette;
+	private short[] tiles;
+	private int[] elementPalette;
+	private short[] elements;
+	private long[] collisionBits;//Row-major, ChunkData.COLLISION_SIZE squared bits
+	private ChunkRenderCache renderCache;
 	private Map map;
 	
-	public Chunk(ChunkData data, Map map) {
+	/**
+	 * Builds a chunk that isn't part of a map yet. Doesn't touch any GL resources, so it is safe to call off the render thread.
+	 * @param data
+	 */
+	public Chunk(ChunkData data) {
 		this.x = data.x;
 		this.y = data.y;
-		this.tiles = data.tiles;
-		this.elements = data.elements;
 		
-		//Deserialize collision data
-		char[] bytes = data.collisionData.toCharArray();
-		this.collisionMap = new boolean[ChunkData.SIZE * TileData.COLLISION_MAP_SCALE][ChunkData.SIZE * TileData.COLLISION_MAP_SCALE];
-		int i = 0;
-        for (int r = 0; r < collisionMap.length; r++) {
-            for (int c = 0; c < collisionMap[0].length; c++) {
-            	collisionMap[r][c] = bytes[i] == '1';
-            	i++;
-            }
-        }
+		if (!data.isPaletteForm())
+			ChunkDataCodec.toPaletteForm(data);
+		
+		//Resolve palette strings to dense ids once so no string lookups are needed afterwards
+		MapElementManager mapElementManager = ArchipeloClient.getGame().getMapElementManager();
+		this.tilePalette = new int[data.tilePalette.length];
+		for (int i = 0; i < tilePalette.length; i++)
+			tilePalette[i] = mapElementManager.getTileId(data.tilePalette[i]);
 		
+		this.elementPalette = new int[data.elementPalette.length];
+		for (int i = 0; i < elementPalette.length; i++)
+			elementPalette[i] = mapElementManager.getElementId(data.elementPalette[i]);
+		
+		this.tiles = data.tileIndices;
+		this.elements = data.elementIndices;
+		this.collisionBits = data.collisionBits;
+	}
+	
+	public Chunk(ChunkData data, Map map) {
+		this(data);
 		this.map = map;
 	}
 	
@@ -53,16 +70,64 @@ public class Chunk {
 		return map;
 	}
 	
-	public boolean[][] getCollisionMap() {
-		return collisionMap;
+	public void setMap(Map map) {
+		this.map = map;
 	}
-
-	public String[][] getTiles() {
-		return tiles;
+	
+	/**
+	 * Returns whether the collision map is solid at the given collision row and column.
+	 * @param r
+	 * @param c
+	 * @return
+	 */
+	public boolean getCollision(int r, int c) {
+		return ChunkDataCodec.getCollision(collisionBits, r, c);
 	}
-
-	public String[][] getElements() {
-		return elements;
+	
+	/**
+	 * Dense MapElementManager id of the tile at the given row and column, or MapElementManager.NONE.
+	 * @param r
+	 * @param c
+	 * @return
+	 */
+	public int getTileId(int r, int c) {
+		return tilePalette[tiles[r * ChunkData.SIZE + c] & 0xFFFF];
+	}
+	
+	/**
+	 * Dense MapElementManager id of the element at the given row and column, or MapElementManager.NONE.
+	 * @param r
+	 * @param c
+	 * @return
+	 */
+	public int getElementId(int r, int c) {
+		return elementPalette[elements[r * ChunkData.SIZE + c] & 0xFFFF];
+	}
+	
+	/**
+	 * Builds the render cache of this chunk if it isn't built yet. Must only be called on the render thread.
+	 */
+	public void buildRenderCache() {
+		if (renderCache == null)
+			renderCache = new ChunkRenderCache(this);
+	}
+	
+	/**
+	 * Render cache of this chunk, or null if it wasn't built yet.
+	 * @return
+	 */
+	public ChunkRenderCache getRenderCache() {
+		return renderCache;
+	}
+	
+	/**
+	 * Frees the render cache of this chunk. Must be called when it is unloaded.
+	 */
+	public void dispose() {
+		if (renderCache != null) {
+			renderCache.dispose();
+			renderCache = null;
+		}
 	}
 	
 }
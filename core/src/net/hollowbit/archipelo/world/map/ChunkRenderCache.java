@@ -0,0 +1,157 @@
+package net.hollowbit.archipelo.world.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import net.hollowbit.archipelo.ArchipeloClient;
+import net.hollowbit.archipelo.world.MapElementManager;
+import net.hollowbit.archipelo.world.Tile;
+import net.hollowbit.archipeloshared.ChunkData;
+
+/**
+ * Static geometry for the ground layer of a chunk. Tiles never change once a chunk is loaded, so they are
+ * uploaded once into a SpriteCache split into square blocks, and only blocks in view are drawn each frame.
+ * Animated tiles can't be cached so they are kept in per block lists and drawn with the sprite batch on top.
+ * @author vedi0boy
+ *
+ */
+public class ChunkRenderCache implements Disposable {
+	
+	public static final int BLOCK_SIZE = 32;//In tiles, must divide ChunkData.SIZE
+	public static final int BLOCKS_WIDE = ChunkData.SIZE / BLOCK_SIZE;
+	
+	private Chunk chunk;
+	private SpriteCache cache;
+	private int[][] cacheIds;
+	private int[][][] animatedTiles;//Row-major tile positions of animated tiles in each block
+	
+	public ChunkRenderCache (Chunk chunk) {
+		this.chunk = chunk;
+		this.cacheIds = new int[BLOCKS_WIDE][BLOCKS_WIDE];
+		this.animatedTiles = new int[BLOCKS_WIDE][BLOCKS_WIDE][];
+		MapElementManager mapElementManager = ArchipeloClient.getGame().getMapElementManager();
+		
+		//Count static tiles first so the cache is only as big as it needs to be
+		int staticTiles = 0;
+		for (int r = 0; r < ChunkData.SIZE; r++) {
+			for (int c = 0; c < ChunkData.SIZE; c++) {
+				Tile tile = mapElementManager.getTile(chunk.getTileId(r, c));
+				if (tile != null && !tile.isAnimated())
+					staticTiles++;
+			}
+		}
+		
+		if (staticTiles > 0)
+			cache = new SpriteCache(staticTiles, false);//Indices can't address a full chunk
+		
+		IntArray animated = new IntArray();
+		for (int blockR = 0; blockR < BLOCKS_WIDE; blockR++) {
+			for (int blockC = 0; blockC < BLOCKS_WIDE; blockC++) {
+				if (cache != null)
+					cache.beginCache();
+				
+				animated.clear();
+				for (int r = blockR * BLOCK_SIZE; r < (blockR + 1) * BLOCK_SIZE; r++) {
+					float y = r * ArchipeloClient.TILE_SIZE + chunk.getPixelY();
+					for (int c = blockC * BLOCK_SIZE; c < (blockC + 1) * BLOCK_SIZE; c++) {
+						Tile tile = mapElementManager.getTile(chunk.getTileId(r, c));
+						if (tile == null)
+							continue;
+						
+						if (tile.isAnimated())
+							animated.add(r * ChunkData.SIZE + c);
+						else
+							tile.addToCache(cache, c * ArchipeloClient.TILE_SIZE + chunk.getPixelX(), y);
+					}
+				}
+				
+				if (cache != null)
+					cacheIds[blockR][blockC] = cache.endCache();
+				animatedTiles[blockR][blockC] = animated.toArray();
+			}
+		}
+	}
+	
+	/**
+	 * Ends the batch so static tiles can be drawn, SpriteCache can't be used while the batch is drawing.
+	 * Call once before drawing the static tiles of all chunks in view, then {@link #endStatic(SpriteBatch)}.
+	 * @param batch
+	 */
+	public static void beginStatic (SpriteBatch batch) {
+		batch.end();
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+	}
+	
+	/**
+	 * Starts the batch again after static tiles were drawn.
+	 * @param batch
+	 */
+	public static void endStatic (SpriteBatch batch) {
+		batch.begin();
+	}
+	
+	/**
+	 * Draws the static tiles within the given tile limits of this chunk. Must be between {@link #beginStatic(SpriteBatch)} and {@link #endStatic(SpriteBatch)}.
+	 * @param batch Batch to take the projection from
+	 * @param shader Shader to draw with, or null for the default one
+	 * @param r1 Lowest tile row, inclusive
+	 * @param r2 Highest tile row, exclusive
+	 * @param c1 Lowest tile column, inclusive
+	 * @param c2 Highest tile column, exclusive
+	 */
+	public void renderStatic (SpriteBatch batch, ShaderProgram shader, int r1, int r2, int c1, int c2) {
+		if (cache == null || r1 >= r2 || c1 >= c2)
+			return;
+		
+		cache.setShader(shader);
+		cache.setProjectionMatrix(batch.getProjectionMatrix());
+		cache.begin();
+		for (int blockR = r1 / BLOCK_SIZE; blockR <= (r2 - 1) / BLOCK_SIZE; blockR++) {
+			for (int blockC = c1 / BLOCK_SIZE; blockC <= (c2 - 1) / BLOCK_SIZE; blockC++)
+				cache.draw(cacheIds[blockR][blockC]);
+		}
+		cache.end();
+	}
+	
+	/**
+	 * Draws the animated tiles within the given tile limits of this chunk on top of the static ones. The batch must be drawing.
+	 * @param batch
+	 * @param r1 Lowest tile row, inclusive
+	 * @param r2 Highest tile row, exclusive
+	 * @param c1 Lowest tile column, inclusive
+	 * @param c2 Highest tile column, exclusive
+	 */
+	public void renderAnimated (SpriteBatch batch, int r1, int r2, int c1, int c2) {
+		if (r1 >= r2 || c1 >= c2)
+			return;
+		
+		MapElementManager mapElementManager = ArchipeloClient.getGame().getMapElementManager();
+		for (int blockR = r1 / BLOCK_SIZE; blockR <= (r2 - 1) / BLOCK_SIZE; blockR++) {
+			for (int blockC = c1 / BLOCK_SIZE; blockC <= (c2 - 1) / BLOCK_SIZE; blockC++) {
+				for (int position : animatedTiles[blockR][blockC]) {
+					int r = position / ChunkData.SIZE;
+					int c = position % ChunkData.SIZE;
+					if (r < r1 || r >= r2 || c < c1 || c >= c2)
+						continue;
+					
+					mapElementManager.getTile(chunk.getTileId(r, c)).draw(batch, c * ArchipeloClient.TILE_SIZE + chunk.getPixelX(), r * ArchipeloClient.TILE_SIZE + chunk.getPixelY());
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void dispose () {
+		if (cache != null) {
+			cache.dispose();
+			cache = null;
+		}
+	}
+	
+}
@@ -2,6 +2,7 @@ package net.hollowbit.archipelo.world.tiles;
 
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import net.hollowbit.archipelo.ArchipeloClient;
@@ -27,5 +28,15 @@ public class AnimatedTile extends Tile {
 	public void draw(SpriteBatch batch, float x, float y) {
 		batch.draw(animation.getKeyFrame(ArchipeloClient.STATE_TIME, true), getDrawX(x), getDrawY(y), getOriginX(), getOriginY(), getDrawWidth(), getDrawHeight(), 1, 1, rotation * 90);
 	}
+	
+	@Override
+	public void addToCache (SpriteCache cache, float x, float y) {//Only the first frame can be cached
+		cache.add(animation.getKeyFrame(0), getDrawX(x), getDrawY(y), getOriginX(), getOriginY(), getDrawWidth(), getDrawHeight(), 1, 1, rotation * 90);
+	}
+	
+	@Override
+	public boolean isAnimated () {
+		return true;
+	}
 
 }
@@ -1,6 +1,7 @@
 package net.hollowbit.archipelo.world.tiles;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import net.hollowbit.archipelo.world.Tile;
@@ -19,4 +20,9 @@ public class PlainTile extends Tile {
 		batch.draw(image, getDrawX(x), getDrawY(y), getOriginX(), getOriginY(), getDrawWidth(), getDrawHeight(), 1, 1, rotation * 90);
 	}
 	
+	@Override
+	public void addToCache (SpriteCache cache, float x, float y) {
+		cache.add(image, getDrawX(x), getDrawY(y), getOriginX(), getOriginY(), getDrawWidth(), getDrawHeight(), 1, 1, rotation * 90);
+	}
+	
 }
@@ -0,0 +1,61 @@
+package net.hollowbit.archipelo.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the volume, pan and pitch of sounds from their offset to the player, without a world to take the player from.
+ * @author vedi0boy
+ *
+ */
+public class SoundCalculatorTest {
+	
+	private static final float DELTA = 0.0001f;
+	
+	@Test
+	public void playsNearbySoundsAtFullVolume () {
+		assertEquals(1, SoundCalculator.calculateVolumeAtDistanceSquared(0), DELTA);
+		assertEquals(1, SoundCalculator.calculateVolumeAtDistanceSquared(3), DELTA);
+		assertEquals(1, SoundCalculator.calculateVolumeAtDistanceSquared(4), DELTA);
+	}
+	
+	@Test
+	public void lowersVolumeWithExactDistance () {
+		assertEquals(0.2f, SoundCalculator.calculateVolumeAtDistanceSquared(100), DELTA);
+		assertEquals(2 / (float) Math.sqrt(50), SoundCalculator.calculateVolumeAtDistanceSquared(50), DELTA);
+		
+		//Farther sounds are always quieter
+		float last = 1;
+		for (int distanceSquared = 4; distanceSquared <= SoundCalculator.HEARING_DISTANCE_SQUARED; distanceSquared++) {
+			float volume = SoundCalculator.calculateVolumeAtDistanceSquared(distanceSquared);
+			assertTrue("distance squared " + distanceSquared, volume <= last);
+			last = volume;
+		}
+	}
+	
+	@Test
+	public void mutesSoundsOutOfHearingRange () {
+		assertEquals(0.04f, SoundCalculator.calculateVolumeAtDistanceSquared(SoundCalculator.HEARING_DISTANCE_SQUARED), DELTA);
+		assertEquals(0, SoundCalculator.calculateVolumeAtDistanceSquared(SoundCalculator.HEARING_DISTANCE_SQUARED + 1), DELTA);
+	}
+	
+	@Test
+	public void pansBySideOfPlayer () {
+		assertEquals(0, SoundCalculator.calculatePanAtOffset(0), DELTA);
+		assertEquals(0.5f, SoundCalculator.calculatePanAtOffset(SoundCalculator.HEARING_DISTANCE / 2), DELTA);
+		assertEquals(-0.5f, SoundCalculator.calculatePanAtOffset(-SoundCalculator.HEARING_DISTANCE / 2), DELTA);
+		assertEquals(1, SoundCalculator.calculatePanAtOffset(SoundCalculator.HEARING_DISTANCE), DELTA);
+		assertEquals(1, SoundCalculator.calculatePanAtOffset(SoundCalculator.HEARING_DISTANCE * 3), DELTA);
+		assertEquals(-1, SoundCalculator.calculatePanAtOffset(-SoundCalculator.HEARING_DISTANCE * 3), DELTA);
+	}
+	
+	@Test
+	public void raisesPitchWithSpeed () {
+		assertEquals(1, SoundCalculator.calculatePitch(1, 1), DELTA);
+		assertEquals(1.05f, SoundCalculator.calculatePitch(1, 2), DELTA);
+		assertEquals(1, SoundCalculator.calculatePitch(0, 5), DELTA);
+	}
+	
+}
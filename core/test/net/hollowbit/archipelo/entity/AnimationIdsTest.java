@@ -0,0 +1,45 @@
+package net.hollowbit.archipelo.entity;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks that animation names keep the ids the item frames are indexed by, and that new names get ids of their own.
+ * @author vedi0boy
+ *
+ */
+public class AnimationIdsTest {
+	
+	@Test
+	public void registersItemAnimationsInOrder () {
+		assertEquals(AnimationIds.DEFAULT, AnimationIds.getId("default"));
+		assertEquals(AnimationIds.WALK, AnimationIds.getId("walk"));
+		assertEquals(AnimationIds.SPRINT, AnimationIds.getId("sprint"));
+		assertEquals(AnimationIds.ROLL, AnimationIds.getId("roll"));
+		assertEquals(AnimationIds.USE, AnimationIds.getId("use"));
+		assertEquals(AnimationIds.USEWALK, AnimationIds.getId("usewalk"));
+		assertEquals(AnimationIds.THRUST, AnimationIds.getId("thrust"));
+		assertEquals("usewalk", AnimationIds.getName(AnimationIds.USEWALK));
+	}
+	
+	@Test
+	public void givesNewNamesNewIds () {
+		int count = AnimationIds.getIdCount();
+		int id = AnimationIds.getId("animation-ids-test");
+		assertEquals(count, id);
+		assertEquals(count + 1, AnimationIds.getIdCount());
+		assertEquals(id, AnimationIds.getId("animation-ids-test"));
+		assertEquals(count + 1, AnimationIds.getIdCount());
+		assertEquals("animation-ids-test", AnimationIds.getName(id));
+	}
+	
+	@Test
+	public void findDoesNotRegister () {
+		int count = AnimationIds.getIdCount();
+		assertEquals(-1, AnimationIds.findId("animation-ids-test-missing"));
+		assertEquals(count, AnimationIds.getIdCount());
+		assertEquals(AnimationIds.ROLL, AnimationIds.findId("roll"));
+	}
+	
+}
@@ -0,0 +1,214 @@
+package net.hollowbit.archipelo.entity.living.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.hollowbit.archipelo.tools.ControlsManager;
+
+/**
+ * Checks the movement log ring, and replays a client predicting against a server at different round trip times,
+ * reconciling with the same {@link MovementLog#reconcile} CurrentPlayer uses, for long enough that step ids wrap around the log many times.
+ * @author vedi0boy
+ *
+ */
+public class MovementLogTest {
+	
+	private static final int STEPS = 5000;
+	private static final int KNOCKBACK_INTERVAL = 200;//Steps between moves the client can't predict
+	private static final float KNOCKBACK = 5;
+	private static final float SPEED = 60;
+	private static final float CORRECTION_TOLERANCE = 0.5f;
+	
+	@Test
+	public void dropsOldestStepsWhenFull () {
+		MovementLog log = new MovementLog();
+		int count = MovementLog.CAPACITY * 3 + 5;
+		for (int id = 0; id < count; id++)
+			log.add(id, id & 0xFF, id, -id);
+		
+		assertEquals(MovementLog.CAPACITY, log.size());
+		assertEquals(count - MovementLog.CAPACITY, log.getFirstId());
+		assertFalse(log.contains(log.getFirstId() - 1));
+		assertFalse(log.contains(count));
+		for (int id = log.getFirstId(); id < count; id++) {
+			assertTrue(log.contains(id));
+			assertEquals(id & 0xFF, log.getControls(id));
+			assertEquals(id, log.getX(id), 0);
+			assertEquals(-id, log.getY(id), 0);
+		}
+	}
+	
+	@Test
+	public void keepsStepsAcrossIntegerOverflow () {
+		MovementLog log = new MovementLog();
+		int firstId = Integer.MAX_VALUE - 10;
+		for (int i = 0; i < 20; i++)
+			log.add(firstId + i, i, i, i);
+		
+		assertEquals(20, log.size());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(log.contains(firstId + i));
+			assertEquals(i, log.getControls(firstId + i));
+		}
+		
+		log.removeCommandsOlderThan(Integer.MIN_VALUE + 2);//14th step
+		assertEquals(Integer.MIN_VALUE + 3, log.getFirstId());
+		assertEquals(6, log.size());
+	}
+	
+	@Test
+	public void removesAndClears () {
+		MovementLog log = new MovementLog();
+		for (int id = 10; id < 20; id++)
+			log.add(id, 0, 0, 0);
+		
+		log.removeCommandsOlderThan(5);//Older than everything logged, nothing to remove
+		assertEquals(10, log.size());
+		log.removeCommandsOlderThan(14);
+		assertEquals(15, log.getFirstId());
+		assertEquals(5, log.size());
+		log.removeCommandsOlderThan(30);
+		assertEquals(0, log.size());
+		
+		log.add(40, 0, 0, 0);
+		log.add(42, 0, 0, 0);//Gap in ids, the log starts over
+		assertEquals(42, log.getFirstId());
+		assertEquals(1, log.size());
+	}
+	
+	@Test
+	public void reconcilesAt100MsRoundTrip () {
+		replay(0.1f, 0);
+	}
+	
+	@Test
+	public void reconcilesAt250MsRoundTrip () {
+		replay(0.25f, 1000);
+	}
+	
+	@Test
+	public void reconcilesAt500MsRoundTrip () {
+		replay(0.5f, Integer.MAX_VALUE - 1000);
+	}
+	
+	/**
+	 * Runs a client and a server in lockstep. Inputs and corrections each take half the round trip to arrive.
+	 * The server sometimes knocks the player back, which the client can't predict, and each knockback must be fixed by exactly one correction.
+	 * @param roundTrip Seconds
+	 * @param firstId Id of the first step
+	 */
+	private void replay (float roundTrip, int firstId) {
+		int delay = Math.round(roundTrip / 2 / ControlsManager.UPDATE_RATE);
+		Random random = new Random(firstId);
+		
+		MovementLog log = new MovementLog();
+		final float[] clientPos = new float[2];
+		float[] serverPos = new float[2];
+		MovementLog.Simulation simulation = new MovementLog.Simulation() {
+			
+			@Override
+			public void moveTo (float x, float y) {
+				clientPos[0] = x;
+				clientPos[1] = y;
+			}
+			
+			@Override
+			public void step (int controls) {
+				move(clientPos, controls);
+			}
+			
+			@Override
+			public float getX () {
+				return clientPos[0];
+			}
+			
+			@Override
+			public float getY () {
+				return clientPos[1];
+			}
+			
+		};
+		LinkedList<Message> inputs = new LinkedList<Message>();
+		LinkedList<Message> corrections = new LinkedList<Message>();
+		int controls = 0;
+		int knockbacks = 0;
+		int corrected = 0;
+		
+		for (int step = 0; step < STEPS + delay * 2 + 1; step++) {
+			int id = firstId + step;
+			
+			//Client predicts a step, then stops moving at the end so the server can catch up
+			if (step < STEPS) {
+				if (random.nextInt(10) == 0)
+					controls = random.nextInt(16);//Any of up, left, down and right
+				move(clientPos, controls);
+				log.add(id, controls, clientPos[0], clientPos[1]);
+				inputs.add(new Message(id, controls, clientPos, step + delay));
+			}
+			
+			//Server applies arrived inputs and answers with where it ended up
+			while (!inputs.isEmpty() && inputs.getFirst().arrival <= step) {
+				Message input = inputs.removeFirst();
+				move(serverPos, input.controls);
+				if ((input.id - firstId) % KNOCKBACK_INTERVAL == KNOCKBACK_INTERVAL / 2) {
+					serverPos[0] += KNOCKBACK;
+					knockbacks++;
+				}
+				corrections.add(new Message(input.id, 0, serverPos, step + delay));
+			}
+			
+			//Client reconciles with arrived corrections
+			while (!corrections.isEmpty() && corrections.getFirst().arrival <= step) {
+				Message correction = corrections.removeFirst();
+				assertTrue("Correction for a step no longer logged", log.contains(correction.id));
+				if (log.reconcile(correction.id, correction.x, correction.y, CORRECTION_TOLERANCE, simulation) > 0)
+					corrected++;
+			}
+		}
+		
+		assertEquals(STEPS / KNOCKBACK_INTERVAL, knockbacks);
+		assertEquals(knockbacks, corrected);
+		assertEquals(0, log.size());
+		assertEquals(serverPos[0], clientPos[0], 0);
+		assertEquals(serverPos[1], clientPos[1], 0);
+	}
+	
+	private static void move (float[] pos, int controls) {
+		float distance = SPEED * ControlsManager.UPDATE_RATE;
+		if ((controls & 1) != 0)
+			pos[1] += distance;
+		if ((controls & 2) != 0)
+			pos[0] -= distance;
+		if ((controls & 4) != 0)
+			pos[1] -= distance;
+		if ((controls & 8) != 0)
+			pos[0] += distance;
+	}
+	
+	/**
+	 * Inputs sent to the server, or corrections sent back.
+	 */
+	private static class Message {
+		
+		int id;
+		int controls;
+		float x, y;
+		int arrival;//Step it arrives at
+		
+		Message (int id, int controls, float[] pos, int arrival) {
+			this.id = id;
+			this.controls = controls;
+			this.x = pos[0];
+			this.y = pos[1];
+			this.arrival = arrival;
+		}
+		
+	}
+	
+}
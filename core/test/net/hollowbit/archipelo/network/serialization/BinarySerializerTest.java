@@ -0,0 +1,242 @@
+package net.hollowbit.archipelo.network.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+
+import net.hollowbit.archipelo.network.Packet;
+import net.hollowbit.archipelo.network.PacketType;
+
+/**
+ * Round trips every registered packet type through the binary serializer, once with every field filled in and once as constructed.
+ * @author vedi0boy
+ *
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class BinarySerializerTest {
+	
+	private static final int TEST_PACKET_TYPE = 1000;
+	private static final int MAX_DEPTH = 4;
+	
+	private int counter = 0;
+	
+	@BeforeClass
+	public static void setUpFiles () {
+		Gdx.files = new HeadlessFiles();//Some packets use item types, which load their data from the assets
+	}
+	
+	@Test
+	public void roundTripsFilledPackets () throws Exception {
+		BinarySerializer serializer = new BinarySerializer();
+		for (Map.Entry<Integer, Class<Packet>> entry : PacketType.getRegisteredPackets().entrySet()) {
+			Packet packet = newInstance(entry.getValue());
+			fillFields(packet, 0);
+			packet.packetType = entry.getKey();
+			assertRoundTrips(serializer, packet);
+		}
+	}
+	
+	@Test
+	public void roundTripsEmptyPackets () throws Exception {
+		BinarySerializer serializer = new BinarySerializer();
+		for (Class<Packet> packetClass : PacketType.getRegisteredPackets().values())
+			assertRoundTrips(serializer, newInstance(packetClass));
+	}
+	
+	@Test
+	public void writesNullMarkersForBoxedAndStringValues () throws Exception {
+		PacketType.getRegisteredPackets().put(TEST_PACKET_TYPE, (Class) NullablePacket.class);
+		try {
+			BinarySerializer serializer = new BinarySerializer();
+			NullablePacket packet = new NullablePacket();
+			packet.list = new ArrayList<Integer>();
+			packet.list.add(null);
+			packet.list.add(5);
+			packet.map = new HashMap<String, Float>();
+			packet.map.put("a", null);
+			packet.map.put("b", 2.5f);
+			packet.strings = new String[] {null, "c"};
+			
+			NullablePacket result = (NullablePacket) serializer.deserialize(serializer.serialize(packet));
+			assertNull(result.boxedInt);
+			assertNull(result.boxedFloat);
+			assertNull(result.boxedBoolean);
+			assertNull(result.string);
+			assertDeepEquals("packet", packet, result);
+			
+			packet.boxedInt = -7;
+			packet.boxedFloat = 1.5f;
+			packet.boxedBoolean = true;
+			packet.string = "d";
+			assertRoundTrips(serializer, packet);
+		} finally {
+			PacketType.getRegisteredPackets().remove(TEST_PACKET_TYPE);
+		}
+	}
+	
+	private void assertRoundTrips (BinarySerializer serializer, Packet packet) throws Exception {
+		byte[] data = serializer.serialize(packet);
+		assertTrue(BinarySerializer.isBinary(data));
+		
+		Packet result = serializer.deserialize(data);
+		assertNotNull(result);
+		assertEquals(packet.getClass(), result.getClass());
+		assertDeepEquals(packet.getClass().getSimpleName(), packet, result);
+	}
+	
+	/////////Filling packets/////////
+	
+	private void fillFields (Object object, int depth) throws Exception {
+		for (Field field : getSerializedFields(object.getClass())) {
+			field.setAccessible(true);
+			field.set(object, createValue(field.getType(), field.getGenericType(), depth));
+		}
+	}
+	
+	private Object createValue (Class type, Type genericType, int depth) throws Exception {
+		int value = ++counter;
+		if (type == int.class || type == Integer.class)
+			return -value * 1000;
+		if (type == long.class || type == Long.class)
+			return (long) value << 40;
+		if (type == float.class || type == Float.class)
+			return value + 0.25f;
+		if (type == double.class || type == Double.class)
+			return value * 1000000.5;
+		if (type == boolean.class || type == Boolean.class)
+			return true;
+		if (type == short.class || type == Short.class)
+			return (short) -value;
+		if (type == byte.class || type == Byte.class)
+			return (byte) -value;
+		if (type == char.class || type == Character.class)
+			return (char) (0x100 + value);
+		if (type == String.class)
+			return "value " + value + " é€";
+		if (depth >= MAX_DEPTH)
+			return null;
+		
+		if (type.isArray()) {
+			Class componentType = type.getComponentType();
+			Object array = Array.newInstance(componentType, 2);
+			for (int i = 0; i < 2; i++)
+				Array.set(array, i, createValue(componentType, componentType, depth + 1));
+			return array;
+		}
+		
+		if (Collection.class.isAssignableFrom(type)) {
+			Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+			Collection collection = LinkedList.class.isAssignableFrom(type) ? new LinkedList() : new ArrayList();
+			for (int i = 0; i < 2; i++)
+				collection.add(createValue((Class) elementType, elementType, depth + 1));
+			return collection;
+		}
+		
+		if (Map.class.isAssignableFrom(type)) {
+			Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+			HashMap map = new HashMap();
+			for (int i = 0; i < 2; i++)
+				map.put(createValue((Class) arguments[0], arguments[0], depth + 1), createValue((Class) arguments[1], arguments[1], depth + 1));
+			return map;
+		}
+		
+		Object object = newInstance(type);
+		fillFields(object, depth + 1);
+		return object;
+	}
+	
+	private static <T> T newInstance (Class<T> type) throws Exception {
+		Constructor<T> constructor = type.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		return constructor.newInstance();
+	}
+	
+	/////////Comparing/////////
+	
+	private static void assertDeepEquals (String path, Object expected, Object actual) throws Exception {
+		if (expected == null || actual == null) {
+			assertEquals(path, expected, actual);
+			return;
+		}
+		
+		Class type = expected.getClass();
+		if (type.isArray()) {
+			assertEquals(path + ".length", Array.getLength(expected), Array.getLength(actual));
+			for (int i = 0; i < Array.getLength(expected); i++)
+				assertDeepEquals(path + "[" + i + "]", Array.get(expected, i), Array.get(actual, i));
+		} else if (expected instanceof Collection) {
+			Collection expectedCollection = (Collection) expected;
+			Collection actualCollection = (Collection) actual;
+			assertEquals(path + ".size", expectedCollection.size(), actualCollection.size());
+			Iterator actualIterator = actualCollection.iterator();
+			int i = 0;
+			for (Object element : expectedCollection)
+				assertDeepEquals(path + "[" + i++ + "]", element, actualIterator.next());
+		} else if (expected instanceof Map) {
+			Map expectedMap = (Map) expected;
+			Map actualMap = (Map) actual;
+			assertEquals(path + ".size", expectedMap.size(), actualMap.size());
+			for (Object key : expectedMap.keySet()) {
+				assertTrue(path + " has key " + key, actualMap.containsKey(key));
+				assertDeepEquals(path + "[" + key + "]", expectedMap.get(key), actualMap.get(key));
+			}
+		} else if (type.getName().startsWith("java.")) {
+			assertEquals(path, expected, actual);
+		} else {
+			for (Field field : getSerializedFields(type)) {
+				field.setAccessible(true);
+				assertDeepEquals(path + "." + field.getName(), field.get(expected), field.get(actual));
+			}
+		}
+	}
+	
+	private static List<Field> getSerializedFields (Class type) {
+		ArrayList<Field> fields = new ArrayList<Field>();
+		for (Class currentClass = type; currentClass != null && currentClass != Object.class; currentClass = currentClass.getSuperclass()) {
+			for (Field field : currentClass.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic())
+					fields.add(field);
+			}
+		}
+		return fields;
+	}
+	
+	public static class NullablePacket extends Packet {
+		
+		public Integer boxedInt;
+		public Float boxedFloat;
+		public Boolean boxedBoolean;
+		public String string;
+		public ArrayList<Integer> list;
+		public HashMap<String, Float> map;
+		public String[] strings;
+		
+		public NullablePacket () {
+			super(TEST_PACKET_TYPE);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,177 @@
+package net.hollowbit.archipelo.particles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+import net.hollowbit.archipelo.particles.ParticleManager.DropPolicy;
+import net.hollowbit.archipeloshared.CollisionRect;
+
+/**
+ * Adds, expires and drops particles without any rendering, checking every removed particle goes back to its pool.
+ * @author vedi0boy
+ *
+ */
+public class ParticleManagerTest {
+	
+	@Test
+	public void removesExpiredParticles () {
+		ParticleManager manager = new ParticleManager(8, DropPolicy.DROP_NEW);
+		TestParticle first = create(0, 1);
+		TestParticle second = create(10, 3);
+		TestParticle third = create(20, 2);
+		manager.add(first);
+		manager.add(second);
+		manager.add(third);
+		
+		manager.update(1.5f);
+		assertEquals(2, manager.getParticleCount());
+		assertTrue(first.freed);
+		assertFalse(second.freed);
+		assertFalse(third.freed);
+		
+		//The last particle was moved into the slot of the expired one
+		assertSame(third, manager.getParticle(0));
+		assertSame(second, manager.getParticle(1));
+		
+		manager.update(1);
+		assertEquals(1, manager.getParticleCount());
+		assertTrue(third.freed);
+		assertSame(second, manager.getParticle(0));
+	}
+	
+	@Test
+	public void removesNeighbouringExpiredParticles () {
+		ParticleManager manager = new ParticleManager(8, DropPolicy.DROP_NEW);
+		TestParticle[] particles = new TestParticle[5];
+		for (int i = 0; i < particles.length; i++) {
+			particles[i] = create(i, i % 2 == 0 ? 1 : 5);
+			manager.add(particles[i]);
+		}
+		
+		manager.update(2);
+		assertEquals(2, manager.getParticleCount());
+		for (int i = 0; i < particles.length; i++)
+			assertEquals("particle " + i, i % 2 == 0, particles[i].freed);
+	}
+	
+	@Test
+	public void dropsNewParticlesWhenFull () {
+		ParticleManager manager = new ParticleManager(2, DropPolicy.DROP_NEW);
+		TestParticle first = create(0, 10);
+		TestParticle second = create(0, 10);
+		TestParticle dropped = create(0, 10);
+		manager.add(first);
+		manager.add(second);
+		manager.add(dropped);
+		
+		assertEquals(2, manager.getParticleCount());
+		assertTrue(dropped.freed);
+		assertSame(first, manager.getParticle(0));
+		assertSame(second, manager.getParticle(1));
+	}
+	
+	@Test
+	public void replacesOldestParticleWhenFull () {
+		ParticleManager manager = new ParticleManager(2, DropPolicy.DROP_OLDEST);
+		TestParticle first = create(0, 10);
+		manager.add(first);
+		manager.update(1);
+		TestParticle second = create(0, 10);
+		manager.add(second);
+		manager.update(1);
+		
+		TestParticle third = create(0, 10);
+		manager.add(third);
+		assertEquals(2, manager.getParticleCount());
+		assertTrue(first.freed);
+		assertSame(third, manager.getParticle(0));
+		
+		//The second particle is now the oldest
+		TestParticle fourth = create(0, 10);
+		manager.add(fourth);
+		assertTrue(second.freed);
+		assertFalse(third.freed);
+		assertSame(fourth, manager.getParticle(1));
+	}
+	
+	@Test
+	public void keepsBoundsOfMovedParticles () {
+		ParticleManager manager = new ParticleManager(8, DropPolicy.DROP_NEW);
+		manager.add(create(0, 1));
+		manager.add(create(100, 5));
+		manager.update(2);
+		
+		//The particle at 100 was moved into the first slot
+		assertEquals(100, manager.getRenderY(0), 0);
+		assertTrue(manager.isInRect(0, new CollisionRect(90, 90, 20, 20)));
+		assertFalse(manager.isInRect(0, new CollisionRect(-10, -10, 20, 20)));
+	}
+	
+	@Test
+	public void clearFreesAllParticles () {
+		ParticleManager manager = new ParticleManager(8, DropPolicy.DROP_NEW);
+		TestParticle first = create(0, 10);
+		TestParticle second = create(0, 10);
+		manager.add(first);
+		manager.add(second);
+		manager.clear();
+		
+		assertEquals(0, manager.getParticleCount());
+		assertTrue(first.freed);
+		assertTrue(second.freed);
+	}
+	
+	@Test
+	public void ignoresNullParticles () {
+		ParticleManager manager = new ParticleManager(8, DropPolicy.DROP_NEW);
+		manager.add(null);
+		assertEquals(0, manager.getParticleCount());
+	}
+	
+	private static TestParticle create (float position, float lifetime) {
+		TestParticle particle = new TestParticle();
+		particle.create(ParticleType.HEALTH, position, position, 0, null);
+		particle.lifetime = lifetime;
+		return particle;
+	}
+	
+	/**
+	 * Particle that expires after a set time and remembers if it was returned to its pool.
+	 * @author vedi0boy
+	 *
+	 */
+	private static class TestParticle extends Particle {
+		
+		float lifetime;
+		float time = 0;
+		boolean freed = false;
+		
+		@Override
+		public void update (float deltaTime) {
+			time += deltaTime;
+		}
+		
+		@Override
+		public boolean isExpired () {
+			return time >= lifetime;
+		}
+		
+		@Override
+		public void renderObject (SpriteBatch batch) {
+		}
+		
+		@Override
+		public void reset () {
+			super.reset();
+			freed = true;
+		}
+		
+	}
+	
+}
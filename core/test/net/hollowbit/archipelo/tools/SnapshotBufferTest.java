@@ -0,0 +1,106 @@
+package net.hollowbit.archipelo.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import net.hollowbit.archipelo.world.WorldSnapshot;
+import net.hollowbit.archipeloshared.EntityData;
+
+/**
+ * Checks that snapshots stay ordered by creation time across the end of the ring, and that a full buffer drops the oldest one.
+ * @author vedi0boy
+ *
+ */
+public class SnapshotBufferTest {
+	
+	@Test
+	public void keepsLateSnapshotsInOrder () {
+		SnapshotBuffer buffer = new SnapshotBuffer(8);
+		buffer.add(create(10));
+		buffer.add(create(30));
+		buffer.add(create(20));
+		assertTimes(buffer, 10, 20, 30);
+	}
+	
+	@Test
+	public void wrapsAroundEnd () {
+		SnapshotBuffer buffer = new SnapshotBuffer(4);
+		buffer.add(create(10));
+		buffer.add(create(20));
+		buffer.add(create(30));
+		buffer.removeFirst(2);
+		buffer.add(create(50));
+		buffer.add(create(40));
+		buffer.add(create(60));
+		assertTimes(buffer, 30, 40, 50, 60);
+		assertEquals(4, buffer.capacity());
+	}
+	
+	@Test
+	public void dropsOldestWhenFull () {
+		SnapshotBuffer buffer = new SnapshotBuffer(3);
+		WorldSnapshot oldest = create(10);
+		assertNull(buffer.add(oldest));
+		assertNull(buffer.add(create(20)));
+		assertNull(buffer.add(create(30)));
+		assertSame(oldest, buffer.add(create(40)));
+		assertTimes(buffer, 20, 30, 40);
+		assertEquals(3, buffer.capacity());
+	}
+	
+	@Test
+	public void dropsLateSnapshotOlderThanAllWhenFull () {
+		SnapshotBuffer buffer = new SnapshotBuffer(2);
+		buffer.add(create(20));
+		buffer.add(create(30));
+		WorldSnapshot late = create(10);
+		assertSame(late, buffer.add(late));
+		assertTimes(buffer, 20, 30);
+		
+		//Late, but newer than the oldest
+		WorldSnapshot oldest = buffer.first();
+		assertSame(oldest, buffer.add(create(25)));
+		assertTimes(buffer, 25, 30);
+	}
+	
+	@Test
+	public void findsFloorIndex () {
+		SnapshotBuffer buffer = new SnapshotBuffer(4);
+		buffer.add(create(0));
+		buffer.removeFirst();
+		for (int i = 1; i <= 4; i++)
+			buffer.add(create(i * 10));
+		
+		assertEquals(-1, buffer.floorIndex(5));
+		assertEquals(0, buffer.floorIndex(10));
+		assertEquals(1, buffer.floorIndex(25));
+		assertEquals(3, buffer.floorIndex(100));
+	}
+	
+	@Test
+	public void clearEmptiesBuffer () {
+		SnapshotBuffer buffer = new SnapshotBuffer(2);
+		buffer.add(create(10));
+		buffer.add(create(20));
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		assertNull(buffer.first());
+		assertNull(buffer.removeFirst());
+		buffer.add(create(30));
+		assertTimes(buffer, 30);
+	}
+	
+	private static WorldSnapshot create (double timeCreatedMillis) {
+		return new WorldSnapshot(timeCreatedMillis, false, 0, 0, null, null, new EntityData[0]);
+	}
+	
+	private static void assertTimes (SnapshotBuffer buffer, double... times) {
+		assertEquals(times.length, buffer.size());
+		for (int i = 0; i < times.length; i++)
+			assertEquals("snapshot " + i, times[i], buffer.get(i).timeCreatedMillis, 0);
+	}
+	
+}
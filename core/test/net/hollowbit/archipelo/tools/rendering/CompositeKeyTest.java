@@ -0,0 +1,105 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+import net.hollowbit.archipelo.tools.rendering.CompositeSpriteCache.CompositeKey;
+
+/**
+ * Checks that composite keys match by layer identity, tint, order and group, since a wrong match draws another player's clothes.
+ * @author vedi0boy
+ *
+ */
+public class CompositeKeyTest {
+	
+	private static final int RED = 0xFF0000FF;
+	private static final int WHITE = 0xFFFFFFFF;
+	
+	private TextureRegion body = new TextureRegion();
+	private TextureRegion shirt = new TextureRegion();
+	
+	@Test
+	public void matchesSameLayers () {
+		CompositeKey a = createKey("walk", body, WHITE, shirt, RED);
+		CompositeKey b = createKey("walk", body, WHITE, shirt, RED);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+	}
+	
+	@Test
+	public void differsByLayerIdentity () {
+		//Same contents, but a different region
+		assertFalse(createKey("walk", body, WHITE, shirt, RED).equals(createKey("walk", body, WHITE, new TextureRegion(), RED)));
+	}
+	
+	@Test
+	public void differsByColor () {
+		assertFalse(createKey("walk", body, WHITE, shirt, RED).equals(createKey("walk", body, WHITE, shirt, WHITE)));
+	}
+	
+	@Test
+	public void differsByOrder () {
+		assertFalse(createKey("walk", body, WHITE, shirt, WHITE).equals(createKey("walk", shirt, WHITE, body, WHITE)));
+	}
+	
+	@Test
+	public void differsByGroup () {
+		assertFalse(createKey("walk", body, WHITE, shirt, RED).equals(createKey("roll", body, WHITE, shirt, RED)));
+	}
+	
+	@Test
+	public void differsByLayerCount () {
+		CompositeKey bodyOnly = new CompositeKey(4);
+		bodyOnly.begin("walk");
+		bodyOnly.add(body, WHITE);
+		assertFalse(createKey("walk", body, WHITE, shirt, RED).equals(bodyOnly));
+	}
+	
+	@Test
+	public void beginClearsLayers () {
+		CompositeKey key = createKey("walk", body, WHITE, shirt, RED);
+		key.begin("roll");
+		assertEquals(0, key.getLayerCount());
+		key.add(body, WHITE);
+		key.add(shirt, RED);
+		assertEquals(createKey("roll", body, WHITE, shirt, RED), key);
+		assertSame(shirt, key.getLayer(1));
+		assertEquals(RED, key.getColor(1));
+	}
+	
+	@Test
+	public void findsReusedKeyInMap () {
+		HashMap<CompositeKey, String> map = new HashMap<CompositeKey, String>();
+		map.put(createKey("walk", body, WHITE, shirt, RED), "red shirt");
+		
+		//The cache looks up with one key it sets up again for every composite
+		CompositeKey lookup = new CompositeKey(4);
+		lookup.begin("walk");
+		lookup.add(body, WHITE);
+		lookup.add(shirt, WHITE);
+		assertNull(map.get(lookup));
+		
+		lookup.begin("walk");
+		lookup.add(body, WHITE);
+		lookup.add(shirt, RED);
+		assertNotNull(map.get(lookup));
+	}
+	
+	private static CompositeKey createKey (Object group, TextureRegion bottom, int bottomColor, TextureRegion top, int topColor) {
+		CompositeKey key = new CompositeKey(4);
+		key.begin(group);
+		key.add(bottom, bottomColor);
+		key.add(top, topColor);
+		return key;
+	}
+	
+}
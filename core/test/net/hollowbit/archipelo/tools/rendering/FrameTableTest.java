@@ -0,0 +1,45 @@
+package net.hollowbit.archipelo.tools.rendering;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks which frame is shown over the runtime of looping and non looping animations.
+ * @author vedi0boy
+ *
+ */
+public class FrameTableTest {
+	
+	@Test
+	public void stepsThroughFramesEvenly () {
+		//4 frames over 1 second, 0.25 seconds each
+		assertEquals(0, FrameTable.getFrameIndex(0.1f, 1, 4, true));
+		assertEquals(1, FrameTable.getFrameIndex(0.3f, 1, 4, true));
+		assertEquals(2, FrameTable.getFrameIndex(0.6f, 1, 4, true));
+		assertEquals(3, FrameTable.getFrameIndex(0.9f, 1, 4, true));
+	}
+	
+	@Test
+	public void loopsBackToFirstFrame () {
+		assertEquals(0, FrameTable.getFrameIndex(1.1f, 1, 4, true));
+		assertEquals(2, FrameTable.getFrameIndex(2.6f, 1, 4, true));
+	}
+	
+	@Test
+	public void stopsOnLastFrameWhenNotLooping () {
+		assertEquals(2, FrameTable.getFrameIndex(0.6f, 1, 4, false));
+		assertEquals(3, FrameTable.getFrameIndex(1.1f, 1, 4, false));
+		assertEquals(3, FrameTable.getFrameIndex(100, 1, 4, false));
+	}
+	
+	@Test
+	public void showsFirstFrameWithoutRuntime () {
+		assertEquals(0, FrameTable.getFrameIndex(0.5f, 0, 4, true));
+		assertEquals(0, FrameTable.getFrameIndex(0.5f, -1, 4, false));
+		assertEquals(0, FrameTable.getFrameIndex(0, 1, 4, true));
+		assertEquals(0, FrameTable.getFrameIndex(-0.5f, 1, 4, true));
+		assertEquals(0, FrameTable.getFrameIndex(0.9f, 1, 1, true));
+	}
+	
+}
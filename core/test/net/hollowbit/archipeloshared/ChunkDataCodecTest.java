@@ -0,0 +1,160 @@
+package net.hollowbit.archipeloshared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Encodes chunks from their string form and decodes them back, with palettes on both sides of the one byte index limit
+ * and collision bits on every side of the 64 bit words they are stored in.
+ * @author vedi0boy
+ *
+ */
+public class ChunkDataCodecTest {
+	
+	@Test
+	public void decodesSingleByteIndices () {
+		ChunkData chunk = createChunk(3, -7, 4, 3);
+		assertRoundTrips(chunk);
+		assertEquals(4, decode(chunk).tilePalette.length);
+	}
+	
+	@Test
+	public void decodesLargestSingleBytePalette () {
+		ChunkData chunk = createChunk(0, 0, 256, 256);
+		assertRoundTrips(chunk);
+		assertEquals(256, decode(chunk).tilePalette.length);
+	}
+	
+	@Test
+	public void decodesTwoByteIndices () {
+		ChunkData chunk = createChunk(1, 2, 257, 3000);
+		assertRoundTrips(chunk);
+		assertEquals(257, decode(chunk).tilePalette.length);
+		assertEquals(3000, decode(chunk).elementPalette.length);
+		
+		//Indices are twice as wide as with a palette that fits in a byte
+		ChunkData narrow = createChunk(1, 2, 256, 3000);
+		assertEquals(ChunkDataCodec.TILE_COUNT, ChunkDataCodec.encode(chunk).length - ChunkDataCodec.encode(narrow).length - "tile256".length() - 1);
+	}
+	
+	@Test
+	public void decodesNullElements () {
+		ChunkData chunk = createChunk(0, 0, 2, 2);
+		chunk.elements = null;
+		ChunkData decoded = decode(chunk);
+		assertEquals(1, decoded.elementPalette.length);
+		assertNull(decoded.elementPalette[0]);
+		assertRoundTrips(chunk);
+	}
+	
+	@Test
+	public void decodesCollisionBitsAroundWordBoundaries () {
+		char[] collision = new char[ChunkDataCodec.COLLISION_COUNT];
+		Arrays.fill(collision, '0');
+		for (int word = 0; word < ChunkDataCodec.COLLISION_LONGS; word += 7) {
+			collision[word * 64] = '1';//Lowest bit of a word
+			if (word > 0)
+				collision[word * 64 - 1] = '1';//Highest bit of the word before
+		}
+		collision[63] = '1';
+		collision[64] = '1';
+		collision[collision.length - 1] = '1';
+		
+		ChunkData chunk = createChunk(0, 0, 2, 2);
+		chunk.collisionData = new String(collision);
+		ChunkData decoded = decode(chunk);
+		assertTrue(ChunkDataCodec.getCollision(decoded.collisionBits, 0, 63));
+		assertTrue(ChunkDataCodec.getCollision(decoded.collisionBits, 0, 64));
+		assertTrue(ChunkDataCodec.getCollision(decoded.collisionBits, ChunkData.COLLISION_SIZE - 1, ChunkData.COLLISION_SIZE - 1));
+		assertRoundTrips(chunk);
+		
+		//Only bit 64 set, so a word boundary mistake would show up in a neighbouring bit
+		Arrays.fill(collision, '0');
+		collision[64] = '1';
+		chunk.collisionData = new String(collision);
+		chunk.tileIndices = null;//Build the palette form again from the new collision data
+		decoded = decode(chunk);
+		for (int i = 62; i < 67; i++)
+			assertEquals("bit " + i, i == 64, ChunkDataCodec.getCollision(decoded.collisionBits, i / ChunkData.COLLISION_SIZE, i % ChunkData.COLLISION_SIZE));
+	}
+	
+	@Test
+	public void decodesFromOffset () {
+		ChunkData chunk = createChunk(5, 6, 10, 10);
+		byte[] bytes = ChunkDataCodec.encode(chunk);
+		byte[] padded = new byte[bytes.length + 10];
+		System.arraycopy(bytes, 0, padded, 3, bytes.length);
+		assertSameChunk(chunk, ChunkDataCodec.decode(padded, 3, bytes.length));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void rejectsTruncatedChunk () {
+		byte[] bytes = ChunkDataCodec.encode(createChunk(0, 0, 4, 4));
+		ChunkDataCodec.decode(bytes, 0, bytes.length - 1);
+	}
+	
+	/**
+	 * Creates a chunk in string form with random tiles, elements and collisions.
+	 * @param x
+	 * @param y
+	 * @param tileTypes Amount of different tiles, all of them are used
+	 * @param elementTypes Amount of different elements, all of them are used
+	 * @return
+	 */
+	private static ChunkData createChunk (int x, int y, int tileTypes, int elementTypes) {
+		Random random = new Random(tileTypes * 31 + elementTypes);
+		ChunkData chunk = new ChunkData(x, y);
+		chunk.tiles = new String[ChunkData.SIZE][ChunkData.SIZE];
+		chunk.elements = new String[ChunkData.SIZE][ChunkData.SIZE];
+		for (int i = 0; i < ChunkDataCodec.TILE_COUNT; i++) {
+			int r = i / ChunkData.SIZE;
+			int c = i % ChunkData.SIZE;
+			chunk.tiles[r][c] = "tile" + (i < tileTypes ? i : random.nextInt(tileTypes));
+			int element = i < elementTypes ? i : random.nextInt(elementTypes);
+			chunk.elements[r][c] = element == 0 ? null : "element" + element;//Most chunk cells have no element
+		}
+		
+		char[] collision = new char[ChunkDataCodec.COLLISION_COUNT];
+		for (int i = 0; i < collision.length; i++)
+			collision[i] = random.nextBoolean() ? '1' : '0';
+		chunk.collisionData = new String(collision);
+		return chunk;
+	}
+	
+	private static ChunkData decode (ChunkData chunk) {
+		return ChunkDataCodec.decode(ChunkDataCodec.encode(chunk));
+	}
+	
+	private static void assertRoundTrips (ChunkData chunk) {
+		assertSameChunk(chunk, decode(chunk));
+	}
+	
+	/**
+	 * Checks a decoded chunk in palette form against the string form it was made from.
+	 * @param expected
+	 * @param decoded
+	 */
+	private static void assertSameChunk (ChunkData expected, ChunkData decoded) {
+		assertEquals(expected.x, decoded.x);
+		assertEquals(expected.y, decoded.y);
+		for (int r = 0; r < ChunkData.SIZE; r++) {
+			for (int c = 0; c < ChunkData.SIZE; c++) {
+				int i = r * ChunkData.SIZE + c;
+				assertEquals("tile " + r + "," + c, expected.tiles[r][c], decoded.tilePalette[decoded.tileIndices[i] & 0xFFFF]);
+				assertEquals("element " + r + "," + c, expected.elements == null ? null : expected.elements[r][c], decoded.elementPalette[decoded.elementIndices[i] & 0xFFFF]);
+			}
+		}
+		
+		for (int r = 0; r < ChunkData.COLLISION_SIZE; r++) {
+			for (int c = 0; c < ChunkData.COLLISION_SIZE; c++)
+				assertEquals("collision " + r + "," + c, expected.collisionData.charAt(r * ChunkData.COLLISION_SIZE + c) == '1', ChunkDataCodec.getCollision(decoded.collisionBits, r, c));
+		}
+	}
+	
+}
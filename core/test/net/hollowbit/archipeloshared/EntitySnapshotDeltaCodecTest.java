@@ -0,0 +1,154 @@
+package net.hollowbit.archipeloshared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Encodes entities against a baseline and decodes them back, for every combination of field changes.
+ * @author vedi0boy
+ *
+ */
+public class EntitySnapshotDeltaCodecTest {
+	
+	private static final String NAME = "slime";
+	
+	private static final int CHANGE_TYPE = 0;
+	private static final int CHANGE_FOOT_SOUND = 1;
+	private static final int CHANGE_FOOT_PITCH = 2;
+	private static final int ADD_SOUND = 3;
+	private static final int ADD_UNSAFE_SOUND = 4;
+	private static final int CHANGE_X = 5;
+	private static final int CHANGE_Y = 6;
+	private static final int REMOVE_X = 7;
+	private static final int REMOVE_Y = 8;
+	private static final int CHANGE_PROPERTY = 9;
+	private static final int REMOVE_PROPERTY = 10;
+	private static final int ADD_PROPERTY = 11;
+	private static final int CHANGE_COUNT = 12;
+	
+	@Test
+	public void decodesEveryChangeAgainstBaseline () {
+		for (int changes = 0; changes < 1 << CHANGE_COUNT; changes++)
+			assertRoundTrips(createEntity(changes), createBaseline());
+	}
+	
+	@Test
+	public void decodesEveryChangeWithoutBaseline () {
+		for (int changes = 0; changes < 1 << CHANGE_COUNT; changes++) {
+			assertRoundTrips(createEntity(changes), null);
+			assertRoundTrips(createEntity(changes), new HashMap<String, EntitySnapshot>());//Baseline without this entity
+		}
+	}
+	
+	@Test
+	public void decodesEveryChangeAgainstBaselineWithoutPosition () {
+		HashMap<String, EntitySnapshot> baseline = createBaseline();
+		baseline.get(NAME).properties.remove("x");
+		baseline.get(NAME).properties.remove("y");
+		for (int changes = 0; changes < 1 << CHANGE_COUNT; changes++)
+			assertRoundTrips(createEntity(changes), baseline);
+	}
+	
+	@Test
+	public void sendsNothingForUnchangedEntity () {
+		EntityData data = new EntityData();
+		data.entities.add(createEntity(0));
+		byte[] bytes = EntitySnapshotDeltaCodec.encode(new EntityData[] {data}, createBaseline());
+		
+		//Slot count, entity count, name and flags only
+		assertEquals(1 + 1 + 1 + NAME.length() + 1, bytes.length);
+	}
+	
+	@Test
+	public void keepsEmptySlots () {
+		EntityData data = new EntityData();
+		data.entities.add(createEntity(1 << CHANGE_X));
+		EntityData[] decoded = EntitySnapshotDeltaCodec.decode(EntitySnapshotDeltaCodec.encode(new EntityData[] {null, data, null}, createBaseline()), createBaseline());
+		
+		assertEquals(3, decoded.length);
+		assertNull(decoded[0]);
+		assertNull(decoded[2]);
+		assertEquals(1, decoded[1].entities.size());
+	}
+	
+	private static HashMap<String, EntitySnapshot> createBaseline () {
+		EntitySnapshot base = new EntitySnapshot(NAME, "slime", false);
+		base.footSound = "grass";
+		base.footPitch = 1.25f;
+		base.putFloat("x", 32.5f);
+		base.putFloat("y", -16.25f);
+		base.putString("animation", "walk");
+		base.putInt("health", 10);
+		
+		HashMap<String, EntitySnapshot> baseline = new HashMap<String, EntitySnapshot>();
+		baseline.put(NAME, base);
+		return baseline;
+	}
+	
+	/**
+	 * Creates the baseline entity with the changes whose bits are set.
+	 * @param changes
+	 * @return
+	 */
+	private static EntitySnapshot createEntity (int changes) {
+		EntitySnapshot entity = new EntitySnapshot(createBaseline().get(NAME));
+		if (isSet(changes, CHANGE_TYPE))
+			entity.type = "wizard";
+		if (isSet(changes, CHANGE_FOOT_SOUND))
+			entity.footSound = "sand";
+		if (isSet(changes, CHANGE_FOOT_PITCH))
+			entity.footPitch = 0.75f;
+		if (isSet(changes, ADD_SOUND))
+			entity.addSound("hit");
+		if (isSet(changes, ADD_UNSAFE_SOUND))
+			entity.addUnsafeSound("step");
+		if (isSet(changes, CHANGE_X))
+			entity.putFloat("x", 40.0625f);
+		if (isSet(changes, CHANGE_Y))
+			entity.putFloat("y", -100.5f);
+		if (isSet(changes, REMOVE_X))
+			entity.properties.remove("x");
+		if (isSet(changes, REMOVE_Y))
+			entity.properties.remove("y");
+		if (isSet(changes, CHANGE_PROPERTY))
+			entity.putString("animation", "attack");
+		if (isSet(changes, REMOVE_PROPERTY))
+			entity.properties.remove("health");
+		if (isSet(changes, ADD_PROPERTY))
+			entity.putBoolean("flipped", true);
+		return entity;
+	}
+	
+	private static boolean isSet (int changes, int change) {
+		return (changes & (1 << change)) != 0;
+	}
+	
+	private static void assertRoundTrips (EntitySnapshot entity, Map<String, EntitySnapshot> baseline) {
+		EntityData data = new EntityData();
+		data.entities.add(entity);
+		EntityData[] decoded = EntitySnapshotDeltaCodec.decode(EntitySnapshotDeltaCodec.encode(new EntityData[] {data}, baseline), baseline);
+		assertEquals(1, decoded.length);
+		assertEquals(1, decoded[0].entities.size());
+		
+		EntitySnapshot result = decoded[0].entities.get(0);
+		assertEquals(entity.name, result.name);
+		assertEquals(entity.type, result.type);
+		assertEquals(entity.footSound, result.footSound);
+		assertEquals(entity.footPitch, result.footPitch, 0);
+		assertEquals(entity.sounds, result.sounds);
+		assertEquals(entity.usounds, result.usounds);
+		assertEquals(entity.properties.keySet(), result.properties.keySet());
+		for (String key : entity.properties.keySet()) {
+			if (key.equals("x") || key.equals("y"))
+				assertEquals(key, Float.parseFloat(entity.properties.get(key)), Float.parseFloat(result.properties.get(key)), 0);
+			else
+				assertEquals(key, entity.properties.get(key), result.properties.get(key));
+		}
+	}
+	
+}
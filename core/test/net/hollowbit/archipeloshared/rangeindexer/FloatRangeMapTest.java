@@ -0,0 +1,119 @@
+package net.hollowbit.archipeloshared.rangeindexer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Runs random operations on a {@link FloatRangeMap} and a {@link RangeMap} side by side and checks they always agree.
+ *
+ * @author vedi0boy
+ *
+ */
+public class FloatRangeMapTest {
+
+    private static final int SEEDS = 200;
+    private static final int OPERATIONS = 500;
+    private static final int PROBES = 20;
+
+    @Test
+    public void behavesLikeRangeMap() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            float minimum = random.nextInt(10) - 5;
+            FloatRangeMap<Integer> floatMap = new FloatRangeMap<Integer>(minimum, 1 + random.nextInt(4));
+            RangeMap<Float, Integer> rangeMap = new RangeMap<Float, Integer>(minimum);
+
+            for (int operation = 0; operation < OPERATIONS; operation++) {
+                String description = "seed " + seed + ", operation " + operation;
+                float index = randomIndex(random, rangeMap.getTopLimit());
+                switch (random.nextInt(10)) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                    //Mostly valid limits, sometimes one at or below the top limit
+                    float limit = rangeMap.getTopLimit() + (random.nextInt(8) == 0 ? -random.nextInt(2) : 0.05f + random.nextInt(20) / 10f);
+                    assertEquals(description, addThrows(rangeMap, limit), addThrows(floatMap, limit));
+                    break;
+                case 4:
+                case 5:
+                    rangeMap.set(index, operation);
+                    floatMap.set(index, operation);
+                    break;
+                case 6:
+                case 7:
+                    rangeMap.remove(index);
+                    floatMap.remove(index);
+                    break;
+                case 8:
+                    assertEquals(description, setMinimumThrows(rangeMap, index - 1), setMinimumThrows(floatMap, index - 1));
+                    break;
+                case 9:
+                    if (random.nextInt(10) == 0) {
+                        rangeMap.clear();
+                        floatMap.clear();
+                    }
+                    break;
+                }
+
+                assertEquals(description, rangeMap.getTopLimit(), floatMap.getTopLimit(), 0);
+                for (int probe = 0; probe < PROBES; probe++) {
+                    float probeIndex = randomIndex(random, rangeMap.getTopLimit());
+                    assertEquals(description + ", index " + probeIndex, rangeMap.getValue(probeIndex), floatMap.getValue(probeIndex));
+                }
+            }
+        }
+    }
+
+    /**
+     * Random index around the ranges, often exactly on a tenth so limits themselves are hit.
+     * @param random
+     * @param topLimit
+     * @return
+     */
+    private static float randomIndex(Random random, float topLimit) {
+        if (random.nextBoolean())
+            return Math.round((random.nextFloat() * (topLimit + 12) - 6) * 20) / 20f;
+        return random.nextFloat() * (topLimit + 12) - 6;
+    }
+
+    private static boolean addThrows(RangeMap<Float, Integer> map, float limit) {
+        try {
+            map.add(limit, (int) (limit * 100));
+            return false;
+        } catch (IllegalNextRangeLimitException e) {
+            return true;
+        }
+    }
+
+    private static boolean addThrows(FloatRangeMap<Integer> map, float limit) {
+        try {
+            map.add(limit, (int) (limit * 100));
+            return false;
+        } catch (IllegalNextRangeLimitException e) {
+            return true;
+        }
+    }
+
+    private static boolean setMinimumThrows(RangeMap<Float, Integer> map, float minimum) {
+        try {
+            map.setMinimum(minimum);
+            return false;
+        } catch (IllegalRangeMinimumException e) {
+            return true;
+        }
+    }
+
+    private static boolean setMinimumThrows(FloatRangeMap<Integer> map, float minimum) {
+        try {
+            map.setMinimum(minimum);
+            return false;
+        } catch (IllegalRangeMinimumException e) {
+            return true;
+        }
+    }
+
+}
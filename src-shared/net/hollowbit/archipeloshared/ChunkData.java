@@ -3,12 +3,20 @@ package net.hollowbit.archipeloshared;
 public class ChunkData {
 	
 	public static final int SIZE = 128;
+	public static final int COLLISION_SIZE = SIZE * TileData.COLLISION_MAP_SCALE;
 	
 	public int x, y;
 	public String collisionData;
 	public String[][] tiles;
 	public String[][] elements;
 	
+	//Palette form, filled in by ChunkDataCodec. Not sent as json.
+	public transient String[] tilePalette;
+	public transient String[] elementPalette;
+	public transient short[] tileIndices;//Row-major, SIZE * SIZE
+	public transient short[] elementIndices;//Row-major, SIZE * SIZE
+	public transient long[] collisionBits;//Row-major, COLLISION_SIZE * COLLISION_SIZE bits
+	
 	public ChunkData() {}
 
 	public ChunkData(int x, int y) {
@@ -17,4 +25,12 @@ public class ChunkData {
 		this.y = y;
 	}
 	
+	/**
+	 * Whether this chunk was decoded in palette form rather than with string tiles, elements and collision data.
+	 * @return
+	 */
+	public boolean isPaletteForm () {
+		return tileIndices != null;
+	}
+	
 }
@@ -0,0 +1,178 @@
+package net.hollowbit.archipeloshared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import net.hollowbit.archipeloshared.network.ByteReader;
+import net.hollowbit.archipeloshared.network.ByteWriter;
+
+/**
+ * Binary encoding for chunks sent in world snapshots.
+ *
+ * Format: [int x][int y][tile palette][element palette][tile indices][element indices][collision bits]
+ *
+ * Palettes are a varint count followed by strings (char count + 1 as a varint, 0 meaning null, then UTF-8).
+ * Indices are prefixed with their width in bytes (1 if the palette fits in a byte, otherwise 2) and are row-major.
+ * Collision bits are row-major, least significant bit first, COLLISION_SIZE * COLLISION_SIZE / 8 bytes.
+ * @author vedi0boy
+ *
+ */
+public class ChunkDataCodec {
+	
+	public static final int TILE_COUNT = ChunkData.SIZE * ChunkData.SIZE;
+	public static final int COLLISION_COUNT = ChunkData.COLLISION_SIZE * ChunkData.COLLISION_SIZE;
+	public static final int COLLISION_BYTES = COLLISION_COUNT / 8;
+	public static final int COLLISION_LONGS = COLLISION_COUNT / 64;
+	
+	private ChunkDataCodec () {}
+	
+	/**
+	 * Encodes a chunk to binary.
+	 * @param data
+	 * @return
+	 */
+	public static byte[] encode (ChunkData data) {
+		if (data == null)
+			return null;
+		
+		if (!data.isPaletteForm())
+			toPaletteForm(data);
+		
+		ByteWriter writer = new ByteWriter(8 + TILE_COUNT * 4 + COLLISION_BYTES);
+		writer.writeInt(data.x);
+		writer.writeInt(data.y);
+		writePalette(writer, data.tilePalette);
+		writePalette(writer, data.elementPalette);
+		writeIndices(writer, data.tileIndices, data.tilePalette.length);
+		writeIndices(writer, data.elementIndices, data.elementPalette.length);
+		
+		//Pack collision map 8 tiles per byte
+		for (int i = 0; i < COLLISION_BYTES; i++)
+			writer.writeByte((int) (data.collisionBits[i >>> 3] >>> ((i & 7) * 8)));
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Fills in the palette form of a chunk from its string tiles, elements and collision data.
+	 * @param data
+	 * @return The same chunk data
+	 */
+	public static ChunkData toPaletteForm (ChunkData data) {
+		ArrayList<String> tilePalette = new ArrayList<String>();
+		data.tileIndices = buildIndices(data.tiles, tilePalette);
+		data.tilePalette = tilePalette.toArray(new String[tilePalette.size()]);
+		
+		ArrayList<String> elementPalette = new ArrayList<String>();
+		data.elementIndices = buildIndices(data.elements, elementPalette);
+		data.elementPalette = elementPalette.toArray(new String[elementPalette.size()]);
+		
+		long[] collisionBits = new long[COLLISION_LONGS];
+		String collisionData = data.collisionData;
+		if (collisionData != null) {
+			int length = Math.min(collisionData.length(), COLLISION_COUNT);
+			for (int i = 0; i < length; i++) {
+				if (collisionData.charAt(i) == '1')
+					collisionBits[i >>> 6] |= 1L << (i & 63);
+			}
+		}
+		data.collisionBits = collisionBits;
+		return data;
+	}
+	
+	private static short[] buildIndices (String[][] values, ArrayList<String> palette) {
+		HashMap<String, Integer> paletteIndices = new HashMap<String, Integer>();
+		short[] indices = new short[TILE_COUNT];
+		for (int r = 0; r < ChunkData.SIZE; r++) {
+			for (int c = 0; c < ChunkData.SIZE; c++) {
+				String value = values == null ? null : values[r][c];
+				Integer index = paletteIndices.get(value);
+				if (index == null) {
+					index = palette.size();
+					paletteIndices.put(value, index);
+					palette.add(value);
+				}
+				indices[r * ChunkData.SIZE + c] = (short) index.intValue();
+			}
+		}
+		return indices;
+	}
+	
+	public static ChunkData decode (byte[] bytes) {
+		if (bytes == null)
+			return null;
+		return decode(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Decodes a binary chunk straight into palette form. No strings are created other than the palette entries.
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static ChunkData decode (byte[] bytes, int offset, int length) {
+		ByteReader reader = new ByteReader(bytes, offset, length);
+		ChunkData data = new ChunkData(reader.readInt(), reader.readInt());
+		data.tilePalette = readPalette(reader);
+		data.elementPalette = readPalette(reader);
+		data.tileIndices = readIndices(reader, data.tilePalette.length);
+		data.elementIndices = readIndices(reader, data.elementPalette.length);
+		
+		long[] collisionBits = new long[COLLISION_LONGS];
+		reader.require(COLLISION_BYTES);
+		for (int i = 0; i < COLLISION_BYTES; i++)
+			collisionBits[i >>> 3] |= ((long) reader.readUnsignedByte()) << ((i & 7) * 8);
+		data.collisionBits = collisionBits;
+		return data;
+	}
+	
+	private static void writePalette (ByteWriter writer, String[] palette) {
+		writer.writeVarInt(palette.length);
+		for (String value : palette)
+			writer.writeString(value);
+	}
+	
+	private static void writeIndices (ByteWriter writer, short[] indices, int paletteSize) {
+		boolean wide = paletteSize > 256;
+		writer.writeByte(wide ? 2 : 1);
+		for (int i = 0; i < indices.length; i++) {
+			if (wide)
+				writer.writeShort(indices[i]);
+			else
+				writer.writeByte(indices[i]);
+		}
+	}
+	
+	private static String[] readPalette (ByteReader reader) {
+		String[] palette = new String[reader.readVarInt()];
+		for (int i = 0; i < palette.length; i++)
+			palette[i] = reader.readString();
+		return palette;
+	}
+	
+	private static short[] readIndices (ByteReader reader, int paletteSize) {
+		int width = reader.readUnsignedByte();
+		reader.require(TILE_COUNT * width);
+		short[] indices = new short[TILE_COUNT];
+		for (int i = 0; i < TILE_COUNT; i++) {
+			int index = width == 2 ? reader.readShort() & 0xFFFF : reader.readUnsignedByte();
+			if (index >= paletteSize)
+				throw new IllegalStateException("Binary chunk palette index out of range: " + index);
+			indices[i] = (short) index;
+		}
+		return indices;
+	}
+	
+	/**
+	 * Returns whether a collision bit is set.
+	 * @param collisionBits
+	 * @param r Collision row
+	 * @param c Collision column
+	 * @return
+	 */
+	public static boolean getCollision (long[] collisionBits, int r, int c) {
+		int index = r * ChunkData.COLLISION_SIZE + c;
+		return (collisionBits[index >>> 6] & (1L << (index & 63))) != 0;
+	}
+	
+}
@@ -54,9 +54,47 @@ public class CollisionRect {
 		return this;
 	}
 	
+	/**
+	 * Sets the position and size of this rect, keeping its offset. Lets owners reuse one rect instead of making new ones.
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public CollisionRect set (float x, float y, float width, float height) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		return this;
+	}
+	
 	//Calculates if rects are overlapping	
 	public boolean collidesWith (CollisionRect rect) {
-		return this.xWithOffset() < rect.xWithOffset() + rect.width && this.xWithOffset() + this.width > rect.xWithOffset() && this.yWithOffset() < rect.yWithOffset() + rect.height && this.yWithOffset() + this.height > rect.yWithOffset();
+		return collidesWith(rect.xWithOffset(), rect.yWithOffset(), rect.width, rect.height);
+	}
+	
+	/**
+	 * Calculates if this rect overlaps an area, for bounds that aren't kept in a rect.
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public boolean collidesWith (float x, float y, float width, float height) {
+		return this.xWithOffset() < x + width && this.xWithOffset() + this.width > x && this.yWithOffset() < y + height && this.yWithOffset() + this.height > y;
+	}
+	
+	/**
+	 * Checks if a point is in this rect.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean contains (float x, float y) {
+		return x >= this.xWithOffset() && x < this.xWithOffset() + width && y >= this.yWithOffset() && y < this.yWithOffset() + height;
 	}
 	
 	public float xWithOffset () {
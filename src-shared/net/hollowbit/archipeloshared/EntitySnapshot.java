@@ -15,7 +15,19 @@ public class EntitySnapshot {
 	public float footPitch = 1;
 	public ArrayList<String> sounds = new ArrayList<String>();
 	public ArrayList<String> usounds = new ArrayList<String>();
-	public HashMap<String, String> properties = new HashMap<String, String>();
+	public HashMap<String, String> properties = new HashMap<String, String>();//Change through the put methods so typed values stay in sync
+	
+	//Typed values parsed from properties, indexed by PropertyKeys slot. Transient so they aren't sent.
+	private static final int STATE_DECODED = 1;
+	private static final int STATE_PRESENT = 2;
+	private static final int STATE_FLOAT = 4;
+	private static final int STATE_LONG = 8;
+	private static final int STATE_INT = 16;
+	private static final int STATE_TRUE = 32;
+	private transient byte[] valueStates;
+	private transient float[] floatValues;
+	private transient long[] longValues;
+	private transient Object[] objectValues;
 	
 	public EntitySnapshot () {}
 	
@@ -50,36 +62,46 @@ public class EntitySnapshot {
 	
 	public void putFloat (String key, float value) {
 		properties.put(key, "" + value);
+		invalidate(key);
 	}
 	
 	public void putDouble (String key, double value) {
 		properties.put(key, "" + value);
+		invalidate(key);
 	}
 	
 	public void putString (String key, String value) {
 		properties.put(key, value);
+		invalidate(key);
 	}
 	
 	public void putInt (String key, int value) {
 		properties.put(key, "" + value);
+		invalidate(key);
 	}
 	
 	public void putBoolean (String key, boolean value) {
 		properties.put(key, "" + value);
+		invalidate(key);
 	}
 	
 	public void putObject(String key, Object value) {
 		properties.put(key, json.toJson(value));
+		invalidate(key);
 	}
 	
 	public float getFloat (String key, float currentValue) {
-		if (!properties.containsKey(key))
-			return currentValue;
-		try {
-			return Float.parseFloat(properties.get(key));
-		} catch (Exception e) {
-			return currentValue;
-		}
+		return getFloat(PropertyKeys.getSlot(key), currentValue);
+	}
+	
+	/**
+	 * Typed float lookup by {@link PropertyKeys} slot. Never parses once the snapshot is decoded.
+	 * @param slot
+	 * @param currentValue
+	 * @return
+	 */
+	public float getFloat (int slot, float currentValue) {
+		return (getState(slot) & STATE_FLOAT) != 0 ? floatValues[slot] : currentValue;
 	}
 	
 	public double getDouble (String key, double currentValue) {
@@ -100,36 +122,135 @@ public class EntitySnapshot {
 	}
 
 	public int getInt (String key, int currentValue) {
-		if (!properties.containsKey(key))
-			return currentValue;
-		try {
-			return Integer.parseInt(properties.get(key));
-		} catch (Exception e) {
-			return currentValue;
-		}
+		return getInt(PropertyKeys.getSlot(key), currentValue);
+	}
+	
+	public int getInt (int slot, int currentValue) {
+		return (getState(slot) & STATE_INT) != 0 ? (int) longValues[slot] : currentValue;
+	}
+	
+	public long getLong (String key, long currentValue) {
+		return getLong(PropertyKeys.getSlot(key), currentValue);
+	}
+	
+	public long getLong (int slot, long currentValue) {
+		return (getState(slot) & STATE_LONG) != 0 ? longValues[slot] : currentValue;
 	}
 	
 	public boolean getBoolean (String key, boolean currentValue) {
-		if (!properties.containsKey(key))
-			return currentValue;
-		try {
-			return Boolean.parseBoolean(properties.get(key));
-		} catch (Exception e) {
+		return getBoolean(PropertyKeys.getSlot(key), currentValue);
+	}
+	
+	public boolean getBoolean (int slot, boolean currentValue) {
+		int state = getState(slot);
+		if ((state & STATE_PRESENT) == 0)
 			return currentValue;
-		}
+		return (state & STATE_TRUE) != 0;
 	}
 	
+	/**
+	 * Parses a json property. The parsed object is cached and shared by all callers, so it must not be modified.
+	 * @param key
+	 * @param currentValue
+	 * @param type
+	 * @return
+	 */
 	public <T> T getObject(String key, T currentValue, Class<T> type) {
 		if (!properties.containsKey(key)) 
 			return currentValue;
 		
+		int slot = PropertyKeys.getSlot(key);
+		getState(slot);
+		if (type.isInstance(objectValues[slot]))
+			return type.cast(objectValues[slot]);
+		
 		try {
-			return json.fromJson(type, properties.get(key));
+			T value = json.fromJson(type, properties.get(key));
+			objectValues[slot] = value;
+			return value;
 		} catch (Exception e) {
 			return currentValue;
 		}
 	}
 	
+	/**
+	 * Parses all properties into typed values so later reads don't have to. Call when a snapshot arrives, before it is used.
+	 */
+	public void decodeProperties () {
+		for (String key : properties.keySet())
+			getState(PropertyKeys.getSlot(key));
+	}
+	
+	private int getState (int slot) {
+		if (valueStates == null || slot >= valueStates.length)
+			grow(slot);
+		
+		int state = valueStates[slot];
+		if (state == 0)
+			state = decode(slot);
+		return state;
+	}
+	
+	private int decode (int slot) {
+		String value = properties.get(PropertyKeys.getName(slot));
+		int state = STATE_DECODED;
+		if (value != null) {
+			state |= STATE_PRESENT;
+			if (Boolean.parseBoolean(value))
+				state |= STATE_TRUE;
+			
+			//Only try to parse values that could be numbers, exceptions are slow
+			char first = value.isEmpty() ? 'x' : value.charAt(0);
+			if (Character.isDigit(first) || first == '-' || first == '+' || first == '.' || first == 'N' || first == 'I' || Character.isWhitespace(first)) {
+				try {
+					floatValues[slot] = Float.parseFloat(value);
+					state |= STATE_FLOAT;
+				} catch (NumberFormatException e) {}
+				
+				try {
+					longValues[slot] = Long.parseLong(value);
+					state |= STATE_LONG;
+					if (longValues[slot] == (int) longValues[slot])
+						state |= STATE_INT;
+				} catch (NumberFormatException e) {}
+			}
+		}
+		valueStates[slot] = (byte) state;
+		return state;
+	}
+	
+	private void grow (int slot) {
+		int length = Math.max(slot + 1, PropertyKeys.getSlotCount());
+		if (valueStates == null) {
+			valueStates = new byte[length];
+			floatValues = new float[length];
+			longValues = new long[length];
+			objectValues = new Object[length];
+			return;
+		}
+		
+		byte[] newStates = new byte[length];
+		float[] newFloats = new float[length];
+		long[] newLongs = new long[length];
+		Object[] newObjects = new Object[length];
+		System.arraycopy(valueStates, 0, newStates, 0, valueStates.length);
+		System.arraycopy(floatValues, 0, newFloats, 0, floatValues.length);
+		System.arraycopy(longValues, 0, newLongs, 0, longValues.length);
+		System.arraycopy(objectValues, 0, newObjects, 0, objectValues.length);
+		valueStates = newStates;
+		floatValues = newFloats;
+		longValues = newLongs;
+		objectValues = newObjects;
+	}
+	
+	private void invalidate (String key) {
+		int slot = PropertyKeys.findSlot(key);
+		if (valueStates != null && slot >= 0 && slot < valueStates.length) {
+			valueStates[slot] = 0;
+			objectValues[slot] = null;
+		}
+	}
+	
 	public boolean doesPropertyExist(String property) {
 		return properties.containsKey(property);
 	}
@@ -148,6 +269,10 @@ public class EntitySnapshot {
 	
 	public void clear () {
 		properties.clear();
+		valueStates = null;
+		floatValues = null;
+		longValues = null;
+		objectValues = null;
 		sounds.clear();
 		usounds.clear();
 	}
@@ -0,0 +1,316 @@
+package net.hollowbit.archipeloshared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import net.hollowbit.archipeloshared.network.ByteReader;
+import net.hollowbit.archipeloshared.network.ByteWriter;
+
+/**
+ * Binary delta encoding for the entities of a world snapshot against a baseline snapshot the client acknowledged.
+ *
+ * Format: [varint slot count] then per chunk slot [varint entity count + 1, 0 meaning null] followed by its entities:
+ * [string name][varint flags][type][foot sound][float foot pitch][sounds][unsafe sounds][x][y][properties]
+ * where each field after the flags is only there if its flag is set.
+ *
+ * Each entity is compared to the snapshot with the same name in the baseline, or an empty snapshot if there is none.
+ * Fields that aren't sent are the same as in the baseline, except sounds which are one time events and default to none.
+ * The "x" and "y" properties are numbers sent separately, each only if it changed, quantized to 1/POSITION_SCALE of a pixel,
+ * as a zigzag varint difference from the baseline coordinate (or from 0 if the baseline doesn't have it).
+ * A coordinate the baseline has but the entity doesn't is flagged as removed.
+ * Other properties are a bitmask of which baseline properties are still present, a bitmask of which of those changed,
+ * the changed values, then a varint count of new properties followed by their names and values.
+ * Baseline property bits are in order of sorted property names.
+ * @author vedi0boy
+ *
+ */
+public class EntitySnapshotDeltaCodec {
+	
+	//Flags that are often set come first so they fit in the first varint byte
+	public static final int FLAG_X = 1;
+	public static final int FLAG_Y = 2;
+	public static final int FLAG_PROPERTIES = 4;
+	public static final int FLAG_SOUNDS = 8;
+	public static final int FLAG_UNSAFE_SOUNDS = 16;
+	public static final int FLAG_TYPE = 32;
+	public static final int FLAG_FOOT_SOUND = 64;
+	public static final int FLAG_FOOT_PITCH = 128;
+	public static final int FLAG_X_REMOVED = 256;
+	public static final int FLAG_Y_REMOVED = 512;
+	
+	public static final float POSITION_SCALE = 16;
+	
+	private static final String X = "x";
+	private static final String Y = "y";
+	private static final EntitySnapshot EMPTY = new EntitySnapshot();
+	
+	private EntitySnapshotDeltaCodec () {}
+	
+	/**
+	 * Encodes the entities of each chunk slot against a baseline.
+	 * @param entities
+	 * @param baseline Entity snapshots of the baseline by name, or null if there is no baseline
+	 * @return
+	 */
+	public static byte[] encode (EntityData[] entities, Map<String, EntitySnapshot> baseline) {
+		ByteWriter writer = new ByteWriter(256);
+		writer.writeVarInt(entities.length);
+		for (EntityData data : entities) {
+			if (data == null) {
+				writer.writeVarInt(0);
+				continue;
+			}
+			
+			writer.writeVarInt(data.entities.size() + 1);
+			for (EntitySnapshot entity : data.entities)
+				writeEntity(writer, entity, getBase(baseline, entity.name));
+		}
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Rebuilds the full entity data of each chunk slot from a delta and its baseline.
+	 * @param bytes
+	 * @param baseline Entity snapshots of the baseline by name, or null if there is no baseline
+	 * @return
+	 */
+	public static EntityData[] decode (byte[] bytes, Map<String, EntitySnapshot> baseline) {
+		ByteReader reader = new ByteReader(bytes, 0, bytes.length);
+		EntityData[] entities = new EntityData[reader.readVarInt()];
+		for (int i = 0; i < entities.length; i++) {
+			int count = reader.readVarInt() - 1;
+			if (count < 0)
+				continue;
+			
+			EntityData data = new EntityData();
+			for (int j = 0; j < count; j++) {
+				String name = reader.readString();
+				data.entities.add(readEntity(reader, name, getBase(baseline, name)));
+			}
+			entities[i] = data;
+		}
+		return entities;
+	}
+	
+	private static void writeEntity (ByteWriter writer, EntitySnapshot entity, EntitySnapshot base) {
+		String[] baseKeys = getSortedKeys(base);
+		
+		int flags = getCoordinateFlags(entity, base, X, FLAG_X, FLAG_X_REMOVED) | getCoordinateFlags(entity, base, Y, FLAG_Y, FLAG_Y_REMOVED);
+		if (!equal(entity.type, base.type))
+			flags |= FLAG_TYPE;
+		if (!equal(entity.footSound, base.footSound))
+			flags |= FLAG_FOOT_SOUND;
+		if (entity.footPitch != base.footPitch)
+			flags |= FLAG_FOOT_PITCH;
+		if (!entity.sounds.isEmpty())
+			flags |= FLAG_SOUNDS;
+		if (!entity.usounds.isEmpty())
+			flags |= FLAG_UNSAFE_SOUNDS;
+		if (propertiesChanged(entity, base, baseKeys))
+			flags |= FLAG_PROPERTIES;
+		
+		writer.writeString(entity.name);
+		writer.writeVarInt(flags);
+		if ((flags & FLAG_TYPE) != 0)
+			writer.writeString(entity.type);
+		if ((flags & FLAG_FOOT_SOUND) != 0)
+			writer.writeString(entity.footSound);
+		if ((flags & FLAG_FOOT_PITCH) != 0)
+			writer.writeFloat(entity.footPitch);
+		if ((flags & FLAG_SOUNDS) != 0)
+			writeStrings(writer, entity.sounds);
+		if ((flags & FLAG_UNSAFE_SOUNDS) != 0)
+			writeStrings(writer, entity.usounds);
+		
+		if ((flags & FLAG_X) != 0)
+			writer.writeZigZag(quantize(entity, X) - (hasCoordinate(base, X) ? quantize(base, X) : 0));
+		if ((flags & FLAG_Y) != 0)
+			writer.writeZigZag(quantize(entity, Y) - (hasCoordinate(base, Y) ? quantize(base, Y) : 0));
+		
+		if ((flags & FLAG_PROPERTIES) != 0) {
+			byte[] present = new byte[(baseKeys.length + 7) / 8];
+			byte[] changed = new byte[present.length];
+			for (int i = 0; i < baseKeys.length; i++) {
+				String value = entity.properties.get(baseKeys[i]);
+				if (value == null)
+					continue;
+				
+				present[i >>> 3] |= 1 << (i & 7);
+				if (!value.equals(base.properties.get(baseKeys[i])))
+					changed[i >>> 3] |= 1 << (i & 7);
+			}
+			writeBytes(writer, present);
+			writeBytes(writer, changed);
+			for (int i = 0; i < baseKeys.length; i++) {
+				if ((changed[i >>> 3] & (1 << (i & 7))) != 0)
+					writer.writeString(entity.properties.get(baseKeys[i]));
+			}
+			
+			ArrayList<String> newKeys = new ArrayList<String>();
+			for (String key : entity.properties.keySet()) {
+				if (!isPositionKey(key) && !base.properties.containsKey(key))
+					newKeys.add(key);
+			}
+			writer.writeVarInt(newKeys.size());
+			for (String key : newKeys) {
+				writer.writeString(key);
+				writer.writeString(entity.properties.get(key));
+			}
+		}
+	}
+	
+	private static EntitySnapshot readEntity (ByteReader reader, String name, EntitySnapshot base) {
+		EntitySnapshot entity = new EntitySnapshot();
+		entity.name = name;
+		int flags = reader.readVarInt();
+		entity.type = (flags & FLAG_TYPE) != 0 ? reader.readString() : base.type;
+		entity.footSound = (flags & FLAG_FOOT_SOUND) != 0 ? reader.readString() : base.footSound;
+		entity.footPitch = (flags & FLAG_FOOT_PITCH) != 0 ? reader.readFloat() : base.footPitch;
+		if ((flags & FLAG_SOUNDS) != 0)
+			readStrings(reader, entity.sounds);
+		if ((flags & FLAG_UNSAFE_SOUNDS) != 0)
+			readStrings(reader, entity.usounds);
+		
+		readCoordinate(reader, entity, base, X, flags, FLAG_X, FLAG_X_REMOVED);
+		readCoordinate(reader, entity, base, Y, flags, FLAG_Y, FLAG_Y_REMOVED);
+		
+		String[] baseKeys = getSortedKeys(base);
+		if ((flags & FLAG_PROPERTIES) != 0) {
+			byte[] present = readBytes(reader, (baseKeys.length + 7) / 8);
+			byte[] changed = readBytes(reader, present.length);
+			for (int i = 0; i < baseKeys.length; i++) {
+				if ((changed[i >>> 3] & (1 << (i & 7))) != 0)
+					entity.properties.put(baseKeys[i], reader.readString());
+				else if ((present[i >>> 3] & (1 << (i & 7))) != 0)
+					entity.properties.put(baseKeys[i], base.properties.get(baseKeys[i]));
+			}
+			
+			int newProperties = reader.readVarInt();
+			for (int i = 0; i < newProperties; i++)
+				entity.properties.put(reader.readString(), reader.readString());
+		} else {
+			for (String key : baseKeys)
+				entity.properties.put(key, base.properties.get(key));
+		}
+		return entity;
+	}
+	
+	/**
+	 * Flags telling how a coordinate of an entity differs from the baseline.
+	 * @param entity
+	 * @param base
+	 * @param key
+	 * @param changedFlag Set if the entity has the coordinate and it changed
+	 * @param removedFlag Set if only the baseline has the coordinate
+	 * @return
+	 */
+	private static int getCoordinateFlags (EntitySnapshot entity, EntitySnapshot base, String key, int changedFlag, int removedFlag) {
+		boolean has = hasCoordinate(entity, key);
+		boolean baseHas = hasCoordinate(base, key);
+		if (has && (!baseHas || quantize(entity, key) != quantize(base, key)))
+			return changedFlag;
+		if (!has && baseHas)
+			return removedFlag;
+		return 0;
+	}
+	
+	private static void readCoordinate (ByteReader reader, EntitySnapshot entity, EntitySnapshot base, String key, int flags, int changedFlag, int removedFlag) {
+		boolean baseHas = hasCoordinate(base, key);
+		if ((flags & changedFlag) != 0)
+			entity.putFloat(key, (reader.readZigZag() + (baseHas ? quantize(base, key) : 0)) / POSITION_SCALE);
+		else if ((flags & removedFlag) == 0 && baseHas)
+			entity.properties.put(key, base.properties.get(key));
+	}
+	
+	private static boolean propertiesChanged (EntitySnapshot entity, EntitySnapshot base, String[] baseKeys) {
+		for (String key : baseKeys) {
+			if (!equal(entity.properties.get(key), base.properties.get(key)))
+				return true;
+		}
+		
+		for (String key : entity.properties.keySet()) {
+			if (!isPositionKey(key) && !base.properties.containsKey(key))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Sorted property names of a snapshot, not including the position.
+	 * @param snapshot
+	 * @return
+	 */
+	private static String[] getSortedKeys (EntitySnapshot snapshot) {
+		ArrayList<String> keys = new ArrayList<String>();
+		for (String key : snapshot.properties.keySet()) {
+			if (!isPositionKey(key))
+				keys.add(key);
+		}
+		String[] sortedKeys = keys.toArray(new String[keys.size()]);
+		Arrays.sort(sortedKeys);
+		return sortedKeys;
+	}
+	
+	/**
+	 * Whether a snapshot has a coordinate. Coordinates that aren't numbers can't be sent and count as missing.
+	 * @param snapshot
+	 * @param key
+	 * @return
+	 */
+	private static boolean hasCoordinate (EntitySnapshot snapshot, String key) {
+		String value = snapshot.properties.get(key);
+		if (value == null)
+			return false;
+		
+		try {
+			Float.parseFloat(value);
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+	
+	private static int quantize (EntitySnapshot snapshot, String key) {
+		return Math.round(Float.parseFloat(snapshot.properties.get(key)) * POSITION_SCALE);
+	}
+	
+	private static boolean isPositionKey (String key) {
+		return X.equals(key) || Y.equals(key);
+	}
+	
+	private static EntitySnapshot getBase (Map<String, EntitySnapshot> baseline, String name) {
+		if (baseline == null)
+			return EMPTY;
+		
+		EntitySnapshot base = baseline.get(name);
+		return base == null ? EMPTY : base;
+	}
+	
+	private static boolean equal (Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+	
+	private static void writeStrings (ByteWriter writer, ArrayList<String> strings) {
+		writer.writeVarInt(strings.size());
+		for (String string : strings)
+			writer.writeString(string);
+	}
+	
+	private static void readStrings (ByteReader reader, ArrayList<String> strings) {
+		int count = reader.readVarInt();
+		for (int i = 0; i < count; i++)
+			strings.add(reader.readString());
+	}
+	
+	private static void writeBytes (ByteWriter writer, byte[] bytes) {
+		writer.writeBytes(bytes, 0, bytes.length);
+	}
+	
+	private static byte[] readBytes (ByteReader reader, int length) {
+		byte[] bytes = new byte[length];
+		reader.readBytes(bytes, 0, length);
+		return bytes;
+	}
+	
+}
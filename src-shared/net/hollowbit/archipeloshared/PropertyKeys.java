@@ -0,0 +1,64 @@
+package net.hollowbit.archipeloshared;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns entity snapshot property names to small integer slots, so typed property values can be stored in arrays.
+ * Slots are shared by all snapshots and never change once given out.
+ * @author vedi0boy
+ *
+ */
+public class PropertyKeys {
+	
+	private static final ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<String, Integer>();
+	private static final ArrayList<String> names = new ArrayList<String>();
+	
+	//Properties read every frame
+	public static final int X = getSlot("x");
+	public static final int Y = getSlot("y");
+	
+	private PropertyKeys () {}
+	
+	/**
+	 * Returns the slot of a property name, giving it a new one if it doesn't have one yet.
+	 * @param name
+	 * @return
+	 */
+	public static int getSlot (String name) {
+		Integer slot = slots.get(name);
+		if (slot != null)
+			return slot;
+		
+		synchronized (names) {
+			slot = slots.get(name);
+			if (slot == null) {
+				slot = names.size();
+				names.add(name);
+				slots.put(name, slot);
+			}
+			return slot;
+		}
+	}
+	
+	/**
+	 * Returns the slot of a property name, or -1 if no snapshot has used it yet. Doesn't give out new slots.
+	 * @param name
+	 * @return
+	 */
+	public static int findSlot (String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+	
+	public static String getName (int slot) {
+		synchronized (names) {
+			return names.get(slot);
+		}
+	}
+	
+	public static int getSlotCount () {
+		return slots.size();
+	}
+	
+}
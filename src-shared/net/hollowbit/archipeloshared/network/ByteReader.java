@@ -0,0 +1,119 @@
+package net.hollowbit.archipeloshared.network;
+
+/**
+ * Bounds checked reader for values written by {@link ByteWriter}, straight from a received byte array.
+ * @author vedi0boy
+ *
+ */
+public class ByteReader {
+	
+	private byte[] data;
+	private int position;
+	private int limit;
+	
+	public ByteReader (byte[] data) {
+		this(data, 0, data.length);
+	}
+	
+	public ByteReader (byte[] data, int offset, int length) {
+		this.data = data;
+		this.position = offset;
+		this.limit = offset + length;
+	}
+	
+	/**
+	 * Throws if there are less than the given amount of bytes left.
+	 * @param bytes
+	 */
+	public void require (int bytes) {
+		if (position + bytes > limit)
+			throw new IllegalStateException("Unexpected end of binary data.");
+	}
+	
+	public int readByte () {
+		require(1);
+		return data[position++];
+	}
+	
+	public int readUnsignedByte () {
+		return readByte() & 0xFF;
+	}
+	
+	public void readBytes (byte[] bytes, int offset, int length) {
+		require(length);
+		System.arraycopy(data, position, bytes, offset, length);
+		position += length;
+	}
+	
+	public boolean readBoolean () {
+		return readByte() != 0;
+	}
+	
+	public short readShort () {
+		require(2);
+		return (short) (((data[position++] & 0xFF) << 8) | (data[position++] & 0xFF));
+	}
+	
+	public int readInt () {
+		require(4);
+		return ((data[position++] & 0xFF) << 24) | ((data[position++] & 0xFF) << 16) | ((data[position++] & 0xFF) << 8) | (data[position++] & 0xFF);
+	}
+	
+	public long readLong () {
+		long high = readInt();
+		long low = readInt() & 0xFFFFFFFFL;
+		return (high << 32) | low;
+	}
+	
+	public float readFloat () {
+		return Float.intBitsToFloat(readInt());
+	}
+	
+	public double readDouble () {
+		return Double.longBitsToDouble(readLong());
+	}
+	
+	public int readVarInt () {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+	
+	public int readZigZag () {
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	public String readString () {
+		int length = readVarInt() - 1;
+		if (length < 0)
+			return null;
+		
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			int b = readUnsignedByte();
+			if (b < 0x80)
+				chars[i] = (char) b;
+			else if ((b & 0xE0) == 0xC0)
+				chars[i] = (char) (((b & 0x1F) << 6) | (readUnsignedByte() & 0x3F));
+			else
+				chars[i] = (char) (((b & 0x0F) << 12) | ((readUnsignedByte() & 0x3F) << 6) | (readUnsignedByte() & 0x3F));
+		}
+		return new String(chars);
+	}
+	
+	public int getPosition () {
+		return position;
+	}
+	
+	public int remaining () {
+		return limit - position;
+	}
+	
+}
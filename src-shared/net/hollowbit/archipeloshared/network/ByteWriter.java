@@ -0,0 +1,132 @@
+package net.hollowbit.archipeloshared.network;
+
+/**
+ * Growable big-endian byte buffer shared by every binary format: packets, chunks and entity deltas.
+ * Varints are unsigned, 7 bits per byte, least significant group first. Strings are their char count + 1
+ * as a varint (0 meaning null) followed by their UTF-8 bytes.
+ * @author vedi0boy
+ *
+ */
+public class ByteWriter {
+	
+	private byte[] buffer;
+	private int position;
+	
+	public ByteWriter (int initialCapacity) {
+		buffer = new byte[initialCapacity];
+		position = 0;
+	}
+	
+	public void reset () {
+		position = 0;
+	}
+	
+	private void ensureCapacity (int bytesToAdd) {
+		if (position + bytesToAdd > buffer.length) {
+			byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + bytesToAdd)];
+			System.arraycopy(buffer, 0, newBuffer, 0, position);
+			buffer = newBuffer;
+		}
+	}
+	
+	public void writeByte (int value) {
+		ensureCapacity(1);
+		buffer[position++] = (byte) value;
+	}
+	
+	public void writeBytes (byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, position, length);
+		position += length;
+	}
+	
+	public void writeBoolean (boolean value) {
+		writeByte(value ? 1 : 0);
+	}
+	
+	public void writeShort (int value) {
+		ensureCapacity(2);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+	
+	public void writeInt (int value) {
+		ensureCapacity(4);
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+	
+	public void writeLong (long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+	
+	public void writeFloat (float value) {
+		writeInt(Float.floatToIntBits(value));
+	}
+	
+	public void writeDouble (double value) {
+		writeLong(Double.doubleToLongBits(value));
+	}
+	
+	/**
+	 * Writes an unsigned variable length int. Values under 128 only take a single byte.
+	 * @param value
+	 */
+	public void writeVarInt (int value) {
+		while ((value & ~0x7F) != 0) {
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+	
+	/**
+	 * Writes a signed value as a zigzag varint so small negative values stay small.
+	 * @param value
+	 */
+	public void writeZigZag (int value) {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+	
+	/**
+	 * Writes a string as its char count + 1 (0 meaning null) followed by its UTF-8 bytes.
+	 * @param value
+	 */
+	public void writeString (String value) {
+		if (value == null) {
+			writeVarInt(0);
+			return;
+		}
+		
+		int length = value.length();
+		writeVarInt(length + 1);
+		ensureCapacity(length * 3);
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				buffer[position++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				buffer[position++] = (byte) (0xE0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+	
+	public int size () {
+		return position;
+	}
+	
+	public byte[] toByteArray () {
+		byte[] bytes = new byte[position];
+		System.arraycopy(buffer, 0, bytes, 0, position);
+		return bytes;
+	}
+	
+}
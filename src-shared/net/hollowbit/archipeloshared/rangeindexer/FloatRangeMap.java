@@ -0,0 +1,150 @@
+package net.hollowbit.archipeloshared.rangeindexer;
+
+import java.util.Arrays;
+
+/**
+ * Version of {@link RangeMap} for float ranges, with the same add, remove, set and setMinimum behavior and exceptions.
+ * Limits are kept in a float array next to an array of values, so looking up a value is a binary search with no boxing.
+ * Used where values are looked up every frame, like animation frames by state time.
+ * Example:
+ * [0,0.1[ => frame 0
+ * [0.1,0.25[ => frame 1
+ * [0.25,0.3[ => frame 2
+ *
+ * @author vedi0boy
+ *
+ */
+public class FloatRangeMap<V> {
+
+    private float[] limits;
+    private Object[] values;
+    private int size = 0;
+    private float minimum;
+
+    public FloatRangeMap(float minimum) {
+        this(minimum, 8);
+    }
+
+    /**
+     * @param minimum
+     * @param capacity Number of ranges to make room for. The map grows if more are added.
+     */
+    public FloatRangeMap(float minimum, int capacity) {
+        this.minimum = minimum;
+        limits = new float[Math.max(1, capacity)];
+        values = new Object[limits.length];
+    }
+
+    /**
+     * Maps a value to the range [previousLimit, nextLimit[
+     * If no limit was previously specified, it will be mapped to [minimum, nextLimit[
+     *
+     * nextLimit must be greater than the previousLimit and the minimum.
+     * @param nextLimit
+     * @param value
+     */
+    public void add(float nextLimit, V value) {
+        if (!(nextLimit > getTopLimit()))
+            throw new IllegalNextRangeLimitException();
+
+        if (size == limits.length) {
+            limits = Arrays.copyOf(limits, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        limits[size] = nextLimit;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Returns the value of the range the given index falls into, or null if it is outside of all ranges.
+     * @param index
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public V getValue(float index) {
+        int range = findRange(index);
+        return range < 0 ? null : (V) values[range];
+    }
+
+    /**
+     * Returns the exclusive maximum limit of the entire range.
+     * @return
+     */
+    public float getTopLimit() {
+        return size == 0 ? minimum : limits[size - 1];
+    }
+
+    /**
+     * Remove the range that this index falls into.
+     * @param index
+     */
+    public void remove(float index) {
+        int range = findRange(index);
+        if (range < 0)
+            return;
+
+        System.arraycopy(limits, range + 1, limits, range, size - range - 1);
+        System.arraycopy(values, range + 1, values, range, size - range - 1);
+        size--;
+        values[size] = null;
+    }
+
+    /**
+     * Set the value of the range that the specified index falls into.
+     * If the range does not exist, nothing will happen.
+     * @param index
+     * @param value
+     */
+    public void set(float index, V value) {
+        int range = findRange(index);
+        if (range >= 0)
+            values[range] = value;
+    }
+
+    /**
+     * Set the minimum of the range to a new value.
+     * Must be lower than the first defined range's limit.
+     * @param minimum
+     */
+    public void setMinimum(float minimum) {
+        if (size == 0 || minimum < limits[0])
+            this.minimum = minimum;
+        else
+            throw new IllegalRangeMinimumException();
+    }
+
+    /**
+     * Clears all range definitions from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Binary searches for the first range whose limit is above the index.
+     * @param index
+     * @return Index of the range, or -1 if the index is outside of all ranges
+     */
+    private int findRange(float index) {
+        if (index < minimum || !(index < getTopLimit()))
+            return -1;
+
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index < limits[middle])
+                high = middle;
+            else
+                low = middle + 1;
+        }
+        return low;
+    }
+
+}